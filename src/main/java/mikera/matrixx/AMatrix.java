@@ -40,6 +40,7 @@ import mikera.matrixx.impl.ZeroMatrix;
 import mikera.randomz.Hash;
 import mikera.transformz.AAffineTransform;
 import mikera.transformz.AffineMN;
+import mikera.transformz.ITransform;
 import mikera.transformz.impl.IdentityTranslation;
 import mikera.util.Maths;
 import mikera.vectorz.AScalar;
@@ -66,7 +67,7 @@ import mikera.vectorz.util.VectorzException;
  * 
  * @author Mike
  */
-public abstract class AMatrix extends AbstractArray<AVector> implements IMatrix {
+public abstract class AMatrix extends AbstractArray<AVector> implements IMatrix, ITransform {
 	// ==============================================
 	// Abstract interface
 	private static final long serialVersionUID = 4854869374064155441L;
@@ -182,6 +183,7 @@ public abstract class AMatrix extends AbstractArray<AVector> implements IMatrix
 	 * Returns the number of dimensions required for input vectors
 	 * @return
 	 */
+	@Override
 	public final int inputDimensions() {
 		return columnCount();
 	}
@@ -190,6 +192,7 @@ public abstract class AMatrix extends AbstractArray<AVector> implements IMatrix
 	 * Returns the number of dimensions required for output vectors
 	 * @return
 	 */
+	@Override
 	public final int outputDimensions() {
 		return rowCount();
 	}
@@ -1059,6 +1062,24 @@ public abstract class AMatrix extends AbstractArray<AVector> implements IMatrix
 	public void addInnerProduct(AMatrix a, AMatrix b) {
 		add(a.innerProduct(b));
 	}
+	
+	@Override
+	public void setInnerProduct(INDArray a, INDArray b) {
+		if ((a instanceof AMatrix)&&(b instanceof AMatrix)) {
+			setInnerProduct((AMatrix)a,(AMatrix)b);
+		} else {
+			super.setInnerProduct(a, b);
+		}
+	}
+	
+	/**
+	 * Sets this matrix to the inner product (matrix multiply) of two matrices. 
+	 * 
+	 * This matrix must have the correct shape, and must not be one of the arguments.
+	 */
+	public void setInnerProduct(AMatrix a, AMatrix b) {
+		set(a.innerProduct(b));
+	}
 
 	@Override
 	public void addOuterProduct(INDArray a, INDArray b) {
@@ -1471,6 +1492,9 @@ public abstract class AMatrix extends AbstractArray<AVector> implements IMatrix
 			AMatrix t= getTranspose();
 			if (t instanceof TransposedMatrix) t=t.sparseClone();
 			return t.innerProduct(s);
+		} else if ((this instanceof AStridedMatrix)&&(s instanceof AStridedMatrix)) {
+			if (s==this) return Multiplications.gram((AStridedMatrix)this);
+			return Multiplications.multiply(this, true, s, false);
 		} else {
 			Matrix t= toMatrixTranspose();
 			return t.innerProduct(s);			
@@ -1478,6 +1502,7 @@ public abstract class AMatrix extends AbstractArray<AVector> implements IMatrix
 	}
 	
 	public AMatrix transposeInnerProduct(Matrix s) {
+		if (this instanceof AStridedMatrix) return Multiplications.multiply(this, true, s, false);
 		Matrix r= toMatrixTranspose();
 		return Multiplications.multiply(r, s);
 	}
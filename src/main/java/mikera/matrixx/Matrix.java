@@ -203,10 +203,21 @@ public final class Matrix extends ADenseArrayMatrix {
 		return Multiplications.multiply(this, a);
 	}
 	
+	/**
+	 * Sets this matrix to the inner product (matrix multiply) of two matrices, without 
+	 * allocating a new result matrix.
+	 * 
+	 * This matrix must have the correct shape, and must not share data with either argument.
+	 */
+	@Override
+	public void setInnerProduct(AMatrix a, AMatrix b) {
+		Multiplications.multiplyInto(this, a, b);
+	}
+	
 	@Override
 	public Matrix transposeInnerProduct(Matrix s) {
-		Matrix r = toMatrixTranspose();
-		return Multiplications.multiply(r, s);
+		if (s==this) return Multiplications.gram(this);
+		return Multiplications.multiply(this, true, s, false);
 	}
 
 	@Override
@@ -285,6 +296,10 @@ public final class Matrix extends ADenseArrayMatrix {
 		if (cols != source.length())
 			throw new IllegalArgumentException(
 					ErrorMessages.wrongSourceLength(source));
+		if (Multiplications.isParallelTransform(rows, cols)) {
+			Multiplications.parallelTransform(this, source, dest);
+			return;
+		}
 		for (int i = 0; i < rows; i++) {
 			dest.unsafeSet(i, source.dotProduct(data, i * cols));
 		}
@@ -300,6 +315,10 @@ public final class Matrix extends ADenseArrayMatrix {
 		if (dest.length() != rc)
 			throw new IllegalArgumentException(
 					ErrorMessages.wrongDestLength(dest));
+		if (Multiplications.isParallelTransform(rc, cc)) {
+			Multiplications.parallelTransform(this, source, dest);
+			return;
+		}
 		int di = 0;
 		double[] sdata = source.getArray();
 		double[] ddata = dest.getArray();
@@ -4,6 +4,7 @@ import mikera.matrixx.AMatrix;
 import mikera.matrixx.Matrix;
 import mikera.matrixx.Matrix33;
 import mikera.matrixx.decompose.ILUPResult;
+import mikera.matrixx.decompose.impl.lu.BlockedLU;
 import mikera.matrixx.decompose.impl.lu.SimpleLUP;
 import mikera.vectorz.util.IntArrays;
 
@@ -42,13 +43,14 @@ public class Determinant {
 	}
 	
 	/**
-	 * Determinant implemented using the LUP decomposition
+	 * Determinant implemented using the LUP decomposition. Large matrices use the blocked algorithm.
 	 * 
 	 * @param m
 	 * @return
 	 */
 	static double calculateLUPDeterminant(AMatrix m) {
-		ILUPResult lup=SimpleLUP.decompose(m);
+		int rc=m.rowCount();
+		ILUPResult lup=BlockedLU.isBlockedSize(rc, rc)?BlockedLU.decompose(m):SimpleLUP.decompose(m);
 		double det=lup.getL().diagonalProduct()*lup.getU().diagonalProduct()*lup.getP().determinant();
 		return det;
 	}
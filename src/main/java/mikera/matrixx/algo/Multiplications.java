@@ -1,8 +1,15 @@
 package mikera.matrixx.algo;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 import mikera.matrixx.AMatrix;
 import mikera.matrixx.Matrix;
+import mikera.matrixx.algo.impl.PackedGemm;
+import mikera.matrixx.impl.AStridedMatrix;
 import mikera.matrixx.impl.ImmutableMatrix;
+import mikera.vectorz.AVector;
+import mikera.vectorz.impl.ADenseArrayVector;
 import mikera.vectorz.util.DoubleArrays;
 import mikera.vectorz.util.ErrorMessages;
 
@@ -14,6 +21,46 @@ public class Multiplications {
 	// aim for around 200kb => fits comfortably in L2 cache in modern machines
 	protected static final int WORKING_SET_TARGET=8192;
 	
+	// target number of multiply-add operations performed by each parallel task
+	protected static final long PARALLEL_TASK_TARGET=1L<<18;
+	
+	// parallel tasks are not split below this number of rows or columns
+	protected static final int PARALLEL_MIN_TILE=32;
+	
+	// minimum number of multiply-add operations before the packed kernel is used
+	// below this, the cost of packing outweighs the benefit of register tiling
+	protected static final long PACKED_THRESHOLD=1L<<18;
+	
+	// minimum size of every dimension for the packed kernel to be used
+	protected static final int PACKED_MIN_DIMENSION=2*PackedGemm.MR;
+	
+	// size of square result blocks computed in Gram matrix calculations
+	protected static final int GRAM_BLOCK=64;
+	
+	// minimum number of multiply-add operations before a multiply is run in parallel
+	private static volatile long parallelThreshold=1L<<21;
+	
+	/**
+	 * Gets the minimum number of multiply-add operations (rows * columns * inner dimension)
+	 * at which dense matrix multiplication switches to parallel execution.
+	 * @return
+	 */
+	public static long getParallelThreshold() {
+		return parallelThreshold;
+	}
+	
+	/**
+	 * Sets the minimum number of multiply-add operations (rows * columns * inner dimension)
+	 * at which dense matrix multiplication switches to parallel execution. 
+	 * 
+	 * Use Long.MAX_VALUE to disable parallel execution entirely.
+	 * @param threshold
+	 */
+	public static void setParallelThreshold(long threshold) {
+		if (threshold<0) throw new IllegalArgumentException("Negative parallel threshold: "+threshold);
+		parallelThreshold=threshold;
+	}
+	
 	/** 
 	 * General purpose matrix multiplication, with smart selection of algorithm based
 	 * on matrix size and type.
@@ -28,16 +75,243 @@ public class Multiplications {
 		} else if (a instanceof ImmutableMatrix) {
 			return multiply(Matrix.wrap(a.rowCount(),a.columnCount(),((ImmutableMatrix)a).getInternalData()),b);
 		} else {
-			return blockedMultiply(a.toMatrix(),b);
+			return multiply(a.toMatrix(),b);
 		}
 	}
 	
 	public static Matrix multiply(Matrix a, AMatrix b) {
+		if ((b instanceof AStridedMatrix)&&isPackedSize(a.rowCount(),b.columnCount(),a.columnCount())) {
+			return packedMultiply(a,(AStridedMatrix)b);
+		}
 		return blockedMultiply(a,b);
 	}
 	
 	/**
-	 * Performs fast matrix multiplication using temporary working storage for the second matrix
+	 * Computes the matrix product a * b and stores the result in a destination matrix.
+	 * 
+	 * The destination must have the correct shape and must not share storage with a or b.
+	 * 
+	 * @param dest
+	 * @param a
+	 * @param b
+	 */
+	public static void multiplyInto(Matrix dest, AMatrix a, AMatrix b) {
+		multiplyInto(dest,a,b,null);
+	}
+	
+	/**
+	 * Computes the matrix product a * b and stores the result in a destination matrix, using 
+	 * a reusable workspace for temporary storage. 
+	 * 
+	 * No allocation is performed for dense (strided) a when the workspace is provided and the 
+	 * multiplication is below the parallel threshold. Other matrix types fall back to their 
+	 * own innerProduct implementation.
+	 * 
+	 * The destination must have the correct shape and must not share storage with a or b.
+	 * 
+	 * @param dest Destination matrix
+	 * @param a
+	 * @param b
+	 * @param ws Workspace, or null to allocate temporary storage as needed
+	 */
+	public static void multiplyInto(Matrix dest, AMatrix a, AMatrix b, MultiplyWorkspace ws) {
+		int rc=a.rowCount();
+		int cc=b.columnCount();
+		int ic=a.columnCount();
+		
+		if ((ic!=b.rowCount())) {
+			throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(a,b));
+		}
+		if ((dest.rowCount()!=rc)||(dest.columnCount()!=cc)) {
+			throw new IllegalArgumentException(ErrorMessages.incompatibleShape(dest));
+		}
+		if (sharesData(dest,a)||sharesData(dest,b)) {
+			throw new IllegalArgumentException("Destination matrix must not share data with multiplication arguments");
+		}
+		
+		if (ic==0) {
+			dest.fill(0.0);
+		} else if ((a instanceof AStridedMatrix)&&(b instanceof AStridedMatrix)&&(!(a instanceof Matrix)||isPackedSize(rc,cc,ic))) {
+			dest.fill(0.0);
+			packedMultiplyInto(dest,(AStridedMatrix)a,(AStridedMatrix)b,ws);
+		} else if (a instanceof Matrix) {
+			blockedMultiplyInto(dest,(Matrix)a,b,ws);
+		} else {
+			dest.set(a.innerProduct(b));
+		}
+	}
+	
+	/**
+	 * Computes a matrix product with optional transposition of either argument, i.e. one of 
+	 * a * b, a' * b, a * b' or a' * b'.
+	 * 
+	 * Dense (strided) arguments are read directly from their underlying arrays with the appropriate 
+	 * access pattern, without materialising the transpose.
+	 * 
+	 * @param a
+	 * @param transposeA If true, use the transpose of a
+	 * @param b
+	 * @param transposeB If true, use the transpose of b
+	 * @return
+	 */
+	public static Matrix multiply(AMatrix a, boolean transposeA, AMatrix b, boolean transposeB) {
+		AMatrix ta=transposeA?transposeView(a):a;
+		AMatrix tb=transposeB?transposeView(b):b;
+		if ((ta.columnCount()!=tb.rowCount())) {
+			throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(ta,tb));
+		}
+		if (!(ta instanceof AStridedMatrix)) return multiply(ta,tb);
+		Matrix result=Matrix.create(ta.rowCount(), tb.columnCount());
+		multiplyInto(result,ta,tb,null);
+		return result;
+	}
+	
+	/**
+	 * Computes a matrix product with optional transposition of either argument and stores the result
+	 * in a destination matrix, using a reusable workspace for temporary storage. 
+	 * 
+	 * The destination must have the correct shape and must not share storage with a or b.
+	 * 
+	 * @param dest Destination matrix
+	 * @param a
+	 * @param transposeA If true, use the transpose of a
+	 * @param b
+	 * @param transposeB If true, use the transpose of b
+	 * @param ws Workspace, or null to allocate temporary storage as needed
+	 */
+	public static void multiplyInto(Matrix dest, AMatrix a, boolean transposeA, AMatrix b, boolean transposeB, MultiplyWorkspace ws) {
+		multiplyInto(dest,transposeA?transposeView(a):a,transposeB?transposeView(b):b,ws);
+	}
+	
+	/**
+	 * Gets a lightweight transposed view of a matrix. Strided matrices produce a strided view
+	 * with exchanged strides, so the packed kernel can read them directly.
+	 */
+	private static AMatrix transposeView(AMatrix a) {
+		if (a instanceof AStridedMatrix) return ((AStridedMatrix)a).getTransposeView();
+		return a.getTranspose();
+	}
+	
+	private static boolean sharesData(Matrix dest, AMatrix m) {
+		if (dest==m) return true;
+		return (m instanceof AStridedMatrix)&&(((AStridedMatrix)m).getArray()==dest.data);
+	}
+	
+	private static boolean isPackedSize(int rc, int cc, int ic) {
+		if (Math.min(rc, Math.min(cc, ic))<PACKED_MIN_DIMENSION) return false;
+		return ((long)rc)*cc*ic>=PACKED_THRESHOLD;
+	}
+	
+	/**
+	 * Performs matrix multiplication using a packed, register-tiled kernel. This is the fastest
+	 * method for large dense matrices, but has a higher fixed overhead than blockedMultiply.
+	 * 
+	 * Runs in parallel if the operation is larger than the parallel threshold.
+	 * @param a
+	 * @param b
+	 * @return
+	 */
+	public static Matrix packedMultiply(AStridedMatrix a, AStridedMatrix b) {
+		int rc=a.rowCount();
+		int cc=b.columnCount();
+		int ic=a.columnCount();
+		
+		if ((ic!=b.rowCount())) {
+			throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(a,b));
+		}		
+
+		Matrix result=Matrix.create(rc, cc);
+		packedMultiplyInto(result,a,b,null);
+		return result;
+	}
+	
+	/**
+	 * Adds the product a * b to the destination matrix using the packed kernel.
+	 * Shapes must already be checked.
+	 */
+	private static void packedMultiplyInto(Matrix dest, AStridedMatrix a, AStridedMatrix b, MultiplyWorkspace ws) {
+		int rc=a.rowCount();
+		int cc=b.columnCount();
+		int ic=a.columnCount();
+		if (ic==0) return;
+		
+		if (isParallel(rc,cc,ic)) {
+			ForkJoinPool.commonPool().invoke(new MultiplyTask(a,b,dest,0,rc,0,cc,true));
+		} else {
+			PackedGemm gemm=(ws==null)?new PackedGemm():ws.getGemm();
+			packedMultiply(a,b,dest,0,rc,0,cc,gemm);
+		}
+	}
+	
+	/**
+	 * Adds the product of a set of rows of a with a set of columns of b to the corresponding
+	 * tile of the result matrix, using the packed kernel
+	 */
+	private static void packedMultiply(AStridedMatrix a, AStridedMatrix b, Matrix result, int rowStart, int rowEnd, int colStart, int colEnd, PackedGemm gemm) {
+		int ic=a.columnCount();
+		int cc=result.columnCount();
+		int aRowStride=a.rowStride();
+		int bColStride=b.columnStride();
+		gemm.multiply(rowEnd-rowStart, colEnd-colStart, ic, 
+				a.getArray(), a.getArrayOffset()+rowStart*aRowStride, aRowStride, a.columnStride(), 
+				b.getArray(), b.getArrayOffset()+colStart*bColStride, b.rowStride(), bColStride, 
+				result.data, rowStart*cc+colStart, cc, 1);
+	}
+	
+	/**
+	 * Adds a scaled matrix product to the destination matrix in place, i.e. dest += factor * a * b
+	 * 
+	 * All three matrices may be strided views, such as submatrices of a larger matrix, so that 
+	 * blocked algorithms can express updates of a trailing submatrix as a single packed multiply.
+	 * The destination may share an underlying array with a or b, but must not overlap their elements.
+	 * 
+	 * Runs in parallel if the operation is larger than the parallel threshold.
+	 * 
+	 * @param dest Destination matrix, updated in place
+	 * @param a
+	 * @param b
+	 * @param factor Scale factor applied to the product
+	 * @param ws Workspace, or null to allocate temporary storage as needed
+	 */
+	public static void multiplyAdd(AStridedMatrix dest, AStridedMatrix a, AStridedMatrix b, double factor, MultiplyWorkspace ws) {
+		int rc=a.rowCount();
+		int cc=b.columnCount();
+		int ic=a.columnCount();
+		
+		if ((ic!=b.rowCount())) {
+			throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(a,b));
+		}
+		if ((dest.rowCount()!=rc)||(dest.columnCount()!=cc)) {
+			throw new IllegalArgumentException(ErrorMessages.incompatibleShape(dest));
+		}
+		if ((ic==0)||(factor==0.0)) return;
+		
+		if (isParallel(rc,cc,ic)) {
+			ForkJoinPool.commonPool().invoke(new MultiplyAddTask(dest,a,b,factor,0,rc,0,cc));
+		} else {
+			PackedGemm gemm=(ws==null)?new PackedGemm():ws.getGemm();
+			multiplyAdd(dest,a,b,factor,0,rc,0,cc,gemm);
+		}
+	}
+	
+	/**
+	 * Adds a scaled matrix product to a tile of the destination matrix, using the packed kernel
+	 */
+	private static void multiplyAdd(AStridedMatrix dest, AStridedMatrix a, AStridedMatrix b, double factor, int rowStart, int rowEnd, int colStart, int colEnd, PackedGemm gemm) {
+		int aRowStride=a.rowStride();
+		int bColStride=b.columnStride();
+		int dRowStride=dest.rowStride();
+		int dColStride=dest.columnStride();
+		gemm.multiply(factor, rowEnd-rowStart, colEnd-colStart, a.columnCount(), 
+				a.getArray(), a.getArrayOffset()+rowStart*aRowStride, aRowStride, a.columnStride(), 
+				b.getArray(), b.getArrayOffset()+colStart*bColStride, b.rowStride(), bColStride, 
+				dest.getArray(), dest.getArrayOffset()+rowStart*dRowStride+colStart*dColStride, dRowStride, dColStride);
+	}
+	
+	/**
+	 * Performs fast matrix multiplication using temporary working storage for the second matrix.
+	 * 
+	 * Runs in parallel if the operation is larger than the parallel threshold.
 	 * @param a
 	 * @param b
 	 * @return
@@ -53,35 +327,486 @@ public class Multiplications {
 
 		Matrix result=Matrix.create(rc, cc);
 		if (ic==0) return result;
+		blockedMultiplyInto(result,a,b,null);
+		return result;
+	}
+	
+	/**
+	 * Stores the product a * b in the destination matrix using the blocked algorithm.
+	 * Shapes must already be checked.
+	 */
+	private static void blockedMultiplyInto(Matrix dest, Matrix a, AMatrix b, MultiplyWorkspace ws) {
+		int rc=a.rowCount();
+		int cc=b.columnCount();
+		int ic=a.columnCount();
 		
+		if (isParallel(rc,cc,ic)) {
+			ForkJoinPool.commonPool().invoke(new MultiplyTask(a,b,dest,0,rc,0,cc,false));
+		} else {
+			double[] wsb=(ws==null)?null:ws.getColumnBuffer(blockedWorkingSetSize(ic,cc));
+			blockedMultiply(a,b,dest,0,rc,0,cc,wsb);
+		}
+	}
+	
+	/**
+	 * Performs fast matrix multiplication, always splitting the result into tiles
+	 * that are computed in parallel using the common ForkJoinPool.
+	 * 
+	 * @param a
+	 * @param b
+	 * @return
+	 */
+	public static Matrix parallelMultiply(Matrix a, AMatrix b) {
+		int rc=a.rowCount();
+		int cc=b.columnCount();
+		int ic=a.columnCount();
+		
+		if ((ic!=b.rowCount())) {
+			throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(a,b));
+		}		
+
+		Matrix result=Matrix.create(rc, cc);
+		if (ic==0) return result;
+		ForkJoinPool.commonPool().invoke(new MultiplyTask(a,b,result,0,rc,0,cc,false));
+		return result;
+	}
+	
+	private static boolean isParallel(int rc, int cc, int ic) {
+		return (((long)rc)*cc*ic>=parallelThreshold)&&(ForkJoinPool.getCommonPoolParallelism()>1);
+	}
+	
+	/**
+	 * Gets the number of elements needed for the blocked column working set 
+	 */
+	private static int blockedWorkingSetSize(int ic, int cols) {
+		int block=(WORKING_SET_TARGET/ic)+1;
+		return Math.min(block,cols)*ic;
+	}
+	
+	/**
+	 * Computes a rectangular tile of the result matrix, using temporary working storage 
+	 * for the columns of the second matrix. A new working set is allocated if wsb is null.
+	 */
+	private static void blockedMultiply(Matrix a, AMatrix b, Matrix result, int rowStart, int rowEnd, int colStart, int colEnd, double[] wsb) {
+		int ic=a.columnCount();
 		int block=(WORKING_SET_TARGET/ic)+1;
 		// working set stores up to <block> number of columns from second matrix
-		Matrix wsb=Matrix.create(Math.min(block,cc), ic);
+		if (wsb==null) wsb=new double[blockedWorkingSetSize(ic,colEnd-colStart)];
 		
-		for (int bj=0; bj<cc; bj+=block) {
-			int bjsize=Math.min(block, cc-bj);
+		for (int bj=colStart; bj<colEnd; bj+=block) {
+			int bjsize=Math.min(block, colEnd-bj);
 			
 			// copy columns into working set
 			for (int t=0; t<bjsize; t++) {
-				b.copyColumnTo(bj+t,wsb.data,t*ic);
+				b.copyColumnTo(bj+t,wsb,t*ic);
 			}
 			
-			for (int bi=0; bi<rc; bi+=block) {
-				int bisize=Math.min(block, rc-bi);
+			for (int bi=rowStart; bi<rowEnd; bi+=block) {
+				int bisize=Math.min(block, rowEnd-bi);
 				
 				// compute inner block
 				for (int i=bi; i<(bi+bisize); i++) {
 					int aDataOffset=i*ic;
 					for (int j=bj; j<(bj+bjsize); j++) {
-						double val=DoubleArrays.dotProduct(a.data, aDataOffset, wsb.data, ic*(j-bj), ic);
+						double val=DoubleArrays.dotProduct(a.data, aDataOffset, wsb, ic*(j-bj), ic);
 						result.unsafeSet(i, j, val);
 					}
 				}
 			}
 		}
+	}
+	
+	/**
+	 * Returns true if a matrix-vector transform of the given size should be run in parallel.
+	 * 
+	 * Uses the same parallel threshold as matrix multiplication, measured in multiply-add operations.
+	 */
+	public static boolean isParallelTransform(int rows, int cols) {
+		return isParallel(rows,cols,1);
+	}
+	
+	/**
+	 * Computes dest = m * source for a dense strided matrix, splitting the rows of m
+	 * into blocks that are computed in parallel using the common ForkJoinPool. 
+	 * 
+	 * Sparse sources are not densified: each row uses the sparse dot product, and the
+	 * work is estimated from the number of non-zero elements, so a sparse transform too
+	 * small to be worth splitting runs on the calling thread.
+	 * 
+	 * The source and destination must not share storage.
+	 * 
+	 * @param m
+	 * @param source
+	 * @param dest
+	 */
+	public static void parallelTransform(AStridedMatrix m, AVector source, AVector dest) {
+		int rc=m.rowCount();
+		int cc=m.columnCount();
+		if (source.length()!=cc) throw new IllegalArgumentException(ErrorMessages.wrongSourceLength(source));
+		if (dest.length()!=rc) throw new IllegalArgumentException(ErrorMessages.wrongDestLength(dest));
+		
+		double[] src=null;
+		int srcOffset=0;
+		AVector sparse=null;
+		long rowCost=cc;
+		if (source.isSparse()) {
+			sparse=source;
+			rowCost=Math.max(1,source.nonZeroCount());
+			if ((((long)rc)*rowCost<parallelThreshold)||(ForkJoinPool.getCommonPoolParallelism()<=1)) {
+				double[] data=m.getArray();
+				int offset=m.getArrayOffset();
+				int rs=m.rowStride();
+				int cs=m.columnStride();
+				for (int i=0; i<rc; i++) {
+					dest.unsafeSet(i, sparse.dotProduct(data, offset+i*rs, cs));
+				}
+				return;
+			}
+		} else if (source instanceof ADenseArrayVector) {
+			src=((ADenseArrayVector)source).getArray();
+			srcOffset=((ADenseArrayVector)source).getArrayOffset();
+		} else {
+			src=source.toDoubleArray();
+			srcOffset=0;
+		}
+		
+		if (dest instanceof ADenseArrayVector) {
+			ADenseArrayVector d=(ADenseArrayVector)dest;
+			ForkJoinPool.commonPool().invoke(new TransformTask(m,src,srcOffset,sparse,rowCost,d.getArray(),d.getArrayOffset(),0,rc));
+		} else {
+			double[] temp=new double[rc];
+			ForkJoinPool.commonPool().invoke(new TransformTask(m,src,srcOffset,sparse,rowCost,temp,0,0,rc));
+			dest.setElements(temp);
+		}
+	}
+	
+	/**
+	 * Fork-join task computing a contiguous range of rows of a matrix-vector product
+	 */
+	@SuppressWarnings("serial")
+	private static final class TransformTask extends RecursiveAction {
+		private final AStridedMatrix m;
+		private final double[] src;
+		private final int srcOffset;
+		// sparse source vector used instead of src, or null for a dense source
+		private final AVector sparse;
+		// estimated multiply-add operations per row
+		private final long rowCost;
+		private final double[] dest;
+		private final int destOffset;
+		private final int start, end;
+		
+		TransformTask(AStridedMatrix m, double[] src, int srcOffset, AVector sparse, long rowCost, double[] dest, int destOffset, int start, int end) {
+			this.m=m;
+			this.src=src;
+			this.srcOffset=srcOffset;
+			this.sparse=sparse;
+			this.rowCost=rowCost;
+			this.dest=dest;
+			this.destOffset=destOffset;
+			this.start=start;
+			this.end=end;
+		}
+
+		@Override
+		protected void compute() {
+			int cc=m.columnCount();
+			int rows=end-start;
+			if ((rows*rowCost<=PARALLEL_TASK_TARGET)||(rows<2*PARALLEL_MIN_TILE)) {
+				double[] data=m.getArray();
+				int rs=m.rowStride();
+				int cs=m.columnStride();
+				int offset=m.getArrayOffset();
+				if (sparse!=null) {
+					for (int i=start; i<end; i++) {
+						dest[destOffset+i]=sparse.dotProduct(data, offset+i*rs, cs);
+					}
+					return;
+				}
+				for (int i=start; i<end; i++) {
+					dest[destOffset+i]=DoubleArrays.dotProduct(data, offset+i*rs, cs, src, srcOffset, 1, cc);
+				}
+			} else {
+				int mid=start+(rows>>1);
+				invokeAll(new TransformTask(m,src,srcOffset,sparse,rowCost,dest,destOffset,start,mid),
+						  new TransformTask(m,src,srcOffset,sparse,rowCost,dest,destOffset,mid,end));
+			}
+		}
+	}
+	
+	/**
+	 * Computes the Gram matrix a' * a, i.e. the inner products of all pairs of columns of a.
+	 * 
+	 * For dense matrices, only the lower triangle is computed and then mirrored, which 
+	 * roughly halves the work compared to a general matrix multiply. The result is
+	 * exactly symmetric.
+	 * 
+	 * @param a
+	 * @return
+	 */
+	public static AMatrix gram(AMatrix a) {
+		if (!(a instanceof AStridedMatrix)) {
+			if (a.isSparse()) return a.transposeInnerProduct(a);
+			a=a.toMatrix();
+		}
+		return gram((AStridedMatrix)a);
+	}
+	
+	/**
+	 * Computes the outer Gram matrix a * a', i.e. the inner products of all pairs of rows of a.
+	 * 
+	 * For dense matrices, only the lower triangle is computed and then mirrored. The result is
+	 * exactly symmetric.
+	 * 
+	 * @param a
+	 * @return
+	 */
+	public static AMatrix outerGram(AMatrix a) {
+		if (!(a instanceof AStridedMatrix)) {
+			if (a.isSparse()) return a.innerProduct(a.getTranspose());
+			a=a.toMatrix();
+		}
+		return gram(((AStridedMatrix)a).getTransposeView());
+	}
+	
+	/**
+	 * Computes the Gram matrix a' * a for a dense strided matrix. The lower triangle is computed 
+	 * in blocks with the packed kernel, in parallel if above the parallel threshold.
+	 * 
+	 * @param a
+	 * @return
+	 */
+	public static Matrix gram(AStridedMatrix a) {
+		int rc=a.rowCount();
+		int n=a.columnCount();
+		Matrix result=Matrix.create(n, n);
+		if ((rc==0)||(n==0)) return result;
+		
+		int nb=(n+GRAM_BLOCK-1)/GRAM_BLOCK;
+		int blockCount=(nb*(nb+1))/2;
+		if (isParallel(n,(n+1)/2,rc)&&(blockCount>1)) {
+			ForkJoinPool.commonPool().invoke(new GramTask(a,result,0,blockCount));
+		} else {
+			PackedGemm gemm=new PackedGemm();
+			for (int t=0; t<blockCount; t++) {
+				gramBlock(a,result,t,gemm);
+			}
+		}
+		
+		// mirror lower triangle into upper triangle
+		double[] data=result.data;
+		for (int i=0; i<n; i++) {
+			for (int j=i+1; j<n; j++) {
+				data[i*n+j]=data[j*n+i];
+			}
+		}
 		return result;
 	}
 	
+	/**
+	 * Computes a single block of the lower triangle of a Gram matrix. Blocks are numbered
+	 * row by row, i.e. (0,0), (1,0), (1,1), (2,0) ...
+	 */
+	private static void gramBlock(AStridedMatrix a, Matrix result, int t, PackedGemm gemm) {
+		int bi=(int)((Math.sqrt(8.0*t+1)-1)/2);
+		while (((bi*(bi+1))/2)>t) bi--;
+		while ((((bi+1)*(bi+2))/2)<=t) bi++;
+		int bj=t-(bi*(bi+1))/2;
+		
+		int n=result.columnCount();
+		int i0=bi*GRAM_BLOCK;
+		int j0=bj*GRAM_BLOCK;
+		int isize=Math.min(GRAM_BLOCK, n-i0);
+		int jsize=Math.min(GRAM_BLOCK, n-j0);
+		
+		// result[I,J] += a[:,I]' * a[:,J]
+		double[] data=a.getArray();
+		int offset=a.getArrayOffset();
+		int rs=a.rowStride();
+		int cs=a.columnStride();
+		gemm.multiply(isize, jsize, a.rowCount(), 
+				data, offset+i0*cs, cs, rs, 
+				data, offset+j0*cs, rs, cs, 
+				result.data, i0*n+j0, n, 1);
+	}
+	
+	/**
+	 * Fork-join task computing a range of blocks of a Gram matrix
+	 */
+	@SuppressWarnings("serial")
+	private static final class GramTask extends RecursiveAction {
+		private final AStridedMatrix a;
+		private final Matrix result;
+		private final int start, end;
+		
+		// kernel shared by all tasks run on the same thread, or null to create one
+		private PackedGemm gemm=null;
+		
+		GramTask(AStridedMatrix a, Matrix result, int start, int end) {
+			this.a=a;
+			this.result=result;
+			this.start=start;
+			this.end=end;
+		}
+
+		@Override
+		protected void compute() {
+			if (gemm==null) gemm=new PackedGemm();
+			if (end-start==1) {
+				gramBlock(a,result,start,gemm);
+			} else {
+				int mid=(start+end)>>>1;
+				computeHalves(new GramTask(a,result,start,mid), new GramTask(a,result,mid,end));
+			}
+		}
+		
+		/**
+		 * Runs both halves, reusing the packing buffers of this task unless the second is stolen
+		 */
+		private void computeHalves(GramTask left, GramTask right) {
+			right.fork();
+			left.gemm=gemm;
+			left.compute();
+			if (right.tryUnfork()) {
+				right.gemm=gemm;
+				right.compute();
+			} else {
+				right.join();
+			}
+		}
+	}
+	
+	/**
+	 * Fork-join task computing a tile of a matrix product. Tiles are split along their
+	 * larger dimension until they are small enough to compute directly. 
+	 * 
+	 * Each tile writes to a disjoint region of the result, so no synchronisation is needed.
+	 */
+	@SuppressWarnings("serial")
+	private static final class MultiplyTask extends RecursiveAction {
+		private final AStridedMatrix a;
+		private final AMatrix b;
+		private final Matrix result;
+		private final int rowStart, rowEnd, colStart, colEnd;
+		private final boolean packed;
+		
+		// kernel shared by all tasks run on the same thread, or null to create one
+		private PackedGemm gemm=null;
+		
+		MultiplyTask(AStridedMatrix a, AMatrix b, Matrix result, int rowStart, int rowEnd, int colStart, int colEnd, boolean packed) {
+			this.a=a;
+			this.b=b;
+			this.result=result;
+			this.rowStart=rowStart;
+			this.rowEnd=rowEnd;
+			this.colStart=colStart;
+			this.colEnd=colEnd;
+			this.packed=packed;
+		}
+
+		@Override
+		protected void compute() {
+			if ((packed)&&(gemm==null)) gemm=new PackedGemm();
+			int rows=rowEnd-rowStart;
+			int cols=colEnd-colStart;
+			long ops=((long)rows)*cols*a.columnCount();
+			boolean splitRows=(rows>=cols);
+			int splitSize=splitRows?rows:cols;
+			if ((ops<=PARALLEL_TASK_TARGET)||(splitSize<2*PARALLEL_MIN_TILE)) {
+				if (packed) {
+					packedMultiply(a,(AStridedMatrix)b,result,rowStart,rowEnd,colStart,colEnd,gemm);
+				} else {
+					blockedMultiply((Matrix)a,b,result,rowStart,rowEnd,colStart,colEnd,null);
+				}
+			} else if (splitRows) {
+				int mid=rowStart+(rows>>1);
+				computeHalves(new MultiplyTask(a,b,result,rowStart,mid,colStart,colEnd,packed),
+							  new MultiplyTask(a,b,result,mid,rowEnd,colStart,colEnd,packed));
+			} else {
+				int mid=colStart+(cols>>1);
+				computeHalves(new MultiplyTask(a,b,result,rowStart,rowEnd,colStart,mid,packed),
+							  new MultiplyTask(a,b,result,rowStart,rowEnd,mid,colEnd,packed));
+			}
+		}
+		
+		/**
+		 * Runs both halves, reusing the packing buffers of this task unless the second is stolen
+		 */
+		private void computeHalves(MultiplyTask left, MultiplyTask right) {
+			right.fork();
+			left.gemm=gemm;
+			left.compute();
+			if (right.tryUnfork()) {
+				right.gemm=gemm;
+				right.compute();
+			} else {
+				right.join();
+			}
+		}
+	}
+	
+	/**
+	 * Fork-join task adding a scaled product to a rectangular tile of a strided destination matrix
+	 */
+	@SuppressWarnings("serial")
+	private static final class MultiplyAddTask extends RecursiveAction {
+		private final AStridedMatrix dest;
+		private final AStridedMatrix a;
+		private final AStridedMatrix b;
+		private final double factor;
+		private final int rowStart, rowEnd, colStart, colEnd;
+		
+		// kernel shared by all tasks run on the same thread, or null to create one
+		private PackedGemm gemm=null;
+		
+		MultiplyAddTask(AStridedMatrix dest, AStridedMatrix a, AStridedMatrix b, double factor, int rowStart, int rowEnd, int colStart, int colEnd) {
+			this.dest=dest;
+			this.a=a;
+			this.b=b;
+			this.factor=factor;
+			this.rowStart=rowStart;
+			this.rowEnd=rowEnd;
+			this.colStart=colStart;
+			this.colEnd=colEnd;
+		}
+
+		@Override
+		protected void compute() {
+			if (gemm==null) gemm=new PackedGemm();
+			int rows=rowEnd-rowStart;
+			int cols=colEnd-colStart;
+			long ops=((long)rows)*cols*a.columnCount();
+			boolean splitRows=(rows>=cols);
+			int splitSize=splitRows?rows:cols;
+			if ((ops<=PARALLEL_TASK_TARGET)||(splitSize<2*PARALLEL_MIN_TILE)) {
+				multiplyAdd(dest,a,b,factor,rowStart,rowEnd,colStart,colEnd,gemm);
+			} else if (splitRows) {
+				int mid=rowStart+(rows>>1);
+				computeHalves(new MultiplyAddTask(dest,a,b,factor,rowStart,mid,colStart,colEnd),
+							  new MultiplyAddTask(dest,a,b,factor,mid,rowEnd,colStart,colEnd));
+			} else {
+				int mid=colStart+(cols>>1);
+				computeHalves(new MultiplyAddTask(dest,a,b,factor,rowStart,rowEnd,colStart,mid),
+							  new MultiplyAddTask(dest,a,b,factor,rowStart,rowEnd,mid,colEnd));
+			}
+		}
+		
+		/**
+		 * Runs both halves, reusing the packing buffers of this task unless the second is stolen
+		 */
+		private void computeHalves(MultiplyAddTask left, MultiplyAddTask right) {
+			right.fork();
+			left.gemm=gemm;
+			left.compute();
+			if (right.tryUnfork()) {
+				right.gemm=gemm;
+				right.compute();
+			} else {
+				right.join();
+			}
+		}
+	}
+	
 	/**
 	 * Performs fast matrix multiplication using temporary working storage for both matrices
 	 * @param a
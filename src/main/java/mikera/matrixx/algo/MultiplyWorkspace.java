@@ -0,0 +1,38 @@
+package mikera.matrixx.algo;
+
+import mikera.matrixx.algo.impl.PackedGemm;
+
+/**
+ * Reusable temporary storage for matrix multiplication.
+ * 
+ * Passing the same workspace to repeated calls of Multiplications.multiplyInto(...) avoids
+ * allocating packing buffers and column working sets on every call, so a steady-state 
+ * loop performs no allocation. Buffers grow on demand to fit the largest multiplication seen.
+ * 
+ * Workspaces are not thread safe: use a separate workspace for each thread.
+ * 
+ * @author Mike
+ */
+public final class MultiplyWorkspace {
+	private PackedGemm gemm=null;
+	private double[] columns=null;
+
+	public MultiplyWorkspace() {
+	}
+	
+	/**
+	 * Gets the packed kernel instance for this workspace
+	 */
+	PackedGemm getGemm() {
+		if (gemm==null) gemm=new PackedGemm();
+		return gemm;
+	}
+	
+	/**
+	 * Gets a buffer for storing matrix columns of at least the given size
+	 */
+	double[] getColumnBuffer(int size) {
+		if ((columns==null)||(columns.length<size)) columns=new double[size];
+		return columns;
+	}
+}
@@ -178,7 +178,8 @@ public class PLS implements IPLSResult {
 		B.getLeadingDiagonal().set(b);
 		
 		AMatrix ptinv=PseudoInverse.calculate(P.getTranspose());
-		coefficients.setInnerProduct(ptinv,B.innerProduct(Q.getTranspose()));
+		// coefficients = ptinv * (Q * B)', without materialising the transpose
+		Multiplications.multiplyInto(coefficients, ptinv, false, Q.innerProduct(B), true, null);
 		//constant.setInnerProduct(B,Q.getColumn(0));
 		constant.set(Q.getColumn(0));
 		constant.addInnerProduct(P.getColumn(0), coefficients,-1);;
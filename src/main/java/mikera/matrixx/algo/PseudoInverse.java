@@ -23,6 +23,7 @@ public class PseudoInverse {
 		AMatrix U=svd.getU();
 		AMatrix V=svd.getV();
 		
-		return V.innerProduct(DiagonalMatrix.create(s).innerProduct(U.getTranspose()));
+		// V * S^-1 * U', without materialising the transpose of U
+		return Multiplications.multiply(V.innerProduct(DiagonalMatrix.create(s)), false, U, true);
 	}
 }
@@ -0,0 +1,286 @@
+package mikera.matrixx.algo;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import mikera.matrixx.algo.impl.SparseAccumulator;
+import mikera.matrixx.impl.CSRMatrix;
+import mikera.matrixx.impl.SparseRowMatrix;
+import mikera.vectorz.AVector;
+import mikera.vectorz.impl.SparseIndexedVector;
+import mikera.vectorz.util.DoubleArrays;
+import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.IntArrays;
+
+/**
+ * Sparse-sparse matrix multiplication (SpGEMM) using Gustavson's row-wise algorithm.
+ *
+ * Each row of the result is built by scattering scaled rows of the right hand matrix into
+ * a dense accumulator, then gathering the touched columns in sorted order. No intermediate
+ * vectors are created, and work is proportional to the number of multiply-add operations
+ * rather than the size of the result.
+ *
+ * Rows of the result are independent, so large products are split into row ranges and
+ * computed in parallel using the common ForkJoinPool.
+ *
+ * @author Mike
+ */
+public class SparseMultiplications {
+
+	private SparseMultiplications(){}
+
+	// target number of multiply-add operations performed by each parallel task
+	protected static final long PARALLEL_TASK_TARGET=1L<<16;
+
+	/**
+	 * Multiplies two sparse row matrices, returning a SparseRowMatrix with one
+	 * SparseIndexedVector per non-empty row.
+	 *
+	 * @param a
+	 * @param b
+	 * @return
+	 */
+	public static SparseRowMatrix multiply(SparseRowMatrix a, SparseRowMatrix b) {
+		if (a.columnCount()!=b.rowCount()) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(a, b));
+		int rc=a.rowCount();
+		int cc=b.columnCount();
+		Rows ar=new Rows(a);
+		Rows br=new Rows(b);
+		AVector[] result=new AVector[rc];
+		run(new SpGEMMTask(ar,br,cc,0,rc,null,null,null,null,result));
+		return SparseRowMatrix.wrap(result, rc, cc);
+	}
+
+	/**
+	 * Multiplies two CSR matrices, using a symbolic pass to allocate the result exactly.
+	 *
+	 * @param a
+	 * @param b
+	 * @return
+	 */
+	public static CSRMatrix multiply(CSRMatrix a, CSRMatrix b) {
+		return multiply(a,b,true);
+	}
+
+	/**
+	 * Multiplies two CSR matrices.
+	 *
+	 * If symbolic is true, a first pass computes the structure of each result row so that
+	 * the result arrays can be allocated at their exact size before the numeric pass.
+	 * Otherwise each row is computed once into its own temporary arrays, which are then
+	 * concatenated. The symbolic pass is usually cheaper when the result is large.
+	 *
+	 * @param a
+	 * @param b
+	 * @param symbolic
+	 * @return
+	 */
+	public static CSRMatrix multiply(CSRMatrix a, CSRMatrix b, boolean symbolic) {
+		if (a.columnCount()!=b.rowCount()) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(a, b));
+		int rc=a.rowCount();
+		int cc=b.columnCount();
+		Rows ar=new Rows(a);
+		Rows br=new Rows(b);
+		int[] rowPtr=new int[rc+1];
+		if (symbolic) {
+			int[] counts=new int[rc];
+			run(new SpGEMMTask(ar,br,cc,0,rc,counts,null,null,null,null));
+			for (int i=0; i<rc; i++) {
+				rowPtr[i+1]=rowPtr[i]+counts[i];
+			}
+			int nnz=rowPtr[rc];
+			int[] colIdx=new int[nnz];
+			double[] values=new double[nnz];
+			run(new SpGEMMTask(ar,br,cc,0,rc,null,rowPtr,colIdx,values,null));
+			return CSRMatrix.wrap(rc, cc, rowPtr, colIdx, values);
+		} else {
+			AVector[] rows=new AVector[rc];
+			run(new SpGEMMTask(ar,br,cc,0,rc,null,null,null,null,rows));
+			for (int i=0; i<rc; i++) {
+				AVector row=rows[i];
+				rowPtr[i+1]=rowPtr[i]+((row==null)?0:row.nonSparseIndex().length());
+			}
+			int nnz=rowPtr[rc];
+			int[] colIdx=new int[nnz];
+			double[] values=new double[nnz];
+			for (int i=0; i<rc; i++) {
+				SparseIndexedVector row=(SparseIndexedVector)rows[i];
+				if (row==null) continue;
+				int n=rowPtr[i+1]-rowPtr[i];
+				System.arraycopy(row.nonSparseIndex().data, 0, colIdx, rowPtr[i], n);
+				System.arraycopy(row.nonSparseValues().getArray(), 0, values, rowPtr[i], n);
+			}
+			return CSRMatrix.wrap(rc, cc, rowPtr, colIdx, values);
+		}
+	}
+
+	private static void run(SpGEMMTask task) {
+		if ((ForkJoinPool.getCommonPoolParallelism()>1)&&(task.flops()>=Multiplications.getParallelThreshold())) {
+			ForkJoinPool.commonPool().invoke(task);
+		} else {
+			task.compute();
+		}
+	}
+
+	/**
+	 * Row structure of a sparse matrix, giving zero-copy access to the column indexes
+	 * and values of each row as a range within an array.
+	 */
+	private static final class Rows {
+		final int[][] indexes;
+		final double[][] values;
+		final int[] start;
+		final int[] end;
+
+		Rows(SparseRowMatrix m) {
+			int rc=m.rowCount();
+			indexes=new int[rc][];
+			values=new double[rc][];
+			start=new int[rc];
+			end=new int[rc];
+			for (int i=0; i<rc; i++) {
+				AVector row=m.unsafeGetVector(i);
+				if (row==null) {
+					indexes[i]=IntArrays.EMPTY_INT_ARRAY;
+					values[i]=DoubleArrays.EMPTY;
+				} else if (row instanceof SparseIndexedVector) {
+					SparseIndexedVector sv=(SparseIndexedVector)row;
+					indexes[i]=sv.nonSparseIndex().data;
+					values[i]=sv.nonSparseValues().getArray();
+				} else {
+					indexes[i]=row.nonZeroIndices();
+					values[i]=row.nonZeroValues();
+				}
+				end[i]=indexes[i].length;
+			}
+		}
+
+		Rows(CSRMatrix m) {
+			int rc=m.rowCount();
+			int[] rowPtr=m.getRowPointers();
+			int[] colIdx=m.getColumnIndexes();
+			double[] vs=m.getValues();
+			indexes=new int[rc][];
+			values=new double[rc][];
+			start=new int[rc];
+			end=new int[rc];
+			for (int i=0; i<rc; i++) {
+				indexes[i]=colIdx;
+				values[i]=vs;
+				start[i]=rowPtr[i];
+				end[i]=rowPtr[i+1];
+			}
+		}
+	}
+
+	/**
+	 * Fork-join task computing a range of result rows. Exactly one of the output modes is used:
+	 * - counts: symbolic pass, storing the number of non-zeros in each result row
+	 * - rowPtr/colIdx/values: numeric pass into preallocated CSR arrays
+	 * - rows: numeric pass creating a SparseIndexedVector for each non-empty row
+	 */
+	@SuppressWarnings("serial")
+	private static final class SpGEMMTask extends RecursiveAction {
+		private final Rows a;
+		private final Rows b;
+		private final int cols;
+		private final int start, end;
+		private final int[] counts;
+		private final int[] rowPtr;
+		private final int[] colIdx;
+		private final double[] values;
+		private final AVector[] rows;
+
+		// accumulator shared by all tasks run on the same thread within one call, or null if not yet created
+		private SparseAccumulator acc;
+
+		SpGEMMTask(Rows a, Rows b, int cols, int start, int end, int[] counts, int[] rowPtr, int[] colIdx, double[] values, AVector[] rows) {
+			this.a=a;
+			this.b=b;
+			this.cols=cols;
+			this.start=start;
+			this.end=end;
+			this.counts=counts;
+			this.rowPtr=rowPtr;
+			this.colIdx=colIdx;
+			this.values=values;
+			this.rows=rows;
+		}
+
+		/**
+		 * Number of multiply-add operations required for this task's rows
+		 */
+		long flops() {
+			long result=0;
+			for (int i=start; i<end; i++) {
+				int[] ai=a.indexes[i];
+				for (int p=a.start[i]; p<a.end[i]; p++) {
+					int k=ai[p];
+					result+=b.end[k]-b.start[k];
+				}
+			}
+			return result;
+		}
+
+		private SpGEMMTask range(int s, int e) {
+			return new SpGEMMTask(a,b,cols,s,e,counts,rowPtr,colIdx,values,rows);
+		}
+
+		@Override
+		protected void compute() {
+			if (acc==null) acc=new SparseAccumulator(cols);
+			int n=end-start;
+			if ((n>1)&&inForkJoinPool()&&(flops()>PARALLEL_TASK_TARGET)) {
+				// the left half runs on this thread and shares its accumulator, as does the right
+				// half unless it is stolen by another worker, which then allocates its own
+				int mid=start+(n>>1);
+				SpGEMMTask left=range(start,mid);
+				SpGEMMTask right=range(mid,end);
+				right.fork();
+				left.acc=acc;
+				left.compute();
+				if (right.tryUnfork()) {
+					right.acc=acc;
+					right.compute();
+				} else {
+					right.join();
+				}
+				return;
+			}
+
+			for (int i=start; i<end; i++) {
+				acc.clear();
+				int[] ai=a.indexes[i];
+				double[] av=a.values[i];
+				for (int p=a.start[i]; p<a.end[i]; p++) {
+					int k=ai[p];
+					int[] bi=b.indexes[k];
+					if (counts!=null) {
+						for (int q=b.start[k]; q<b.end[k]; q++) {
+							acc.mark(bi[q]);
+						}
+					} else {
+						double[] bv=b.values[k];
+						double v=av[p];
+						for (int q=b.start[k]; q<b.end[k]; q++) {
+							acc.addAt(bi[q], v*bv[q]);
+						}
+					}
+				}
+
+				int nz=acc.count();
+				if (counts!=null) {
+					counts[i]=nz;
+				} else if (rows!=null) {
+					if (nz==0) continue;
+					int[] ri=new int[nz];
+					double[] rv=new double[nz];
+					acc.gather(ri, rv, 0);
+					rows[i]=SparseIndexedVector.wrap(cols, ri, rv);
+				} else {
+					acc.gather(colIdx, values, rowPtr[i]);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,211 @@
+package mikera.matrixx.algo.impl;
+
+/**
+ * Packed, register-tiled dense matrix multiplication kernel (GotoBLAS style).
+ *
+ * Computes C += A * B where A, B and C are arbitrary strided regions of double[] arrays.
+ * Panels of A and B are copied ("packed") into small contiguous buffers sized to
+ * stay resident in L1/L2 cache, and a 4x4 block of C is then updated per inner step
+ * of the micro-kernel, keeping the partial sums in registers.
+ *
+ * Because A and B are described by strides, transposed operands can be handled
+ * simply by swapping their row and column strides.
+ *
+ * Instances hold the packing buffers and may be reused for any number of multiplications,
+ * but are not thread safe.
+ *
+ * @author Mike
+ */
+public final class PackedGemm {
+	// register block size (rows of A / columns of B per micro-kernel step)
+	public static final int MR=4;
+	public static final int NR=4;
+
+	// cache block sizes: KC*NR panel of B should sit in L1, MC*KC panel of A in L2
+	public static final int KC=256;
+	public static final int MC=64;
+	public static final int NC=1024;
+
+	// packing buffers, grown on demand up to MC*KC and KC*NC elements respectively
+	private double[] aPack=new double[0];
+	private double[] bPack=new double[0];
+	private final double[] edge=new double[MR*NR];
+
+	public PackedGemm() {
+	}
+	
+	private static int roundUp(int x, int block) {
+		return ((x+block-1)/block)*block;
+	}
+
+	/**
+	 * Computes C += A * B where A is m*k, B is k*n and C is m*n.
+	 *
+	 * Each matrix is specified by an array, an offset and row/column strides.
+	 */
+	public void multiply(int m, int n, int k,
+			double[] a, int aOffset, int aRowStride, int aColStride,
+			double[] b, int bOffset, int bRowStride, int bColStride,
+			double[] c, int cOffset, int cRowStride, int cColStride) {
+		multiply(1.0,m,n,k,a,aOffset,aRowStride,aColStride,b,bOffset,bRowStride,bColStride,c,cOffset,cRowStride,cColStride);
+	}
+
+	/**
+	 * Computes C += alpha * A * B where A is m*k, B is k*n and C is m*n.
+	 *
+	 * The scale factor is applied while packing A, so has negligible cost.
+	 */
+	public void multiply(double alpha, int m, int n, int k,
+			double[] a, int aOffset, int aRowStride, int aColStride,
+			double[] b, int bOffset, int bRowStride, int bColStride,
+			double[] c, int cOffset, int cRowStride, int cColStride) {
+		if ((m==0)||(n==0)||(k==0)||(alpha==0.0)) return;
+		int aSize=roundUp(Math.min(MC, m),MR)*Math.min(KC, k);
+		if (aPack.length<aSize) aPack=new double[aSize];
+		int bSize=roundUp(Math.min(NC, n),NR)*Math.min(KC, k);
+		if (bPack.length<bSize) bPack=new double[bSize];
+
+		for (int jc=0; jc<n; jc+=NC) {
+			int nc=Math.min(NC, n-jc);
+			for (int pc=0; pc<k; pc+=KC) {
+				int kc=Math.min(KC, k-pc);
+				packB(kc,nc,b,bOffset+pc*bRowStride+jc*bColStride,bRowStride,bColStride);
+
+				for (int ic=0; ic<m; ic+=MC) {
+					int mc=Math.min(MC, m-ic);
+					packA(mc,kc,a,aOffset+ic*aRowStride+pc*aColStride,aRowStride,aColStride,alpha);
+
+					int cBlockOffset=cOffset+ic*cRowStride+jc*cColStride;
+					for (int jr=0; jr<nc; jr+=NR) {
+						int nr=Math.min(NR, nc-jr);
+						for (int ir=0; ir<mc; ir+=MR) {
+							int mr=Math.min(MR, mc-ir);
+							kernel(kc, ir*kc, jr*kc, c, cBlockOffset+ir*cRowStride+jr*cColStride, cRowStride, cColStride, mr, nr);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Packs an mc*kc panel of A into slivers of MR rows, stored column by column.
+	 * Partial slivers are padded with zeros. Elements are scaled by alpha.
+	 */
+	private void packA(int mc, int kc, double[] a, int offset, int rowStride, int colStride, double alpha) {
+		double[] ap=aPack;
+		int di=0;
+		for (int i=0; i<mc; i+=MR) {
+			int mr=Math.min(MR, mc-i);
+			int rowOffset=offset+i*rowStride;
+			if ((mr==MR)&&(colStride==1)) {
+				int r0=rowOffset;
+				int r1=r0+rowStride;
+				int r2=r1+rowStride;
+				int r3=r2+rowStride;
+				for (int p=0; p<kc; p++) {
+					ap[di++]=a[r0+p];
+					ap[di++]=a[r1+p];
+					ap[di++]=a[r2+p];
+					ap[di++]=a[r3+p];
+				}
+			} else {
+				for (int p=0; p<kc; p++) {
+					int si=rowOffset+p*colStride;
+					for (int t=0; t<MR; t++) {
+						ap[di++]=(t<mr)?a[si+t*rowStride]:0.0;
+					}
+				}
+			}
+		}
+		if (alpha!=1.0) {
+			for (int i=0; i<di; i++) {
+				ap[i]*=alpha;
+			}
+		}
+	}
+
+	/**
+	 * Packs a kc*nc panel of B into slivers of NR columns, stored row by row.
+	 * Partial slivers are padded with zeros.
+	 */
+	private void packB(int kc, int nc, double[] b, int offset, int rowStride, int colStride) {
+		double[] bp=bPack;
+		int di=0;
+		for (int j=0; j<nc; j+=NR) {
+			int nr=Math.min(NR, nc-j);
+			int colOffset=offset+j*colStride;
+			if ((nr==NR)&&(colStride==1)) {
+				for (int p=0; p<kc; p++) {
+					int si=colOffset+p*rowStride;
+					bp[di++]=b[si];
+					bp[di++]=b[si+1];
+					bp[di++]=b[si+2];
+					bp[di++]=b[si+3];
+				}
+			} else {
+				for (int p=0; p<kc; p++) {
+					int si=colOffset+p*rowStride;
+					for (int t=0; t<NR; t++) {
+						bp[di++]=(t<nr)?b[si+t*colStride]:0.0;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Micro-kernel: updates an MR*NR block of C with the product of a packed sliver of A
+	 * and a packed sliver of B. Only the top-left mr*nr elements of the block are written.
+	 */
+	private void kernel(int kc, int aOffset, int bOffset, double[] c, int cOffset, int cRowStride, int cColStride, int mr, int nr) {
+		double[] ap=aPack;
+		double[] bp=bPack;
+		double c00=0,c01=0,c02=0,c03=0;
+		double c10=0,c11=0,c12=0,c13=0;
+		double c20=0,c21=0,c22=0,c23=0;
+		double c30=0,c31=0,c32=0,c33=0;
+
+		int ai=aOffset;
+		int bi=bOffset;
+		for (int p=0; p<kc; p++) {
+			double a0=ap[ai];
+			double a1=ap[ai+1];
+			double a2=ap[ai+2];
+			double a3=ap[ai+3];
+			double b0=bp[bi];
+			double b1=bp[bi+1];
+			double b2=bp[bi+2];
+			double b3=bp[bi+3];
+			c00+=a0*b0; c01+=a0*b1; c02+=a0*b2; c03+=a0*b3;
+			c10+=a1*b0; c11+=a1*b1; c12+=a1*b2; c13+=a1*b3;
+			c20+=a2*b0; c21+=a2*b1; c22+=a2*b2; c23+=a2*b3;
+			c30+=a3*b0; c31+=a3*b1; c32+=a3*b2; c33+=a3*b3;
+			ai+=MR;
+			bi+=NR;
+		}
+
+		if ((mr==MR)&&(nr==NR)&&(cColStride==1)) {
+			int r=cOffset;
+			c[r]+=c00; c[r+1]+=c01; c[r+2]+=c02; c[r+3]+=c03;
+			r+=cRowStride;
+			c[r]+=c10; c[r+1]+=c11; c[r+2]+=c12; c[r+3]+=c13;
+			r+=cRowStride;
+			c[r]+=c20; c[r+1]+=c21; c[r+2]+=c22; c[r+3]+=c23;
+			r+=cRowStride;
+			c[r]+=c30; c[r+1]+=c31; c[r+2]+=c32; c[r+3]+=c33;
+		} else {
+			double[] block=edge;
+			block[0]=c00; block[1]=c01; block[2]=c02; block[3]=c03;
+			block[4]=c10; block[5]=c11; block[6]=c12; block[7]=c13;
+			block[8]=c20; block[9]=c21; block[10]=c22; block[11]=c23;
+			block[12]=c30; block[13]=c31; block[14]=c32; block[15]=c33;
+			for (int i=0; i<mr; i++) {
+				int ci=cOffset+i*cRowStride;
+				for (int j=0; j<nr; j++) {
+					c[ci+j*cColStride]+=block[i*NR+j];
+				}
+			}
+		}
+	}
+}
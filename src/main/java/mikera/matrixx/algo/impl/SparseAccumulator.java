@@ -0,0 +1,95 @@
+package mikera.matrixx.algo.impl;
+
+import java.util.Arrays;
+
+/**
+ * Dense accumulator for building one sparse row at a time, as used in Gustavson-style
+ * sparse matrix multiplication.
+ *
+ * Values are summed into a dense array indexed by column, while a marker array records
+ * which columns have been touched for the current row. Markers are stamped with a row
+ * counter, so clearing between rows is O(1) rather than O(length).
+ *
+ * Instances may be reused for any number of rows, but are not thread safe.
+ *
+ * @author Mike
+ */
+public final class SparseAccumulator {
+	private final double[] values;
+	private final int[] marker;
+	private final int[] pattern;
+	private int count=0;
+	private int stamp=1;
+
+	public SparseAccumulator(int length) {
+		values=new double[length];
+		marker=new int[length];
+		pattern=new int[length];
+	}
+
+	/**
+	 * Clears the accumulator, ready for a new row
+	 */
+	public void clear() {
+		count=0;
+		stamp++;
+		if (stamp==Integer.MAX_VALUE) {
+			Arrays.fill(marker, 0);
+			stamp=1;
+		}
+	}
+
+	/**
+	 * Adds a value at the given index
+	 * @param i
+	 * @param v
+	 */
+	public void addAt(int i, double v) {
+		if (marker[i]!=stamp) {
+			marker[i]=stamp;
+			values[i]=v;
+			pattern[count++]=i;
+		} else {
+			values[i]+=v;
+		}
+	}
+
+	/**
+	 * Marks an index as structurally non-zero without accumulating a value. Used for symbolic passes.
+	 * @param i
+	 */
+	public void mark(int i) {
+		if (marker[i]!=stamp) {
+			marker[i]=stamp;
+			pattern[count++]=i;
+		}
+	}
+
+	/**
+	 * Returns the number of distinct indexes touched since the last clear
+	 * @return
+	 */
+	public int count() {
+		return count;
+	}
+
+	/**
+	 * Copies the touched indexes and their accumulated values into the destination arrays,
+	 * in ascending index order.
+	 *
+	 * @param indexes Destination for indexes
+	 * @param dest Destination for values
+	 * @param offset Position in the destination arrays at which to start writing
+	 * @return The number of elements written
+	 */
+	public int gather(int[] indexes, double[] dest, int offset) {
+		int n=count;
+		Arrays.sort(pattern, 0, n);
+		for (int k=0; k<n; k++) {
+			int i=pattern[k];
+			indexes[offset+k]=i;
+			dest[offset+k]=values[i];
+		}
+		return n;
+	}
+}
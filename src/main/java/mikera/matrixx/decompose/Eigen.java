@@ -1,9 +1,18 @@
 package mikera.matrixx.decompose;
 
 import mikera.matrixx.AMatrix;
+import mikera.matrixx.decompose.impl.eigen.LanczosEigenSolver;
+import mikera.matrixx.decompose.impl.eigen.NonSymmetricQRAlgorithmDecomposition;
+import mikera.matrixx.decompose.impl.eigen.SymmetricDivideConquerDecomposition;
 import mikera.matrixx.decompose.impl.eigen.SymmetricQRAlgorithmDecomposition;
 
 public class Eigen {
+	/**
+	 * Minimum size of symmetric matrix for which eigenvectors are computed with the
+	 * divide and conquer algorithm rather than the implicit QR algorithm
+	 */
+	public static final int DIVIDE_AND_CONQUER_THRESHOLD=256;
+
 	/**
 	 * <p>
 	 * Computes the eigenvalues and eigenvectors of a matrix. Returns an object
@@ -11,15 +20,21 @@ public class Eigen {
 	 * decomposition fails.
 	 * </p>
 	 * 
+	 * Symmetric matrices are handled by {@link #decomposeSymmetric(AMatrix, boolean)}. Other
+	 * matrices are reduced to real Schur form with the Francis double shift QR algorithm, and
+	 * may have complex eigenvalues and eigenvectors.
+	 * 
 	 * @param A
-	 *            The input matrix. It must be a square symmetric matrix.
+	 *            The input matrix. It must be a square matrix.
 	 * @param computeVectors
 	 *            Should it compute the eigenvectors or just eigenvalues.
 	 * @return an IEigenResult object that represents the solution to the
 	 *         decomposition.
 	 */
 	public static IEigenResult decompose(AMatrix A, boolean computeVectors) {
-		throw new java.lang.UnsupportedOperationException("This has not yet been implemented");
+		if (!A.isSquare()) throw new IllegalArgumentException("Matrix must be square.");
+		if (A.isSymmetric()) return decomposeSymmetric(A, computeVectors);
+		return NonSymmetricQRAlgorithmDecomposition.decompose(A, computeVectors);
 	}
 
 	/**
@@ -30,7 +45,7 @@ public class Eigen {
 	 * </p>
 	 * 
 	 * @param A
-	 *            The input matrix. It must be a square symmetric matrix.
+	 *            The input matrix. It must be a square matrix.
 	 * @return an IEigenResult object that represents the solution to the
 	 *         decomposition.
 	 */
@@ -53,6 +68,9 @@ public class Eigen {
 	 *         decomposition.
 	 */
 	public static IEigenResult decomposeSymmetric(AMatrix A, boolean computeVectors) {
+		if (computeVectors&&(A.rowCount()>=DIVIDE_AND_CONQUER_THRESHOLD)) {
+			return SymmetricDivideConquerDecomposition.decompose(A);
+		}
 		SymmetricQRAlgorithmDecomposition alg = new SymmetricQRAlgorithmDecomposition(computeVectors);
 		return alg.decompose(A);
 	}
@@ -72,4 +90,25 @@ public class Eigen {
 	public static IEigenResult decomposeSymmetric(AMatrix A) {
 		return decomposeSymmetric(A, true);
 	}
+
+	/**
+	 * <p>
+	 * Computes the k largest or smallest eigenvalues and corresponding eigenvectors of a real 
+	 * symmetric matrix, using an implicitly restarted Lanczos iteration. Only matrix-vector
+	 * products with A are required, so this is suitable for large sparse matrices.
+	 * Returns null if the iteration does not converge.
+	 * </p>
+	 * 
+	 * @param A
+	 *            The input matrix. It must be a square symmetric matrix.
+	 * @param k
+	 *            The number of eigenvalues to compute
+	 * @param largest
+	 *            True to compute the largest eigenvalues, false for the smallest
+	 * @return an IEigenResult object containing the eigenvalues in order, starting with
+	 *         the most extreme.
+	 */
+	public static IEigenResult decomposeSymmetric(AMatrix A, int k, boolean largest) {
+		return LanczosEigenSolver.decompose(A, k, largest);
+	}
 }
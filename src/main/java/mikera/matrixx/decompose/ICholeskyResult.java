@@ -19,6 +19,7 @@
 package mikera.matrixx.decompose;
 
 import mikera.matrixx.AMatrix;
+import mikera.vectorz.AVector;
 
 
 /**
@@ -60,4 +61,44 @@ public interface ICholeskyResult {
      */
     public AMatrix getU();
 
+    /**
+     * <p>
+     * Updates the decomposition in place so that it becomes the decomposition of A + x*x<sup>T</sup>,
+     * in O(n<sup>2</sup>) time.
+     * </p>
+     * @param x A vector with the same length as the rows of A
+     */
+    public void update(AVector x);
+
+    /**
+     * <p>
+     * Updates the decomposition in place so that it becomes the decomposition of A + X*X<sup>T</sup>,
+     * in O(kn<sup>2</sup>) time where k is the number of columns of X.
+     * </p>
+     * @param x A matrix with the same number of rows as A
+     */
+    public void update(AMatrix x);
+
+    /**
+     * <p>
+     * Downdates the decomposition in place so that it becomes the decomposition of A - x*x<sup>T</sup>,
+     * in O(n<sup>2</sup>) time.
+     * </p>
+     * @param x A vector with the same length as the rows of A
+     * @return true if successful, false if the result would not be positive definite, in which
+     * case the decomposition is not modified
+     */
+    public boolean downdate(AVector x);
+
+    /**
+     * <p>
+     * Downdates the decomposition in place so that it becomes the decomposition of A - X*X<sup>T</sup>,
+     * in O(kn<sup>2</sup>) time where k is the number of columns of X.
+     * </p>
+     * @param x A matrix with the same number of rows as A
+     * @return true if successful, false if the result would not be positive definite, in which
+     * case the decomposition is not modified
+     */
+    public boolean downdate(AMatrix x);
+
 }
\ No newline at end of file
@@ -17,10 +17,23 @@ public interface IEigenResult {
     
     /**
      * <p>
-     * Used to retrieve an array real valued eigenvectors.
+     * Used to retrieve an array real valued eigenvectors. For a complex eigenvalue this is the real
+     * part of the eigenvector, with the imaginary part given by {@link #getEigenVectorsImaginary()}.
      * </p>
      *
-     * @return If the associated eigenvalue is real then an eigenvector is returned, null otherwise.
+     * @return An array of eigenvectors, in the same order as the eigenvalues.
      */
     public AVector[] getEigenVectors();
+
+    /**
+     * <p>
+     * Used to retrieve the imaginary parts of the eigenvectors.
+     * </p>
+     *
+     * @return An array which is null where the associated eigenvalue is real, and contains the
+     * imaginary part of the eigenvector otherwise.
+     */
+    public default AVector[] getEigenVectorsImaginary() {
+        return new AVector[getEigenVectors().length];
+    }
 }
@@ -2,6 +2,7 @@ package mikera.matrixx.decompose;
 
 import mikera.matrixx.AMatrix;
 import mikera.matrixx.decompose.impl.lu.AltLU;
+import mikera.matrixx.decompose.impl.lu.BlockedLU;
 
 public class LUP {
 	
@@ -12,10 +13,13 @@ public class LUP {
 	/**
 	 * This performs LU decomposition on the given matrix and returns the result as a ILUPResult object
 	 * 
+	 * Large matrices use a blocked algorithm with a parallel trailing matrix update.
+	 * 
 	 * @param A The matrix that is to be decomposed. Not modified.
 	 * @return An ILUPResult object that contains L, U and P matrices
 	 */
 	public static ILUPResult decompose(AMatrix A) {
+		if (BlockedLU.isBlockedSize(A.rowCount(), A.columnCount())) return BlockedLU.decompose(A);
 		return AltLU.decompose(A);
 	}
 
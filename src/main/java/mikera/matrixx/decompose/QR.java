@@ -22,6 +22,7 @@
 package mikera.matrixx.decompose;
 
 import mikera.matrixx.AMatrix;
+import mikera.matrixx.decompose.impl.qr.BlockedHouseholderQR;
 import mikera.matrixx.decompose.impl.qr.HouseholderQR;
 
 /**
@@ -36,6 +37,8 @@ import mikera.matrixx.decompose.impl.qr.HouseholderQR;
  *   Q is an orthogonal matrix
  *   R is an upper triangular matrix
  * 
+ * Large matrices use a blocked Householder algorithm, which applies reflectors with matrix multiplication.
+ * 
  * @author Mike
  */
 public class QR {
@@ -58,8 +61,7 @@ public class QR {
      * @return
      */
     public static IQRResult decompose(AMatrix matrix) {
-        HouseholderQR alg = new HouseholderQR(false);
-        return alg.decompose(matrix);	
+        return create(matrix,false).decompose(matrix);	
     }
     /**
      * Computes the QR factorisation of a matrix A such that:
@@ -77,8 +79,7 @@ public class QR {
      * @return
      */
     public static IQRResult decompose(AMatrix matrix, boolean compact) {
-        HouseholderQR alg = new HouseholderQR(compact);
-        return alg.decompose(matrix);	
+        return create(matrix,compact).decompose(matrix);	
     }
     
 	/**
@@ -97,8 +98,14 @@ public class QR {
 	 * @return
 	 */
 	public static IQRResult decomposeCompact(AMatrix matrix) {
-		HouseholderQR alg = new HouseholderQR(true);
-		return alg.decompose(matrix);	
+		return create(matrix,true).decompose(matrix);
+	}
+	
+	private static HouseholderQR create(AMatrix matrix, boolean compact) {
+		if (BlockedHouseholderQR.isBlockedSize(matrix.rowCount(), matrix.columnCount())) {
+			return new BlockedHouseholderQR(compact);
+		}
+		return new HouseholderQR(compact);
 	}
 	
 }
@@ -2,6 +2,7 @@ package mikera.matrixx.decompose;
 
 import mikera.matrixx.AMatrix;
 import mikera.matrixx.Matrix;
+import mikera.matrixx.decompose.impl.svd.RandomizedSVD;
 import mikera.matrixx.decompose.impl.svd.SVDResult;
 import mikera.matrixx.decompose.impl.svd.SvdImplicitQr;
 import mikera.matrixx.impl.DiagonalMatrix;
@@ -71,6 +72,37 @@ public class SVD {
 		return SvdImplicitQr.decompose(A, true);
 	}
 	
+	/**
+	 * Computes an approximate truncated Singular Value Decomposition of a matrix with a
+	 * randomized range finder, keeping only the largest singular values.
+	 * U is m by k, S is k by k, and V is n by k, where k is the target rank.
+	 * 
+	 * This is much faster than a full decomposition when k is small compared to the size of A,
+	 * and works with sparse matrices.
+	 * 
+	 * @param A
+	 * @param rank Number of singular values to compute
+	 * @return
+	 */
+	public static ISVDResult decomposeRandomized(AMatrix A, int rank) {
+		return RandomizedSVD.decompose(A, rank);
+	}
+	
+	/**
+	 * Computes an approximate truncated Singular Value Decomposition of a matrix with a
+	 * randomized range finder, keeping only the largest singular values.
+	 * U is m by k, S is k by k, and V is n by k, where k is the target rank.
+	 * 
+	 * @param A
+	 * @param rank Number of singular values to compute
+	 * @param oversampling Number of additional random samples used to improve accuracy
+	 * @param powerIterations Number of power iterations, useful when singular values decay slowly
+	 * @return
+	 */
+	public static ISVDResult decomposeRandomized(AMatrix A, int rank, int oversampling, int powerIterations) {
+		return RandomizedSVD.decompose(A, rank, oversampling, powerIterations);
+	}
+	
 	/**
 	 * Computes the singular value decomposition, keeping only non-zero singular values
 	 * @param A
@@ -18,8 +18,11 @@
 
 package mikera.matrixx.decompose.impl.bidiagonal;
 
+import java.util.Arrays;
+
 import mikera.matrixx.AMatrix;
 import mikera.matrixx.Matrix;
+import mikera.matrixx.algo.impl.PackedGemm;
 import mikera.matrixx.decompose.IBidiagonalResult;
 import mikera.matrixx.decompose.impl.qr.QRHelperFunctions;
 
@@ -28,10 +31,24 @@ import mikera.matrixx.decompose.impl.qr.QRHelperFunctions;
  * Performs a {@link org.ejml.alg.dense.decomposition.bidiagonal.BidiagonalDecomposition} using
  * householder reflectors.  This is efficient on wide or square matrices.
  * </p>
+ * <p>
+ * Large matrices are reduced in panels of {@link #BLOCK_WIDTH} rows and columns, in the style of
+ * LAPACK's DGEBRD. Within a panel the trailing matrix is left unchanged and the reflectors are
+ * accumulated as A - U*X<sup>T</sup> - Y*V<sup>T</sup>, which is applied to each row and column
+ * as it is reached. The trailing matrix is then updated with a single matrix-matrix multiply.
+ * </p>
  *
  * @author Peter Abeles
  */
 public class BidiagonalRow {
+    /**
+     * Number of rows and columns reduced in each panel of the blocked reduction
+     */
+    public static final int BLOCK_WIDTH = 32;
+
+    // trailing matrices with fewer rows or columns than this are reduced one step at a time
+    private static final int BLOCK_MIN = 128;
+
     // A combined matrix that stores the upper Hessenberg matrix and the orthogonal matrix.
     private Matrix UBV;
 
@@ -49,6 +66,11 @@ public class BidiagonalRow {
     private double b[];
     private double u[];
 
+    // panel storage for the blocked reduction: [U;Y] as rows of length m, [X;V] as rows of length n
+    private double left[];
+    private double right[];
+    private PackedGemm gemm;
+
 	private boolean compact;
 	
 	private BidiagonalRow() {
@@ -102,7 +124,12 @@ public class BidiagonalRow {
     	gammasU = new double[m];
     	gammasV = new double[n];
     	
-    	for( int k = 0; k < min; k++ ) {
+    	int k = 0;
+    	while( min-k > BLOCK_MIN ) {
+    		reducePanel(k,BLOCK_WIDTH);
+    		k += BLOCK_WIDTH;
+    	}
+    	for( ; k < min; k++ ) {
 //          UBV.print();
           computeU(k);
 //          System.out.println("--- after U");
@@ -156,11 +183,23 @@ public class BidiagonalRow {
 
         for( int i = 0; i < m; i++ ) u[i] = 0;
 
+        // the reflectors are stored in columns, so copy them out a block of columns at a time
+        // to avoid a strided pass over the matrix for each one
+        double cols[] = new double[BLOCK_WIDTH*m];
+        int j0 = min;
         for( int j = min-1; j >= 0; j-- ) {
-            u[j] = 1;
-            for( int i = j+1; i < m; i++ ) {
-                u[i] = UBV.get(i,j);
+            if( j < j0 ) {
+                j0 = Math.max(0, j0-BLOCK_WIDTH);
+                int w = j+1-j0;
+                for( int i = j0+1; i < m; i++ ) {
+                    int rowA = i*n+j0;
+                    for( int c = 0; c < w; c++ ) {
+                        cols[c*m+i] = UBV.data[rowA+c];
+                    }
+                }
             }
+            u[j] = 1;
+            System.arraycopy(cols,(j-j0)*m+j+1,u,j+1,m-j-1);
             QRHelperFunctions.rank1UpdateMultR(U,u,gammasU[j],j,j,m,this.b);
         }
 
@@ -190,9 +229,8 @@ public class BidiagonalRow {
         // todo the very first multiplication can be avoided by setting to the rank1update output
         for( int j = min-1; j >= 0; j-- ) {
             u[j+1] = 1;
-            for( int i = j+2; i < n; i++ ) {
-                u[i] = UBV.get(j,i);
-            }
+            if( j+2 < n )
+                System.arraycopy(UBV.data,j*n+j+2,u,j+2,n-j-2);
             QRHelperFunctions.rank1UpdateMultR(V,u,gammasV[j],j+1,j+1,n,this.b);
         }
 
@@ -209,6 +247,156 @@ public class BidiagonalRow {
         }
     }
 
+    /**
+     * Reduces kb rows and columns starting at k, deferring the update of the trailing matrix
+     * until the whole panel is complete.
+     */
+    private void reducePanel( int k0 , int kb ) {
+        double t[] = UBV.data;
+        int sizeL = 2*kb*m;
+        int sizeR = 2*kb*n;
+        if( left == null ) {
+            left = new double[sizeL];
+            right = new double[sizeR];
+        } else {
+            Arrays.fill(left,0.0);
+            Arrays.fill(right,0.0);
+        }
+        int offY = kb*m;
+        int offV = kb*n;
+
+        for( int p = 0; p < kb; p++ ) {
+            int k = k0+p;
+            int up = p*m;
+            int yp = offY+p*m;
+            int xp = p*n;
+            int vp = offV+p*n;
+
+            // bring column k up to date, visiting each element once since the column is strided
+            if( p > 0 ) {
+                for( int q = 0; q < p; q++ ) {
+                    b[q] = right[q*n+k];
+                    b[kb+q] = right[offV+q*n+k];
+                }
+                for( int i = k; i < m; i++ ) {
+                    double total = 0;
+                    for( int q = 0; q < p; q++ ) {
+                        total += left[q*m+i]*b[q] + left[offY+q*m+i]*b[kb+q];
+                    }
+                    t[i*n+k] -= total;
+                }
+            }
+
+            // left reflector from column k
+            double max = 0;
+            for( int i = k; i < m; i++ ) {
+                double val = u[i] = t[i*n+k];
+                val = Math.abs(val);
+                if( val > max )
+                    max = val;
+            }
+            if( max > 0 ) {
+                double tau = QRHelperFunctions.computeTauAndDivide(k,m,u,max);
+                double nu = u[k] + tau;
+                QRHelperFunctions.divideElements_Bcol(k+1,m,n,u,t,k,nu);
+                u[k] = 1.0;
+                double gamma = nu/tau;
+                gammasU[k] = gamma;
+                System.arraycopy(u,k,left,up+k,m-k);
+
+                // x = gamma*(A^T*u) over columns k+1 onwards
+                for( int i = k; i < m; i++ ) {
+                    double ui = u[i];
+                    int rowA = i*n;
+                    for( int j = k+1; j < n; j++ ) {
+                        right[xp+j] += ui*t[rowA+j];
+                    }
+                }
+                for( int q = 0; q < p; q++ ) {
+                    double du = dot(left,q*m,u,k,m);
+                    double dy = dot(left,offY+q*m,u,k,m);
+                    int xq = q*n;
+                    int vq = offV+q*n;
+                    for( int j = k+1; j < n; j++ ) {
+                        right[xp+j] -= right[xq+j]*du + right[vq+j]*dy;
+                    }
+                }
+                for( int j = k+1; j < n; j++ ) {
+                    right[xp+j] *= gamma;
+                }
+
+                t[k*n+k] = -tau*max;
+            } else {
+                gammasU[k] = 0;
+            }
+
+            // bring row k up to date, including the left reflector just computed
+            int row = k*n;
+            for( int q = 0; q <= p; q++ ) {
+                double uk = left[q*m+k];
+                double yk = (q < p) ? left[offY+q*m+k] : 0.0;
+                int xq = q*n;
+                int vq = offV+q*n;
+                for( int j = k+1; j < n; j++ ) {
+                    t[row+j] -= uk*right[xq+j] + yk*right[vq+j];
+                }
+            }
+
+            // right reflector from row k
+            max = QRHelperFunctions.findMax(t,row+k+1,n-k-1);
+            if( max > 0 ) {
+                double tau = QRHelperFunctions.computeTauAndDivide(k+1,n,t,row,max);
+                double nu = t[row+k+1] + tau;
+                QRHelperFunctions.divideElements_Brow(k+2,n,u,t,row,nu);
+                u[k+1] = 1.0;
+                double gamma = nu/tau;
+                gammasV[k] = gamma;
+                System.arraycopy(u,k+1,right,vp+k+1,n-k-1);
+
+                // y = gamma*(A*v) over rows k+1 onwards
+                for( int i = k+1; i < m; i++ ) {
+                    left[yp+i] = dot(t,i*n,u,k+1,n);
+                }
+                for( int q = 0; q <= p; q++ ) {
+                    double dx = dot(right,q*n,u,k+1,n);
+                    double dv = (q < p) ? dot(right,offV+q*n,u,k+1,n) : 0.0;
+                    int uq = q*m;
+                    int yq = offY+q*m;
+                    for( int i = k+1; i < m; i++ ) {
+                        left[yp+i] -= left[uq+i]*dx + left[yq+i]*dv;
+                    }
+                }
+                for( int i = k+1; i < m; i++ ) {
+                    left[yp+i] *= gamma;
+                }
+
+                t[row+k+1] = -tau*max;
+            } else {
+                gammasV[k] = 0;
+            }
+        }
+
+        // A = A - U*X^T - Y*V^T on the trailing matrix
+        int e = k0+kb;
+        if( gemm == null )
+            gemm = new PackedGemm();
+        gemm.multiply(-1.0, m-e, n-e, 2*kb,
+                left, e, 1, m,
+                right, e, n, 1,
+                t, e*n+e, n, 1);
+    }
+
+    /**
+     * Dot product of a[offA+i] and b[i] for i in [start,end)
+     */
+    private static double dot( double a[] , int offA , double b[] , int start , int end ) {
+        double total = 0;
+        for( int i = start; i < end; i++ ) {
+            total += a[offA+i]*b[i];
+        }
+        return total;
+    }
+
     protected void computeU( int k) {
         double b[] = UBV.data;
 
@@ -18,35 +18,91 @@
 
 package mikera.matrixx.decompose.impl.chol;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 import mikera.matrixx.AMatrix;
 import mikera.matrixx.Matrix;
+import mikera.matrixx.algo.Multiplications;
+import mikera.matrixx.algo.impl.PackedGemm;
 import mikera.matrixx.decompose.ICholeskyResult;
+import mikera.vectorz.util.DoubleArrays;
 
 /**
  * This is an implementation of Cholesky that processes internal submatrices as blocks.  This is
  * done to reduce the number of cache issues.
  *
+ * <p>
+ * The lower triangle is factored with a right-looking blocked algorithm.  For each block column
+ * the diagonal block is factored directly, the panel below it is solved against the diagonal
+ * block, and the trailing submatrix receives a rank-k update using the packed multiply kernel.
+ * The panel solves and trailing updates are split into independent row ranges, which are run
+ * in parallel when the matrix is larger than the parallel threshold in {@link Multiplications}.
+ * </p>
+ *
  * @author Peter Abeles
  */
 public class Cholesky extends CholeskyCommon {
 
-    private int blockWidth; // how wide the blocks should be
-    private Matrix B; // row rectangular matrix
+    // block width used when none is given, overridden by the vectorz.cholesky.blockWidth property
+    private static final int BLOCK_WIDTH = 128;
+
+    // number of rows updated by each call to the packed kernel in the trailing update
+    private static final int UPDATE_ROWS = 64;
+
+    // minimum number of rows solved by each parallel panel task
+    private static final int SOLVE_ROWS = 32;
+
+    // target number of multiply-add operations performed by each parallel task
+    private static final long TASK_TARGET = 1L<<22;
+
+    private static volatile int defaultBlockWidth = initialBlockWidth();
+
+    private final int blockWidth; // how wide the blocks should be
+
+    private Cholesky(int blockWidth) {
+        if( blockWidth < 1 ) throw new IllegalArgumentException("Invalid block width: "+blockWidth);
+        this.blockWidth = blockWidth;
+    }
+
+    private static int initialBlockWidth() {
+        try {
+            String s = System.getProperty("vectorz.cholesky.blockWidth");
+            if( s != null ) {
+                int w = Integer.parseInt(s.trim());
+                if( w > 0 ) return w;
+            }
+        } catch( RuntimeException e ) {
+            // fall back to the default
+        }
+        return BLOCK_WIDTH;
+    }
 
-    private CholeskyHelper chol;
-    
     /**
-     * Default block width
+     * Gets the block width used by {@link #decompose(AMatrix)}.
+     * @return
      */
-    private static final int BLOCK_WIDTH = 60;
-    
-    private Cholesky() { blockWidth = Cholesky.BLOCK_WIDTH; }
-    private Cholesky(int blockWidth) { this.blockWidth = blockWidth; }
-    
+    public static int getDefaultBlockWidth() {
+        return defaultBlockWidth;
+    }
+
+    /**
+     * Sets the block width used by {@link #decompose(AMatrix)}. The best value depends on the
+     * cache sizes of the machine: wider blocks give larger and more efficient trailing updates,
+     * but put more work into the panel solves.
+     *
+     * The initial value can also be set with the system property vectorz.cholesky.blockWidth
+     * @param blockWidth
+     */
+    public static void setDefaultBlockWidth(int blockWidth) {
+        if( blockWidth < 1 ) throw new IllegalArgumentException("Invalid block width: "+blockWidth);
+        defaultBlockWidth = blockWidth;
+    }
+
     /**
      * <p>
-     * Computes the Cholesky Decomposition (A = LU) of a matrix, taking
-     * default block width = 60.
+     * Computes the Cholesky Decomposition (A = LU) of a matrix, using the
+     * default block width.
      * </p>
      * <p>
      * If the matrix is not positive definite then this function will return
@@ -57,12 +113,12 @@ public class Cholesky extends CholeskyCommon {
      * @return A Cholesky Decomposition Result
      */
     public static ICholeskyResult decompose(AMatrix mat) {
-		return decompose(mat, BLOCK_WIDTH);
-	}
-    
+        return decompose(mat, defaultBlockWidth);
+    }
+
     /**
      * <p>
-     * Computes the Cholesky LDU Decomposition (A = LDU) of a matrix.
+     * Computes the Cholesky Decomposition (A = LU) of a matrix.
      * </p>
      * <p>
      * If the matrix is not positive definite then this function will return
@@ -74,11 +130,10 @@ public class Cholesky extends CholeskyCommon {
      * @return ICholeskyResult if decomposition is successful, null otherwise.
      */
     public static ICholeskyResult decompose(AMatrix mat, int blockWidth) {
-		Cholesky temp = new Cholesky(blockWidth);
-		return temp._decompose(mat);
-	}
+        Cholesky temp = new Cholesky(blockWidth);
+        return temp._decompose(mat);
+    }
 
-    
     /**
      * <p>
      * Performs Choleksy decomposition on the provided matrix.
@@ -94,31 +149,23 @@ public class Cholesky extends CholeskyCommon {
      */
     @Override
     protected ICholeskyResult _decompose( AMatrix mat ) {
-    	int rc=mat.rowCount();
-    	int cc=mat.columnCount();
-    	if( rc != cc ) {
+        int rc=mat.rowCount();
+        int cc=mat.columnCount();
+        if( rc != cc ) {
             throw new IllegalArgumentException("Must be a square matrix.");
         }
 
-        n = mat.rowCount();
+        n = rc;
         this.vv = new double[n];
-        t=mat.toDoubleArray();
+        t = mat.toDoubleArray();
         T = Matrix.wrap(rc, cc, t);
-        
-        if(mat.rowCount() < blockWidth) {
-    		B = Matrix.create(0,0);
-    	}
-    	else {
-    		B = Matrix.create(blockWidth,n);
-    	}
-    	chol = new CholeskyHelper(blockWidth);
 
         return decomposeLower();
     }
 
     /**
      * <p>
-     * Performs Choleksy decomposition on the provided matrix.
+     * Performs Choleksy decomposition on the provided matrix, using only its lower triangle.
      * </p>
      *
      * <p>
@@ -130,153 +177,172 @@ public class Cholesky extends CholeskyCommon {
      */
     @Override
     protected CholeskyResult decomposeLower() {
+        PackedGemm gemm = new PackedGemm();
+
+        for( int k = 0; k < n; k += blockWidth ) {
+            int kb = Math.min(blockWidth, n-k);
+            if( !decomposeBlock(k,kb) ) return null;
 
-        if( n < blockWidth)
-//            B.reshape(0,0, false);
-        	B = Matrix.create(0, 0);
-        	
-        else
-//            B.reshape(blockWidth,n-blockWidth, false);
-        	B = Matrix.create(blockWidth, n-blockWidth);
+            int m = n-k-kb;
+            if( m == 0 ) break;
 
-        int numBlocks = n / blockWidth;
-        int remainder = n % blockWidth;
+            // L21 = A21 * L11^(-T)
+            run(new SolveTask(k,kb,k+kb,n), ((long)m)*kb*kb);
 
-        if( remainder > 0 ) {
-            numBlocks++;
+            // A22 = A22 - L21 * L21^T
+            UpdateTask update = new UpdateTask(k,kb,0,m);
+            update.gemm = gemm;
+            run(update, ((long)m)*m*kb/2);
         }
 
-        /*
-         * In Ejml, DenseMatrix64F has a mutable public field numcols. b_numCols is used here, in place of it.
-         */
-//        B.numCols = n;
-        int b_numCols = n;
+        // zero the top right corner.
+        for( int i = 0; i < n; i++ ) {
+            for( int j = i+1; j < n; j++ ) {
+                t[i*n+j] = 0.0;
+            }
+        }
 
-        for( int i = 0; i < numBlocks; i++ ) {
-//            B.numCols -= blockWidth;
-        	b_numCols -= blockWidth;
-        	
-//            if( B.numCols > 0 ) {
-            if( b_numCols > 0 ) {
-                // apply cholesky to the current block
-                if( !chol.decompose(T,(i*blockWidth)* T.columnCount() + i*blockWidth,blockWidth) )  return null;
+        return new CholeskyResult(T);
+    }
+
+    /**
+     * Runs a task in the common pool if it is large enough to benefit, otherwise in the
+     * current thread. Tasks still split when the current thread is part of a ForkJoinPool.
+     */
+    private static void run(RecursiveAction task, long ops) {
+        if( (ops >= Multiplications.getParallelThreshold()) && (ForkJoinPool.getCommonPoolParallelism() > 1) ) {
+            ForkJoinPool.commonPool().invoke(task);
+        } else {
+            task.invoke();
+        }
+    }
 
-                int indexSrc = i*blockWidth* T.columnCount() + (i+1)*blockWidth;
-                int indexDst = (i+1)*blockWidth* T.columnCount() + i*blockWidth;
+    /**
+     * Decomposes the kb by kb diagonal block starting at row and column k, in place.
+     *
+     * @return True if it was able to finish the decomposition.
+     */
+    private boolean decomposeBlock( int k , int kb ) {
+        for( int j = 0; j < kb; j++ ) {
+            int rowJ = (k+j)*n+k;
+            double sum = t[rowJ+j] - DoubleArrays.dotProduct(t,rowJ,t,rowJ,j);
 
-                // B = L^(-1) * B
-                solveL_special(chol.getL().toMatrix().data, T,indexSrc,indexDst,B, b_numCols);
+            // is it positive-definite?
+            if( !(sum > 0.0) ) return false;
 
-                int indexL = (i+1)*blockWidth*n + (i+1)*blockWidth;
+            double el_jj = Math.sqrt(sum);
+            t[rowJ+j] = el_jj;
+            double div_el_jj = 1.0/el_jj;
 
-                // c = c - a^T*a
-                symmRankTranA_sub(B, T,indexL, b_numCols);
-            } else {
-                int width = remainder > 0 ? remainder : blockWidth;
-                if( !chol.decompose(T,(i*blockWidth)* T.columnCount() + i*blockWidth,width) )  return null;
+            for( int i = j+1; i < kb; i++ ) {
+                int rowI = (k+i)*n+k;
+                t[rowI+j] = (t[rowI+j] - DoubleArrays.dotProduct(t,rowI,t,rowJ,j))*div_el_jj;
             }
         }
+        return true;
+    }
 
-
-        // zero the top right corner.
-        for( int i = 0; i < n; i++ ) {
-            for( int j = i+1; j < n; j++ ) {
-                t[i*n+j] = 0.0;
+    /**
+     * Solves rows [start,end) of the panel below the diagonal block at k by forward
+     * substitution, i.e. each row x of the panel is replaced by the solution of L11 * y = x^T
+     */
+    private void solvePanel( int k , int kb , int start , int end ) {
+        for( int r = start; r < end; r++ ) {
+            int rowR = r*n+k;
+            for( int j = 0; j < kb; j++ ) {
+                int rowJ = (k+j)*n+k;
+                t[rowR+j] = (t[rowR+j] - DoubleArrays.dotProduct(t,rowR,t,rowJ,j))/t[rowJ+j];
             }
         }
+    }
 
-        return new CholeskyResult(T);
+    /**
+     * Applies the rank-kb update from the panel at column k to rows [start,end) of the lower
+     * triangle of the trailing submatrix, where rows are numbered from the start of the
+     * trailing submatrix. Elements above the diagonal within each group of rows are also
+     * updated, which is harmless since they are zeroed at the end.
+     */
+    private void updateTrailing( int k , int kb , int start , int end , PackedGemm gemm ) {
+        int s = k+kb;
+        for( int i = start; i < end; i += UPDATE_ROWS ) {
+            int rows = Math.min(UPDATE_ROWS, end-i);
+            gemm.multiply(-1.0, rows, i+rows, kb,
+                    t, (s+i)*n+k, n, 1,
+                    t, s*n+k, 1, n,
+                    t, (s+i)*n+s, n, 1);
+        }
     }
-    
-    /*
-     * Private version of solveL_special that takes an argument, b_numCols which represents B.numCols
-     * field in DenseMatrix64F in the ejml code
+
+    /**
+     * Fork-join task solving a range of rows of a panel
      */
-    private static void solveL_special( final double L[] ,
-                                       final Matrix b_src,
-                                       final int indexSrc , final int indexDst ,
-                                       final Matrix B, int b_numCols )
-    {
-        final double dataSrc[] = b_src.data;
-
-        final double b[]= B.data;
-        final int m = B.rowCount();
-        final int n = b_numCols;
-        final int widthL = m;
-
-//        for( int j = 0; j < n; j++ ) {
-//            for( int i = 0; i < widthL; i++ ) {
-//                double sum = dataSrc[indexSrc+i*b_src.numCols+j];
-//                for( int k=0; k<i; k++ ) {
-//                    sum -= L[i*widthL+k]* b[k*n+j];
-//                }
-//                double val = sum / L[i*widthL+i];
-//                dataSrc[indexDst+j*b_src.numCols+i] = val;
-//                b[i*n+j] = val;
-//            }
-//        }
-
-        for( int j = 0; j < n; j++ ) {
-            int indexb = j;
-            int rowL = 0;
-            
-            //for( int i = 0; i < widthL; i++
-            for( int i = 0; i < widthL; i++ ,  indexb += n, rowL += widthL ) {
-                double sum = dataSrc[indexSrc+i*b_src.columnCount()+j];
-
-                int indexL = rowL;
-                int endL = indexL + i;
-                int indexB = j;
-                //for( int k=0; k<i; k++ ) {
-                for( ; indexL != endL; indexB += n) {
-                    sum -= L[indexL++]* b[indexB];
-                }
-                double val = sum / L[i*widthL+i];
-                dataSrc[indexDst+j*b_src.columnCount()+i] = val;
-                b[indexb] = val;
+    @SuppressWarnings("serial")
+    private final class SolveTask extends RecursiveAction {
+        private final int k, kb, start, end;
+
+        SolveTask( int k , int kb , int start , int end ) {
+            this.k = k;
+            this.kb = kb;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            int rows = end-start;
+            if( inForkJoinPool() && (rows >= 2*SOLVE_ROWS) && (((long)rows)*kb*kb/2 > TASK_TARGET) ) {
+                int mid = start+(rows>>1);
+                invokeAll(new SolveTask(k,kb,start,mid), new SolveTask(k,kb,mid,end));
+            } else {
+                solvePanel(k,kb,start,end);
             }
         }
     }
 
-    /*
-     * Private version of symmRankTranA_sub that takes an argument, b_numCols which represents B.numCols
-     * field in DenseMatrix64F in the ejml code
+    /**
+     * Fork-join task updating a range of rows of the trailing submatrix. Rows further down
+     * have more elements in the lower triangle, so ranges are split to balance the work.
      */
-    private static void symmRankTranA_sub( Matrix a , Matrix c ,
-                                          int startIndexC, int b_numCols )
-    {
-        // TODO update so that it doesn't modify/read parts that it shouldn't
-        final double dataA[] = a.data;
-        final double dataC[] = c.data;
-
-//        for( int i = 0; i < a.numCols; i++ ) {
-//            for( int k = 0; k < a.numRows; k++ ) {
-//                double valA = dataA[k*a.numCols+i];
-//
-//                for( int j = i; j < a.numCols; j++ ) {
-//                    dataC[startIndexC+i*c.numCols+j] -= valA * dataA[k*a.numCols+j];
-//                }
-//            }
-//        }
-
-        final int strideC = c.columnCount() + 1;
-        for( int i = 0; i < b_numCols; i++ ) {
-            int indexA = i;
-            int endR = b_numCols;
-
-            for( int k = 0; k < a.rowCount(); k++ , indexA += b_numCols , endR += b_numCols) {
-                int indexC = startIndexC;
-                final double valA = dataA[indexA];
-                int indexR = indexA;
-
-                while( indexR < endR ) {
-                    dataC[indexC++] -= valA * dataA[indexR++];
+    @SuppressWarnings("serial")
+    private final class UpdateTask extends RecursiveAction {
+        private final int k, kb, start, end;
+
+        // kernel shared by all tasks run on the same thread, or null to create one
+        private PackedGemm gemm = null;
+
+        UpdateTask( int k , int kb , int start , int end ) {
+            this.k = k;
+            this.kb = kb;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if( gemm == null )
+                gemm = new PackedGemm();
+            int rows = end-start;
+            long ops = (((long)end)*end-((long)start)*start)*kb/2;
+            if( inForkJoinPool() && (rows >= 2*UPDATE_ROWS) && (ops > TASK_TARGET) ) {
+                // split so that both halves have roughly the same area of the lower triangle
+                int mid = (int)Math.sqrt((((double)start)*start+((double)end)*end)/2);
+                mid = Math.max(start+UPDATE_ROWS, Math.min(end-UPDATE_ROWS, mid));
+
+                // the packing buffers are reused by both halves unless the second is stolen
+                UpdateTask left = new UpdateTask(k,kb,start,mid);
+                UpdateTask right = new UpdateTask(k,kb,mid,end);
+                right.fork();
+                left.gemm = gemm;
+                left.compute();
+                if( right.tryUnfork() ) {
+                    right.gemm = gemm;
+                    right.compute();
+                } else {
+                    right.join();
                 }
+            } else {
+                updateTrailing(k,kb,start,end,gemm);
             }
-            startIndexC += strideC;
         }
-
     }
-    
-    
-}
\ No newline at end of file
+}
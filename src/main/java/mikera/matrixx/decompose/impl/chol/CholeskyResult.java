@@ -1,9 +1,15 @@
 package mikera.matrixx.decompose.impl.chol;
 
+import java.util.Arrays;
+
 import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
 import mikera.matrixx.decompose.ICholeskyLDUResult;
 import mikera.matrixx.impl.ADiagonalMatrix;
+import mikera.matrixx.impl.ColumnMatrix;
 import mikera.matrixx.impl.IdentityMatrix;
+import mikera.vectorz.AVector;
+import mikera.vectorz.util.ErrorMessages;
 
 public class CholeskyResult implements ICholeskyLDUResult {
 
@@ -54,4 +60,117 @@ public class CholeskyResult implements ICholeskyLDUResult {
 		return D;
 	}
 
+
+	@Override
+	public void update(AVector x) {
+		rankUpdate(ColumnMatrix.wrap(x),1.0);
+	}
+
+	@Override
+	public void update(AMatrix x) {
+		rankUpdate(x,1.0);
+	}
+
+	@Override
+	public boolean downdate(AVector x) {
+		return rankUpdate(ColumnMatrix.wrap(x),-1.0);
+	}
+
+	@Override
+	public boolean downdate(AMatrix x) {
+		return rankUpdate(x,-1.0);
+	}
+
+	/**
+	 * Changes the decomposition to that of A + sign * X.X', modifying L (and D if it is not the
+	 * identity) in place. Returns false if the result is not positive definite, in which case
+	 * the decomposition is left unchanged.
+	 */
+	private boolean rankUpdate(AMatrix x, double sign) {
+		int n=L.rowCount();
+		if (x.rowCount()!=n) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(L,x));
+		if (x.columnCount()==0) return true;
+		Matrix xm=x.toMatrix();
+		Matrix lm=L.toMatrix();
+
+		// a downdate can fail part way through, so work on a copy unless L is already copied
+		double[] data=((sign<0)&&(lm==L))?lm.data.clone():lm.data;
+		if (D.isIdentity()) {
+			if (!updateLower(data,n,xm,sign)) return false;
+		} else {
+			double[] d=D.getLeadingDiagonal().toDoubleArray();
+			if (!updateLDL(data,d,n,xm,sign)) return false;
+			D.getLeadingDiagonal().setElements(d,0);
+		}
+
+		if (data!=lm.data) System.arraycopy(data, 0, lm.data, 0, data.length);
+		if (lm!=L) L.set(lm);
+		return true;
+	}
+
+	/**
+	 * Applies the rank update to L.L' with a sequence of hyperbolic (downdate) or Givens (update)
+	 * rotations. Rows of L are processed in order, applying every column of X to a row before moving
+	 * on so that each row is only traversed once. The rotation for column c of L is computed when its
+	 * diagonal element is reached, and reused for all later rows.
+	 */
+	private static boolean updateLower(double[] data, int n, Matrix x, double sign) {
+		int k=x.columnCount();
+		double[] xd=x.data;
+		double[] cs=new double[k*n];
+		double[] sn=new double[k*n];
+		for (int i=0; i<n; i++) {
+			int row=i*n;
+			for (int j=0; j<k; j++) {
+				int p=j*n;
+				double w=xd[i*k+j];
+				for (int c=0; c<i; c++) {
+					double lic=(data[row+c]+sign*sn[p+c]*w)/cs[p+c];
+					w=cs[p+c]*w-sn[p+c]*lic;
+					data[row+c]=lic;
+				}
+
+				double lii=data[row+i];
+				double r2=lii*lii+sign*w*w;
+				if (!(r2>0.0)) return false;
+				double r=Math.sqrt(r2);
+				cs[p+i]=r/lii;
+				sn[p+i]=w/lii;
+				data[row+i]=r;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Applies the rank update to L.D.L', where L has a unit diagonal, using the method of Gill,
+	 * Golub, Murray and Saunders. Rows are processed in the same order as updateLower.
+	 */
+	private static boolean updateLDL(double[] data, double[] d, int n, Matrix x, double sign) {
+		int k=x.columnCount();
+		double[] xd=x.data;
+		double[] pv=new double[k*n];
+		double[] beta=new double[k*n];
+		double[] alpha=new double[k];
+		Arrays.fill(alpha, sign);
+		for (int i=0; i<n; i++) {
+			int row=i*n;
+			for (int j=0; j<k; j++) {
+				int p=j*n;
+				double w=xd[i*k+j];
+				for (int c=0; c<i; c++) {
+					w-=pv[p+c]*data[row+c];
+					data[row+c]+=beta[p+c]*w;
+				}
+
+				double dn=d[i]+alpha[j]*w*w;
+				if (!(dn>0.0)) return false;
+				pv[p+i]=w;
+				beta[p+i]=w*alpha[j]/dn;
+				alpha[j]*=d[i]/dn;
+				d[i]=dn;
+			}
+		}
+		return true;
+	}
 }
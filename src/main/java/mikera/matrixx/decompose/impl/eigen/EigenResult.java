@@ -7,16 +7,21 @@ import mikera.vectorz.Vector2;
 public class EigenResult implements IEigenResult {
     
     private final AVector[] eigenVectors;
+    private final AVector[] eigenVectorsImaginary;
     private final Vector2[] eigenValues;
     
     public EigenResult(Vector2[] eigenValues, AVector[] eigenVectors) {
+        this(eigenValues, eigenVectors, null);
+    }
+
+    public EigenResult(Vector2[] eigenValues, AVector[] eigenVectors, AVector[] eigenVectorsImaginary) {
         this.eigenValues = eigenValues;
         this.eigenVectors  = eigenVectors;
+        this.eigenVectorsImaginary = eigenVectorsImaginary;
     }
 
     public EigenResult(Vector2[] eigenValues) {
-        this.eigenValues = eigenValues;
-        this.eigenVectors  = null;
+        this(eigenValues, null, null);
     }
     
     @Override
@@ -30,4 +35,11 @@ public class EigenResult implements IEigenResult {
             throw new UnsupportedOperationException("EigenVectors not computed");
         return eigenVectors;
     }
+
+   @Override
+   public AVector[] getEigenVectorsImaginary() {
+        if (eigenVectorsImaginary == null)
+            return new AVector[getEigenVectors().length];
+        return eigenVectorsImaginary;
+    }
 }
@@ -0,0 +1,380 @@
+package mikera.matrixx.decompose.impl.eigen;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.decompose.IEigenResult;
+import mikera.matrixx.impl.SparseColumnMatrix;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+import mikera.vectorz.Vector2;
+import mikera.vectorz.util.ErrorMessages;
+
+/**
+ * Implicitly restarted Lanczos solver for a few extreme eigenpairs of a large symmetric matrix.
+ *
+ * The matrix is only accessed through matrix-vector products, so sparse matrices such as
+ * SparseRowMatrix can be handled without ever forming a dense copy. Memory use is O(nm) for
+ * a Krylov subspace of size m.
+ *
+ * Each cycle extends a Lanczos factorisation A.V = V.T + f.e' to m vectors, computes the Ritz
+ * pairs of the small tridiagonal matrix T, and stops once the wanted Ritz pairs have residuals
+ * below the tolerance. Otherwise the unwanted Ritz values are applied as exact shifts with
+ * implicit QR steps on T, which compresses the factorisation to k vectors that are enriched
+ * in the wanted eigenvectors, and the Lanczos process continues from there.
+ *
+ * By default each new Lanczos vector is fully reorthogonalised against the basis, which
+ * prevents spurious copies of converged eigenvalues at a cost of O(nm) per step. This can be
+ * disabled to use only the three-term recurrence.
+ *
+ * @author Mike
+ *
+ */
+public class LanczosEigenSolver {
+	// relative size of a residual below which the Krylov subspace is treated as invariant
+	private static final double BREAKDOWN=1e-12;
+
+	private final int k;
+	private final boolean largest;
+
+	private int subspaceSize=0;
+	private int maxRestarts=1000;
+	private double tolerance=1e-10;
+	private boolean fullReorthogonalisation=true;
+	private boolean computeVectors=true;
+	private Random random=new Random();
+
+	private int restarts=0;
+
+	/**
+	 * Creates a solver for the k algebraically largest or smallest eigenpairs
+	 * @param k Number of eigenpairs to compute
+	 * @param largest True for the largest eigenvalues, false for the smallest
+	 */
+	public LanczosEigenSolver(int k, boolean largest) {
+		if (k<1) throw new IllegalArgumentException("Invalid number of eigenvalues: "+k);
+		this.k=k;
+		this.largest=largest;
+	}
+
+	/**
+	 * Computes the k largest or smallest eigenpairs of a symmetric matrix with default settings
+	 * @param A A square symmetric matrix
+	 * @param k Number of eigenpairs to compute
+	 * @param largest True for the largest eigenvalues, false for the smallest
+	 * @return The eigenpairs, or null if the iteration did not converge
+	 */
+	public static IEigenResult decompose(AMatrix A, int k, boolean largest) {
+		return new LanczosEigenSolver(k,largest).decompose(A);
+	}
+
+	/**
+	 * Sets the size of the Krylov subspace. Larger subspaces need fewer restarts but more memory.
+	 * @param m Subspace size, which must be greater than k, or 0 to choose automatically
+	 */
+	public void setSubspaceSize(int m) {
+		if ((m!=0)&&(m<=k)) throw new IllegalArgumentException("Subspace size must be greater than "+k+": "+m);
+		this.subspaceSize=m;
+	}
+
+	public void setMaxRestarts(int maxRestarts) {
+		if (maxRestarts<0) throw new IllegalArgumentException("Negative restart limit: "+maxRestarts);
+		this.maxRestarts=maxRestarts;
+	}
+
+	/**
+	 * Sets the convergence tolerance, relative to the estimated norm of the matrix
+	 * @param tolerance
+	 */
+	public void setTolerance(double tolerance) {
+		if (!(tolerance>0.0)) throw new IllegalArgumentException("Tolerance must be positive: "+tolerance);
+		this.tolerance=tolerance;
+	}
+
+	/**
+	 * Sets whether each Lanczos vector is reorthogonalised against the whole basis
+	 * @param full
+	 */
+	public void setFullReorthogonalisation(boolean full) {
+		this.fullReorthogonalisation=full;
+	}
+
+	public void setComputeVectors(boolean computeVectors) {
+		this.computeVectors=computeVectors;
+	}
+
+	/**
+	 * Sets the source of randomness used for the starting vector
+	 * @param random
+	 */
+	public void setRandom(Random random) {
+		this.random=random;
+	}
+
+	/**
+	 * Gets the number of restarts performed by the last decomposition
+	 * @return
+	 */
+	public int getRestarts() {
+		return restarts;
+	}
+
+	/**
+	 * Computes the eigenpairs of a symmetric matrix. Eigenvalues are returned in order, starting
+	 * with the most extreme.
+	 *
+	 * @param A A square symmetric matrix
+	 * @return The eigenpairs, or null if the iteration did not converge
+	 */
+	public IEigenResult decompose(AMatrix A) {
+		int n=A.rowCount();
+		if (A.columnCount()!=n) throw new IllegalArgumentException(ErrorMessages.squareMatrixRequired(A));
+		if (k>n) throw new IllegalArgumentException("Cannot compute "+k+" eigenvalues of a "+n+"x"+n+" matrix");
+		// a symmetric matrix is its own transpose, so use the view with efficient rows
+		if (A instanceof SparseColumnMatrix) A=((SparseColumnMatrix)A).getTransposeView();
+
+		int m=(subspaceSize>0)?subspaceSize:Math.max(2*k+1, k+20);
+		m=Math.min(m, n);
+
+		Vector[] v=new Vector[m+1];
+		double[] alpha=new double[m];
+		double[] beta=new double[m];
+		v[0]=randomVector(n,v,0);
+		double[] norm=new double[1];
+
+		int start=0;
+		for (restarts=0; restarts<=maxRestarts; restarts++) {
+			extend(A,v,alpha,beta,start,m,norm);
+
+			Matrix t=tridiagonal(alpha,beta,m);
+			IEigenResult ritz=new SymmetricQRAlgorithmDecomposition(true).decompose(t);
+			if (ritz==null) return null;
+			Vector2[] values=ritz.getEigenvalues();
+			AVector[] vectors=ritz.getEigenVectors();
+			int[] order=order(values);
+
+			// residual of Ritz pair i is |beta_m * s_i[m-1]|
+			boolean converged=(m==n);
+			if (!converged) {
+				converged=true;
+				for (int i=0; i<k; i++) {
+					AVector s=vectors[order[i]];
+					if (Math.abs(beta[m-1]*s.unsafeGet(m-1))>tolerance*norm[0]) {
+						converged=false;
+						break;
+					}
+				}
+			}
+			if (converged) return createResult(v,values,vectors,order,n,m);
+
+			start=restart(t,v,alpha,beta,values,order,n,m);
+		}
+		return null;
+	}
+
+	/**
+	 * Extends the Lanczos factorisation from column start to m columns. On return, v[m] holds
+	 * the normalised residual vector and beta[m-1] its norm.
+	 */
+	private void extend(AMatrix A, Vector[] v, double[] alpha, double[] beta, int start, int m, double[] norm) {
+		int n=A.rowCount();
+		for (int j=start; j<m; j++) {
+			Vector w=(v[j+1]==null)?Vector.createLength(n):v[j+1];
+			A.transform(v[j], w);
+			if (j>0) w.addMultiple(v[j-1], -beta[j-1]);
+			double a=w.dotProduct(v[j]);
+			w.addMultiple(v[j], -a);
+			if (fullReorthogonalisation) {
+				a+=orthogonalise(w,v,j+1);
+			}
+			alpha[j]=a;
+
+			double b=w.magnitude();
+			norm[0]=Math.max(norm[0], Math.abs(a)+b+((j>0)?beta[j-1]:0.0));
+			if (b>BREAKDOWN*norm[0]) {
+				beta[j]=b;
+				w.multiply(1.0/b);
+				v[j+1]=w;
+			} else {
+				// invariant subspace found, so continue with a new orthogonal direction
+				beta[j]=0.0;
+				v[j+1]=randomVector(n,v,j+1);
+			}
+		}
+	}
+
+	/**
+	 * Orthogonalises w against the first count basis vectors with two passes of modified
+	 * Gram-Schmidt, returning the total component removed along the last vector
+	 */
+	private static double orthogonalise(Vector w, Vector[] v, int count) {
+		double last=0.0;
+		for (int pass=0; pass<2; pass++) {
+			for (int i=0; i<count; i++) {
+				double h=w.dotProduct(v[i]);
+				w.addMultiple(v[i], -h);
+				if (i==count-1) last+=h;
+			}
+		}
+		return last;
+	}
+
+	/**
+	 * Creates a random unit vector orthogonal to the first count basis vectors, or a zero
+	 * vector if the basis already spans the whole space
+	 */
+	private Vector randomVector(int n, Vector[] v, int count) {
+		Vector w=Vector.createLength(n);
+		double[] data=w.getArray();
+		for (int i=0; i<n; i++) {
+			data[i]=random.nextGaussian();
+		}
+		orthogonalise(w,v,count);
+		double b=w.magnitude();
+		if (b>BREAKDOWN*Math.sqrt(n)) {
+			w.multiply(1.0/b);
+		} else {
+			w.fill(0.0);
+		}
+		return w;
+	}
+
+	private static Matrix tridiagonal(double[] alpha, double[] beta, int m) {
+		Matrix t=Matrix.create(m, m);
+		for (int i=0; i<m; i++) {
+			t.unsafeSet(i, i, alpha[i]);
+			if (i+1<m) {
+				t.unsafeSet(i+1, i, beta[i]);
+				t.unsafeSet(i, i+1, beta[i]);
+			}
+		}
+		return t;
+	}
+
+	/**
+	 * Gets the indices of Ritz values in order, with the wanted values first
+	 */
+	private int[] order(Vector2[] values) {
+		int m=values.length;
+		Integer[] ix=new Integer[m];
+		for (int i=0; i<m; i++) ix[i]=i;
+		if (largest) {
+			Arrays.sort(ix, (a,b) -> Double.compare(values[b].x, values[a].x));
+		} else {
+			Arrays.sort(ix, (a,b) -> Double.compare(values[a].x, values[b].x));
+		}
+		int[] order=new int[m];
+		for (int i=0; i<m; i++) order[i]=ix[i];
+		return order;
+	}
+
+	/**
+	 * Applies the unwanted Ritz values as shifts and compresses the factorisation to k vectors
+	 * @return The number of vectors in the compressed factorisation
+	 */
+	private int restart(Matrix t, Vector[] v, double[] alpha, double[] beta, Vector2[] values, int[] order, int n, int m) {
+		Matrix q=Matrix.createIdentity(m);
+		for (int i=k; i<m; i++) {
+			shiftedQRStep(t,q,values[order[i]].x);
+		}
+
+		// V+ = V.Q for the first k+1 columns
+		Vector[] nv=new Vector[k+1];
+		for (int j=0; j<=k; j++) {
+			Vector x=Vector.createLength(n);
+			for (int i=0; i<m; i++) {
+				double qij=q.unsafeGet(i, j);
+				if (qij!=0.0) x.addMultiple(v[i], qij);
+			}
+			nv[j]=x;
+		}
+
+		// new residual f = V.Q[:,k] * T+[k,k-1] + v[m] * beta[m-1] * Q[m-1,k-1]
+		Vector f=nv[k];
+		f.multiply(t.unsafeGet(k, k-1));
+		f.addMultiple(v[m], beta[m-1]*q.unsafeGet(m-1, k-1));
+
+		for (int j=0; j<k; j++) {
+			v[j]=nv[j];
+			alpha[j]=t.unsafeGet(j, j);
+			if (j+1<k) beta[j]=t.unsafeGet(j+1, j);
+		}
+		if (fullReorthogonalisation) orthogonalise(f,v,k);
+		double b=f.magnitude();
+		if (b>0.0) {
+			beta[k-1]=b;
+			f.multiply(1.0/b);
+			v[k]=f;
+		} else {
+			beta[k-1]=0.0;
+			v[k]=randomVector(n,v,k);
+		}
+		for (int j=k+1; j<=m; j++) {
+			v[j]=null;
+		}
+		return k;
+	}
+
+	/**
+	 * Performs one implicitly shifted QR step on the symmetric tridiagonal matrix t by chasing
+	 * a bulge with Givens rotations, accumulating the rotations into q
+	 */
+	private static void shiftedQRStep(Matrix t, Matrix q, double mu) {
+		int m=t.rowCount();
+		double[] td=t.data;
+		double[] qd=q.data;
+		double x=td[0]-mu;
+		double y=td[m];
+		for (int i=0; i<m-1; i++) {
+			double r=Math.hypot(x, y);
+			double c=(r==0.0)?1.0:x/r;
+			double s=(r==0.0)?0.0:y/r;
+			int lo=Math.max(0, i-1);
+			int hi=Math.min(m, i+3);
+			for (int col=lo; col<hi; col++) {
+				double a=td[i*m+col];
+				double b=td[(i+1)*m+col];
+				td[i*m+col]=c*a+s*b;
+				td[(i+1)*m+col]=c*b-s*a;
+			}
+			for (int row=lo; row<hi; row++) {
+				double a=td[row*m+i];
+				double b=td[row*m+i+1];
+				td[row*m+i]=c*a+s*b;
+				td[row*m+i+1]=c*b-s*a;
+			}
+			for (int row=0; row<m; row++) {
+				double a=qd[row*m+i];
+				double b=qd[row*m+i+1];
+				qd[row*m+i]=c*a+s*b;
+				qd[row*m+i+1]=c*b-s*a;
+			}
+			if (i<m-2) {
+				x=td[(i+1)*m+i];
+				y=td[(i+2)*m+i];
+			}
+		}
+	}
+
+	private IEigenResult createResult(Vector[] v, Vector2[] values, AVector[] vectors, int[] order, int n, int m) {
+		Vector2[] eigenValues=new Vector2[k];
+		for (int i=0; i<k; i++) {
+			eigenValues[i]=new Vector2(values[order[i]].x, 0.0);
+		}
+		if (!computeVectors) return new EigenResult(eigenValues);
+
+		AVector[] eigenVectors=new AVector[k];
+		for (int i=0; i<k; i++) {
+			AVector s=vectors[order[i]];
+			Vector x=Vector.createLength(n);
+			for (int j=0; j<m; j++) {
+				x.addMultiple(v[j], s.unsafeGet(j));
+			}
+			x.normalise();
+			eigenVectors[i]=x;
+		}
+		return new EigenResult(eigenValues,eigenVectors);
+	}
+}
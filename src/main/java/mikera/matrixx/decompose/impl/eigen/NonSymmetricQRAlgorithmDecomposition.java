@@ -0,0 +1,722 @@
+package mikera.matrixx.decompose.impl.eigen;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.algo.Multiplications;
+import mikera.matrixx.algo.impl.PackedGemm;
+import mikera.matrixx.decompose.impl.hessenberg.HessenbergResult;
+import mikera.matrixx.decompose.impl.hessenberg.HessenbergSimilarDecomposition;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+import mikera.vectorz.Vector2;
+
+/**
+ * Computes the eigenvalues and optionally the eigenvectors of a general real square matrix.
+ *
+ * The matrix is reduced to upper Hessenberg form, and then to real Schur form T = Z'.H.Z with
+ * the Francis double shift QR algorithm. Complex conjugate eigenvalues appear as 2x2 blocks on
+ * the diagonal of T. Eigenvectors are found by back substitution on T and transformed back
+ * with Z.
+ *
+ * Large active blocks use aggressive early deflation: the Schur form of a window at the bottom
+ * of the block is computed, and eigenvalues whose coupling to the rest of the matrix (the
+ * "spike") is negligible are deflated straight away. The remaining eigenvalues of the window are
+ * used as shifts for a sequence of double shift sweeps. Unlike LAPACK the window is not
+ * reordered, so deflation stops at the first eigenvalue that cannot be deflated.
+ *
+ * Complex eigenvalues are returned with the x component holding the real part and the y
+ * component the imaginary part. Conjugate pairs are adjacent, with the positive imaginary part
+ * first. Eigenvectors are normalised to unit length, with their imaginary parts available from
+ * {@link EigenResult#getEigenVectorsImaginary()}.
+ *
+ * @author Mike
+ *
+ */
+public class NonSymmetricQRAlgorithmDecomposition {
+	// active blocks at least this large use aggressive early deflation
+	private static final int AED_MIN=75;
+
+	// percentage of the window which must deflate for a further deflation step to be preferred
+	// to a QR sweep
+	private static final int NIBBLE=14;
+
+	// maximum number of double shift sweeps performed with each set of window shifts
+	private static final int MAX_SWEEPS=8;
+
+	private static final double ULP=Math.ulp(1.0);
+	private static final double SAFE_MIN=Double.MIN_NORMAL;
+
+	private NonSymmetricQRAlgorithmDecomposition() {}
+
+	/**
+	 * Computes the eigenvalues, and optionally the eigenvectors, of a square matrix.
+	 *
+	 * @param A The input matrix. Not modified.
+	 * @param computeVectors Whether eigenvectors should be computed
+	 * @return The decomposition, or null if the QR algorithm fails to converge
+	 */
+	public static EigenResult decompose(AMatrix A, boolean computeVectors) {
+		if (A.columnCount()!=A.rowCount()) throw new IllegalArgumentException("Matrix must be square.");
+		int n=A.rowCount();
+		if (n==0) return computeVectors?new EigenResult(new Vector2[0], new AVector[0]):new EigenResult(new Vector2[0]);
+
+		HessenbergResult hess=HessenbergSimilarDecomposition.decompose(A);
+		Matrix h=hess.getH().toMatrix();
+		Matrix z=computeVectors?hess.getQ().toMatrix():null;
+
+		Schur schur=new Schur(h.data, n, (z==null)?null:z.data, computeVectors, true);
+		if (!schur.run(0, n-1)) return null;
+
+		Vector2[] values=new Vector2[n];
+		for (int i=0; i<n; i++) {
+			values[i]=new Vector2(schur.wr[i], schur.wi[i]);
+		}
+		if (!computeVectors) return new EigenResult(values);
+
+		Matrix x=backSubstitute(h.data, n, schur.wr, schur.wi);
+		Matrix vectors=Multiplications.multiply(z, x);
+
+		AVector[] real=new AVector[n];
+		AVector[] imag=new AVector[n];
+		for (int j=0; j<n; j++) {
+			if (schur.wi[j]==0.0) {
+				Vector v=vectors.getColumn(j).toVector();
+				v.divide(v.magnitude());
+				real[j]=v;
+			} else {
+				Vector re=vectors.getColumn(j).toVector();
+				Vector im=vectors.getColumn(j+1).toVector();
+				double norm=Math.sqrt(re.magnitudeSquared()+im.magnitudeSquared());
+				re.divide(norm);
+				im.divide(norm);
+				real[j]=re;
+				imag[j]=im;
+				Vector conj=im.clone();
+				conj.negate();
+				real[j+1]=re.clone();
+				imag[j+1]=conj;
+				j++;
+			}
+		}
+		return new EigenResult(values, real, imag);
+	}
+
+	/**
+	 * Real Schur decomposition of an upper Hessenberg matrix stored in a row-major array
+	 */
+	private static final class Schur {
+		private final double[] h;
+		private final int n;
+		private final double[] z;
+		private final boolean wantT;
+		private final boolean useAed;
+
+		private final double[] wr;
+		private final double[] wi;
+
+		// shifts from the last deflation window, as real parts, imaginary parts and count
+		private double[] shiftRe;
+		private double[] shiftIm;
+		private int shiftCount;
+
+		// workspace for Householder vectors
+		private final double[] v;
+
+		private Schur(double[] h, int n, double[] z, boolean wantT, boolean useAed) {
+			this.h=h;
+			this.n=n;
+			this.z=z;
+			this.wantT=wantT;
+			this.useAed=useAed;
+			this.wr=new double[n];
+			this.wi=new double[n];
+			this.v=new double[n];
+		}
+
+		/**
+		 * Computes the eigenvalues of the active block [lo,hi], reducing it to quasi triangular form
+		 * @return false if the iteration fails to converge
+		 */
+		private boolean run(int lo, int hi) {
+			int maxIterations=30*Math.max(10, hi-lo+1);
+			int i=hi;
+			int its=0;
+			int total=0;
+			while (i>=lo) {
+				int l=findSplit(lo, i);
+				if (l==i) {
+					wr[i]=h[i*n+i];
+					wi[i]=0.0;
+					i--;
+					its=0;
+					continue;
+				}
+				if (l==i-1) {
+					standardise(i);
+					i-=2;
+					its=0;
+					continue;
+				}
+				if (++total>maxIterations) return false;
+				its++;
+
+				if (useAed&&(i-l+1>=AED_MIN)&&(its%10!=0)) {
+					int w=windowSize(i-l+1);
+					int nd=deflate(l, i, w);
+					if (nd>0) its=0;
+					if ((nd>0)&&(100*nd>NIBBLE*w)) continue;
+					i-=nd;
+					sweepWithShifts(l, i);
+					i+=nd;
+					continue;
+				}
+
+				double s;
+				double t;
+				if (its%10==0) {
+					// exceptional shift
+					double e=Math.abs(h[i*n+i-1])+Math.abs(h[(i-1)*n+i-2]);
+					double h11=0.75*e+h[i*n+i];
+					s=2*h11;
+					t=h11*h11+0.4375*e*e;
+				} else {
+					double a=h[(i-1)*n+i-1];
+					double d=h[i*n+i];
+					s=a+d;
+					t=a*d-h[(i-1)*n+i]*h[i*n+i-1];
+				}
+				sweep(l, i, s, t);
+			}
+			return true;
+		}
+
+		/**
+		 * Looks for a negligible subdiagonal element in the block [lo,i], working up from the
+		 * bottom. The element is set to zero, and the index of the top of the unreduced block
+		 * at the bottom is returned.
+		 */
+		private int findSplit(int lo, int i) {
+			for (int k=i; k>lo; k--) {
+				double sub=Math.abs(h[k*n+k-1]);
+				if (sub<=SAFE_MIN) {
+					h[k*n+k-1]=0.0;
+					return k;
+				}
+				double tst=Math.abs(h[(k-1)*n+k-1])+Math.abs(h[k*n+k]);
+				if (tst==0.0) {
+					if (k-2>=lo) tst+=Math.abs(h[(k-1)*n+k-2]);
+					if (k+1<=i) tst+=Math.abs(h[(k+1)*n+k]);
+				}
+				if (sub<=ULP*tst) {
+					// conservative test of Ahues and Tisseur
+					double up=Math.abs(h[(k-1)*n+k]);
+					double ab=Math.max(sub, up);
+					double ba=Math.min(sub, up);
+					double dk=Math.abs(h[k*n+k]);
+					double dd=Math.abs(h[(k-1)*n+k-1]-h[k*n+k]);
+					double aa=Math.max(dk, dd);
+					double bb=Math.min(dk, dd);
+					double sum=aa+ab;
+					if (ba*(ab/sum)<=Math.max(SAFE_MIN, ULP*(bb*(aa/sum)))) {
+						h[k*n+k-1]=0.0;
+						return k;
+					}
+				}
+			}
+			return lo;
+		}
+
+		/**
+		 * Computes the eigenvalues of the 2x2 block ending at row i. Blocks with real eigenvalues
+		 * are rotated to upper triangular form.
+		 */
+		private void standardise(int i) {
+			int i1=i-1;
+			double a=h[i1*n+i1];
+			double b=h[i1*n+i];
+			double c=h[i*n+i1];
+			double d=h[i*n+i];
+			double p=0.5*(a-d);
+			double q=p*p+b*c;
+			if (q>=0.0) {
+				double r=Math.sqrt(q);
+				double zz=(p>=0.0)?p+r:p-r;
+				double cs=zz;
+				double sn=c;
+				double norm=Math.hypot(cs, sn);
+				if (norm!=0.0) {
+					cs/=norm;
+					sn/=norm;
+					rotate(i1, i, cs, sn, i1, wantT?n-1:i, wantT?0:i1, i);
+				}
+				h[i*n+i1]=0.0;
+				wr[i1]=h[i1*n+i1];
+				wr[i]=h[i*n+i];
+				wi[i1]=0.0;
+				wi[i]=0.0;
+			} else {
+				double im=Math.sqrt(-q);
+				wr[i1]=d+p;
+				wr[i]=d+p;
+				wi[i1]=im;
+				wi[i]=-im;
+			}
+		}
+
+		/**
+		 * Applies the rotation [c s; -s c] to rows a and b (columns c0 to c1) and the transposed
+		 * rotation to columns a and b (rows r0 to r1), and to the columns of Z
+		 */
+		private void rotate(int a, int b, double c, double s, int c0, int c1, int r0, int r1) {
+			for (int j=c0; j<=c1; j++) {
+				double x=h[a*n+j];
+				double y=h[b*n+j];
+				h[a*n+j]=c*x+s*y;
+				h[b*n+j]=c*y-s*x;
+			}
+			for (int r=r0; r<=r1; r++) {
+				int ri=r*n;
+				double x=h[ri+a];
+				double y=h[ri+b];
+				h[ri+a]=c*x+s*y;
+				h[ri+b]=c*y-s*x;
+			}
+			if (z!=null) {
+				for (int r=0; r<n; r++) {
+					int ri=r*n;
+					double x=z[ri+a];
+					double y=z[ri+b];
+					z[ri+a]=c*x+s*y;
+					z[ri+b]=c*y-s*x;
+				}
+			}
+		}
+
+		/**
+		 * Performs a Francis double shift sweep on the unreduced block [l,i], with shifts given
+		 * by their sum s and product t
+		 */
+		private void sweep(int l, int i, double s, double t) {
+			int colEnd=wantT?n-1:i;
+			int rowStart=wantT?0:l;
+			double hll=h[l*n+l];
+			double h21=h[(l+1)*n+l];
+			double x=hll*hll+h[l*n+l+1]*h21-s*hll+t;
+			double y=h21*(hll+h[(l+1)*n+l+1]-s);
+			double w=h21*h[(l+2)*n+l+1];
+
+			for (int k=l; k<=i-2; k++) {
+				double norm=Math.sqrt(x*x+y*y+w*w);
+				if (norm!=0.0) {
+					double beta=(x>0)?-norm:norm;
+					double tau=(beta-x)/beta;
+					double scale=1.0/(x-beta);
+					double v1=y*scale;
+					double v2=w*scale;
+					int c0=(k>l)?k-1:l;
+					reflect3(k, tau, v1, v2, c0, colEnd, rowStart, Math.min(k+3, i));
+					if (k>l) {
+						h[k*n+k-1]=beta;
+						h[(k+1)*n+k-1]=0.0;
+						h[(k+2)*n+k-1]=0.0;
+					}
+				}
+				x=h[(k+1)*n+k];
+				y=h[(k+2)*n+k];
+				if (k<i-2) w=h[(k+3)*n+k];
+			}
+
+			// final rotation to clear the last bulge element
+			double norm=Math.hypot(x, y);
+			if (norm!=0.0) {
+				rotate(i-1, i, x/norm, y/norm, i-2, colEnd, rowStart, i);
+				h[(i-1)*n+i-2]=norm;
+				h[i*n+i-2]=0.0;
+			}
+		}
+
+		/**
+		 * Applies the reflector I - tau*v*v' with v = [1, v1, v2] to rows k..k+2 (columns c0 to c1)
+		 * and to columns k..k+2 (rows r0 to r1), and to the columns of Z
+		 */
+		private void reflect3(int k, double tau, double v1, double v2, int c0, int c1, int r0, int r1) {
+			int k0=k*n;
+			int k1=k0+n;
+			int k2=k1+n;
+			for (int j=c0; j<=c1; j++) {
+				double sum=h[k0+j]+v1*h[k1+j]+v2*h[k2+j];
+				sum*=tau;
+				h[k0+j]-=sum;
+				h[k1+j]-=sum*v1;
+				h[k2+j]-=sum*v2;
+			}
+			for (int r=r0; r<=r1; r++) {
+				int ri=r*n+k;
+				double sum=h[ri]+v1*h[ri+1]+v2*h[ri+2];
+				sum*=tau;
+				h[ri]-=sum;
+				h[ri+1]-=sum*v1;
+				h[ri+2]-=sum*v2;
+			}
+			if (z!=null) {
+				for (int r=0; r<n; r++) {
+					int ri=r*n+k;
+					double sum=z[ri]+v1*z[ri+1]+v2*z[ri+2];
+					sum*=tau;
+					z[ri]-=sum;
+					z[ri+1]-=sum*v1;
+					z[ri+2]-=sum*v2;
+				}
+			}
+		}
+
+		private static int windowSize(int size) {
+			return Math.min(size, Math.max(12, Math.min(96, size/8)));
+		}
+
+		/**
+		 * Aggressive early deflation on a window of size w at the bottom of the block [l,i].
+		 * Collects the undeflated eigenvalues of the window as shifts.
+		 * @return The number of deflated eigenvalues
+		 */
+		private int deflate(int l, int i, int w) {
+			shiftCount=0;
+			int kw=i-w+1;
+
+			// Schur form of the window, S = U'.H(kw:i,kw:i).U
+			double[] s=new double[w*w];
+			for (int r=0; r<w; r++) {
+				int from=Math.max(0, r-1);
+				System.arraycopy(h, (kw+r)*n+kw+from, s, r*w+from, w-from);
+			}
+			double[] u=new double[w*w];
+			for (int r=0; r<w; r++) u[r*w+r]=1.0;
+			Schur ws=new Schur(s, w, u, true, false);
+			if (!ws.run(0, w-1)) return 0;
+
+			double spikeScale=(kw>l)?h[kw*n+kw-1]:0.0;
+			double[] spike=new double[w];
+			for (int r=0; r<w; r++) spike[r]=spikeScale*u[r];
+
+			// deflate from the bottom while the spike is negligible
+			int ns=w;
+			while (ns>0) {
+				boolean block=(ns>=2)&&(s[(ns-1)*w+ns-2]!=0.0);
+				double foo;
+				double sp;
+				int size;
+				if (block) {
+					foo=Math.abs(s[(ns-1)*w+ns-1])+Math.sqrt(Math.abs(s[(ns-1)*w+ns-2]))*Math.sqrt(Math.abs(s[(ns-2)*w+ns-1]));
+					sp=Math.max(Math.abs(spike[ns-1]), Math.abs(spike[ns-2]));
+					size=2;
+				} else {
+					foo=Math.abs(s[(ns-1)*w+ns-1]);
+					sp=Math.abs(spike[ns-1]);
+					size=1;
+				}
+				if (foo==0.0) foo=Math.abs(spikeScale);
+				if (sp>Math.max(SAFE_MIN, ULP*foo)) break;
+				ns-=size;
+			}
+
+			shiftRe=new double[ns];
+			shiftIm=new double[ns];
+			for (int r=0; r<ns; r++) {
+				shiftRe[r]=ws.wr[r];
+				shiftIm[r]=ws.wi[r];
+			}
+			shiftCount=ns;
+
+			int nd=w-ns;
+			if (nd==0) return 0;
+			for (int r=ns; r<w; r++) spike[r]=0.0;
+
+			// H(kw:i,kw:i) = S, with the spike in column kw-1
+			for (int r=0; r<w; r++) {
+				System.arraycopy(s, r*w, h, (kw+r)*n+kw, w);
+			}
+			if (kw>l) {
+				for (int r=0; r<w; r++) h[(kw+r)*n+kw-1]=spike[r];
+			}
+
+			// apply U to the rest of H and to Z
+			int rowStart=wantT?0:l;
+			int colEnd=wantT?n-1:i;
+			PackedGemm gemm=new PackedGemm();
+			multiplyRight(h, rowStart, kw, kw, u, w, gemm);
+			if (colEnd>i) {
+				int cols=colEnd-i;
+				double[] tmp=new double[w*cols];
+				for (int r=0; r<w; r++) {
+					System.arraycopy(h, (kw+r)*n+i+1, tmp, r*cols, cols);
+					java.util.Arrays.fill(h, (kw+r)*n+i+1, (kw+r)*n+colEnd+1, 0.0);
+				}
+				gemm.multiply(w, cols, w,
+						u, 0, 1, w,
+						tmp, 0, cols, 1,
+						h, kw*n+i+1, n, 1);
+			}
+			if (z!=null) multiplyRight(z, 0, n, kw, u, w, gemm);
+
+			// restore Hessenberg form in the undeflated part of the window
+			if ((kw>l)&&(ns>1)) {
+				int e=kw+ns-1;
+				for (int c=kw-1; c<=e-2; c++) {
+					reduceColumn(c, e, rowStart, colEnd, i);
+				}
+			}
+			return nd;
+		}
+
+		/**
+		 * Computes M(r0:r1, c0:c0+w) = M(r0:r1, c0:c0+w) * U for an n x n matrix M
+		 */
+		private void multiplyRight(double[] m, int r0, int r1, int c0, double[] u, int w, PackedGemm gemm) {
+			int rows=r1-r0;
+			if (rows<=0) return;
+			double[] tmp=new double[rows*w];
+			for (int r=0; r<rows; r++) {
+				System.arraycopy(m, (r0+r)*n+c0, tmp, r*w, w);
+				java.util.Arrays.fill(m, (r0+r)*n+c0, (r0+r)*n+c0+w, 0.0);
+			}
+			gemm.multiply(rows, w, w,
+					tmp, 0, w, 1,
+					u, 0, w, 1,
+					m, r0*n+c0, n, 1);
+		}
+
+		/**
+		 * Zeros H(c+2:e, c) with a Householder reflector applied from both sides
+		 */
+		private void reduceColumn(int c, int e, int rowStart, int colEnd, int i) {
+			int len=e-c;
+			double alpha=h[(c+1)*n+c];
+			double xnorm=0.0;
+			for (int r=c+2; r<=e; r++) {
+				double val=h[r*n+c];
+				xnorm=Math.hypot(xnorm, val);
+			}
+			if (xnorm==0.0) return;
+			double beta=Math.hypot(alpha, xnorm);
+			if (alpha>0) beta=-beta;
+			double tau=(beta-alpha)/beta;
+			double scale=1.0/(alpha-beta);
+			v[0]=1.0;
+			for (int r=1; r<len; r++) v[r]=h[(c+1+r)*n+c]*scale;
+
+			h[(c+1)*n+c]=beta;
+			for (int r=c+2; r<=e; r++) h[r*n+c]=0.0;
+
+			// left: rows c+1..e, columns c+1..colEnd
+			for (int j=c+1; j<=colEnd; j++) {
+				double sum=0.0;
+				for (int r=0; r<len; r++) sum+=v[r]*h[(c+1+r)*n+j];
+				sum*=tau;
+				for (int r=0; r<len; r++) h[(c+1+r)*n+j]-=sum*v[r];
+			}
+			// right: columns c+1..e, rows rowStart..i
+			for (int r=rowStart; r<=i; r++) {
+				int ri=r*n+c+1;
+				double sum=0.0;
+				for (int q=0; q<len; q++) sum+=v[q]*h[ri+q];
+				sum*=tau;
+				for (int q=0; q<len; q++) h[ri+q]-=sum*v[q];
+			}
+			if (z!=null) {
+				for (int r=0; r<n; r++) {
+					int ri=r*n+c+1;
+					double sum=0.0;
+					for (int q=0; q<len; q++) sum+=v[q]*z[ri+q];
+					sum*=tau;
+					for (int q=0; q<len; q++) z[ri+q]-=sum*v[q];
+				}
+			}
+		}
+
+		/**
+		 * Performs double shift sweeps on [l,i] using the shifts from the last deflation window,
+		 * starting with those nearest the bottom
+		 */
+		private void sweepWithShifts(int l, int i) {
+			int sweeps=0;
+			int k=shiftCount-1;
+			double pending=Double.NaN;
+			while ((k>=0)&&(sweeps<MAX_SWEEPS)&&(i-l>=2)) {
+				double s;
+				double t;
+				if (shiftIm[k]!=0.0) {
+					s=2*shiftRe[k];
+					t=shiftRe[k]*shiftRe[k]+shiftIm[k]*shiftIm[k];
+					k-=2;
+				} else if (Double.isNaN(pending)) {
+					pending=shiftRe[k];
+					k--;
+					if (k>=0) continue;
+					s=2*pending;
+					t=pending*pending;
+				} else {
+					s=pending+shiftRe[k];
+					t=pending*shiftRe[k];
+					pending=Double.NaN;
+					k--;
+				}
+				sweep(l, i, s, t);
+				sweeps++;
+			}
+			if (sweeps==0) {
+				// no usable shifts, so fall back to the trailing 2x2 block
+				double a=h[(i-1)*n+i-1];
+				double d=h[i*n+i];
+				sweep(l, i, a+d, a*d-h[(i-1)*n+i]*h[i*n+i-1]);
+			}
+		}
+	}
+
+	/**
+	 * Computes the eigenvectors of a quasi upper triangular matrix by back substitution. Column j
+	 * holds the eigenvector for eigenvalue j if it is real. For a complex pair j, j+1 the columns
+	 * hold the real and imaginary parts of the eigenvector for the eigenvalue with positive
+	 * imaginary part.
+	 */
+	private static Matrix backSubstitute(double[] t, int n, double[] wr, double[] wi) {
+		double norm=0.0;
+		for (int i=0; i<n; i++) {
+			for (int j=Math.max(0, i-1); j<n; j++) {
+				norm+=Math.abs(t[i*n+j]);
+			}
+		}
+		double small=Math.max(ULP*norm, SAFE_MIN);
+		double big=1.0/(ULP*ULP);
+
+		Matrix x=Matrix.create(n, n);
+		double[] xd=x.data;
+		double[] re=new double[n];
+		double[] im=new double[n];
+		double[] tmp=new double[2];
+		for (int k=n-1; k>=0; k--) {
+			if (wi[k]==0.0) {
+				double lambda=wr[k];
+				java.util.Arrays.fill(re, 0, k+1, 0.0);
+				re[k]=1.0;
+				for (int r=k-1; r>=0; r--) {
+					if ((r>0)&&(t[r*n+r-1]!=0.0)) {
+						// 2x2 block in rows r-1, r
+						double r1=0.0;
+						double r2=0.0;
+						for (int j=r+1; j<=k; j++) {
+							r1+=t[(r-1)*n+j]*re[j];
+							r2+=t[r*n+j]*re[j];
+						}
+						double a11=t[(r-1)*n+r-1]-lambda;
+						double a12=t[(r-1)*n+r];
+						double a21=t[r*n+r-1];
+						double a22=t[r*n+r]-lambda;
+						double det=a11*a22-a12*a21;
+						if (det==0.0) det=small;
+						re[r-1]=(-r1*a22+a12*r2)/det;
+						re[r]=(-a11*r2+a21*r1)/det;
+						r--;
+					} else {
+						double sum=0.0;
+						for (int j=r+1; j<=k; j++) sum+=t[r*n+j]*re[j];
+						double den=t[r*n+r]-lambda;
+						if (Math.abs(den)<small) den=small;
+						re[r]=-sum/den;
+					}
+					double mx=Math.max(Math.abs(re[r]), (r+1<=k)?Math.abs(re[r+1]):0.0);
+					if (mx>big) {
+						for (int j=r; j<=k; j++) re[j]/=mx;
+					}
+				}
+				for (int r=0; r<=k; r++) xd[r*n+k]=re[r];
+			} else {
+				// complex pair in rows k-1, k; eigenvalue lambda = a + ib with b > 0
+				int k1=k-1;
+				double a=wr[k1];
+				double b=wi[k1];
+				java.util.Arrays.fill(re, 0, k+1, 0.0);
+				java.util.Arrays.fill(im, 0, k+1, 0.0);
+				re[k1]=t[k1*n+k];
+				im[k1]=0.0;
+				re[k]=a-t[k1*n+k1];
+				im[k]=b;
+				for (int r=k1-1; r>=0; r--) {
+					if ((r>0)&&(t[r*n+r-1]!=0.0)) {
+						double r1r=0.0, r1i=0.0, r2r=0.0, r2i=0.0;
+						for (int j=r+1; j<=k; j++) {
+							double t1=t[(r-1)*n+j];
+							double t2=t[r*n+j];
+							r1r+=t1*re[j];
+							r1i+=t1*im[j];
+							r2r+=t2*re[j];
+							r2i+=t2*im[j];
+						}
+						// (a11 - lambda) and (a22 - lambda) as complex numbers
+						double a11r=t[(r-1)*n+r-1]-a, a11i=-b;
+						double a22r=t[r*n+r]-a, a22i=-b;
+						double a12=t[(r-1)*n+r];
+						double a21=t[r*n+r-1];
+						double detr=a11r*a22r-a11i*a22i-a12*a21;
+						double deti=a11r*a22i+a11i*a22r;
+						if ((detr==0.0)&&(deti==0.0)) detr=small;
+						// x1 = (-r1*a22 + a12*r2)/det, x2 = (-a11*r2 + a21*r1)/det
+						double n1r=-(r1r*a22r-r1i*a22i)+a12*r2r;
+						double n1i=-(r1r*a22i+r1i*a22r)+a12*r2i;
+						double n2r=-(a11r*r2r-a11i*r2i)+a21*r1r;
+						double n2i=-(a11r*r2i+a11i*r2r)+a21*r1i;
+						cdiv(n1r, n1i, detr, deti, tmp);
+						re[r-1]=tmp[0];
+						im[r-1]=tmp[1];
+						cdiv(n2r, n2i, detr, deti, tmp);
+						re[r]=tmp[0];
+						im[r]=tmp[1];
+						r--;
+					} else {
+						double sr=0.0, si=0.0;
+						for (int j=r+1; j<=k; j++) {
+							double tj=t[r*n+j];
+							sr+=tj*re[j];
+							si+=tj*im[j];
+						}
+						double dr=t[r*n+r]-a;
+						double di=-b;
+						if ((Math.abs(dr)+Math.abs(di))<small) dr=small;
+						cdiv(-sr, -si, dr, di, tmp);
+						re[r]=tmp[0];
+						im[r]=tmp[1];
+					}
+					double mx=Math.max(Math.abs(re[r])+Math.abs(im[r]), (r+1<=k)?Math.abs(re[r+1])+Math.abs(im[r+1]):0.0);
+					if (mx>big) {
+						for (int j=r; j<=k; j++) {
+							re[j]/=mx;
+							im[j]/=mx;
+						}
+					}
+				}
+				for (int r=0; r<=k; r++) {
+					xd[r*n+k1]=re[r];
+					xd[r*n+k]=im[r];
+				}
+				k--;
+			}
+		}
+		return x;
+	}
+
+	/**
+	 * Complex division (ar + i.ai) / (br + i.bi), using Smith's method to avoid overflow
+	 */
+	private static void cdiv(double ar, double ai, double br, double bi, double[] result) {
+		if (Math.abs(br)>=Math.abs(bi)) {
+			double r=bi/br;
+			double d=br+r*bi;
+			result[0]=(ar+r*ai)/d;
+			result[1]=(ai-r*ar)/d;
+		} else {
+			double r=br/bi;
+			double d=bi+r*br;
+			result[0]=(r*ar+ai)/d;
+			result[1]=(r*ai-ar)/d;
+		}
+	}
+}
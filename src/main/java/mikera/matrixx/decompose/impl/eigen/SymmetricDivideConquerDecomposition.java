@@ -0,0 +1,621 @@
+package mikera.matrixx.decompose.impl.eigen;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.algo.Multiplications;
+import mikera.matrixx.decompose.impl.hessenberg.TridiagonalDecompositionHouseholder;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector2;
+
+/**
+ * Computes all eigenvalues and eigenvectors of a real symmetric matrix using Cuppen's
+ * divide and conquer algorithm.
+ *
+ * The matrix is first reduced to tridiagonal form T. T is then torn into two halves by a
+ * rank-one modification, the halves are solved recursively, and the results are merged by
+ * solving the secular equation of the rank-one update D + rho.z.z'. Small subproblems are
+ * solved with the implicit QR algorithm.
+ *
+ * Each merge deflates components that are already converged, computes the updated vector z
+ * with the method of Gu and Eisenstat so that the eigenvectors remain orthogonal, and forms the
+ * new eigenvectors with a matrix multiply. Most of the work is therefore in the matrix
+ * multiplies at the top levels of the recursion. The two halves of each split, the secular
+ * equation roots and the multiplies are all run in parallel on large problems.
+ *
+ * @author Mike
+ *
+ */
+public class SymmetricDivideConquerDecomposition {
+	/**
+	 * Subproblems up to this size are solved directly with the implicit QR algorithm
+	 */
+	public static final int LEAF_SIZE=32;
+
+	// minimum subproblem size for which the two halves are solved as separate tasks
+	private static final int FORK_SIZE=128;
+
+	// minimum number of secular equation roots handled by a single task
+	private static final int ROOT_TASK_SIZE=64;
+
+	private static final int MAX_SECULAR_ITERATIONS=100;
+
+	private static final double EPS=Math.ulp(1.0);
+
+	private SymmetricDivideConquerDecomposition() {}
+
+	/**
+	 * Computes the eigenvalues and eigenvectors of a real symmetric matrix.
+	 *
+	 * The eigenvalues are returned in ascending order.
+	 *
+	 * @param A The input matrix. It must be a square symmetric matrix.  Not modified.
+	 * @return The decomposition, or null if the decomposition fails
+	 */
+	public static EigenResult decompose(AMatrix A) {
+		if (A.columnCount()!=A.rowCount()) throw new IllegalArgumentException("Matrix must be square.");
+		if (!A.isSymmetric()) throw new IllegalArgumentException("Matrix must be symmetric.");
+
+		int n=A.rowCount();
+		TridiagonalDecompositionHouseholder decomp=new TridiagonalDecompositionHouseholder();
+		if (!decomp.decompose(A)) return null;
+		double[] diag=new double[n];
+		double[] off=new double[Math.max(n-1, 1)];
+		decomp.getDiagonal(diag, off);
+
+		Matrix z=solveTridiagonal(diag, off);
+		if (z==null) return null;
+
+		// rows of Z'.Q' are the eigenvectors of A
+		AMatrix qt=decomp.getQ(true);
+		Matrix vectors=Multiplications.multiply(z, true, qt, false);
+
+		Vector2[] values=new Vector2[n];
+		AVector[] rows=new AVector[n];
+		for (int i=0; i<n; i++) {
+			values[i]=new Vector2(diag[i],0);
+			rows[i]=vectors.getRow(i);
+		}
+		return new EigenResult(values, rows);
+	}
+
+	/**
+	 * Computes the eigenvalues and eigenvectors of a symmetric tridiagonal matrix.
+	 *
+	 * On return the diagonal array contains the eigenvalues in ascending order, and the columns of
+	 * the returned matrix are the corresponding eigenvectors.
+	 *
+	 * @param diag Diagonal elements of the tridiagonal matrix. Modified.
+	 * @param off Off diagonal elements of the tridiagonal matrix. Not modified.
+	 * @return The eigenvector matrix, or null if the computation fails
+	 */
+	public static Matrix solveTridiagonal(double[] diag, double[] off) {
+		int n=diag.length;
+		if ((n>1)&&(off.length<n-1)) throw new IllegalArgumentException("Off diagonal must have length "+(n-1));
+		SolveTask task=new SolveTask(diag, off, 0, n);
+		long ops=((long)n)*n*n;
+		if ((ops>=Multiplications.getParallelThreshold())&&(ForkJoinPool.getCommonPoolParallelism()>1)) {
+			return ForkJoinPool.commonPool().invoke(task);
+		} else {
+			return task.invoke();
+		}
+	}
+
+	/**
+	 * Solves the tridiagonal block of size n starting at the given offset
+	 */
+	@SuppressWarnings("serial")
+	private static final class SolveTask extends RecursiveTask<Matrix> {
+		private final double[] d;
+		private final double[] e;
+		private final int offset;
+		private final int n;
+
+		private SolveTask(double[] d, double[] e, int offset, int n) {
+			this.d=d;
+			this.e=e;
+			this.offset=offset;
+			this.n=n;
+		}
+
+		@Override
+		protected Matrix compute() {
+			if (n<=LEAF_SIZE) return solveLeaf(d, e, offset, n);
+
+			// tear T into two halves and a rank-one correction |rho|.w.w', with w=[e_m; sign(rho).e_1]
+			int m=n/2;
+			double rho=e[offset+m-1];
+			double arho=Math.abs(rho);
+			d[offset+m-1]-=arho;
+			d[offset+m]-=arho;
+
+			SolveTask top=new SolveTask(d, e, offset, m);
+			SolveTask bottom=new SolveTask(d, e, offset+m, n-m);
+			Matrix q1;
+			Matrix q2;
+			if (inForkJoinPool()&&(n>=FORK_SIZE)) {
+				top.fork();
+				q2=bottom.compute();
+				q1=top.join();
+			} else {
+				q1=top.compute();
+				q2=bottom.compute();
+			}
+			if ((q1==null)||(q2==null)) return null;
+			return merge(d, offset, n, m, rho, q1, q2);
+		}
+	}
+
+	/**
+	 * Solves a small tridiagonal problem with the implicit QR algorithm
+	 */
+	private static Matrix solveLeaf(double[] d, double[] e, int offset, int n) {
+		if (n==1) return Matrix.createIdentity(1);
+		double[] diag=Arrays.copyOfRange(d, offset, offset+n);
+		double[] off=Arrays.copyOfRange(e, offset, offset+n-1);
+
+		SymmetricQREigenHelper helper=new SymmetricQREigenHelper();
+		SymmetricQrAlgorithm alg=new SymmetricQrAlgorithm(helper);
+		helper.init(diag, off, n);
+		Matrix v=Matrix.createIdentity(n);
+		helper.setQ(v);
+		alg.setFastEigenvalues(false);
+		if (!alg.process(-1, null, null)) return null;
+		double[] values=helper.copyEigenvalues(new double[n]);
+
+		// rows of v are the eigenvectors, so transpose into columns in ascending order
+		int[] order=sortedOrder(values, n);
+		Matrix q=Matrix.create(n, n);
+		for (int j=0; j<n; j++) {
+			int src=order[j];
+			d[offset+j]=values[src];
+			for (int i=0; i<n; i++) {
+				q.unsafeSet(i, j, v.unsafeGet(src, i));
+			}
+		}
+		return q;
+	}
+
+	/**
+	 * Merges the solutions of two halves, computing the eigen decomposition of
+	 * diag(D1,D2) + |rho|.z.z' where z = Q'.w
+	 */
+	private static Matrix merge(double[] d, int offset, int n, int m, double rho, Matrix q1, Matrix q2) {
+		// explicit block diagonal eigenvector matrix, so that deflation rotations can mix columns
+		Matrix q=Matrix.create(n, n);
+		double[] qd=q.data;
+		for (int i=0; i<m; i++) {
+			System.arraycopy(q1.data, i*m, qd, i*n, m);
+		}
+		int m2=n-m;
+		for (int i=0; i<m2; i++) {
+			System.arraycopy(q2.data, i*m2, qd, (m+i)*n+m, m2);
+		}
+
+		// column type: 1 = top half only, 2 = bottom half only, 3 = both
+		int[] type=new int[n];
+		double[] z=new double[n];
+		double sign=(rho<0)?-1.0:1.0;
+		for (int j=0; j<m; j++) {
+			z[j]=q1.unsafeGet(m-1, j);
+			type[j]=1;
+		}
+		for (int j=0; j<m2; j++) {
+			z[m+j]=sign*q2.unsafeGet(0, j);
+			type[m+j]=2;
+		}
+		double zz=0.0;
+		for (int j=0; j<n; j++) zz+=z[j]*z[j];
+		double znorm=Math.sqrt(zz);
+		for (int j=0; j<n; j++) z[j]/=znorm;
+		double r=Math.abs(rho)*zz;
+
+		double[] values=Arrays.copyOfRange(d, offset, offset+n);
+		int[] order=sortedOrder(values, n);
+
+		double dmax=Math.max(Math.abs(values[order[0]]), Math.abs(values[order[n-1]]));
+		double tol=8.0*EPS*Math.max(dmax, r);
+
+		// deflation, in ascending order of the diagonal. Non-deflated columns are kept in
+		// increasing order of their diagonal values
+		int[] kept=new int[n];
+		int k=0;
+		boolean[] deflated=new boolean[n];
+		int prev=-1;
+		for (int jj=0; jj<n; jj++) {
+			int j=order[jj];
+			if (r*Math.abs(z[j])<=tol) {
+				deflated[j]=true;
+				continue;
+			}
+			if (prev>=0) {
+				// check whether a rotation can zero z of the previous column
+				double s=z[prev];
+				double c=z[j];
+				double tau=Math.hypot(c, s);
+				double t=values[j]-values[prev];
+				c/=tau;
+				s=-s/tau;
+				if (Math.abs(t*c*s)<=tol) {
+					z[j]=tau;
+					z[prev]=0.0;
+					int rows=type[prev]|type[j];
+					rotateColumns(qd, n, ((rows&1)!=0)?0:m, ((rows&2)!=0)?n:m, prev, j, c, s);
+					type[prev]|=type[j];
+					type[j]=type[prev];
+					double dp=values[prev];
+					double dj=values[j];
+					values[prev]=dp*c*c+dj*s*s;
+					values[j]=dp*s*s+dj*c*c;
+					deflated[prev]=true;
+					k--;
+				}
+			}
+			kept[k++]=j;
+			prev=j;
+		}
+
+		// values of a merged pair may now be slightly out of order
+		sortIndices(kept, k, values);
+
+		// solve the secular equation for the non-deflated part
+		double[] delta=new double[k];
+		double[] zk=new double[k];
+		double zsum=0.0;
+		for (int i=0; i<k; i++) {
+			delta[i]=values[kept[i]];
+			zk[i]=z[kept[i]];
+			zsum+=zk[i]*zk[i];
+		}
+		int[] origin=new int[k];
+		double[] mu=new double[k];
+		// diff[i*k+j] = delta[i] - lambda[j], computed relative to the origin of each root
+		double[] diff=new double[k*k];
+		new SecularTask(delta, zk, r, zsum, origin, mu, diff, 0, k).invoke();
+
+		// recompute z from the computed roots (Gu and Eisenstat), then form the eigenvectors of
+		// the rank-one problem
+		Matrix u=Matrix.create(k, k);
+		new VectorTask(delta, zk, r, diff, u.data, 0, k).invoke();
+		normaliseColumns(u.data, k);
+
+		// eigenvectors of the merged problem are Q.U, multiplying only the non-zero parts of Q
+		Matrix result=Matrix.create(n, n);
+		multiplyBlock(qd, n, 0, m, kept, k, type, 1, u, result);
+		multiplyBlock(qd, n, m, n, kept, k, type, 2, u, result);
+
+		// collect all eigenvalues, with deflated columns copied directly
+		double[] lambda=new double[n];
+		int[] srcColumn=new int[n];
+		for (int j=0; j<k; j++) {
+			lambda[j]=delta[origin[j]]+mu[j];
+			srcColumn[j]=-1-j;
+		}
+		int c=k;
+		for (int j=0; j<n; j++) {
+			if (deflated[j]) {
+				lambda[c]=values[j];
+				srcColumn[c]=j;
+				c++;
+			}
+		}
+		int[] finalOrder=sortedOrder(lambda, n);
+		for (int jj=0; jj<n; jj++) {
+			int src=finalOrder[jj];
+			d[offset+jj]=lambda[src];
+			finalOrder[jj]=srcColumn[src];
+		}
+		Matrix out=Matrix.create(n, n);
+		double[] od=out.data;
+		double[] rd=result.data;
+		for (int i=0; i<n; i++) {
+			int ri=i*n;
+			for (int jj=0; jj<n; jj++) {
+				int col=finalOrder[jj];
+				od[ri+jj]=(col<0)?rd[ri-1-col]:qd[ri+col];
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Computes rows [r0,r1) of the eigenvectors for the non-deflated columns, as Q[r0:r1,S].U[S,:]
+	 * where S is the set of kept columns that have non-zeros in those rows.
+	 */
+	private static void multiplyBlock(double[] qd, int n, int r0, int r1, int[] kept, int k, int[] type, int mask, Matrix u, Matrix result) {
+		int rows=r1-r0;
+		int s=0;
+		int[] sel=new int[k];
+		for (int j=0; j<k; j++) {
+			if ((type[kept[j]]&mask)!=0) sel[s++]=j;
+		}
+		if ((s==0)||(rows==0)) return;
+		Matrix qs=Matrix.create(rows, s);
+		double[] qsd=qs.data;
+		for (int i=0; i<rows; i++) {
+			int ri=(r0+i)*n;
+			int ro=i*s;
+			for (int j=0; j<s; j++) {
+				qsd[ro+j]=qd[ri+kept[sel[j]]];
+			}
+		}
+		Matrix us=Matrix.create(s, k);
+		for (int j=0; j<s; j++) {
+			System.arraycopy(u.data, sel[j]*k, us.data, j*k, k);
+		}
+		Matrix prod=Multiplications.multiply(qs, us);
+		double[] rd=result.data;
+		for (int i=0; i<rows; i++) {
+			System.arraycopy(prod.data, i*k, rd, (r0+i)*n, k);
+		}
+	}
+
+	/**
+	 * Applies a plane rotation to rows [r0,r1) of columns a and b: a' = c.a + s.b, b' = c.b - s.a
+	 */
+	private static void rotateColumns(double[] qd, int n, int r0, int r1, int a, int b, double c, double s) {
+		for (int i=r0; i<r1; i++) {
+			int ri=i*n;
+			double x=qd[ri+a];
+			double y=qd[ri+b];
+			qd[ri+a]=c*x+s*y;
+			qd[ri+b]=c*y-s*x;
+		}
+	}
+
+	/**
+	 * Solves the secular equation for roots [j0,j1)
+	 */
+	@SuppressWarnings("serial")
+	private static final class SecularTask extends RecursiveAction {
+		private final double[] delta;
+		private final double[] z;
+		private final double rho;
+		private final double zsum;
+		private final int[] origin;
+		private final double[] mu;
+		private final double[] diff;
+		private final int j0;
+		private final int j1;
+
+		private SecularTask(double[] delta, double[] z, double rho, double zsum, int[] origin, double[] mu, double[] diff, int j0, int j1) {
+			this.delta=delta;
+			this.z=z;
+			this.rho=rho;
+			this.zsum=zsum;
+			this.origin=origin;
+			this.mu=mu;
+			this.diff=diff;
+			this.j0=j0;
+			this.j1=j1;
+		}
+
+		@Override
+		protected void compute() {
+			if (inForkJoinPool()&&(j1-j0>=2*ROOT_TASK_SIZE)) {
+				int mid=(j0+j1)>>>1;
+				invokeAll(new SecularTask(delta, z, rho, zsum, origin, mu, diff, j0, mid),
+						new SecularTask(delta, z, rho, zsum, origin, mu, diff, mid, j1));
+				return;
+			}
+			int k=delta.length;
+			double[] work=new double[k];
+			for (int j=j0; j<j1; j++) {
+				solveRoot(delta, z, rho, zsum, j, work, origin, mu);
+				int o=origin[j];
+				double m=mu[j];
+				for (int i=0; i<k; i++) {
+					diff[i*k+j]=(delta[i]-delta[o])-m;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the j-th root of f(x) = 1 + rho.sum(z_i^2/(delta_i - x)), which lies in
+	 * (delta_j, delta_j+1), or (delta_k-1, delta_k-1 + rho.|z|^2) for the last root. The root is
+	 * stored as the index of the nearest pole plus an offset, so that differences from the poles
+	 * are accurate.
+	 */
+	private static void solveRoot(double[] delta, double[] z, double rho, double zsum, int j, double[] work, int[] origin, double[] mu) {
+		int k=delta.length;
+		boolean last=(j==k-1);
+		int o;
+		double lo;
+		double hi;
+		if (last) {
+			o=j;
+			lo=0.0;
+			hi=rho*zsum;
+		} else {
+			double gap=delta[j+1]-delta[j];
+			double mid=0.5*gap;
+			for (int i=0; i<k; i++) work[i]=(delta[i]-delta[j])-mid;
+			if (secular(work, z, rho, k)>=0.0) {
+				o=j;
+				lo=0.0;
+				hi=mid;
+			} else {
+				o=j+1;
+				lo=-mid;
+				hi=0.0;
+			}
+		}
+		for (int i=0; i<k; i++) work[i]=delta[i]-delta[o];
+
+		// poles either side of the root, relative to the origin
+		double a=work[j];
+		double b=last?Double.POSITIVE_INFINITY:work[j+1];
+		double x=0.5*(lo+hi);
+		for (int iter=0; iter<MAX_SECULAR_ITERATIONS; iter++) {
+			double psi=0.0, dpsi=0.0, phi=0.0, dphi=0.0, bound=0.0;
+			for (int i=0; i<k; i++) {
+				double t=z[i]/(work[i]-x);
+				double term=z[i]*t;
+				if (i<=j) {
+					psi+=term;
+					dpsi+=t*t;
+				} else {
+					phi+=term;
+					dphi+=t*t;
+				}
+				bound+=Math.abs(term);
+			}
+			double f=1.0+rho*(psi+phi);
+			if (f==0.0) break;
+			if (f<0.0) lo=x; else hi=x;
+			if (Math.abs(f)<=EPS*k*(1.0+rho*bound)) break;
+			if (hi-lo<=2.0*EPS*Math.max(Math.abs(lo), Math.abs(hi))) break;
+
+			// fit c + s/(a-y) + t/(b-y) to the value and derivatives of each part, and solve
+			double ra=a-x;
+			double s=rho*dpsi*ra*ra;
+			double cc=1.0+rho*(psi-dpsi*ra);
+			double next;
+			if (last) {
+				cc+=rho*phi;
+				next=(cc>0.0)?a+s/cc:Double.NaN;
+			} else {
+				double rb=b-x;
+				double t=rho*dphi*rb*rb;
+				cc+=rho*(phi-dphi*rb);
+				double bq=cc*(a+b)+s+t;
+				double cq=cc*a*b+s*b+t*a;
+				if (cc==0.0) {
+					next=cq/bq;
+				} else {
+					double disc=bq*bq-4.0*cc*cq;
+					if (disc<0.0) {
+						next=Double.NaN;
+					} else {
+						double q=0.5*(bq+Math.copySign(Math.sqrt(disc), bq));
+						double y1=q/cc;
+						double y2=cq/q;
+						next=((y1>lo)&&(y1<hi))?y1:y2;
+					}
+				}
+			}
+			if (!((next>lo)&&(next<hi))) next=0.5*(lo+hi);
+			x=next;
+		}
+		origin[j]=o;
+		mu[j]=x;
+	}
+
+	/**
+	 * Evaluates 1 + rho.sum(z_i^2/w_i)
+	 */
+	private static double secular(double[] w, double[] z, double rho, int k) {
+		double sum=0.0;
+		for (int i=0; i<k; i++) {
+			sum+=z[i]*z[i]/w[i];
+		}
+		return 1.0+rho*sum;
+	}
+
+	/**
+	 * Computes rows [i0,i1) of the eigenvector matrix of the rank-one problem, after recomputing
+	 * the corresponding elements of z from the roots. Columns are normalised afterwards.
+	 */
+	@SuppressWarnings("serial")
+	private static final class VectorTask extends RecursiveAction {
+		private final double[] delta;
+		private final double[] z;
+		private final double rho;
+		private final double[] diff;
+		private final double[] u;
+		private final int i0;
+		private final int i1;
+
+		private VectorTask(double[] delta, double[] z, double rho, double[] diff, double[] u, int i0, int i1) {
+			this.delta=delta;
+			this.z=z;
+			this.rho=rho;
+			this.diff=diff;
+			this.u=u;
+			this.i0=i0;
+			this.i1=i1;
+		}
+
+		@Override
+		protected void compute() {
+			if (inForkJoinPool()&&(i1-i0>=2*ROOT_TASK_SIZE)) {
+				int mid=(i0+i1)>>>1;
+				invokeAll(new VectorTask(delta, z, rho, diff, u, i0, mid),
+						new VectorTask(delta, z, rho, diff, u, mid, i1));
+				return;
+			}
+			int k=delta.length;
+			for (int i=i0; i<i1; i++) {
+				int ri=i*k;
+				// zhat_i^2 = prod_j(lambda_j - delta_i) / (rho.prod_{j!=i}(delta_j - delta_i)),
+				// with the factors paired so that each ratio is positive and close to one
+				double p=-diff[ri+k-1]/rho;
+				for (int j=0; j<i; j++) {
+					p*=(-diff[ri+j])/(delta[j]-delta[i]);
+				}
+				for (int j=i; j<k-1; j++) {
+					p*=(-diff[ri+j])/(delta[j+1]-delta[i]);
+				}
+				double zi=Math.copySign(Math.sqrt(Math.abs(p)), z[i]);
+				for (int j=0; j<k; j++) {
+					u[ri+j]=zi/diff[ri+j];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Scales each column of a k x k matrix to unit length
+	 */
+	private static void normaliseColumns(double[] u, int k) {
+		double[] norms=new double[k];
+		for (int i=0; i<k; i++) {
+			int ri=i*k;
+			for (int j=0; j<k; j++) {
+				double v=u[ri+j];
+				norms[j]+=v*v;
+			}
+		}
+		for (int j=0; j<k; j++) norms[j]=1.0/Math.sqrt(norms[j]);
+		for (int i=0; i<k; i++) {
+			int ri=i*k;
+			for (int j=0; j<k; j++) {
+				u[ri+j]*=norms[j];
+			}
+		}
+	}
+
+	/**
+	 * Gets the indices of the first n values in ascending order
+	 */
+	private static int[] sortedOrder(double[] values, int n) {
+		Integer[] order=new Integer[n];
+		for (int i=0; i<n; i++) order[i]=i;
+		Arrays.sort(order, (a,b) -> Double.compare(values[a], values[b]));
+		int[] result=new int[n];
+		for (int i=0; i<n; i++) result[i]=order[i];
+		return result;
+	}
+
+	/**
+	 * Insertion sorts the first n indices by the corresponding values. The indices are
+	 * generally close to sorted already.
+	 */
+	private static void sortIndices(int[] ixs, int n, double[] values) {
+		for (int i=1; i<n; i++) {
+			int x=ixs[i];
+			double v=values[x];
+			int j=i-1;
+			while ((j>=0)&&(values[ixs[j]]>v)) {
+				ixs[j+1]=ixs[j];
+				j--;
+			}
+			ixs[j+1]=x;
+		}
+	}
+}
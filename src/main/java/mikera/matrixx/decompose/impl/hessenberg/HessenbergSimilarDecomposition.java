@@ -20,6 +20,7 @@ package mikera.matrixx.decompose.impl.hessenberg;
 
 import mikera.matrixx.AMatrix;
 import mikera.matrixx.Matrix;
+import mikera.matrixx.algo.impl.PackedGemm;
 import mikera.matrixx.decompose.impl.qr.QRHelperFunctions;
 
 
@@ -40,9 +41,24 @@ import mikera.matrixx.decompose.impl.qr.QRHelperFunctions;
  * This decomposition is primarily used as a step for computing the eigenvalue decomposition of a matrix.
  * The basic algorithm comes from David S. Watkins, "Fundamentals of MatrixComputations" Second Edition.
  * </p>
+ *
+ * <p>
+ * Large matrices are reduced in panels of {@link #BLOCK_WIDTH} columns, in the style of LAPACK's
+ * DGEHRD. The reflectors of a panel are accumulated as I - V*T*V<sup>T</sup> together with
+ * Y = A*V*T, so that each panel column can be brought up to date just before it is reduced.
+ * The rest of the matrix is then updated with matrix-matrix multiplies.
+ * </p>
  */
 // TODO create a column based one similar to what was done for QR decomposition?
 public class HessenbergSimilarDecomposition {
+    /**
+     * Number of columns reduced in each panel of the blocked reduction
+     */
+    public static final int BLOCK_WIDTH = 32;
+
+    // trailing matrices up to this size are reduced one column at a time
+    private static final int BLOCK_MIN = 128;
+
     // A combined matrix that stores te upper Hessenberg matrix and the orthogonal matrix.
     private Matrix QH;
     // number of rows and columns of the matrix being decompose
@@ -105,12 +121,25 @@ public class HessenbergSimilarDecomposition {
      */
     private AMatrix getQ() {
         Matrix Q = Matrix.createIdentity(N);
+        double h[] = QH.data;
 
+        // the reflectors are stored in columns, so copy them out a block of columns at a time
+        // to avoid a strided pass over the matrix for each one
+        double cols[] = new double[BLOCK_WIDTH*N];
+        int j0 = N-1;
         for( int j = N-2; j >= 0; j-- ) {
-            u[j+1] = 1;
-            for( int i = j+2; i < N; i++ ) {
-                u[i] = QH.get(i,j);
+            if( j < j0 ) {
+                j0 = Math.max(0, j0-BLOCK_WIDTH);
+                int w = j+1-j0;
+                for( int i = j0+2; i < N; i++ ) {
+                    int rowA = i*N+j0;
+                    for( int c = 0; c < w; c++ ) {
+                        cols[c*N+i] = h[rowA+c];
+                    }
+                }
             }
+            u[j+1] = 1;
+            System.arraycopy(cols,(j-j0)*N+j+2,u,j+2,N-j-2);
             QRHelperFunctions.rank1UpdateMultR(Q,u,gammas[j],j+1,j+1,N,b);
         }
 
@@ -132,66 +161,243 @@ public class HessenbergSimilarDecomposition {
         gammas = new double[ N ];
         u = new double[ N ];
         
+        int k = 0;
+        while( N-2-k > BLOCK_MIN ) {
+            reducePanel(k,BLOCK_WIDTH);
+            k += BLOCK_WIDTH;
+        }
+        for( ; k < N-2; k++ ) {
+            reduceColumn(k);
+        }
+
+        return new HessenbergResult(getH(), getQ());
+    }
+
+    /**
+     * Reduces kb columns starting at column k0. The panel reflectors are accumulated as
+     * Q = I - V*T*V<sup>T</sup>, so that the matrix after p reflectors is
+     * Q<sup>T</sup>(A - Y*V<sup>T</sup>) with Y = A*V*T, where A is the matrix at the start of
+     * the panel. Each panel column is formed from this expression before it is reduced, and
+     * the remaining columns are updated once the panel is complete.
+     */
+    private void reducePanel( int k0 , int kb ) {
         double h[] = QH.data;
+        // reflectors and Y stored as rows of length N
+        double V[] = new double[kb*N];
+        double Y[] = new double[kb*N];
+        double T[] = new double[kb*kb];
+        double c[] = new double[N];
+        double w[] = new double[kb];
+
+        for( int p = 0; p < kb; p++ ) {
+            int j = k0+p;
+
+            // column j of A - Y*V^T
+            for( int i = 0; i < N; i++ ) {
+                c[i] = h[i*N+j];
+            }
+            for( int q = 0; q < p; q++ ) {
+                double vj = V[q*N+j];
+                int yq = q*N;
+                for( int i = 0; i < N; i++ ) {
+                    c[i] -= Y[yq+i]*vj;
+                }
+            }
 
-        for( int k = 0; k < N-2; k++ ) {
-            // find the largest value in this column
-            // this is used to normalize the column and mitigate overflow/underflow
-            double max = 0;
+            // apply Q^T = I - V*T^T*V^T
+            if( p > 0 ) {
+                for( int q = 0; q < p; q++ ) {
+                    w[q] = dot(V,q*N,c,k0+1,N);
+                }
+                for( int q = p-1; q >= 0; q-- ) {
+                    double total = 0;
+                    for( int r = 0; r <= q; r++ ) {
+                        total += T[r*kb+q]*w[r];
+                    }
+                    w[q] = total;
+                }
+                for( int q = 0; q < p; q++ ) {
+                    double wq = w[q];
+                    int vq = q*N;
+                    for( int i = k0+1; i < N; i++ ) {
+                        c[i] -= V[vq+i]*wq;
+                    }
+                }
+            }
 
-            for( int i = k+1; i < N; i++ ) {
-                // copy the householder vector to vector outside of the matrix to reduce caching issues
-                // big improvement on larger matrices and a relatively small performance hit on small matrices.
-                double val = u[i] = h[i*N+k];
+            for( int i = 0; i <= j; i++ ) {
+                h[i*N+j] = c[i];
+            }
+
+            double max = 0;
+            for( int i = j+1; i < N; i++ ) {
+                double val = u[i] = c[i];
                 val = Math.abs(val);
                 if( val > max )
                     max = val;
             }
 
+            int vp = p*N;
             if( max > 0 ) {
-                // -------- set up the reflector Q_k
-
                 double tau = 0;
-                // normalize to reduce overflow/underflow
-                // and compute tau for the reflector
-                for( int i = k+1; i < N; i++ ) {
+                for( int i = j+1; i < N; i++ ) {
                     double val = u[i] /= max;
                     tau += val*val;
                 }
-
                 tau = Math.sqrt(tau);
-
-                if( u[k+1] < 0 )
+                if( u[j+1] < 0 )
                     tau = -tau;
 
-                // write the reflector into the lower left column of the matrix
-                double nu = u[k+1] + tau;
-                u[k+1] = 1.0;
+                double nu = u[j+1] + tau;
+                u[j+1] = 1.0;
+                for( int i = j+2; i < N; i++ ) {
+                    h[i*N+j] = u[i] /= nu;
+                }
+                double gamma = nu/tau;
+                gammas[j] = gamma;
+                h[(j+1)*N+j] = -tau*max;
+                System.arraycopy(u,j+1,V,vp+j+1,N-j-1);
 
-                for( int i = k+2; i < N; i++ ) {
-                    h[i*N+k] = u[i] /= nu;
+                // t = V^T*v, then T(0:p,p) = -gamma*T*t and Y(:,p) = gamma*(A*v - Y*t)
+                for( int q = 0; q < p; q++ ) {
+                    w[q] = dot(V,q*N,u,j+1,N);
                 }
+                int yp = p*N;
+                for( int i = 0; i < N; i++ ) {
+                    Y[yp+i] = dot(h,i*N,u,j+1,N);
+                }
+                for( int q = 0; q < p; q++ ) {
+                    double wq = w[q];
+                    int yq = q*N;
+                    for( int i = 0; i < N; i++ ) {
+                        Y[yp+i] -= Y[yq+i]*wq;
+                    }
+                }
+                for( int i = 0; i < N; i++ ) {
+                    Y[yp+i] *= gamma;
+                }
+                for( int q = 0; q < p; q++ ) {
+                    double total = 0;
+                    for( int r = q; r < p; r++ ) {
+                        total += T[q*kb+r]*w[r];
+                    }
+                    T[q*kb+p] = -gamma*total;
+                }
+                T[p*kb+p] = gamma;
+            } else {
+                gammas[j] = 0;
+                for( int i = j+1; i < N; i++ ) {
+                    h[i*N+j] = 0;
+                }
+            }
+        }
 
-                double gamma = nu/tau;
-                gammas[k] = gamma;
+        int e = k0+kb;
+        int cols = N-e;
+        int rows = N-k0-1;
+        PackedGemm gemm = new PackedGemm();
+
+        // A(:,e:) = A(:,e:) - Y*V(e:,:)^T
+        gemm.multiply(-1.0, N, cols, kb,
+                Y, 0, 1, N,
+                V, e, N, 1,
+                h, e, N, 1);
+
+        // A(k0+1:,e:) = (I - V*T^T*V^T)*A(k0+1:,e:)
+        double W[] = new double[kb*cols];
+        gemm.multiply(kb, cols, rows,
+                V, k0+1, N, 1,
+                h, (k0+1)*N+e, N, 1,
+                W, 0, cols, 1);
+        double TW[] = new double[kb*cols];
+        for( int q = 0; q < kb; q++ ) {
+            for( int r = 0; r <= q; r++ ) {
+                double trq = T[r*kb+q];
+                if( trq == 0 )
+                    continue;
+                int wr = r*cols;
+                int tq = q*cols;
+                for( int i = 0; i < cols; i++ ) {
+                    TW[tq+i] += trq*W[wr+i];
+                }
+            }
+        }
+        gemm.multiply(-1.0, rows, cols, kb,
+                V, k0+1, 1, N,
+                TW, 0, cols, 1,
+                h, (k0+1)*N+e, N, 1);
+    }
 
-                // ---------- multiply on the left by Q_k
-                QRHelperFunctions.rank1UpdateMultR(QH,u,gamma,k+1,k+1,N,b);
+    /**
+     * Dot product of a[offA+i] and b[i] for i in [start,end)
+     */
+    private static double dot( double a[] , int offA , double b[] , int start , int end ) {
+        double total = 0;
+        for( int i = start; i < end; i++ ) {
+            total += a[offA+i]*b[i];
+        }
+        return total;
+    }
 
-                // ---------- multiply on the right by Q_k
-                QRHelperFunctions.rank1UpdateMultL(QH,u,gamma,0,k+1,N);
+    /**
+     * Computes the reflector for column k and applies it to both sides of the matrix.
+     */
+    private void reduceColumn( int k ) {
+        double h[] = QH.data;
 
-                // since the first element in the householder vector is known to be 1
-                // store the full upper hessenberg
-                h[(k+1)*N+k] = -tau*max;
+        // find the largest value in this column
+        // this is used to normalize the column and mitigate overflow/underflow
+        double max = 0;
+
+        for( int i = k+1; i < N; i++ ) {
+            // copy the householder vector to vector outside of the matrix to reduce caching issues
+            // big improvement on larger matrices and a relatively small performance hit on small matrices.
+            double val = u[i] = h[i*N+k];
+            val = Math.abs(val);
+            if( val > max )
+                max = val;
+        }
 
-            } else {
-                gammas[k] = 0;
+        if( max > 0 ) {
+            // -------- set up the reflector Q_k
+
+            double tau = 0;
+            // normalize to reduce overflow/underflow
+            // and compute tau for the reflector
+            for( int i = k+1; i < N; i++ ) {
+                double val = u[i] /= max;
+                tau += val*val;
             }
 
-        }
+            tau = Math.sqrt(tau);
 
-        return new HessenbergResult(getH(), getQ());
+            if( u[k+1] < 0 )
+                tau = -tau;
+
+            // write the reflector into the lower left column of the matrix
+            double nu = u[k+1] + tau;
+            u[k+1] = 1.0;
+
+            for( int i = k+2; i < N; i++ ) {
+                h[i*N+k] = u[i] /= nu;
+            }
+
+            double gamma = nu/tau;
+            gammas[k] = gamma;
+
+            // ---------- multiply on the left by Q_k
+            QRHelperFunctions.rank1UpdateMultR(QH,u,gamma,k+1,k+1,N,b);
+
+            // ---------- multiply on the right by Q_k
+            QRHelperFunctions.rank1UpdateMultL(QH,u,gamma,0,k+1,N);
+
+            // since the first element in the householder vector is known to be 1
+            // store the full upper hessenberg
+            h[(k+1)*N+k] = -tau*max;
+
+        } else {
+            gammas[k] = 0;
+        }
     }
 
     public double[] getGammas() {
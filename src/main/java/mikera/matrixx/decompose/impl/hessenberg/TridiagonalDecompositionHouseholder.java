@@ -18,8 +18,11 @@
 
 package mikera.matrixx.decompose.impl.hessenberg;
 
+import java.util.Arrays;
+
 import mikera.matrixx.AMatrix;
 import mikera.matrixx.Matrix;
+import mikera.matrixx.algo.impl.PackedGemm;
 import mikera.matrixx.decompose.impl.qr.QRHelperFunctions;
 
 /**
@@ -40,11 +43,29 @@ import mikera.matrixx.decompose.impl.qr.QRHelperFunctions;
  * <br>
  * David S. Watkins, "Fundamentals of Matrix Computations," Second Edition.  Page 349-355
  * </p>
+ * <p>
+ * Large matrices are reduced in panels of {@link #BLOCK_WIDTH} columns, in the style of
+ * LAPACK's DSYTRD. Within a panel the trailing matrix is not modified, instead each reflector
+ * contributes a rank-2 term w*u<sup>T</sup> + u*w<sup>T</sup> that is applied on the fly when
+ * needed. The accumulated update is then applied to the trailing matrix with a single
+ * matrix-matrix multiply, which halves the memory traffic of the reduction.
+ * </p>
  *
  * @author Peter Abeles
  */
 public class TridiagonalDecompositionHouseholder {
 
+    /**
+     * Number of columns reduced in each panel of the blocked reduction
+     */
+    public static final int BLOCK_WIDTH = 32;
+
+    // trailing matrices up to this size are reduced one column at a time
+    private static final int BLOCK_MIN = 128;
+
+    // number of rows in each block of the trailing update
+    private static final int UPDATE_ROWS = 64;
+
     /**
      * Only the upper right triangle is used.  The Tridiagonal portion stores
      * the tridiagonal matrix.  The rows store householder vectors.
@@ -61,6 +82,12 @@ public class TridiagonalDecompositionHouseholder {
     // temporary storage
     private double b[];
 
+    // panel storage for the blocked reduction, with the vectors W, U and W again stored as
+    // rows so that both [W;U] and [U;W] are contiguous
+    private double panel[];
+    private double y[];
+    private PackedGemm gemm;
+
     public TridiagonalDecompositionHouseholder() {
         N = 1;
         w = new double[N];
@@ -150,13 +177,141 @@ public class TridiagonalDecompositionHouseholder {
     public boolean decompose( AMatrix A ) {
         init(A);
 
-        for( int k = 1; k < N; k++ ) {
+        int k = 1;
+        while( N-k > BLOCK_MIN ) {
+            reducePanel(k,BLOCK_WIDTH);
+            k += BLOCK_WIDTH;
+        }
+        for( ; k < N; k++ ) {
             similarTransform(k);
         }
 
         return true;
     }
 
+    /**
+     * Reduces kb columns starting at submatrix k, deferring the update of the trailing matrix
+     * until the whole panel is complete.
+     */
+    private void reducePanel( int k0 , int kb ) {
+        double t[] = QT.data;
+        int base = k0-1;
+        int M = N-base;
+        int size = 3*kb*M;
+        if( panel == null || panel.length < size )
+            panel = new double[size];
+        if( y == null || y.length < N )
+            y = new double[N];
+        Arrays.fill(panel,0,size,0.0);
+        int offW = 0;
+        int offU = kb*M;
+        int offW2 = 2*kb*M;
+
+        for( int p = 0; p < kb; p++ ) {
+            int k = k0+p;
+            int rowU = (k-1)*N;
+            int r = k-1-base;
+
+            // bring row k-1 up to date with the earlier reflectors in this panel
+            for( int q = 0; q < p; q++ ) {
+                int uq = offU+q*M;
+                int wq = offW+q*M;
+                double wr = panel[wq+r];
+                double ur = panel[uq+r];
+                for( int j = r; j < M; j++ ) {
+                    t[rowU+base+j] += wr*panel[uq+j] + ur*panel[wq+j];
+                }
+            }
+
+            double max = 0;
+            for( int i = k; i < N; i++ ) {
+                double val = Math.abs(t[rowU+i]);
+                if( val > max )
+                    max = val;
+            }
+            if( max == 0 ) {
+                gammas[k] = 0;
+                continue;
+            }
+
+            double tau = QRHelperFunctions.computeTauAndDivide(k,N,t,rowU,max);
+            double nu = t[rowU+k] + tau;
+            QRHelperFunctions.divideElements(k+1,N,t,rowU,nu);
+            t[rowU+k] = 1.0;
+            double gamma = nu/tau;
+            gammas[k] = gamma;
+
+            int up = offU+p*M;
+            int wp = offW+p*M;
+            System.arraycopy(t,rowU+k,panel,up+r+1,N-k);
+
+            // y = A*u, using the stale trailing matrix plus the panel corrections
+            symmetricMultiply(k,t,rowU);
+            for( int q = 0; q < p; q++ ) {
+                int uq = offU+q*M;
+                int wq = offW+q*M;
+                double du = 0, dw = 0;
+                for( int j = r+1; j < M; j++ ) {
+                    double uj = panel[up+j];
+                    du += panel[uq+j]*uj;
+                    dw += panel[wq+j]*uj;
+                }
+                for( int i = k; i < N; i++ ) {
+                    y[i] += panel[wq+i-base]*du + panel[uq+i-base]*dw;
+                }
+            }
+
+            // w = -gamma*y + alpha*u, with alpha = -0.5*gamma*u^T*(-gamma*y)
+            double alpha = 0;
+            for( int i = k; i < N; i++ ) {
+                double wi = -gamma*y[i];
+                panel[wp+i-base] = wi;
+                alpha += panel[up+i-base]*wi;
+            }
+            alpha *= -0.5*gamma;
+            for( int i = k; i < N; i++ ) {
+                panel[wp+i-base] += alpha*panel[up+i-base];
+            }
+            System.arraycopy(panel,wp,panel,offW2+p*M,M);
+
+            t[rowU+k] = -tau*max;
+        }
+
+        // A = A + W*U^T + U*W^T on the upper triangle of the trailing matrix, including the
+        // last row of the panel which the next step reads
+        if( gemm == null )
+            gemm = new PackedGemm();
+        int start = k0+kb-1;
+        for( int i = start; i < N; i += UPDATE_ROWS ) {
+            int rows = Math.min(UPDATE_ROWS, N-i);
+            gemm.multiply(rows, N-i, 2*kb,
+                    panel, i-base, 1, M,
+                    panel, offU+i-base, M, 1,
+                    t, i*N+i, N, 1);
+        }
+    }
+
+    /**
+     * Computes y = A*u for the submatrix starting at row, reading only the upper triangle of A
+     * one row at a time.
+     */
+    private void symmetricMultiply( int row , double t[] , int startU ) {
+        for( int i = row; i < N; i++ ) {
+            y[i] = 0;
+        }
+        for( int i = row; i < N; i++ ) {
+            int rowA = i*N;
+            double ui = t[startU+i];
+            double total = t[rowA+i]*ui;
+            for( int j = i+1; j < N; j++ ) {
+                double a = t[rowA+j];
+                total += a*t[startU+j];
+                y[j] += a*ui;
+            }
+            y[i] += total;
+        }
+    }
+
     /**
      * Computes and performs the similar a transform for submatrix k.
      */
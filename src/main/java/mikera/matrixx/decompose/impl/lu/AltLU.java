@@ -73,7 +73,7 @@ public class AltLU {
     /**
      * Returns the lower triangular matrix.
      */
-    private AMatrix computeL()
+    protected AMatrix computeL()
     {
         int numRows = LU.rowCount();
         int numCols = Math.min(LU.rowCount(), LU.columnCount());
@@ -101,7 +101,7 @@ public class AltLU {
     /**
      * Returns the upper triangular matrix.
      */
-    private AMatrix computeU()
+    protected AMatrix computeU()
     {
         int numRows = Math.min(LU.rowCount(), LU.columnCount());
         int numCols = LU.columnCount();
@@ -117,11 +117,11 @@ public class AltLU {
         return upper;
     }
 
-    private PermutationMatrix getPivotMatrix() {
+    protected PermutationMatrix getPivotMatrix() {
         return PermutationMatrix.create(Index.wrap(Arrays.copyOf(pivot, LU.rowCount()))).getTranspose();
     }
 
-    private void decomposeCommonInit(AMatrix a) {
+    protected void decomposeCommonInit(AMatrix a) {
         m = a.rowCount();
         n = a.columnCount();
 
@@ -0,0 +1,169 @@
+package mikera.matrixx.decompose.impl.lu;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.algo.Multiplications;
+import mikera.matrixx.algo.MultiplyWorkspace;
+
+/**
+ * Blocked, right-looking LU decomposition with partial pivoting.
+ *
+ * The matrix is processed in panels of columns. Each panel is factorised with an unblocked
+ * algorithm, the corresponding block row of U is computed by a triangular solve, and the
+ * trailing submatrix is then updated with a single matrix multiply:
+ *
+ *    A22 = A22 - L21 * U12
+ *
+ * Almost all of the work is in the trailing update, which uses the packed multiplication kernel
+ * and runs in parallel for large matrices. This keeps the working set in cache, unlike the
+ * unblocked row-oriented algorithm in AltLU whose performance degrades once the matrix no longer
+ * fits in cache.
+ *
+ * Row interchanges are applied and recorded in the same way as AltLU, so the solver and
+ * inversion routines that work with AltLU can be used unchanged.
+ *
+ * @author Mike
+ *
+ */
+public class BlockedLU extends AltLU {
+	public static final int DEFAULT_BLOCK_SIZE=64;
+
+	// minimum dimension at which the blocked algorithm is selected automatically
+	public static final int BLOCKED_THRESHOLD=128;
+
+	private final int blockSize;
+
+	public BlockedLU() {
+		this(DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Creates a blocked LU decomposition with the given panel width
+	 * @param blockSize
+	 */
+	public BlockedLU(int blockSize) {
+		if (blockSize<1) throw new IllegalArgumentException("Invalid block size: "+blockSize);
+		this.blockSize=blockSize;
+	}
+
+	public static LUPResult decompose(AMatrix A) {
+		return new BlockedLU()._decompose(A);
+	}
+
+	public static LUPResult decompose(AMatrix A, int blockSize) {
+		return new BlockedLU(blockSize)._decompose(A);
+	}
+
+	/**
+	 * Returns true if the blocked algorithm is expected to be faster for a matrix of the given shape
+	 * @param rows
+	 * @param cols
+	 * @return
+	 */
+	public static boolean isBlockedSize(int rows, int cols) {
+		return Math.min(rows, cols)>=BLOCKED_THRESHOLD;
+	}
+
+	/**
+	 * Creates the preferred LU decomposition algorithm for a matrix of the given shape
+	 * @param rows
+	 * @param cols
+	 * @return
+	 */
+	public static AltLU create(int rows, int cols) {
+		return isBlockedSize(rows,cols)?new BlockedLU():new AltLU();
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	@Override
+	public LUPResult _decompose(AMatrix a) {
+		decomposeCommonInit(a);
+		Matrix lu=LU;
+		int kmax=Math.min(m, n);
+		MultiplyWorkspace ws=new MultiplyWorkspace();
+
+		for (int k=0; k<kmax; k+=blockSize) {
+			int kb=Math.min(blockSize, kmax-k);
+			int k2=k+kb;
+			factorPanel(k,k2);
+			if (k2<n) {
+				solveBlockRow(k,k2);
+				if (k2<m) {
+					Multiplications.multiplyAdd(lu.subMatrix(k2, m-k2, k2, n-k2),
+							lu.subMatrix(k2, m-k2, k, kb),
+							lu.subMatrix(k, kb, k2, n-k2), -1.0, ws);
+				}
+			}
+		}
+
+		return new LUPResult(computeL(), computeU(), getPivotMatrix());
+	}
+
+	/**
+	 * Factorises the panel of columns [k,k2) below row k, applying each row interchange
+	 * across the full width of the matrix.
+	 */
+	private void factorPanel(int k, int k2) {
+		double[] data=dataLU;
+		for (int j=k; j<k2; j++) {
+			// find pivot
+			int p=j;
+			double max=Math.abs(data[j*n+j]);
+			for (int i=j+1; i<m; i++) {
+				double v=Math.abs(data[i*n+j]);
+				if (v>max) {
+					p=i;
+					max=v;
+				}
+			}
+
+			if (p!=j) {
+				int rowP=p*n;
+				int rowJ=j*n;
+				for (int c=0; c<n; c++) {
+					double t=data[rowP+c];
+					data[rowP+c]=data[rowJ+c];
+					data[rowJ+c]=t;
+				}
+				int t=pivot[p]; pivot[p]=pivot[j]; pivot[j]=t;
+			}
+			indx[j]=p;
+
+			// compute multipliers, and apply a rank one update to the rest of the panel
+			int rowJ=j*n;
+			double lujj=data[rowJ+j];
+			if (lujj!=0.0) {
+				for (int i=j+1; i<m; i++) {
+					int rowI=i*n;
+					double lij=(data[rowI+j]/=lujj);
+					if (lij==0.0) continue;
+					for (int c=j+1; c<k2; c++) {
+						data[rowI+c]-=lij*data[rowJ+c];
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes U12 = inverse(L11) * A12 in place for the rows [k,k2), where L11 is the unit lower
+	 * triangular diagonal block of the current panel.
+	 */
+	private void solveBlockRow(int k, int k2) {
+		double[] data=dataLU;
+		for (int i=k+1; i<k2; i++) {
+			int rowI=i*n;
+			for (int t=k; t<i; t++) {
+				double lit=data[rowI+t];
+				if (lit==0.0) continue;
+				int rowT=t*n;
+				for (int c=k2; c<n; c++) {
+					data[rowI+c]-=lit*data[rowT+c];
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,330 @@
+package mikera.matrixx.decompose.impl.qr;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.algo.Multiplications;
+import mikera.matrixx.algo.MultiplyWorkspace;
+import mikera.matrixx.impl.AStridedMatrix;
+import mikera.vectorz.util.DoubleArrays;
+
+/**
+ * Blocked Householder QR decomposition using the compact WY representation.
+ *
+ * Columns are processed in panels. Each panel is copied into column-major storage, where
+ * reflectors are computed and applied one at a time as in HouseholderColQR. The reflectors of the
+ * panel are then accumulated into the compact WY form
+ *
+ *    H_0 . H_1 ... H_(b-1) = I - V.T.V'
+ *
+ * where V is unit lower trapezoidal and T is a small upper triangular matrix, and applied to the
+ * trailing columns with two matrix multiplications. This turns the memory-bound rank one updates
+ * of the unblocked algorithm into matrix multiplications that use the packed kernel, and run in
+ * parallel for large matrices.
+ *
+ * The factorisation is stored in the same format as HouseholderQR. Q is not formed unless
+ * requested, and can instead be applied directly to other matrices with applyQ and
+ * applyQTranspose, which is much cheaper for tall matrices.
+ *
+ * @author Mike
+ *
+ */
+public class BlockedHouseholderQR extends HouseholderQR {
+	public static final int DEFAULT_BLOCK_SIZE=32;
+
+	// minimum number of columns at which the blocked algorithm is selected automatically
+	public static final int BLOCKED_THRESHOLD=2*DEFAULT_BLOCK_SIZE;
+
+	private final int blockSize;
+
+	// triangular factor T for each panel of reflectors
+	private Matrix[] tBlocks;
+
+	private final MultiplyWorkspace ws=new MultiplyWorkspace();
+
+	public BlockedHouseholderQR(boolean compact) {
+		this(compact,DEFAULT_BLOCK_SIZE);
+	}
+
+	public BlockedHouseholderQR(boolean compact, int blockSize) {
+		super(compact);
+		if (blockSize<1) throw new IllegalArgumentException("Invalid block size: "+blockSize);
+		this.blockSize=blockSize;
+	}
+
+	/**
+	 * Returns true if the blocked algorithm is expected to be faster for a matrix of the given shape
+	 * @param rows
+	 * @param cols
+	 * @return
+	 */
+	public static boolean isBlockedSize(int rows, int cols) {
+		return Math.min(rows, cols)>=BLOCKED_THRESHOLD;
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	@Override
+	public QRResult decompose(AMatrix A) {
+		factor(A);
+		return new QRResult(getQ(), getR());
+	}
+
+	/**
+	 * Computes the factorisation of A without forming Q. The factors can then be used with
+	 * getR, applyQ and applyQTranspose.
+	 *
+	 * @param A The matrix to decompose. Not modified.
+	 */
+	@Override
+	public void factor(AMatrix A) {
+		error=false;
+
+		numCols=A.columnCount();
+		numRows=A.rowCount();
+		minLength=Math.min(numRows, numCols);
+		int maxLength=Math.max(numRows, numCols);
+
+		QR=Matrix.create(A);
+		u=new double[maxLength];
+		v=new double[maxLength];
+		dataQR=QR.data;
+		gammas=new double[minLength];
+		int numBlocks=(minLength+blockSize-1)/blockSize;
+		tBlocks=new Matrix[numBlocks];
+		resetFactors();
+
+		for (int b=0; b<numBlocks; b++) {
+			int k=b*blockSize;
+			int kb=Math.min(blockSize, minLength-k);
+			int rows=numRows-k;
+			Matrix vt=Matrix.create(kb, rows);
+			factorPanel(k, kb, vt.data);
+			tBlocks[b]=computeT(vt, k);
+			if (k+kb<numCols) {
+				applyBlock(b, vt, QR.subMatrix(k, rows, k+kb, numCols-k-kb), true);
+			}
+		}
+	}
+
+	/**
+	 * Factorises the panel of columns [k,k+kb) in column-major storage, and stores the result
+	 * back in QR. On return, the panel array contains V' as a row-major kb x (numRows-k) matrix.
+	 */
+	private void factorPanel(int k, int kb, double[] panel) {
+		int rows=numRows-k;
+		for (int i=0; i<rows; i++) {
+			int src=(k+i)*numCols+k;
+			for (int c=0; c<kb; c++) {
+				panel[c*rows+i]=dataQR[src+c];
+			}
+		}
+
+		for (int c=0; c<kb; c++) {
+			int cu=c*rows;
+			householderColumn(panel, cu, c, rows);
+			gammas[k+c]=gamma;
+			if (gamma==0.0) continue;
+
+			// apply the reflector to the remaining columns of the panel
+			for (int c2=c+1; c2<kb; c2++) {
+				int co=c2*rows;
+				double val=panel[co+c];
+				for (int r=c+1; r<rows; r++) {
+					val+=panel[cu+r]*panel[co+r];
+				}
+				val*=gamma;
+				panel[co+c]-=val;
+				for (int r=c+1; r<rows; r++) {
+					panel[co+r]-=panel[cu+r]*val;
+				}
+			}
+		}
+
+		for (int i=0; i<rows; i++) {
+			int dst=(k+i)*numCols+k;
+			for (int c=0; c<kb; c++) {
+				dataQR[dst+c]=panel[c*rows+i];
+			}
+		}
+
+		// convert the panel into V', with a unit diagonal and zeros above it
+		for (int c=0; c<kb; c++) {
+			int cu=c*rows;
+			for (int r=0; r<c; r++) panel[cu+r]=0.0;
+			panel[cu+c]=1.0;
+		}
+	}
+
+	/**
+	 * Computes the Householder reflector for local column c of the panel, stored from offset cu.
+	 * On return, the element on the diagonal contains R and the elements below contain the reflector.
+	 */
+	private void householderColumn(double[] panel, int cu, int c, int rows) {
+		double max=0.0;
+		for (int r=c; r<rows; r++) {
+			double d=Math.abs(panel[cu+r]);
+			if (d>max) max=d;
+		}
+
+		if (max==0.0) {
+			gamma=0;
+			error=true;
+			return;
+		}
+
+		// compute the norm, with each element normalised by the max value to avoid overflow
+		double t=0.0;
+		for (int r=c; r<rows; r++) {
+			double d=(panel[cu+r]/=max);
+			t+=d*d;
+		}
+		t=Math.sqrt(t);
+		if (panel[cu+c]<0) t=-t;
+
+		double u0=panel[cu+c]+t;
+		for (int r=c+1; r<rows; r++) {
+			panel[cu+r]/=u0;
+		}
+		gamma=u0/t;
+		tau=t*max;
+		panel[cu+c]=-tau;
+	}
+
+	/**
+	 * Creates V' for the block of reflectors starting at column k from the stored factorisation,
+	 * as a kb x (numRows-k) matrix with a unit diagonal and zeros to the left of it
+	 */
+	private Matrix createVT(int k, int kb) {
+		int rows=numRows-k;
+		Matrix vt=Matrix.create(kb, rows);
+		double[] vd=vt.data;
+		for (int c=0; c<kb; c++) {
+			int dst=c*rows;
+			vd[dst+c]=1.0;
+			for (int r=c+1; r<rows; r++) {
+				vd[dst+r]=dataQR[(k+r)*numCols+k+c];
+			}
+		}
+		return vt;
+	}
+
+	/**
+	 * Computes the upper triangular factor T of the compact WY representation for a panel
+	 * of reflectors, using T(0:i,i) = -gamma_i * T(0:i,0:i) * V(:,0:i)' * V(:,i)
+	 */
+	private Matrix computeT(Matrix vt, int k) {
+		int kb=vt.rowCount();
+		int rows=vt.columnCount();
+		double[] vd=vt.data;
+
+		Matrix t=Matrix.create(kb, kb);
+		double[] td=t.data;
+		double[] z=v;
+		for (int i=0; i<kb; i++) {
+			double gi=gammas[k+i];
+			td[i*kb+i]=gi;
+			if (i==0) continue;
+			// z = V(:,0:i)' * V(:,i), where V(:,i) is zero above row i
+			for (int l=0; l<i; l++) {
+				z[l]=DoubleArrays.dotProduct(vd, l*rows+i, vd, i*rows+i, rows-i);
+			}
+			for (int l=0; l<i; l++) {
+				double s=0.0;
+				for (int p=l; p<i; p++) {
+					s+=td[l*kb+p]*z[p];
+				}
+				td[l*kb+i]=-gi*s;
+			}
+		}
+		return t;
+	}
+
+	/**
+	 * Applies a block of reflectors to a matrix C with the same number of rows as V, computing
+	 * either C = (I - V.T'.V').C if transpose is true, or C = (I - V.T.V').C otherwise
+	 */
+	private void applyBlock(int b, Matrix vt, AStridedMatrix c, boolean transpose) {
+		int kb=vt.rowCount();
+		int cols=c.columnCount();
+		Matrix w=Matrix.create(kb, cols);
+		Multiplications.multiplyAdd(w, vt, c, 1.0, ws);
+
+		// W = T'.W or T.W, in place
+		double[] td=tBlocks[b].data;
+		double[] wd=w.data;
+		if (transpose) {
+			for (int i=kb-1; i>=0; i--) {
+				int wi=i*cols;
+				double tii=td[i*kb+i];
+				for (int j=0; j<cols; j++) wd[wi+j]*=tii;
+				for (int l=0; l<i; l++) {
+					double tli=td[l*kb+i];
+					if (tli==0.0) continue;
+					int wl=l*cols;
+					for (int j=0; j<cols; j++) wd[wi+j]+=tli*wd[wl+j];
+				}
+			}
+		} else {
+			for (int i=0; i<kb; i++) {
+				int wi=i*cols;
+				double tii=td[i*kb+i];
+				for (int j=0; j<cols; j++) wd[wi+j]*=tii;
+				for (int l=i+1; l<kb; l++) {
+					double til=td[i*kb+l];
+					if (til==0.0) continue;
+					int wl=l*cols;
+					for (int j=0; j<cols; j++) wd[wi+j]+=til*wd[wl+j];
+				}
+			}
+		}
+
+		Multiplications.multiplyAdd(c, vt.getTransposeView(), w, -1.0, ws);
+	}
+
+	/**
+	 * Computes B = Q'.B in place, where B has the same number of rows as the decomposed matrix
+	 * @param B
+	 */
+	public void applyQTranspose(Matrix B) {
+		if (B.rowCount()!=numRows) throw new IllegalArgumentException("Unexpected dimensions for B");
+		int cols=B.columnCount();
+		if (cols==0) return;
+		for (int b=0; b<tBlocks.length; b++) {
+			int k=b*blockSize;
+			int kb=Math.min(blockSize, minLength-k);
+			applyBlock(b, createVT(k, kb), B.subMatrix(k, numRows-k, 0, cols), true);
+		}
+	}
+
+	/**
+	 * Computes B = Q.B in place, where B has the same number of rows as the decomposed matrix
+	 * @param B
+	 */
+	public void applyQ(Matrix B) {
+		if (B.rowCount()!=numRows) throw new IllegalArgumentException("Unexpected dimensions for B");
+		int cols=B.columnCount();
+		if (cols==0) return;
+		for (int b=tBlocks.length-1; b>=0; b--) {
+			int k=b*blockSize;
+			int kb=Math.min(blockSize, minLength-k);
+			applyBlock(b, createVT(k, kb), B.subMatrix(k, numRows-k, 0, cols), false);
+		}
+	}
+
+	/**
+	 * Computes Q by applying the blocks of reflectors to the identity in reverse order. Each
+	 * block only affects the trailing rows and columns, so earlier columns are not updated.
+	 */
+	@Override
+	protected AMatrix computeQ() {
+		Matrix Q=Matrix.createIdentity(numRows);
+		for (int b=tBlocks.length-1; b>=0; b--) {
+			int k=b*blockSize;
+			int kb=Math.min(blockSize, minLength-k);
+			applyBlock(b, createVT(k, kb), Q.subMatrix(k, numRows-k, k, numRows-k), false);
+		}
+		return Q;
+	}
+}
@@ -112,6 +112,14 @@ public class HouseholderQR implements QRDecomposition {
         return R;
     }
 
+    /**
+     * Clears any Q and R matrices computed from a previous decomposition.
+     */
+    protected void resetFactors() {
+        Q = null;
+        R = null;
+    }
+
     /**
      * Computes the Q matrix from the information stored in the QR matrix.  This
      * operation requires about 4(m<sup>2</sup>n-mn<sup>2</sup>+n<sup>3</sup>/3) flops.
@@ -165,6 +173,17 @@ public class HouseholderQR implements QRDecomposition {
      */
     @Override
     public QRResult decompose( AMatrix A ) {
+        factor(A);
+        return new QRResult(getQ(), getR());
+    }
+
+    /**
+     * Computes the factorisation of A without forming Q or R. The reflectors are stored
+     * below the diagonal of {@link #getQR()}, with their scale factors in {@link #getGammas()}.
+     *
+     * @param A The matrix to decompose. Not modified.
+     */
+    public void factor( AMatrix A ) {
         error = false;
 
         this.numCols = A.columnCount();
@@ -173,6 +192,7 @@ public class HouseholderQR implements QRDecomposition {
         int maxLength = Math.max(numRows,numCols);
 
         QR = Matrix.create(A);
+        resetFactors();
         u = new double[ maxLength ];
         v = new double[ maxLength ];
 
@@ -186,8 +206,6 @@ public class HouseholderQR implements QRDecomposition {
         }
         
         // if (error) return null; // TODO: figure out how to handle
-
-        return new QRResult(getQ(), getR());
     }
 
     /**
@@ -0,0 +1,168 @@
+package mikera.matrixx.decompose.impl.svd;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.algo.Multiplications;
+import mikera.matrixx.decompose.ISVDResult;
+import mikera.matrixx.decompose.impl.qr.BlockedHouseholderQR;
+import mikera.matrixx.impl.AStridedMatrix;
+import mikera.matrixx.impl.DiagonalMatrix;
+import mikera.matrixx.impl.SparseColumnMatrix;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+import mikera.vectorz.util.DoubleArrays;
+
+/**
+ * Randomized truncated SVD, using the range finder of Halko, Martinsson and Tropp.
+ *
+ * A Gaussian random test matrix Omega with k+p columns is multiplied by A, and the product is
+ * orthonormalised to give a basis Q that approximately captures the range of A. Optional power
+ * iterations, alternating between A' and A with re-orthonormalisation, sharpen the basis when
+ * the singular values decay slowly. The small matrix Q'A is then decomposed exactly, and its
+ * leading k singular triplets are mapped back through Q.
+ *
+ * A is only accessed through products with tall, thin dense matrices, so the cost is
+ * O(mn(k+p)(q+1)) for dense A and proportional to the number of non-zeros for sparse A.
+ *
+ * @author Mike
+ *
+ */
+public class RandomizedSVD {
+	public static final int DEFAULT_OVERSAMPLING=10;
+	public static final int DEFAULT_POWER_ITERATIONS=2;
+
+	private RandomizedSVD() {}
+
+	/**
+	 * Computes an approximate truncated SVD of A with the given rank, using default oversampling
+	 * and power iterations
+	 * @param A
+	 * @param rank Number of singular triplets to compute
+	 * @return
+	 */
+	public static ISVDResult decompose(AMatrix A, int rank) {
+		return decompose(A,rank,DEFAULT_OVERSAMPLING,DEFAULT_POWER_ITERATIONS,new Random());
+	}
+
+	/**
+	 * Computes an approximate truncated SVD of A with the given rank
+	 * @param A
+	 * @param rank Number of singular triplets to compute
+	 * @param oversampling Number of additional random samples used to improve accuracy
+	 * @param powerIterations Number of power iterations, useful when singular values decay slowly
+	 * @return
+	 */
+	public static ISVDResult decompose(AMatrix A, int rank, int oversampling, int powerIterations) {
+		return decompose(A,rank,oversampling,powerIterations,new Random());
+	}
+
+	/**
+	 * Computes an approximate truncated SVD of A with the given rank, using the given source of
+	 * randomness for the test matrix.
+	 *
+	 * The result is in compact form, with U of size m x k, S of size k x k and V of size n x k, and
+	 * the singular values in decreasing order.
+	 *
+	 * @param A
+	 * @param rank Number of singular triplets to compute
+	 * @param oversampling Number of additional random samples used to improve accuracy
+	 * @param powerIterations Number of power iterations, useful when singular values decay slowly
+	 * @param random
+	 * @return
+	 */
+	public static ISVDResult decompose(AMatrix A, int rank, int oversampling, int powerIterations, Random random) {
+		int m=A.rowCount();
+		int n=A.columnCount();
+		int minSize=Math.min(m, n);
+		if ((rank<1)||(rank>minSize)) throw new IllegalArgumentException("Invalid rank "+rank+" for matrix of shape "+m+"x"+n);
+		if (oversampling<0) throw new IllegalArgumentException("Negative oversampling: "+oversampling);
+		if (powerIterations<0) throw new IllegalArgumentException("Negative power iterations: "+powerIterations);
+		int l=(int)Math.min(((long)rank)+oversampling, minSize);
+
+		Matrix omega=Matrix.create(n, l);
+		double[] od=omega.data;
+		for (int i=0; i<od.length; i++) {
+			od[i]=random.nextGaussian();
+		}
+
+		Matrix q=orthonormalise(multiply(A,omega,false));
+		for (int i=0; i<powerIterations; i++) {
+			Matrix z=orthonormalise(multiply(A,q,true));
+			q=orthonormalise(multiply(A,z,false));
+		}
+
+		// B' = A'.Q = Ub.S.Vb', so A ~ Q.B = (Q.Vb).S.Ub'
+		Matrix bt=multiply(A,q,true);
+		ISVDResult small=SvdImplicitQr.decompose(bt, true);
+		AVector svs=small.getSingularValues();
+		AMatrix ub=small.getU();
+		AMatrix vb=small.getV();
+
+		// select the largest singular values, in decreasing order
+		int s=svs.length();
+		Integer[] order=new Integer[s];
+		for (int i=0; i<s; i++) order[i]=i;
+		Arrays.sort(order, (a,b) -> Double.compare(svs.unsafeGet(b), svs.unsafeGet(a)));
+		int[] ixs=new int[rank];
+		for (int i=0; i<rank; i++) ixs[i]=order[i];
+
+		Vector values=Vector.createLength(rank);
+		Matrix vbk=Matrix.create(vb.rowCount(), rank);
+		Matrix V=Matrix.create(n, rank);
+		for (int i=0; i<rank; i++) {
+			int si=ixs[i];
+			values.unsafeSet(i, svs.unsafeGet(si));
+			vbk.setColumn(i, vb.getColumn(si));
+			V.setColumn(i, ub.getColumn(si));
+		}
+		Matrix U=Multiplications.multiply(q, vbk);
+		return new SVDResult(U,DiagonalMatrix.create(values),V,values);
+	}
+
+	/**
+	 * Computes an orthonormal basis for the columns of a tall matrix using Householder QR,
+	 * by applying Q to the leading columns of the identity
+	 */
+	private static Matrix orthonormalise(Matrix y) {
+		int rows=y.rowCount();
+		int cols=y.columnCount();
+		BlockedHouseholderQR qr=new BlockedHouseholderQR(true);
+		qr.factor(y);
+		Matrix q=Matrix.create(rows, cols);
+		for (int i=0; i<cols; i++) {
+			q.unsafeSet(i, i, 1.0);
+		}
+		qr.applyQ(q);
+		return q;
+	}
+
+	/**
+	 * Computes A.X, or A'.X if transpose is true, for a dense matrix X. Dense A uses the packed
+	 * multiply kernel. Other matrices are traversed row by row, visiting only non-zero elements.
+	 */
+	private static Matrix multiply(AMatrix a, Matrix x, boolean transpose) {
+		if (a instanceof AStridedMatrix) return Multiplications.multiply(a, transpose, x, false);
+		if (a instanceof SparseColumnMatrix) return multiply(((SparseColumnMatrix)a).getTransposeView(), x, !transpose);
+
+		int rc=a.rowCount();
+		int k=x.columnCount();
+		Matrix result=Matrix.create(transpose?a.columnCount():rc, k);
+		double[] xd=x.data;
+		double[] rd=result.data;
+		for (int i=0; i<rc; i++) {
+			AVector row=a.getRow(i);
+			for (int j: row.nonZeroIndices()) {
+				double v=row.unsafeGet(j);
+				if (transpose) {
+					DoubleArrays.addMultiple(rd, j*k, xd, i*k, k, v);
+				} else {
+					DoubleArrays.addMultiple(rd, i*k, xd, j*k, k, v);
+				}
+			}
+		}
+		return result;
+	}
+}
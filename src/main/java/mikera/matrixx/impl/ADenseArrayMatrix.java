@@ -3,6 +3,7 @@ package mikera.matrixx.impl;
 import mikera.arrayz.INDArray;
 import mikera.arrayz.impl.IDenseArray;
 import mikera.matrixx.AMatrix;
+import mikera.matrixx.algo.Multiplications;
 import mikera.vectorz.AVector;
 import mikera.vectorz.Op2;
 import mikera.vectorz.Tools;
@@ -174,6 +175,10 @@ public abstract class ADenseArrayMatrix extends AStridedMatrix implements IFastR
 		}
 		if(rows!=dest.length()) throw new IllegalArgumentException(ErrorMessages.wrongDestLength(dest));
 		if(cols!=source.length()) throw new IllegalArgumentException(ErrorMessages.wrongSourceLength(source));
+		if (Multiplications.isParallelTransform(rows, cols)) {
+			Multiplications.parallelTransform(this, source, dest);
+			return;
+		}
 		double[] data=getArray();
 		int offset=getArrayOffset();
 		for (int i=0; i<rows; i++) {
@@ -6,9 +6,11 @@ import mikera.arrayz.impl.IStridedArray;
 import mikera.matrixx.AMatrix;
 import mikera.matrixx.Matrix;
 import mikera.matrixx.Matrixx;
+import mikera.matrixx.algo.Multiplications;
 import mikera.vectorz.AVector;
 import mikera.vectorz.Op;
 import mikera.vectorz.Op2;
+import mikera.vectorz.Vector;
 import mikera.vectorz.Vectorz;
 import mikera.vectorz.impl.AStridedVector;
 import mikera.vectorz.util.ErrorMessages;
@@ -160,6 +162,44 @@ public abstract class AStridedMatrix extends AArrayMatrix implements IStridedArr
 		return result;
 	}
 	
+	@Override
+	public void transform(AVector source, AVector dest) {
+		if (Multiplications.isParallelTransform(rows, cols)) {
+			Multiplications.parallelTransform(this, source, dest);
+			return;
+		}
+		super.transform(source, dest);
+	}
+	
+	@Override
+	public void transform(Vector source, Vector dest) {
+		if (Multiplications.isParallelTransform(rows, cols)) {
+			Multiplications.parallelTransform(this, source, dest);
+			return;
+		}
+		super.transform(source, dest);
+	}
+	
+	@Override
+	public Vector innerProduct(Vector v) {
+		if (Multiplications.isParallelTransform(rows, cols)) {
+			Vector result=Vector.createLength(rows);
+			Multiplications.parallelTransform(this, v, result);
+			return result;
+		}
+		return super.innerProduct(v);
+	}
+	
+	@Override
+	public AVector innerProduct(AVector v) {
+		if (Multiplications.isParallelTransform(rows, cols)) {
+			Vector result=Vector.createLength(rows);
+			Multiplications.parallelTransform(this, v, result);
+			return result;
+		}
+		return super.innerProduct(v);
+	}
+	
 	@Override
 	public double rowDotProduct(int i, AVector a) {
 		double[] data=getArray();
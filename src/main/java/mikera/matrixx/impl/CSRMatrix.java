@@ -0,0 +1,564 @@
+package mikera.matrixx.impl;
+
+import java.util.Arrays;
+
+import mikera.arrayz.ISparse;
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.algo.SparseMultiplications;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+import mikera.vectorz.impl.ADenseArrayVector;
+import mikera.vectorz.impl.SparseIndexedVector;
+import mikera.vectorz.util.DoubleArrays;
+import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.IntArrays;
+import mikera.vectorz.util.VectorzException;
+
+/**
+ * Sparse matrix stored in Compressed Sparse Row (CSR) format.
+ *
+ * All non-zero elements are held in three flat arrays:
+ * - rowPtr, of length rows+1, giving the start position of each row
+ * - colIdx, giving the (sorted) column index of each stored element
+ * - values, giving the value of each stored element
+ *
+ * Compared to SparseRowMatrix, this avoids a separate vector object per row and keeps
+ * all rows contiguous in memory, which makes matrix-vector products a single linear pass.
+ *
+ * Setting a previously zero element requires shifting all later elements, which costs O(nnz)
+ * per insertion and O(nnz^2) to fill a matrix element by element. Build matrices in one pass
+ * instead, from coordinate triples with create(rows, cols, rowIndexes, colIndexes, values) or
+ * by conversion from another matrix (e.g. a SparseRowMatrix).
+ *
+ * @author Mike
+ *
+ */
+public class CSRMatrix extends ARectangularMatrix implements ISparse {
+	private static final long serialVersionUID = -1519480853474419155L;
+
+	private int[] rowPtr;
+	private int[] colIdx;
+	private double[] values;
+
+	protected CSRMatrix(int rows, int cols, int[] rowPtr, int[] colIdx, double[] values) {
+		super(rows, cols);
+		if (rowPtr.length!=rows+1) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(rows+1, rowPtr.length));
+		this.rowPtr=rowPtr;
+		this.colIdx=colIdx;
+		this.values=values;
+	}
+
+	/**
+	 * Creates an empty (all zero) CSR matrix of the given shape
+	 * @param rows
+	 * @param cols
+	 * @return
+	 */
+	public static CSRMatrix create(int rows, int cols) {
+		return new CSRMatrix(rows,cols,new int[rows+1],IntArrays.EMPTY_INT_ARRAY,DoubleArrays.EMPTY);
+	}
+
+	/**
+	 * Wraps CSR arrays as a matrix. Performs no checking - column indexes within each row
+	 * must be distinct and sorted. Call validate() to check the structure if required.
+	 *
+	 * @param rows
+	 * @param cols
+	 * @param rowPtr Row start positions, of length rows+1
+	 * @param colIdx Column indexes of stored elements
+	 * @param values Values of stored elements
+	 * @return
+	 */
+	public static CSRMatrix wrap(int rows, int cols, int[] rowPtr, int[] colIdx, double[] values) {
+		return new CSRMatrix(rows,cols,rowPtr,colIdx,values);
+	}
+
+	/**
+	 * Creates a CSR matrix from coordinate (COO) triples in any order, in O(nnz + rows + cols)
+	 * time. Values given for the same position are summed.
+	 *
+	 * @param rows
+	 * @param cols
+	 * @param rowIndexes Row index of each element
+	 * @param colIndexes Column index of each element
+	 * @param vs Value of each element
+	 * @return
+	 */
+	public static CSRMatrix create(int rows, int cols, int[] rowIndexes, int[] colIndexes, double[] vs) {
+		int n=rowIndexes.length;
+		if (colIndexes.length!=n) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(n, colIndexes.length));
+		if (vs.length!=n) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(n, vs.length));
+		// bucket the triples by column first, so that a stable scatter into rows leaves each row sorted
+		int[] colPtr=new int[cols+1];
+		for (int k=0; k<n; k++) {
+			int i=rowIndexes[k];
+			int j=colIndexes[k];
+			if ((i<0)||(i>=rows)||(j<0)||(j>=cols)) throw new IndexOutOfBoundsException("Index ("+i+","+j+") out of range for shape "+rows+"x"+cols);
+			colPtr[j+1]++;
+		}
+		for (int j=0; j<cols; j++) {
+			colPtr[j+1]+=colPtr[j];
+		}
+		int[] byCol=new int[n];
+		int[] cpos=Arrays.copyOf(colPtr, cols);
+		for (int k=0; k<n; k++) {
+			byCol[cpos[colIndexes[k]]++]=k;
+		}
+		int[] rowPtr=new int[rows+1];
+		for (int k=0; k<n; k++) {
+			rowPtr[rowIndexes[k]+1]++;
+		}
+		for (int i=0; i<rows; i++) {
+			rowPtr[i+1]+=rowPtr[i];
+		}
+		int[] colIdx=new int[n];
+		double[] values=new double[n];
+		int[] rpos=Arrays.copyOf(rowPtr, rows);
+		for (int q=0; q<n; q++) {
+			int k=byCol[q];
+			int p=rpos[rowIndexes[k]]++;
+			colIdx[p]=colIndexes[k];
+			values[p]=vs[k];
+		}
+		// sum duplicates, compacting each row in place
+		int nnz=0;
+		for (int i=0; i<rows; i++) {
+			int start=rowPtr[i];
+			int end=rowPtr[i+1];
+			rowPtr[i]=nnz;
+			for (int k=start; k<end; k++) {
+				if ((nnz>rowPtr[i])&&(colIdx[nnz-1]==colIdx[k])) {
+					values[nnz-1]+=values[k];
+				} else {
+					colIdx[nnz]=colIdx[k];
+					values[nnz]=values[k];
+					nnz++;
+				}
+			}
+		}
+		rowPtr[rows]=nnz;
+		return new CSRMatrix(rows,cols,rowPtr,colIdx,values);
+	}
+
+	/**
+	 * Creates a CSR matrix containing the non-zero elements of any source matrix
+	 * @param source
+	 * @return
+	 */
+	public static CSRMatrix create(AMatrix source) {
+		if (source instanceof CSRMatrix) return ((CSRMatrix)source).exactClone();
+		if (source instanceof SparseColumnMatrix) return create((SparseColumnMatrix)source);
+		int rc=source.rowCount();
+		int cc=source.columnCount();
+		int[] rowPtr=new int[rc+1];
+		int[][] rowIndexes=new int[rc][];
+		double[][] rowValues=new double[rc][];
+		for (int i=0; i<rc; i++) {
+			AVector row=source.getRow(i);
+			rowIndexes[i]=row.nonZeroIndices();
+			rowValues[i]=row.nonZeroValues();
+			rowPtr[i+1]=rowPtr[i]+rowIndexes[i].length;
+		}
+		int nnz=rowPtr[rc];
+		int[] colIdx=new int[nnz];
+		double[] values=new double[nnz];
+		for (int i=0; i<rc; i++) {
+			int n=rowIndexes[i].length;
+			System.arraycopy(rowIndexes[i], 0, colIdx, rowPtr[i], n);
+			System.arraycopy(rowValues[i], 0, values, rowPtr[i], n);
+		}
+		return new CSRMatrix(rc,cc,rowPtr,colIdx,values);
+	}
+
+	/**
+	 * Creates a CSR matrix from a SparseColumnMatrix, scattering each column into the
+	 * appropriate rows without constructing intermediate row vectors.
+	 * @param source
+	 * @return
+	 */
+	public static CSRMatrix create(SparseColumnMatrix source) {
+		int rc=source.rowCount();
+		int cc=source.columnCount();
+		int[][] colIndexes=new int[cc][];
+		double[][] colValues=new double[cc][];
+		int[] rowPtr=new int[rc+1];
+		for (int j=0; j<cc; j++) {
+			AVector col=source.unsafeGetVector(j);
+			if (col==null) continue;
+			int[] ix=col.nonZeroIndices();
+			colIndexes[j]=ix;
+			colValues[j]=col.nonZeroValues();
+			for (int k=0; k<ix.length; k++) {
+				rowPtr[ix[k]+1]++;
+			}
+		}
+		for (int i=0; i<rc; i++) {
+			rowPtr[i+1]+=rowPtr[i];
+		}
+		int nnz=rowPtr[rc];
+		int[] colIdx=new int[nnz];
+		double[] values=new double[nnz];
+		int[] pos=Arrays.copyOf(rowPtr, rc);
+		// visiting columns in order leaves column indexes sorted within each row
+		for (int j=0; j<cc; j++) {
+			int[] ix=colIndexes[j];
+			if (ix==null) continue;
+			double[] vs=colValues[j];
+			for (int k=0; k<ix.length; k++) {
+				int p=pos[ix[k]]++;
+				colIdx[p]=j;
+				values[p]=vs[k];
+			}
+		}
+		return new CSRMatrix(rc,cc,rowPtr,colIdx,values);
+	}
+
+	/**
+	 * Gets the internal row pointer array. Row i occupies positions rowPtr[i] to rowPtr[i+1]-1
+	 * of the column index and value arrays.
+	 * @return
+	 */
+	public int[] getRowPointers() {
+		return rowPtr;
+	}
+
+	/**
+	 * Gets the internal column index array. May be longer than the number of stored elements.
+	 * @return
+	 */
+	public int[] getColumnIndexes() {
+		return colIdx;
+	}
+
+	/**
+	 * Gets the internal value array. May be longer than the number of stored elements.
+	 * @return
+	 */
+	public double[] getValues() {
+		return values;
+	}
+
+	/**
+	 * Returns the number of stored elements. Stored elements may include explicit zeros.
+	 * @return
+	 */
+	public int storedElementCount() {
+		return rowPtr[rows];
+	}
+
+	/**
+	 * Returns the position of element (i,j) in the internal arrays, or (-(insertion point)-1) if
+	 * it is not stored
+	 */
+	private int position(int i, int j) {
+		return Arrays.binarySearch(colIdx, rowPtr[i], rowPtr[i+1], j);
+	}
+
+	@Override
+	public double get(int i, int j) {
+		checkIndex(i,j);
+		return unsafeGet(i,j);
+	}
+
+	@Override
+	public double unsafeGet(int i, int j) {
+		int p=position(i,j);
+		return (p<0)?0.0:values[p];
+	}
+
+	@Override
+	public void unsafeSet(int i, int j, double value) {
+		int p=position(i,j);
+		if (p>=0) {
+			values[p]=value;
+		} else if (value!=0.0) {
+			insert(i,-(p+1),j,value);
+		}
+	}
+
+	@Override
+	public void addAt(int i, int j, double d) {
+		if (d==0.0) return;
+		int p=position(i,j);
+		if (p>=0) {
+			values[p]+=d;
+		} else {
+			insert(i,-(p+1),j,d);
+		}
+	}
+
+	/**
+	 * Inserts a new element at the given position. Storage grows geometrically so reallocation
+	 * is amortised, but shifting the later elements still costs O(nnz).
+	 */
+	private void insert(int i, int pos, int j, double value) {
+		int nnz=rowPtr[rows];
+		if ((nnz==colIdx.length)||(nnz==values.length)) {
+			int capacity=Math.max(8, nnz*2);
+			colIdx=Arrays.copyOf(colIdx, capacity);
+			values=Arrays.copyOf(values, capacity);
+		}
+		System.arraycopy(colIdx, pos, colIdx, pos+1, nnz-pos);
+		System.arraycopy(values, pos, values, pos+1, nnz-pos);
+		colIdx[pos]=j;
+		values[pos]=value;
+		for (int r=i+1; r<=rows; r++) {
+			rowPtr[r]++;
+		}
+	}
+
+	@Override
+	public boolean isSparse() {
+		return true;
+	}
+
+	@Override
+	public boolean isMutable() {
+		return true;
+	}
+
+	@Override
+	public boolean isFullyMutable() {
+		return true;
+	}
+
+	@Override
+	public boolean isZero() {
+		return DoubleArrays.isZero(values, 0, rowPtr[rows]);
+	}
+
+	@Override
+	public long nonZeroCount() {
+		return DoubleArrays.nonZeroCount(values, 0, rowPtr[rows]);
+	}
+
+	@Override
+	public double elementSum() {
+		return DoubleArrays.elementSum(values, 0, rowPtr[rows]);
+	}
+
+	@Override
+	public double elementSquaredSum() {
+		return DoubleArrays.elementSquaredSum(values, 0, rowPtr[rows]);
+	}
+
+	@Override
+	public void fill(double value) {
+		if (value==0.0) {
+			Arrays.fill(rowPtr, 0);
+			colIdx=IntArrays.EMPTY_INT_ARRAY;
+			values=DoubleArrays.EMPTY;
+		} else {
+			super.fill(value);
+		}
+	}
+
+	@Override
+	public void multiply(double factor) {
+		DoubleArrays.multiply(values, 0, rowPtr[rows], factor);
+	}
+
+	@Override
+	public AVector getRowClone(int i) {
+		int start=rowPtr[i];
+		int end=rowPtr[i+1];
+		return SparseIndexedVector.wrap(cols, Arrays.copyOfRange(colIdx, start, end), Arrays.copyOfRange(values, start, end));
+	}
+
+	@Override
+	public void copyRowTo(int i, double[] dest, int destOffset) {
+		Arrays.fill(dest, destOffset, destOffset+cols, 0.0);
+		for (int k=rowPtr[i]; k<rowPtr[i+1]; k++) {
+			dest[destOffset+colIdx[k]]=values[k];
+		}
+	}
+
+	@Override
+	public void addToArray(double[] data, int offset) {
+		for (int i=0; i<rows; i++) {
+			int ro=offset+i*cols;
+			for (int k=rowPtr[i]; k<rowPtr[i+1]; k++) {
+				data[ro+colIdx[k]]+=values[k];
+			}
+		}
+	}
+
+	@Override
+	public double[] toDoubleArray() {
+		double[] result=DoubleArrays.createStorage(rows,cols);
+		addToArray(result,0);
+		return result;
+	}
+
+	@Override
+	public double rowDotProduct(int i, AVector a) {
+		double result=0.0;
+		for (int k=rowPtr[i]; k<rowPtr[i+1]; k++) {
+			result+=values[k]*a.unsafeGet(colIdx[k]);
+		}
+		return result;
+	}
+
+	@Override
+	public void transform(AVector source, AVector dest) {
+		if (source.length()!=cols) throw new IllegalArgumentException(ErrorMessages.wrongSourceLength(source));
+		if (dest.length()!=rows) throw new IllegalArgumentException(ErrorMessages.wrongDestLength(dest));
+		if (source instanceof ADenseArrayVector) {
+			ADenseArrayVector v=(ADenseArrayVector)source;
+			double[] src=v.getArray();
+			int so=v.getArrayOffset();
+			for (int i=0; i<rows; i++) {
+				double acc=0.0;
+				for (int k=rowPtr[i]; k<rowPtr[i+1]; k++) {
+					acc+=values[k]*src[so+colIdx[k]];
+				}
+				dest.unsafeSet(i,acc);
+			}
+		} else {
+			for (int i=0; i<rows; i++) {
+				dest.unsafeSet(i,rowDotProduct(i,source));
+			}
+		}
+	}
+
+	@Override
+	public void transform(Vector source, Vector dest) {
+		transform((AVector)source,(AVector)dest);
+	}
+
+	@Override
+	public Vector innerProduct(Vector v) {
+		Vector r=Vector.createLength(rows);
+		transform(v,r);
+		return r;
+	}
+
+	@Override
+	public AVector innerProduct(AVector v) {
+		Vector r=Vector.createLength(rows);
+		transform(v,r);
+		return r;
+	}
+
+	@Override
+	public AMatrix innerProduct(AMatrix a) {
+		if (a.rowCount()!=cols) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, a));
+		if (a instanceof CSRMatrix) return innerProduct((CSRMatrix)a);
+		int acc=a.columnCount();
+		Matrix result=Matrix.create(rows, acc);
+		double[] rdata=result.getArray();
+		if (a instanceof Matrix) {
+			double[] adata=((Matrix)a).getArray();
+			for (int i=0; i<rows; i++) {
+				for (int k=rowPtr[i]; k<rowPtr[i+1]; k++) {
+					DoubleArrays.addMultiple(rdata, i*acc, adata, colIdx[k]*acc, acc, values[k]);
+				}
+			}
+		} else {
+			for (int i=0; i<rows; i++) {
+				for (int k=rowPtr[i]; k<rowPtr[i+1]; k++) {
+					a.getRow(colIdx[k]).addMultipleToArray(values[k], 0, rdata, i*acc, acc);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Multiplies this matrix by another CSR matrix, producing a sparse CSR result.
+	 * @param a
+	 * @return
+	 */
+	public CSRMatrix innerProduct(CSRMatrix a) {
+		return SparseMultiplications.multiply(this, a);
+	}
+
+	/**
+	 * Creates a transposed copy of this matrix in CSR format, in O(nnz + rows + cols) time.
+	 * Use getTranspose() for a transposed view instead.
+	 */
+	@Override
+	public CSRMatrix getTransposeCopy() {
+		int nnz=rowPtr[rows];
+		int[] tPtr=new int[cols+1];
+		for (int k=0; k<nnz; k++) {
+			tPtr[colIdx[k]+1]++;
+		}
+		for (int j=0; j<cols; j++) {
+			tPtr[j+1]+=tPtr[j];
+		}
+		int[] tIdx=new int[nnz];
+		double[] tValues=new double[nnz];
+		int[] pos=Arrays.copyOf(tPtr, cols);
+		for (int i=0; i<rows; i++) {
+			for (int k=rowPtr[i]; k<rowPtr[i+1]; k++) {
+				int p=pos[colIdx[k]]++;
+				tIdx[p]=i;
+				tValues[p]=values[k];
+			}
+		}
+		return new CSRMatrix(cols,rows,tPtr,tIdx,tValues);
+	}
+
+	/**
+	 * Converts this matrix to a SparseRowMatrix, with one SparseIndexedVector per non-empty row
+	 * @return
+	 */
+	public SparseRowMatrix toSparseRowMatrix() {
+		AVector[] rowVecs=new AVector[rows];
+		for (int i=0; i<rows; i++) {
+			if (rowPtr[i]==rowPtr[i+1]) continue;
+			rowVecs[i]=getRowClone(i);
+		}
+		return SparseRowMatrix.wrap(rowVecs, rows, cols);
+	}
+
+	/**
+	 * Converts this matrix to a SparseColumnMatrix, with one SparseIndexedVector per non-empty column
+	 * @return
+	 */
+	public SparseColumnMatrix toSparseColumnMatrix() {
+		CSRMatrix t=getTransposeCopy();
+		AVector[] colVecs=new AVector[cols];
+		for (int j=0; j<cols; j++) {
+			if (t.rowPtr[j]==t.rowPtr[j+1]) continue;
+			colVecs[j]=t.getRowClone(j);
+		}
+		return SparseColumnMatrix.wrap(colVecs, rows, cols);
+	}
+
+	@Override
+	public Matrix dense() {
+		return toMatrix();
+	}
+
+	@Override
+	public AMatrix sparse() {
+		return this;
+	}
+
+	@Override
+	public CSRMatrix exactClone() {
+		int nnz=rowPtr[rows];
+		return new CSRMatrix(rows,cols,rowPtr.clone(),Arrays.copyOf(colIdx, nnz),Arrays.copyOf(values, nnz));
+	}
+
+	@Override
+	public void validate() {
+		super.validate();
+		if (rowPtr[0]!=0) throw new VectorzException("Row pointers must start at zero");
+		int nnz=rowPtr[rows];
+		if ((colIdx.length<nnz)||(values.length<nnz)) throw new VectorzException("Insufficient storage for "+nnz+" elements");
+		for (int i=0; i<rows; i++) {
+			int start=rowPtr[i];
+			int end=rowPtr[i+1];
+			if (end<start) throw new VectorzException("Decreasing row pointer at row: "+i);
+			for (int k=start; k<end; k++) {
+				int j=colIdx[k];
+				if ((j<0)||(j>=cols)) throw new VectorzException("Column index out of range at row: "+i);
+				if ((k>start)&&(j<=colIdx[k-1])) throw new VectorzException("Column indexes not sorted at row: "+i);
+			}
+		}
+	}
+}
@@ -257,6 +257,14 @@ public class SparseColumnMatrix extends ASparseRCMatrix implements ISparse, IFas
         return rm;
     }
     
+    /**
+     * Converts this matrix into a CSRMatrix with flat row storage.
+     * @return
+     */
+    public CSRMatrix toCSRMatrix() {
+        return CSRMatrix.create(this);
+    }
+    
     /**
      * Ensures that a specific column is stored as a non-null, fully mutable vector.
      * @param i
@@ -8,6 +8,7 @@ import mikera.arrayz.INDArray;
 import mikera.arrayz.ISparse;
 import mikera.matrixx.AMatrix;
 import mikera.matrixx.Matrixx;
+import mikera.matrixx.algo.SparseMultiplications;
 import mikera.vectorz.AVector;
 import mikera.vectorz.Vector;
 import mikera.vectorz.Vectorz;
@@ -267,6 +268,14 @@ public class SparseRowMatrix extends ASparseRCMatrix implements ISparse, IFastRo
         return cm;
     }
     
+    /**
+     * Converts this matrix into a CSRMatrix with flat row storage.
+     * @return
+     */
+    public CSRMatrix toCSRMatrix() {
+        return CSRMatrix.create(this);
+    }
+    
 	@Override
 	public AVector getRow(int i) {
 		AVector v = unsafeGetVector(i);
@@ -417,6 +426,9 @@ public class SparseRowMatrix extends ASparseRCMatrix implements ISparse, IFastRo
 		if (a instanceof SparseColumnMatrix) {
 			return innerProduct((SparseColumnMatrix) a);
 		}
+		if (a instanceof SparseRowMatrix) {
+			return innerProduct((SparseRowMatrix) a);
+		}
 		SparseRowMatrix r = Matrixx.createSparse(rows, a.columnCount());
 
         for (int i = 0; i < rows; ++i) {
@@ -445,15 +457,14 @@ public class SparseRowMatrix extends ASparseRCMatrix implements ISparse, IFastRo
 		return r;
 	}
 	
+	/**
+	 * Specialised inner product for two sparse row matrices, using Gustavson's row-wise algorithm.
+	 *  
+	 * @param a
+	 * @return
+	 */
 	public SparseRowMatrix innerProduct(SparseRowMatrix a) {
-		SparseRowMatrix r = Matrixx.createSparse(rows, a.columnCount());
-		for (int i = 0; i < rows; ++i) {
-			AVector row = unsafeGetVector(i);
-            if (row != null) {
-			    r.replaceRow(i,row.innerProduct(a));
-            }
-		}
-		return r;
+		return SparseMultiplications.multiply(this, a);
 	}
 
 
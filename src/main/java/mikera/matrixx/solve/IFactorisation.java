@@ -0,0 +1,73 @@
+package mikera.matrixx.solve;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+
+/**
+ * Interface for a reusable factorisation of a matrix A, which can solve A.x = b for any
+ * number of right hand sides without repeating the factorisation.
+ *
+ * The in-place solves allocate nothing once their workspace has grown to fit the right hand
+ * side. Factorisations hold this workspace, so a single instance should not be used from
+ * several threads at once.
+ *
+ * @author Mike
+ *
+ */
+public interface IFactorisation {
+
+	/**
+	 * Returns the number of rows of the factorised matrix
+	 * @return
+	 */
+	public int rowCount();
+
+	/**
+	 * Returns the number of columns of the factorised matrix, which is the length of a solution
+	 * @return
+	 */
+	public int columnCount();
+
+	/**
+	 * Solves A.x = b, overwriting b with x. The vector must have one element for each row of A.
+	 *
+	 * If A has more rows than columns, the least squares solution is written to the first
+	 * columnCount() elements of b.
+	 * @param b
+	 */
+	public void solveInPlace(AVector b);
+
+	/**
+	 * Solves A.X = B, overwriting each column of B with the corresponding solution. The matrix
+	 * must have one row for each row of A.
+	 *
+	 * If A has more rows than columns, the least squares solutions are written to the first
+	 * columnCount() rows of B.
+	 * @param b
+	 */
+	public void solveInPlace(Matrix b);
+
+	/**
+	 * Returns the solution to A.x = b as a new vector. The argument is not modified.
+	 * @param b
+	 * @return
+	 */
+	public default AVector solve(AVector b) {
+		Vector x=Vector.create(b);
+		solveInPlace(x);
+		return (rowCount()==columnCount())?x:x.subVector(0, columnCount()).toVector();
+	}
+
+	/**
+	 * Returns the solution to A.X = B as a new matrix. The argument is not modified.
+	 * @param b
+	 * @return
+	 */
+	public default AMatrix solve(AMatrix b) {
+		Matrix x=Matrix.create(b);
+		solveInPlace(x);
+		return (rowCount()==columnCount())?x:x.subMatrix(0, columnCount(), 0, x.columnCount()).toMatrix();
+	}
+}
@@ -0,0 +1,45 @@
+package mikera.matrixx.solve;
+
+import mikera.vectorz.AVector;
+
+/**
+ * Interface for results of iterative linear solvers, giving the solution
+ * found together with convergence statistics.
+ *
+ * @author Mike
+ *
+ */
+public interface IIterativeResult {
+
+	/**
+	 * Returns the solution vector x. If the solver did not converge, this is the
+	 * last iterate computed.
+	 * @return
+	 */
+	public AVector getSolution();
+
+	/**
+	 * Returns true if the residual reached the requested tolerance
+	 * @return
+	 */
+	public boolean isConverged();
+
+	/**
+	 * Returns the number of iterations performed. Each iteration requires one
+	 * (CG, GMRES) or two (BiCGSTAB) applications of the operator.
+	 * @return
+	 */
+	public int getIterations();
+
+	/**
+	 * Returns the 2-norm of the final residual b - A.x
+	 * @return
+	 */
+	public double getResidualNorm();
+
+	/**
+	 * Returns the final residual norm relative to the norm of b
+	 * @return
+	 */
+	public double getRelativeResidual();
+}
@@ -0,0 +1,33 @@
+package mikera.matrixx.solve;
+
+import mikera.vectorz.AVector;
+
+/**
+ * Interface for preconditioners used by iterative solvers.
+ *
+ * A preconditioner represents a matrix M that approximates the system matrix A, but whose
+ * inverse can be applied cheaply. Solvers use M^-1 to transform the residual at each step,
+ * which can greatly reduce the number of iterations required for ill-conditioned systems.
+ *
+ * @author Mike
+ *
+ */
+public interface IPreconditioner {
+
+	/**
+	 * Applies the inverse of the preconditioner, computing dest = M^-1 . source
+	 *
+	 * Implementations should not allocate memory, since this is called on every iteration.
+	 * The source and destination vectors may be the same vector.
+	 *
+	 * @param source
+	 * @param dest
+	 */
+	public void apply(AVector source, AVector dest);
+
+	/**
+	 * Returns the dimension of the preconditioner, i.e. the size of the system
+	 * @return
+	 */
+	public int length();
+}
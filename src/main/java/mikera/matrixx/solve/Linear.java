@@ -2,8 +2,16 @@ package mikera.matrixx.solve;
 
 import mikera.matrixx.AMatrix;
 import mikera.matrixx.impl.ColumnMatrix;
+import mikera.matrixx.solve.impl.CholeskyFactorisation;
+import mikera.matrixx.solve.impl.iterative.BiCGStab;
+import mikera.matrixx.solve.impl.iterative.ConjugateGradient;
+import mikera.matrixx.solve.impl.iterative.GMRES;
+import mikera.matrixx.solve.impl.lu.LUFactorisation;
 import mikera.matrixx.solve.impl.lu.LUSolver;
+import mikera.matrixx.solve.impl.lu.MixedPrecisionLU;
+import mikera.matrixx.solve.impl.qr.QRFactorisation;
 import mikera.matrixx.solve.impl.qr.QRHouseColSolver;
+import mikera.matrixx.solve.impl.qr.TSQRSolver;
 import mikera.vectorz.AVector;
 
 /**
@@ -21,14 +29,18 @@ public class Linear {
     /**
      * 
      * Returns the least squares solution to the equation A.x = b
-     * Use this in the case of over-determined (more equations than unknowns) or
-     * under-determined (more unknowns than equations)
+     * Use this in the case of over-determined systems (more equations than unknowns).
+     * A must have at least as many rows as columns, otherwise an IllegalArgumentException is thrown.
+     * 
+     * Tall, narrow systems are solved with a parallel tall-skinny QR (TSQR) reduction.
      * 
      * @param A
      * @param b
      * @return AVector x
      */
     public static AVector solveLeastSquares(AMatrix A, AVector b) {
+        if (TSQRSolver.isTSQRSize(A.rowCount(), A.columnCount()))
+            return TSQRSolver.solve(A, b);
         QRHouseColSolver solver = new QRHouseColSolver();
         solver.setA(A);
 //        create AMatrix from AVector
@@ -40,14 +52,16 @@ public class Linear {
     
     /**
      * Returns the least squares solution to the equation A.X = B
-     * Use this in the case of over-determined (more equations than unknowns) or
-     * under-determined (more unknowns than equations)
+     * Use this in the case of over-determined systems (more equations than unknowns).
+     * A must have at least as many rows as columns, otherwise an IllegalArgumentException is thrown.
      * 
      * @param A
      * @param B
      * @return AMatrix X
      */
     public static AMatrix solveLeastSquares(AMatrix A, AMatrix B) {
+        if (TSQRSolver.isTSQRSize(A.rowCount(), A.columnCount()))
+            return TSQRSolver.solve(A, B);
         QRHouseColSolver solver = new QRHouseColSolver();
         solver.setA(A);
         AMatrix x = solver.solve(B);
@@ -126,4 +140,95 @@ public class Linear {
 		return solver.solve(B);
 	}
 
+	/**
+	 * Computes a reusable LU factorisation of a square matrix A, for solving A.x = b with many
+	 * right hand sides. Returns null if A is singular.
+	 * 
+	 * @param A
+	 * @return
+	 */
+	public static IFactorisation factoriseLU(AMatrix A) {
+		return LUFactorisation.create(A);
+	}
+
+	/**
+	 * Computes a reusable Cholesky factorisation of a symmetric positive definite matrix A, for
+	 * solving A.x = b with many right hand sides. Returns null if A is not positive definite.
+	 * 
+	 * @param A
+	 * @return
+	 */
+	public static IFactorisation factoriseCholesky(AMatrix A) {
+		return CholeskyFactorisation.create(A);
+	}
+
+	/**
+	 * Computes a reusable QR factorisation of a matrix A with at least as many rows as columns,
+	 * for finding least squares solutions to A.x = b with many right hand sides. Returns null if
+	 * A does not have full column rank to within rounding error.
+	 * 
+	 * @param A
+	 * @return
+	 */
+	public static IFactorisation factoriseQR(AMatrix A) {
+		return QRFactorisation.create(A);
+	}
+
+	/**
+	 * Solves A.x = b for a square matrix A using a single precision LU factorisation with
+	 * iterative refinement in double precision, falling back to a double precision factorisation
+	 * if refinement stalls. The result reports the number of refinement iterations.
+	 * Returns null if A is singular.
+	 * 
+	 * @param A
+	 * @param b
+	 * @return
+	 */
+	public static IIterativeResult solveMixedPrecision(AMatrix A, AVector b) {
+		MixedPrecisionLU solver=MixedPrecisionLU.create(A);
+		if (solver==null) return null;
+		return solver.solve(b);
+	}
+
+	/**
+	 * Solves A.x = b for a symmetric positive definite matrix A using the conjugate gradient method.
+	 * Only requires matrix-vector products, so is suitable for large sparse matrices.
+	 * Returns null if the iteration does not converge.
+	 * 
+	 * @param A
+	 * @param b
+	 * @return
+	 */
+	public static AVector solveConjugateGradient(AMatrix A, AVector b) {
+		IIterativeResult r=new ConjugateGradient().solve(A, b);
+		return r.isConverged()?r.getSolution():null;
+	}
+	
+	/**
+	 * Solves A.x = b for a general square matrix A using the BiCGSTAB method.
+	 * Only requires matrix-vector products, so is suitable for large sparse matrices.
+	 * Returns null if the iteration does not converge.
+	 * 
+	 * @param A
+	 * @param b
+	 * @return
+	 */
+	public static AVector solveBiCGStab(AMatrix A, AVector b) {
+		IIterativeResult r=new BiCGStab().solve(A, b);
+		return r.isConverged()?r.getSolution():null;
+	}
+	
+	/**
+	 * Solves A.x = b for a general square matrix A using restarted GMRES.
+	 * Only requires matrix-vector products, so is suitable for large sparse matrices.
+	 * Returns null if the iteration does not converge.
+	 * 
+	 * @param A
+	 * @param b
+	 * @return
+	 */
+	public static AVector solveGMRES(AMatrix A, AVector b) {
+		IIterativeResult r=new GMRES().solve(A, b);
+		return r.isConverged()?r.getSolution():null;
+	}
 }
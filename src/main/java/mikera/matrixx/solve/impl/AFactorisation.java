@@ -0,0 +1,52 @@
+package mikera.matrixx.solve.impl;
+
+import mikera.matrixx.Matrix;
+import mikera.matrixx.algo.impl.PackedGemm;
+import mikera.matrixx.solve.IFactorisation;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+
+/**
+ * Base class for reusable factorisations. Right hand sides are solved in place as row major
+ * arrays, so a dense Vector or Matrix is used directly and any other vector is copied through
+ * a workspace array.
+ *
+ * @author Mike
+ *
+ */
+public abstract class AFactorisation implements IFactorisation {
+
+	// multiplication kernel for blocked triangular solves, with reusable packing buffers
+	protected final PackedGemm gemm=new PackedGemm();
+
+	private double[] vectorWork=new double[0];
+
+	@Override
+	public void solveInPlace(AVector b) {
+		int rc=rowCount();
+		if (b.length()!=rc) throw new IllegalArgumentException("Vector has wrong length: "+b.length());
+		if (b instanceof Vector) {
+			solveArray(((Vector)b).getArray(), 1);
+			return;
+		}
+		if (vectorWork.length<rc) vectorWork=new double[rc];
+		b.getElements(vectorWork, 0);
+		solveArray(vectorWork, 1);
+		b.setElements(vectorWork, 0);
+	}
+
+	@Override
+	public void solveInPlace(Matrix b) {
+		if (b.rowCount()!=rowCount()) throw new IllegalArgumentException("Matrix has wrong number of rows: "+b.rowCount());
+		int k=b.columnCount();
+		if (k==0) return;
+		solveArray(b.data, k);
+	}
+
+	/**
+	 * Solves in place for a row major array with one row for each row of the factorised matrix
+	 * @param b The right hand sides, overwritten with the solutions
+	 * @param k The number of right hand sides, which is also the row stride
+	 */
+	protected abstract void solveArray(double[] b, int k);
+}
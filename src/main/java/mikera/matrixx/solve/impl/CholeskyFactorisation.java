@@ -0,0 +1,51 @@
+package mikera.matrixx.solve.impl;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.decompose.ICholeskyResult;
+import mikera.matrixx.decompose.impl.chol.Cholesky;
+
+/**
+ * Reusable Cholesky factorisation of a symmetric positive definite matrix, A = L.L'
+ *
+ * Each solve performs forward substitution with L followed by back substitution with L', which
+ * reads the same factor by columns.
+ *
+ * @author Mike
+ *
+ */
+public class CholeskyFactorisation extends AFactorisation {
+	private final int n;
+	private final double[] l;
+
+	private CholeskyFactorisation(int n, double[] l) {
+		this.n=n;
+		this.l=l;
+	}
+
+	/**
+	 * Factorises a symmetric positive definite matrix. The matrix is not modified.
+	 * @param A
+	 * @return The factorisation, or null if A is not positive definite
+	 */
+	public static CholeskyFactorisation create(AMatrix A) {
+		ICholeskyResult r=Cholesky.decompose(A);
+		if (r==null) return null;
+		return new CholeskyFactorisation(A.rowCount(), r.getL().toMatrix().data);
+	}
+
+	@Override
+	public int rowCount() {
+		return n;
+	}
+
+	@Override
+	public int columnCount() {
+		return n;
+	}
+
+	@Override
+	protected void solveArray(double[] b, int k) {
+		TriangularSolver.solveLower(l, n, 1, false, n, b, k, k, gemm);
+		TriangularSolver.solveUpper(l, 1, n, n, b, k, k, gemm);
+	}
+}
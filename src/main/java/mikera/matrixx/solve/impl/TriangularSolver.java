@@ -18,6 +18,8 @@
 
 package mikera.matrixx.solve.impl;
 
+import mikera.matrixx.algo.impl.PackedGemm;
+
 /**
  * <p>
  * This contains algorithms for solving systems of equations where T is a
@@ -243,4 +245,199 @@ public class TriangularSolver {
 
         // todo comment out the above and optimize it
     }
+
+    // number of rows of the right hand side solved between each matrix multiply update
+    private static final int BLOCK_ROWS = 64;
+
+    // minimum number of right hand side columns for which the blocked update is used
+    private static final int BLOCK_MIN_COLS = 8;
+
+    /**
+     * <p>
+     * Solves for multiple right hand sides with a non-singular lower triangular matrix,
+     * using forward substitution:<br>
+     * <br>
+     * B = L<sup>-1</sup>B<br>
+     * </p>
+     * <p>
+     * L is given by its row and column strides, so a transposed upper triangular matrix
+     * can be used directly. Rows of B are solved in blocks, with the contribution of
+     * previously solved blocks subtracted by matrix multiplication.
+     * </p>
+     *
+     * @param L Array containing the n by n triangular matrix, starting at index 0. Not modified.
+     * @param rowStrideL Stride between rows of L
+     * @param colStrideL Stride between columns of L
+     * @param unitDiagonal If true the diagonal of L is taken to be one and is not read
+     * @param n The size of L
+     * @param B Row major n by k matrix, starting at index 0. Overwritten with the solution.
+     * @param strideB Stride between rows of B
+     * @param k The number of columns of B
+     * @param gemm Multiplication kernel, which holds reusable packing buffers
+     */
+    public static void solveLower( double []L , int rowStrideL , int colStrideL , boolean unitDiagonal , int n ,
+                                   double []B , int strideB , int k , PackedGemm gemm )
+    {
+        if( k < BLOCK_MIN_COLS ) {
+            solveLowerRows(L,rowStrideL,colStrideL,unitDiagonal,0,n,B,strideB,k);
+            return;
+        }
+        for( int i0 = 0; i0 < n; i0 += BLOCK_ROWS ) {
+            int ib = Math.min(BLOCK_ROWS,n-i0);
+            gemm.multiply(-1.0,ib,k,i0,
+                    L,i0*rowStrideL,rowStrideL,colStrideL,
+                    B,0,strideB,1,
+                    B,i0*strideB,strideB,1);
+            solveLowerRows(L,rowStrideL,colStrideL,unitDiagonal,i0,i0+ib,B,strideB,k);
+        }
+    }
+
+    /**
+     * <p>
+     * Solves for multiple right hand sides with a non-singular upper triangular matrix,
+     * using back substitution:<br>
+     * <br>
+     * B = U<sup>-1</sup>B<br>
+     * </p>
+     * <p>
+     * U is given by its row and column strides, so a transposed lower triangular matrix
+     * can be used directly.
+     * </p>
+     *
+     * @param U Array containing the n by n triangular matrix, starting at index 0. Not modified.
+     * @param rowStrideU Stride between rows of U
+     * @param colStrideU Stride between columns of U
+     * @param n The size of U
+     * @param B Row major n by k matrix, starting at index 0. Overwritten with the solution.
+     * @param strideB Stride between rows of B
+     * @param k The number of columns of B
+     * @param gemm Multiplication kernel, which holds reusable packing buffers
+     */
+    public static void solveUpper( double []U , int rowStrideU , int colStrideU , int n ,
+                                   double []B , int strideB , int k , PackedGemm gemm )
+    {
+        if( k < BLOCK_MIN_COLS ) {
+            solveUpperRows(U,rowStrideU,colStrideU,0,n,B,strideB,k);
+            return;
+        }
+        for( int i1 = n; i1 > 0; i1 -= BLOCK_ROWS ) {
+            int i0 = Math.max(0,i1-BLOCK_ROWS);
+            gemm.multiply(-1.0,i1-i0,k,n-i1,
+                    U,i0*rowStrideU+i1*colStrideU,rowStrideU,colStrideU,
+                    B,i1*strideB,strideB,1,
+                    B,i0*strideB,strideB,1);
+            solveUpperRows(U,rowStrideU,colStrideU,i0,i1,B,strideB,k);
+        }
+    }
+
+    /**
+     * Forward substitution for rows i0 to i1 of B, using only the diagonal block of L.
+     * Each row of B is updated as a whole, so the inner loop is contiguous. When L is
+     * stored by columns, solved rows are eliminated from the rows below them instead,
+     * so that L is read in storage order.
+     */
+    private static void solveLowerRows( double []L , int rowStrideL , int colStrideL , boolean unitDiagonal ,
+                                        int i0 , int i1 , double []B , int strideB , int k )
+    {
+        if( k == 1 && colStrideL == 1 ) {
+            for( int i = i0; i < i1; i++ ) {
+                double sum = B[i*strideB];
+                int indexL = i*rowStrideL + i0;
+                for( int p = i0; p < i; p++ ) {
+                    sum -= L[indexL++]*B[p*strideB];
+                }
+                B[i*strideB] = unitDiagonal ? sum : sum/L[indexL];
+            }
+            return;
+        }
+        if( colStrideL > rowStrideL ) {
+            for( int p = i0; p < i1; p++ ) {
+                int indexP = p*strideB;
+                if( !unitDiagonal ) {
+                    double d = L[p*rowStrideL + p*colStrideL];
+                    for( int j = 0; j < k; j++ ) {
+                        B[indexP+j] /= d;
+                    }
+                }
+                for( int i = p+1; i < i1; i++ ) {
+                    double l = L[i*rowStrideL + p*colStrideL];
+                    if( l == 0 ) continue;
+                    int indexB = i*strideB;
+                    for( int j = 0; j < k; j++ ) {
+                        B[indexB+j] -= l*B[indexP+j];
+                    }
+                }
+            }
+            return;
+        }
+        for( int i = i0; i < i1; i++ ) {
+            int indexB = i*strideB;
+            for( int p = i0; p < i; p++ ) {
+                double l = L[i*rowStrideL + p*colStrideL];
+                if( l == 0 ) continue;
+                int indexP = p*strideB;
+                for( int j = 0; j < k; j++ ) {
+                    B[indexB+j] -= l*B[indexP+j];
+                }
+            }
+            if( !unitDiagonal ) {
+                double d = L[i*rowStrideL + i*colStrideL];
+                for( int j = 0; j < k; j++ ) {
+                    B[indexB+j] /= d;
+                }
+            }
+        }
+    }
+
+    /**
+     * Back substitution for rows i0 to i1 of B, using only the diagonal block of U.
+     */
+    private static void solveUpperRows( double []U , int rowStrideU , int colStrideU ,
+                                        int i0 , int i1 , double []B , int strideB , int k )
+    {
+        if( k == 1 && colStrideU == 1 ) {
+            for( int i = i1-1; i >= i0; i-- ) {
+                double sum = B[i*strideB];
+                int indexU = i*rowStrideU + i+1;
+                for( int p = i+1; p < i1; p++ ) {
+                    sum -= U[indexU++]*B[p*strideB];
+                }
+                B[i*strideB] = sum/U[i*rowStrideU + i];
+            }
+            return;
+        }
+        if( colStrideU > rowStrideU ) {
+            for( int p = i1-1; p >= i0; p-- ) {
+                int indexP = p*strideB;
+                double d = U[p*rowStrideU + p*colStrideU];
+                for( int j = 0; j < k; j++ ) {
+                    B[indexP+j] /= d;
+                }
+                for( int i = i0; i < p; i++ ) {
+                    double u = U[i*rowStrideU + p*colStrideU];
+                    if( u == 0 ) continue;
+                    int indexB = i*strideB;
+                    for( int j = 0; j < k; j++ ) {
+                        B[indexB+j] -= u*B[indexP+j];
+                    }
+                }
+            }
+            return;
+        }
+        for( int i = i1-1; i >= i0; i-- ) {
+            int indexB = i*strideB;
+            for( int p = i+1; p < i1; p++ ) {
+                double u = U[i*rowStrideU + p*colStrideU];
+                if( u == 0 ) continue;
+                int indexP = p*strideB;
+                for( int j = 0; j < k; j++ ) {
+                    B[indexB+j] -= u*B[indexP+j];
+                }
+            }
+            double d = U[i*rowStrideU + i*colStrideU];
+            for( int j = 0; j < k; j++ ) {
+                B[indexB+j] /= d;
+            }
+        }
+    }
 }
@@ -0,0 +1,169 @@
+package mikera.matrixx.solve.impl.iterative;
+
+import mikera.matrixx.solve.IIterativeResult;
+import mikera.matrixx.solve.IPreconditioner;
+import mikera.transformz.ITransform;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+import mikera.vectorz.util.ErrorMessages;
+
+/**
+ * Abstract base class for iterative (Krylov subspace) solvers of A.x = b.
+ *
+ * The operator A is only accessed through ITransform.transform, so any matrix type, or any
+ * other square linear transform, can be used without forming the matrix explicitly.
+ *
+ * Work vectors are allocated on first use and reused by later solves of the same size, so
+ * a solver instance should be reused where possible. Instances are not thread safe.
+ *
+ * Iteration stops when ||b - A.x|| <= tolerance * ||b||, or when the iteration limit is reached.
+ *
+ * An optional preconditioner M can be set, in which case the solver works with M^-1 applied
+ * to the residual (conjugate gradient) or to the search directions (BiCGSTAB and GMRES, right
+ * preconditioning). The reported residual is always the true residual b - A.x of the original
+ * system, computed directly rather than taken from the updated residual of the recurrence.
+ *
+ * @author Mike
+ *
+ */
+public abstract class AIterativeSolver {
+	public static final double DEFAULT_TOLERANCE=1e-10;
+
+	protected double tolerance=DEFAULT_TOLERANCE;
+	protected int maxIterations=0;
+	protected IPreconditioner preconditioner=null;
+
+	private Vector[] work=new Vector[0];
+	private int workLength=-1;
+
+	/**
+	 * Sets the relative residual tolerance at which iteration stops
+	 * @param tolerance
+	 */
+	public void setTolerance(double tolerance) {
+		if (!(tolerance>=0.0)) throw new IllegalArgumentException("Invalid tolerance: "+tolerance);
+		this.tolerance=tolerance;
+	}
+
+	public double getTolerance() {
+		return tolerance;
+	}
+
+	/**
+	 * Sets the maximum number of iterations. A value of zero (the default) uses a
+	 * limit of ten times the system size.
+	 * @param maxIterations
+	 */
+	public void setMaxIterations(int maxIterations) {
+		if (maxIterations<0) throw new IllegalArgumentException("Invalid iteration limit: "+maxIterations);
+		this.maxIterations=maxIterations;
+	}
+
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	/**
+	 * Sets the preconditioner used by this solver, or null for no preconditioning
+	 * @param preconditioner
+	 */
+	public void setPreconditioner(IPreconditioner preconditioner) {
+		this.preconditioner=preconditioner;
+	}
+
+	public IPreconditioner getPreconditioner() {
+		return preconditioner;
+	}
+
+	protected int iterationLimit(int n) {
+		return (maxIterations>0)?maxIterations:Math.max(10*n, 100);
+	}
+
+	/**
+	 * Solves A.x = b starting from x = 0
+	 * @param A A square linear operator
+	 * @param b
+	 * @return
+	 */
+	public IIterativeResult solve(ITransform A, AVector b) {
+		return solve(A,b,Vector.createLength(b.length()));
+	}
+
+	/**
+	 * Solves A.x = b, using the given vector as the initial guess. The vector is
+	 * overwritten with the solution.
+	 *
+	 * @param A A square linear operator
+	 * @param b
+	 * @param x Initial guess, updated in place
+	 * @return
+	 */
+	public IIterativeResult solve(ITransform A, AVector b, AVector x) {
+		int n=A.inputDimensions();
+		if (A.outputDimensions()!=n) throw new IllegalArgumentException("Operator must be square but has shape "+A.outputDimensions()+"x"+n);
+		if (b.length()!=n) throw new IllegalArgumentException(ErrorMessages.wrongSourceLength(b));
+		if (x.length()!=n) throw new IllegalArgumentException(ErrorMessages.wrongDestLength(x));
+		if ((preconditioner!=null)&&(preconditioner.length()!=n)) throw new IllegalArgumentException("Preconditioner has size "+preconditioner.length()+" but system has size "+n);
+		ensureWork(n);
+
+		Vector xv=(x instanceof Vector)?(Vector)x:Vector.create(x);
+		double bNorm=b.magnitude();
+		IterativeResult result;
+		if (bNorm==0.0) {
+			xv.fill(0.0);
+			result=new IterativeResult(x,true,0,0.0,0.0);
+		} else {
+			result=iterate(A,b,xv,bNorm,iterationLimit(n));
+		}
+		if (xv!=x) x.set(xv);
+		return result;
+	}
+
+	/**
+	 * Performs the iteration. Implementations should compute the residual from the initial
+	 * value of x, and update x in place.
+	 */
+	protected abstract IterativeResult iterate(ITransform A, AVector b, Vector x, double bNorm, int maxIter);
+
+	/**
+	 * Returns the number of work vectors required by this solver
+	 */
+	protected abstract int workVectorCount();
+
+	private void ensureWork(int n) {
+		int count=workVectorCount();
+		if ((workLength==n)&&(work.length==count)) return;
+		work=new Vector[count];
+		for (int i=0; i<count; i++) {
+			work[i]=Vector.createLength(n);
+		}
+		workLength=n;
+	}
+
+	/**
+	 * Gets a reusable work vector of the current system size
+	 */
+	protected Vector work(int i) {
+		return work[i];
+	}
+
+	/**
+	 * Computes dest = M^-1 . source using the current preconditioner, or copies source
+	 * to dest if there is no preconditioner
+	 */
+	protected void precondition(AVector source, Vector dest) {
+		if (preconditioner==null) {
+			if (dest!=source) dest.set(source);
+		} else {
+			preconditioner.apply(source, dest);
+		}
+	}
+
+	/**
+	 * Computes r = b - A.x
+	 */
+	protected static void residual(ITransform A, AVector b, Vector x, Vector r) {
+		A.transform(x, r);
+		r.scaleAdd(-1.0, b, 1.0, 0.0);
+	}
+}
@@ -0,0 +1,107 @@
+package mikera.matrixx.solve.impl.iterative;
+
+import mikera.transformz.ITransform;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+
+/**
+ * Stabilised bi-conjugate gradient (BiCGSTAB) solver for general non-symmetric systems.
+ *
+ * Requires two operator applications per iteration and uses a fixed amount of memory,
+ * unlike GMRES. Convergence may be irregular, and the method can break down if the
+ * shadow residual becomes orthogonal to the residual, in which case non-convergence
+ * is reported.
+ *
+ * Preconditioning is applied from the right, so the residual monitored is that of the
+ * original system.
+ *
+ * @author Mike
+ *
+ */
+public class BiCGStab extends AIterativeSolver {
+
+	private static final int R=0;
+	private static final int RHAT=1;
+	private static final int P=2;
+	private static final int V=3;
+	private static final int T=4;
+	private static final int PHAT=5;
+	private static final int SHAT=6;
+
+	@Override
+	protected int workVectorCount() {
+		return (preconditioner==null)?5:7;
+	}
+
+	@Override
+	protected IterativeResult iterate(ITransform A, AVector b, Vector x, double bNorm, int maxIter) {
+		Vector r=work(R);
+		Vector rhat=work(RHAT);
+		Vector p=work(P);
+		Vector v=work(V);
+		Vector t=work(T);
+		// preconditioned directions, alias p and s when there is no preconditioner
+		boolean pre=(preconditioner!=null);
+		Vector phat=pre?work(PHAT):p;
+		Vector shat=pre?work(SHAT):r;
+		double target=tolerance*bNorm;
+
+		residual(A,b,x,r);
+		double rNorm=r.magnitude();
+		double rho=1.0, alpha=1.0, omega=1.0;
+		boolean exact=true; // r holds b - A.x computed directly
+		int iterations=0;
+		while ((rNorm>target)&&(iterations<maxIter)) {
+			if (exact) {
+				// (re)start the shadow residual and directions from the true residual
+				rhat.set(r);
+				p.fill(0.0);
+				v.fill(0.0);
+				rho=1.0; alpha=1.0; omega=1.0;
+				exact=false;
+			}
+			double rhoNew=rhat.dotProduct(r);
+			if (rhoNew==0.0) break;
+			double beta=(rhoNew/rho)*(alpha/omega);
+			// p = r + beta * (p - omega * v)
+			p.addMultiple(v, -omega);
+			p.scaleAdd(beta, r, 1.0, 0.0);
+			precondition(p,phat);
+			A.transform(phat, v);
+			double rv=rhat.dotProduct(v);
+			if (rv==0.0) break;
+			alpha=rhoNew/rv;
+			// r now holds s = r - alpha * v
+			r.addMultiple(v, -alpha);
+			iterations++;
+			double sNorm=r.magnitude();
+			if (sNorm<=target) {
+				x.addMultiple(phat, alpha);
+				rNorm=sNorm;
+			} else {
+				precondition(r,shat);
+				A.transform(shat, t);
+				double tt=t.dotProduct(t);
+				omega=(tt==0.0)?0.0:t.dotProduct(r)/tt;
+				x.addMultiple(phat, alpha);
+				x.addMultiple(shat, omega);
+				r.addMultiple(t, -omega);
+				rNorm=r.magnitude();
+				rho=rhoNew;
+				if (omega==0.0) break;
+			}
+			if (rNorm<=target) {
+				// the updated residual can drift from b - A.x in floating point, so confirm
+				// convergence against the true residual and restart from it if necessary
+				residual(A,b,x,r);
+				rNorm=r.magnitude();
+				exact=true;
+			}
+		}
+		if (!exact) {
+			residual(A,b,x,r);
+			rNorm=r.magnitude();
+		}
+		return new IterativeResult(x,rNorm<=target,iterations,rNorm,bNorm);
+	}
+}
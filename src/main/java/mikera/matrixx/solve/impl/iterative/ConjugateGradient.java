@@ -0,0 +1,83 @@
+package mikera.matrixx.solve.impl.iterative;
+
+import mikera.transformz.ITransform;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+
+/**
+ * Conjugate gradient solver for symmetric positive definite systems.
+ *
+ * Requires one operator application and two dot products per iteration. If a
+ * direction of non-positive curvature is found (so the operator is not positive
+ * definite) the solver stops and reports non-convergence.
+ *
+ * If a preconditioner is set it must also be symmetric positive definite.
+ *
+ * Convergence of the updated residual is confirmed against the true residual b - A.x,
+ * restarting from the true residual if rounding has made the two drift apart.
+ *
+ * @author Mike
+ *
+ */
+public class ConjugateGradient extends AIterativeSolver {
+
+	private static final int R=0;
+	private static final int P=1;
+	private static final int AP=2;
+	private static final int Z=3;
+
+	@Override
+	protected int workVectorCount() {
+		return (preconditioner==null)?3:4;
+	}
+
+	@Override
+	protected IterativeResult iterate(ITransform A, AVector b, Vector x, double bNorm, int maxIter) {
+		Vector r=work(R);
+		Vector p=work(P);
+		Vector ap=work(AP);
+		// preconditioned residual, aliases r when there is no preconditioner
+		Vector z=(preconditioner==null)?r:work(Z);
+		double target=tolerance*bNorm;
+
+		residual(A,b,x,r);
+		double rNorm=r.magnitude();
+		double rz=0.0;
+		boolean exact=true; // r holds b - A.x computed directly
+		int iterations=0;
+		while ((rNorm>target)&&(iterations<maxIter)) {
+			if (exact) {
+				// (re)start the search directions from the true residual
+				precondition(r,z);
+				p.set(z);
+				rz=r.dotProduct(z);
+				exact=false;
+			}
+			A.transform(p, ap);
+			double pap=p.dotProduct(ap);
+			if (!(pap>0.0)) break; // not positive definite, or numerical breakdown
+			double alpha=rz/pap;
+			x.addMultiple(p, alpha);
+			r.addMultiple(ap, -alpha);
+			precondition(r,z);
+			double rzNew=r.dotProduct(z);
+			p.scaleAdd(rzNew/rz, z, 1.0, 0.0);
+			rz=rzNew;
+			rNorm=(z==r)?Math.sqrt(rz):r.magnitude();
+			iterations++;
+			if (!(rz>0.0)) break; // preconditioner not positive definite
+			if (rNorm<=target) {
+				// the updated residual can drift from b - A.x in floating point, so confirm
+				// convergence against the true residual and restart from it if necessary
+				residual(A,b,x,r);
+				rNorm=r.magnitude();
+				exact=true;
+			}
+		}
+		if (!exact) {
+			residual(A,b,x,r);
+			rNorm=r.magnitude();
+		}
+		return new IterativeResult(x,rNorm<=target,iterations,rNorm,bNorm);
+	}
+}
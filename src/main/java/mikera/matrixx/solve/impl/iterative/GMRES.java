@@ -0,0 +1,163 @@
+package mikera.matrixx.solve.impl.iterative;
+
+import java.util.Arrays;
+
+import mikera.transformz.ITransform;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+
+/**
+ * Restarted GMRES(m) solver for general non-symmetric systems.
+ *
+ * Builds an orthonormal Krylov basis of up to m vectors using modified Gram-Schmidt,
+ * and minimises the residual over that subspace using Givens rotations on the
+ * Hessenberg matrix. The iteration is restarted from the current solution after m
+ * steps, which bounds memory at m+1 vectors of the system size.
+ *
+ * Each iteration requires one operator application. Preconditioning is applied from the
+ * right, so the minimised residual is that of the original system.
+ *
+ * @author Mike
+ *
+ */
+public class GMRES extends AIterativeSolver {
+	public static final int DEFAULT_RESTART=30;
+
+	private final int restart;
+
+	// Hessenberg matrix, stored column-major with (restart+1) rows
+	private final double[] h;
+	private final double[] cs;
+	private final double[] sn;
+	private final double[] g;
+	private final double[] y;
+
+	public GMRES() {
+		this(DEFAULT_RESTART);
+	}
+
+	/**
+	 * Creates a GMRES solver that restarts after the given number of iterations
+	 * @param restart
+	 */
+	public GMRES(int restart) {
+		if (restart<1) throw new IllegalArgumentException("Invalid restart length: "+restart);
+		this.restart=restart;
+		h=new double[(restart+1)*restart];
+		cs=new double[restart];
+		sn=new double[restart];
+		g=new double[restart+1];
+		y=new double[restart];
+	}
+
+	public int getRestart() {
+		return restart;
+	}
+
+	@Override
+	protected int workVectorCount() {
+		// Krylov basis plus one vector for the residual / operator output, and one
+		// for preconditioned basis vectors if required
+		return (preconditioner==null)?restart+2:restart+3;
+	}
+
+	@Override
+	protected IterativeResult iterate(ITransform A, AVector b, Vector x, double bNorm, int maxIter) {
+		int m=restart;
+		int ld=m+1;
+		Vector w=work(m+1);
+		Vector z=(preconditioner==null)?null:work(m+2);
+		double target=tolerance*bNorm;
+		int iterations=0;
+
+		while (true) {
+			residual(A,b,x,w);
+			double beta=w.magnitude();
+			if ((beta<=target)||(iterations>=maxIter)) {
+				return new IterativeResult(x,beta<=target,iterations,beta,bNorm);
+			}
+
+			Vector v0=work(0);
+			v0.set(w);
+			v0.multiply(1.0/beta);
+			Arrays.fill(g, 0.0);
+			g[0]=beta;
+
+			int k=0;
+			while ((k<m)&&(iterations<maxIter)) {
+				int j=k;
+				iterations++;
+				if (z==null) {
+					A.transform(work(j), w);
+				} else {
+					precondition(work(j),z);
+					A.transform(z, w);
+				}
+				int hc=j*ld;
+				for (int i=0; i<=j; i++) {
+					Vector vi=work(i);
+					double hij=w.dotProduct(vi);
+					h[hc+i]=hij;
+					w.addMultiple(vi, -hij);
+				}
+				double hNext=w.magnitude();
+				h[hc+j+1]=hNext;
+				if (hNext!=0.0) {
+					Vector vn=work(j+1);
+					vn.set(w);
+					vn.multiply(1.0/hNext);
+				}
+
+				// apply previous rotations to the new column
+				for (int i=0; i<j; i++) {
+					double a=h[hc+i];
+					double c=h[hc+i+1];
+					h[hc+i]=cs[i]*a+sn[i]*c;
+					h[hc+i+1]=-sn[i]*a+cs[i]*c;
+				}
+				// compute a new rotation to eliminate the sub-diagonal element
+				double a=h[hc+j];
+				double c=h[hc+j+1];
+				double d=Math.hypot(a, c);
+				if (d==0.0) {
+					cs[j]=1.0;
+					sn[j]=0.0;
+				} else {
+					cs[j]=a/d;
+					sn[j]=c/d;
+				}
+				h[hc+j]=d;
+				h[hc+j+1]=0.0;
+				g[j+1]=-sn[j]*g[j];
+				g[j]=cs[j]*g[j];
+				k=j+1;
+
+				// stop early on convergence, or if the Krylov space is exhausted
+				if ((Math.abs(g[k])<=target)||(hNext==0.0)) break;
+			}
+
+			// solve the upper triangular system H.y = g and update x
+			for (int i=k-1; i>=0; i--) {
+				double s=g[i];
+				for (int l=i+1; l<k; l++) {
+					s-=h[l*ld+i]*y[l];
+				}
+				double hii=h[i*ld+i];
+				y[i]=(hii==0.0)?0.0:s/hii;
+			}
+			if (z==null) {
+				for (int i=0; i<k; i++) {
+					x.addMultiple(work(i), y[i]);
+				}
+			} else {
+				// x += M^-1 . (V.y)
+				w.fill(0.0);
+				for (int i=0; i<k; i++) {
+					w.addMultiple(work(i), y[i]);
+				}
+				precondition(w,z);
+				x.add(z);
+			}
+		}
+	}
+}
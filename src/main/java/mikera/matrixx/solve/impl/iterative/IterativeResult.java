@@ -0,0 +1,51 @@
+package mikera.matrixx.solve.impl.iterative;
+
+import mikera.matrixx.solve.IIterativeResult;
+import mikera.vectorz.AVector;
+
+public class IterativeResult implements IIterativeResult {
+
+	private final AVector solution;
+	private final boolean converged;
+	private final int iterations;
+	private final double residualNorm;
+	private final double bNorm;
+
+	public IterativeResult(AVector solution, boolean converged, int iterations, double residualNorm, double bNorm) {
+		this.solution=solution;
+		this.converged=converged;
+		this.iterations=iterations;
+		this.residualNorm=residualNorm;
+		this.bNorm=bNorm;
+	}
+
+	@Override
+	public AVector getSolution() {
+		return solution;
+	}
+
+	@Override
+	public boolean isConverged() {
+		return converged;
+	}
+
+	@Override
+	public int getIterations() {
+		return iterations;
+	}
+
+	@Override
+	public double getResidualNorm() {
+		return residualNorm;
+	}
+
+	@Override
+	public double getRelativeResidual() {
+		return (bNorm==0.0)?residualNorm:residualNorm/bNorm;
+	}
+
+	@Override
+	public String toString() {
+		return "IterativeResult{converged="+converged+", iterations="+iterations+", relativeResidual="+getRelativeResidual()+"}";
+	}
+}
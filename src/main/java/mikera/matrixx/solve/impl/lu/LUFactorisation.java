@@ -0,0 +1,69 @@
+package mikera.matrixx.solve.impl.lu;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.decompose.impl.lu.AltLU;
+import mikera.matrixx.decompose.impl.lu.BlockedLU;
+import mikera.matrixx.solve.impl.AFactorisation;
+import mikera.matrixx.solve.impl.TriangularSolver;
+
+/**
+ * Reusable LU factorisation with partial pivoting of a square matrix, P.A = L.U
+ *
+ * Each solve applies the row interchanges to the right hand sides and then performs forward and
+ * back substitution with the packed L and U factors.
+ *
+ * @author Mike
+ *
+ */
+public class LUFactorisation extends AFactorisation {
+	private final int n;
+	private final double[] lu;
+	private final int[] indx;
+
+	private LUFactorisation(int n, double[] lu, int[] indx) {
+		this.n=n;
+		this.lu=lu;
+		this.indx=indx;
+	}
+
+	/**
+	 * Factorises a square matrix. The matrix is not modified.
+	 * @param A
+	 * @return The factorisation, or null if A is singular
+	 */
+	public static LUFactorisation create(AMatrix A) {
+		if (!A.isSquare()) throw new IllegalArgumentException("Input must be a square matrix.");
+		int n=A.rowCount();
+		AltLU decomp=BlockedLU.create(n, n);
+		decomp._decompose(A);
+		if (decomp.isSingular()) return null;
+		return new LUFactorisation(n, decomp.getLU().toMatrix().data, decomp.getIndx());
+	}
+
+	@Override
+	public int rowCount() {
+		return n;
+	}
+
+	@Override
+	public int columnCount() {
+		return n;
+	}
+
+	@Override
+	protected void solveArray(double[] b, int k) {
+		for (int i=0; i<n; i++) {
+			int p=indx[i];
+			if (p==i) continue;
+			int ri=i*k;
+			int rp=p*k;
+			for (int j=0; j<k; j++) {
+				double t=b[ri+j];
+				b[ri+j]=b[rp+j];
+				b[rp+j]=t;
+			}
+		}
+		TriangularSolver.solveLower(lu, n, 1, true, n, b, k, k, gemm);
+		TriangularSolver.solveUpper(lu, n, 1, n, b, k, k, gemm);
+	}
+}
@@ -21,6 +21,7 @@ package mikera.matrixx.solve.impl.lu;
 import mikera.matrixx.AMatrix;
 import mikera.matrixx.Matrix;
 import mikera.matrixx.decompose.impl.lu.AltLU;
+import mikera.matrixx.decompose.impl.lu.BlockedLU;
 import mikera.matrixx.decompose.impl.lu.LUPResult;
 import mikera.matrixx.impl.ADenseArrayMatrix;
 
@@ -53,7 +54,7 @@ public class LUSolver {
         this.A = A;
         this.numRows = A.rowCount();
         this.numCols = A.columnCount();
-        decomp = new AltLU();
+        decomp = BlockedLU.create(numRows, numCols);
         result = decomp._decompose(A);
         return result;
     }
@@ -0,0 +1,381 @@
+package mikera.matrixx.solve.impl.lu;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.algo.Multiplications;
+import mikera.matrixx.solve.IIterativeResult;
+import mikera.matrixx.solve.impl.iterative.IterativeResult;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+import mikera.vectorz.util.ErrorMessages;
+
+/**
+ * Mixed precision solver for square systems A.x = b.
+ *
+ * A is factorised with partial pivoting in single precision storage, which needs half the memory
+ * of a double precision factorisation and has twice as many elements per vector operation in the
+ * trailing updates. Each solve then performs iterative refinement: the residual b - A.x is
+ * computed in double precision against the original matrix, and a correction is found with the
+ * single precision factors. This recovers double precision accuracy for systems which are not
+ * too badly conditioned (condition number well below 1e8).
+ *
+ * If refinement stalls, or the single precision factorisation breaks down, the matrix is
+ * factorised again in double precision and that factorisation is used for this and all later
+ * solves. The number of refinement iterations performed is reported in the result of each solve.
+ * If the double precision factorisation shows that A is singular, this and all later solves
+ * return null.
+ *
+ * Instances hold work vectors, so should not be used from several threads at once.
+ *
+ * @author Mike
+ *
+ */
+public class MixedPrecisionLU {
+	// maximum number of refinement iterations before falling back to double precision
+	public static final int MAX_REFINEMENTS=30;
+
+	// width of each panel of columns in the factorisation
+	private static final int BLOCK_WIDTH=64;
+
+	// number of columns of the trailing matrix updated together, so that the block row of U stays in cache
+	private static final int UPDATE_COLUMNS=512;
+
+	// minimum number of rows updated by each parallel task
+	private static final int UPDATE_ROWS=32;
+
+	// target number of multiply-add operations performed by each parallel task
+	private static final long TASK_TARGET=1L<<22;
+
+	private final AMatrix a;
+	private final int n;
+
+	// single precision factors, or null after falling back to double precision
+	private float[] lu;
+	private int[] indx;
+
+	private LUFactorisation doubleLU=null;
+
+	// true if the double precision factorisation found A to be singular
+	private boolean singular=false;
+
+	// residual scale for the stopping test, ||A||inf * eps * sqrt(n)
+	private final double cte;
+
+	private final Vector r;
+	private final double[] d;
+
+	private MixedPrecisionLU(AMatrix a, float[] lu, int[] indx, double cte) {
+		this.a=a;
+		this.n=a.rowCount();
+		this.lu=lu;
+		this.indx=indx;
+		this.cte=cte;
+		this.r=Vector.createLength(n);
+		this.d=new double[n];
+	}
+
+	/**
+	 * Factorises a square matrix. The matrix is retained for computing residuals, so it should
+	 * not be modified while this solver is in use.
+	 *
+	 * @param A
+	 * @return The solver, or null if A is singular
+	 */
+	public static MixedPrecisionLU create(AMatrix A) {
+		if (!A.isSquare()) throw new IllegalArgumentException("Input must be a square matrix.");
+		int n=A.rowCount();
+		float[] lu=new float[n*n];
+		double[] row=new double[n];
+		double anrm=0.0;
+		boolean finite=true;
+		for (int i=0; i<n; i++) {
+			A.getRow(i).getElements(row, 0);
+			int ri=i*n;
+			double sum=0.0;
+			for (int j=0; j<n; j++) {
+				double v=row[j];
+				sum+=Math.abs(v);
+				float f=(float)v;
+				if (Float.isInfinite(f)) finite=false;
+				lu[ri+j]=f;
+			}
+			anrm=Math.max(anrm, sum);
+		}
+		double cte=anrm*Math.ulp(1.0)*Math.sqrt(n);
+		int[] indx=new int[n];
+		MixedPrecisionLU solver=new MixedPrecisionLU(A, lu, indx, cte);
+		if (!finite||!factor(lu, n, indx)) {
+			if (!solver.fallBack()) return null;
+		}
+		return solver;
+	}
+
+	/**
+	 * Returns true if this solver has fallen back to a double precision factorisation
+	 * @return
+	 */
+	public boolean isDoublePrecision() {
+		return doubleLU!=null;
+	}
+
+	/**
+	 * Returns true if A has been found to be singular, in which case solves return null
+	 * @return
+	 */
+	public boolean isSingular() {
+		return singular;
+	}
+
+	/**
+	 * Solves A.x = b
+	 * @param b
+	 * @return The result, containing the solution and the number of refinement iterations, or
+	 * null if A is singular
+	 */
+	public IIterativeResult solve(AVector b) {
+		if (b.length()!=n) throw new IllegalArgumentException(ErrorMessages.wrongSourceLength(b));
+		if (singular) return null;
+		Vector x=Vector.create(b);
+		double bNorm=b.magnitude();
+		if (doubleLU!=null) return solveDouble(b, x, 0, bNorm);
+
+		// initial solution from the single precision factors
+		solveFactored(x.getArray());
+
+		double previous=Double.POSITIVE_INFINITY;
+		int iterations=0;
+		while (true) {
+			residual(b, x);
+			double rNorm=r.maxAbsElement();
+			if (rNorm<=x.maxAbsElement()*cte) {
+				return new IterativeResult(x, true, iterations, r.magnitude(), bNorm);
+			}
+			// stop if the residual is not at least halved, or the iteration limit is reached
+			if (!(rNorm<=0.5*previous)||(iterations==MAX_REFINEMENTS)) break;
+			previous=rNorm;
+			iterations++;
+
+			// x = x + A^-1.r using the single precision factors
+			double[] rd=r.getArray();
+			System.arraycopy(rd, 0, d, 0, n);
+			solveFactored(d);
+			x.add(d, 0);
+		}
+
+		if (!fallBack()) return null;
+		return solveDouble(b, x, iterations, bNorm);
+	}
+
+	private IIterativeResult solveDouble(AVector b, Vector x, int iterations, double bNorm) {
+		x.set(b);
+		doubleLU.solveInPlace(x);
+		residual(b, x);
+		return new IterativeResult(x, true, iterations, r.magnitude(), bNorm);
+	}
+
+	/**
+	 * Replaces the single precision factors with a double precision factorisation
+	 * @return false if the matrix is singular, in which case the solver is marked as singular
+	 */
+	private boolean fallBack() {
+		doubleLU=LUFactorisation.create(a);
+		lu=null;
+		indx=null;
+		if (doubleLU==null) singular=true;
+		return !singular;
+	}
+
+	/**
+	 * Computes r = b - A.x
+	 */
+	private void residual(AVector b, Vector x) {
+		a.transform(x, r);
+		r.scaleAdd(-1.0, b, 1.0, 0.0);
+	}
+
+	/**
+	 * Solves in place with the single precision factors, accumulating in double precision
+	 */
+	private void solveFactored(double[] v) {
+		float[] f=lu;
+		for (int i=0; i<n; i++) {
+			int p=indx[i];
+			if (p!=i) {
+				double t=v[i];
+				v[i]=v[p];
+				v[p]=t;
+			}
+		}
+		for (int i=1; i<n; i++) {
+			int ri=i*n;
+			double sum=v[i];
+			for (int j=0; j<i; j++) sum-=f[ri+j]*v[j];
+			v[i]=sum;
+		}
+		for (int i=n-1; i>=0; i--) {
+			int ri=i*n;
+			double sum=v[i];
+			for (int j=i+1; j<n; j++) sum-=f[ri+j]*v[j];
+			v[i]=sum/f[ri+i];
+		}
+	}
+
+	/**
+	 * Factorises a row major matrix in place with partial pivoting, using a blocked right
+	 * looking algorithm. Row interchanges are recorded in indx as in LAPACK.
+	 *
+	 * @return false if a zero or non-finite pivot is found
+	 */
+	private static boolean factor(float[] lu, int n, int[] indx) {
+		// copy of the current block row of U, split into chunks of columns. Every array used in the
+		// update loops is indexed from zero, which the JIT compiler needs in order to vectorise them.
+		int chunks=Math.max(0, (n-BLOCK_WIDTH+UPDATE_COLUMNS-1)/UPDATE_COLUMNS);
+		float[][][] u=new float[chunks][Math.min(BLOCK_WIDTH, n)][UPDATE_COLUMNS];
+		for (int k0=0; k0<n; k0+=BLOCK_WIDTH) {
+			int kb=Math.min(BLOCK_WIDTH, n-k0);
+			int e=k0+kb;
+			if (!factorPanel(lu, n, indx, k0, e)) return false;
+			if (e==n) break;
+
+			// U12 = L11^-1 . A12
+			for (int i=k0+1; i<e; i++) {
+				int ri=i*n;
+				for (int p=k0; p<i; p++) {
+					float l=lu[ri+p];
+					if (l==0.0f) continue;
+					int rp=p*n;
+					for (int j=e; j<n; j++) lu[ri+j]-=l*lu[rp+j];
+				}
+			}
+
+			int w=n-e;
+			for (int p=0; p<kb; p++) {
+				int rp=(k0+p)*n+e;
+				for (int c=0; c*UPDATE_COLUMNS<w; c++) {
+					int jc=c*UPDATE_COLUMNS;
+					System.arraycopy(lu, rp+jc, u[c][p], 0, Math.min(UPDATE_COLUMNS, w-jc));
+				}
+			}
+
+			// A22 = A22 - L21.U12
+			long ops=((long)w)*w*kb;
+			UpdateTask task=new UpdateTask(lu, u, n, k0, kb, e, n);
+			if ((ops>=Multiplications.getParallelThreshold())&&(ForkJoinPool.getCommonPoolParallelism()>1)) {
+				ForkJoinPool.commonPool().invoke(task);
+			} else {
+				task.invoke();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Factorises the panel of columns [k0,e) below row k0, applying each row interchange across
+	 * the full width of the matrix
+	 */
+	private static boolean factorPanel(float[] lu, int n, int[] indx, int k0, int e) {
+		for (int j=k0; j<e; j++) {
+			int p=j;
+			float max=Math.abs(lu[j*n+j]);
+			for (int i=j+1; i<n; i++) {
+				float v=Math.abs(lu[i*n+j]);
+				if (v>max) {
+					p=i;
+					max=v;
+				}
+			}
+			if (!(max>0.0f)||Float.isInfinite(max)) return false;
+			indx[j]=p;
+			if (p!=j) {
+				int rp=p*n;
+				int rj=j*n;
+				for (int c=0; c<n; c++) {
+					float t=lu[rp+c];
+					lu[rp+c]=lu[rj+c];
+					lu[rj+c]=t;
+				}
+			}
+
+			int rj=j*n;
+			float inv=1.0f/lu[rj+j];
+			for (int i=j+1; i<n; i++) {
+				int ri=i*n;
+				float l=(lu[ri+j]*=inv);
+				if (l==0.0f) continue;
+				for (int c=j+1; c<e; c++) lu[ri+c]-=l*lu[rj+c];
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Computes rows [start,end) of A22 = A22 - L21.U12, for the panel of kb columns at k0
+	 */
+	@SuppressWarnings("serial")
+	private static final class UpdateTask extends RecursiveAction {
+		private final float[] lu;
+		private final float[][][] u;
+		private final int n, k0, kb, start, end;
+
+		UpdateTask(float[] lu, float[][][] u, int n, int k0, int kb, int start, int end) {
+			this.lu=lu;
+			this.u=u;
+			this.n=n;
+			this.k0=k0;
+			this.kb=kb;
+			this.start=start;
+			this.end=end;
+		}
+
+		@Override
+		protected void compute() {
+			int rows=end-start;
+			int e=k0+kb;
+			long ops=((long)rows)*(n-e)*kb;
+			if (inForkJoinPool()&&(rows>=2*UPDATE_ROWS)&&(ops>TASK_TARGET)) {
+				int mid=(start+end)>>>1;
+				invokeAll(new UpdateTask(lu, u, n, k0, kb, start, mid), new UpdateTask(lu, u, n, k0, kb, mid, end));
+			} else {
+				update(e);
+			}
+		}
+
+		private void update(int e) {
+			int w=n-e;
+			float[] acc=new float[UPDATE_COLUMNS];
+			for (int c=0; c*UPDATE_COLUMNS<w; c++) {
+				int jc=c*UPDATE_COLUMNS;
+				int jw=Math.min(UPDATE_COLUMNS, w-jc);
+				float[][] uc=u[c];
+				for (int i=start; i<end; i++) {
+					int ri=i*n+e+jc;
+					int li=i*n+k0;
+					System.arraycopy(lu, ri, acc, 0, jw);
+					int p=0;
+					// four rows of U12 at a time, to reduce loads and stores of the accumulated row
+					for (; p+4<=kb; p+=4) {
+						float l0=lu[li+p];
+						float l1=lu[li+p+1];
+						float l2=lu[li+p+2];
+						float l3=lu[li+p+3];
+						float[] u0=uc[p];
+						float[] u1=uc[p+1];
+						float[] u2=uc[p+2];
+						float[] u3=uc[p+3];
+						for (int j=0; j<jw; j++) {
+							acc[j]-=l0*u0[j]+l1*u1[j]+l2*u2[j]+l3*u3[j];
+						}
+					}
+					for (; p<kb; p++) {
+						float l=lu[li+p];
+						float[] up=uc[p];
+						for (int j=0; j<jw; j++) acc[j]-=l*up[j];
+					}
+					System.arraycopy(acc, 0, lu, ri, jw);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package mikera.matrixx.solve.impl.preconditioner;
+
+import java.util.Arrays;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.impl.CSRMatrix;
+import mikera.matrixx.solve.IPreconditioner;
+import mikera.vectorz.AVector;
+import mikera.vectorz.util.ErrorMessages;
+
+/**
+ * Abstract base class for preconditioners that work on a copy of the sparse row structure
+ * of the system matrix, such as SSOR and incomplete factorisations.
+ *
+ * The matrix is converted to compressed sparse row arrays without densifying. Sparse row and
+ * column matrices are read directly from their non-zero elements. Every row must contain a
+ * diagonal element.
+ *
+ * Application copies the source vector into an internal work array, solves in place and copies
+ * the result to the destination, so no memory is allocated after construction.
+ *
+ * @author Mike
+ *
+ */
+public abstract class ASparsePreconditioner implements IPreconditioner {
+	protected final int n;
+	protected final int[] rowPtr;
+	protected final int[] colIdx;
+	protected final double[] values;
+
+	// position of the diagonal element within each row
+	protected final int[] diag;
+
+	private final double[] work;
+
+	protected ASparsePreconditioner(AMatrix a) {
+		n=a.checkSquare();
+		CSRMatrix m=(a instanceof CSRMatrix)?(CSRMatrix)a:CSRMatrix.create(a);
+		int nnz=m.storedElementCount();
+		rowPtr=m.getRowPointers().clone();
+		colIdx=Arrays.copyOf(m.getColumnIndexes(), nnz);
+		values=Arrays.copyOf(m.getValues(), nnz);
+		diag=new int[n];
+		for (int i=0; i<n; i++) {
+			int p=Arrays.binarySearch(colIdx, rowPtr[i], rowPtr[i+1], i);
+			if ((p<0)||(values[p]==0.0)) throw new IllegalArgumentException("Zero diagonal element at row "+i+": "+ErrorMessages.singularMatrix());
+			diag[i]=p;
+		}
+		work=new double[n];
+	}
+
+	@Override
+	public final void apply(AVector source, AVector dest) {
+		if (source.length()!=n) throw new IllegalArgumentException(ErrorMessages.wrongSourceLength(source));
+		if (dest.length()!=n) throw new IllegalArgumentException(ErrorMessages.wrongDestLength(dest));
+		double[] x=work;
+		source.getElements(x, 0);
+		solve(x);
+		dest.setElements(x, 0);
+	}
+
+	/**
+	 * Applies the inverse of the preconditioner to the vector x in place
+	 * @param x
+	 */
+	protected abstract void solve(double[] x);
+
+	@Override
+	public int length() {
+		return n;
+	}
+
+	/**
+	 * Solves L.x = b in place, where L is the strictly lower part of the stored factor with a unit diagonal
+	 */
+	protected final void solveUnitLower(double[] x) {
+		for (int i=0; i<n; i++) {
+			double s=x[i];
+			for (int p=rowPtr[i]; p<diag[i]; p++) {
+				s-=values[p]*x[colIdx[p]];
+			}
+			x[i]=s;
+		}
+	}
+
+	/**
+	 * Solves U.x = b in place, where U is the upper part of the stored factor including the diagonal
+	 */
+	protected final void solveUpper(double[] x) {
+		for (int i=n-1; i>=0; i--) {
+			double s=x[i];
+			int d=diag[i];
+			for (int p=d+1; p<rowPtr[i+1]; p++) {
+				s-=values[p]*x[colIdx[p]];
+			}
+			x[i]=s/values[d];
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package mikera.matrixx.solve.impl.preconditioner;
+
+import java.util.Arrays;
+
+import mikera.matrixx.AMatrix;
+
+/**
+ * Incomplete Cholesky preconditioner with zero fill-in, IC(0).
+ *
+ * Computes a lower triangular factor L restricted to the lower sparsity pattern of a symmetric
+ * positive definite matrix A, so that L.L^T approximates A. The preconditioner is itself
+ * symmetric positive definite, so can be used with conjugate gradient.
+ *
+ * Only the lower triangle of A is read. Incomplete factorisation may break down even for
+ * positive definite matrices, in which case an IllegalArgumentException is thrown.
+ *
+ * @author Mike
+ *
+ */
+public class IC0Preconditioner extends ASparsePreconditioner {
+
+	public IC0Preconditioner(AMatrix a) {
+		super(a);
+		factor();
+	}
+
+	public static IC0Preconditioner create(AMatrix a) {
+		return new IC0Preconditioner(a);
+	}
+
+	private void factor() {
+		// maps column index to position in the current row, or -1 if not present
+		int[] pos=new int[n];
+		Arrays.fill(pos, -1);
+		for (int i=0; i<n; i++) {
+			int start=rowPtr[i];
+			int d=diag[i];
+			for (int p=start; p<d; p++) {
+				pos[colIdx[p]]=p;
+			}
+			// l_ij = (a_ij - sum_{k<j} l_ik * l_jk) / l_jj, using row i entries computed so far
+			for (int p=start; p<d; p++) {
+				int j=colIdx[p];
+				double s=values[p];
+				for (int q=rowPtr[j]; q<diag[j]; q++) {
+					int kp=pos[colIdx[q]];
+					if ((kp>=0)&&(kp<p)) s-=values[kp]*values[q];
+				}
+				values[p]=s/values[diag[j]];
+			}
+			double s=values[d];
+			for (int p=start; p<d; p++) {
+				s-=values[p]*values[p];
+			}
+			if (!(s>0.0)) throw new IllegalArgumentException("Incomplete Cholesky breakdown at row "+i+": matrix is not positive definite");
+			values[d]=Math.sqrt(s);
+			for (int p=start; p<d; p++) {
+				pos[colIdx[p]]=-1;
+			}
+		}
+	}
+
+	@Override
+	protected void solve(double[] x) {
+		// forward substitution with L
+		for (int i=0; i<n; i++) {
+			double s=x[i];
+			int d=diag[i];
+			for (int p=rowPtr[i]; p<d; p++) {
+				s-=values[p]*x[colIdx[p]];
+			}
+			x[i]=s/values[d];
+		}
+		// back substitution with L^T, scattering each solved element into earlier rows
+		for (int i=n-1; i>=0; i--) {
+			int d=diag[i];
+			double xi=x[i]/values[d];
+			x[i]=xi;
+			for (int p=rowPtr[i]; p<d; p++) {
+				x[colIdx[p]]-=values[p]*xi;
+			}
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package mikera.matrixx.solve.impl.preconditioner;
+
+import java.util.Arrays;
+
+import mikera.matrixx.AMatrix;
+import mikera.vectorz.util.ErrorMessages;
+
+/**
+ * Incomplete LU factorisation preconditioner with zero fill-in, ILU(0).
+ *
+ * Computes L and U factors restricted to the sparsity pattern of A, stored together in a
+ * single copy of the row structure (L with a unit diagonal below, U on and above the diagonal).
+ * Suitable for general non-symmetric systems with BiCGSTAB or GMRES.
+ *
+ * @author Mike
+ *
+ */
+public class ILU0Preconditioner extends ASparsePreconditioner {
+
+	public ILU0Preconditioner(AMatrix a) {
+		super(a);
+		factor();
+	}
+
+	public static ILU0Preconditioner create(AMatrix a) {
+		return new ILU0Preconditioner(a);
+	}
+
+	private void factor() {
+		// maps column index to position in the current row, or -1 if not present
+		int[] pos=new int[n];
+		Arrays.fill(pos, -1);
+		for (int i=0; i<n; i++) {
+			int start=rowPtr[i];
+			int end=rowPtr[i+1];
+			for (int p=start; p<end; p++) {
+				pos[colIdx[p]]=p;
+			}
+			for (int p=start; p<diag[i]; p++) {
+				int k=colIdx[p];
+				double lik=values[p]/values[diag[k]];
+				values[p]=lik;
+				for (int q=diag[k]+1; q<rowPtr[k+1]; q++) {
+					int jp=pos[colIdx[q]];
+					if (jp>=0) values[jp]-=lik*values[q];
+				}
+			}
+			if (values[diag[i]]==0.0) throw new IllegalArgumentException("Zero pivot at row "+i+": "+ErrorMessages.singularMatrix());
+			for (int p=start; p<end; p++) {
+				pos[colIdx[p]]=-1;
+			}
+		}
+	}
+
+	@Override
+	protected void solve(double[] x) {
+		solveUnitLower(x);
+		solveUpper(x);
+	}
+}
@@ -0,0 +1,73 @@
+package mikera.matrixx.solve.impl.preconditioner;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.impl.ADiagonalMatrix;
+import mikera.matrixx.impl.DiagonalMatrix;
+import mikera.matrixx.solve.IPreconditioner;
+import mikera.vectorz.AVector;
+import mikera.vectorz.util.ErrorMessages;
+
+/**
+ * Jacobi (diagonal scaling) preconditioner.
+ *
+ * Uses M = diag(A), so applying M^-1 is a single elementwise multiply by the stored inverse
+ * diagonal. Cheap to construct and apply, and effective where A is diagonally dominant or badly
+ * scaled.
+ *
+ * @author Mike
+ *
+ */
+public class JacobiPreconditioner implements IPreconditioner {
+	private final ADiagonalMatrix inverse;
+
+	private JacobiPreconditioner(ADiagonalMatrix inverse) {
+		this.inverse=inverse;
+	}
+
+	/**
+	 * Creates a Jacobi preconditioner from the leading diagonal of a square matrix
+	 * @param a
+	 * @return
+	 */
+	public static JacobiPreconditioner create(AMatrix a) {
+		int n=a.checkSquare();
+		double[] inv=new double[n];
+		for (int i=0; i<n; i++) {
+			double d=a.unsafeGet(i, i);
+			if (d==0.0) throw new IllegalArgumentException("Zero diagonal element at row "+i+": "+ErrorMessages.singularMatrix());
+			inv[i]=1.0/d;
+		}
+		return new JacobiPreconditioner(DiagonalMatrix.wrap(inv));
+	}
+
+	/**
+	 * Creates a Jacobi preconditioner that applies the inverse of the given diagonal matrix M
+	 * @param m
+	 * @return
+	 */
+	public static JacobiPreconditioner create(ADiagonalMatrix m) {
+		return create((AMatrix)m);
+	}
+
+	/**
+	 * Returns the inverse diagonal matrix M^-1 applied by this preconditioner
+	 * @return
+	 */
+	public ADiagonalMatrix getInverse() {
+		return inverse;
+	}
+
+	@Override
+	public void apply(AVector source, AVector dest) {
+		int n=inverse.rowCount();
+		if (source.length()!=n) throw new IllegalArgumentException(ErrorMessages.wrongSourceLength(source));
+		if (dest.length()!=n) throw new IllegalArgumentException(ErrorMessages.wrongDestLength(dest));
+		if (dest!=source) dest.set(source);
+		inverse.transformInPlace(dest);
+	}
+
+	@Override
+	public int length() {
+		return inverse.rowCount();
+	}
+}
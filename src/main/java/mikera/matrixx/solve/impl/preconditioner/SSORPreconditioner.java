@@ -0,0 +1,75 @@
+package mikera.matrixx.solve.impl.preconditioner;
+
+import mikera.matrixx.AMatrix;
+
+/**
+ * Symmetric successive over-relaxation (SSOR) preconditioner.
+ *
+ * With A = D + L + U, applies the inverse of
+ *
+ *    M = (D/w + L) . (D/w)^-1 . (D/w + U) / (2-w)
+ *      = (D + wL) . D^-1 . (D + wU) / (w(2-w))
+ *
+ * using one forward and one backward sweep over the sparse rows of A. No factorisation is
+ * required, so setup is cheap. For symmetric positive definite A and 0 < w < 2, M is also
+ * symmetric positive definite and can be used with conjugate gradient.
+ *
+ * @author Mike
+ *
+ */
+public class SSORPreconditioner extends ASparsePreconditioner {
+	private final double omega;
+
+	public SSORPreconditioner(AMatrix a, double omega) {
+		super(a);
+		if (!((omega>0.0)&&(omega<2.0))) throw new IllegalArgumentException("Relaxation factor must be in range (0,2): "+omega);
+		this.omega=omega;
+	}
+
+	/**
+	 * Creates an SSOR preconditioner with relaxation factor w = 1 (symmetric Gauss-Seidel)
+	 * @param a
+	 * @return
+	 */
+	public static SSORPreconditioner create(AMatrix a) {
+		return new SSORPreconditioner(a,1.0);
+	}
+
+	public static SSORPreconditioner create(AMatrix a, double omega) {
+		return new SSORPreconditioner(a,omega);
+	}
+
+	public double getOmega() {
+		return omega;
+	}
+
+	@Override
+	protected void solve(double[] x) {
+		double w=omega;
+		// forward sweep: (D + wL) y = x, then scale by D
+		for (int i=0; i<n; i++) {
+			double s=0.0;
+			int d=diag[i];
+			for (int p=rowPtr[i]; p<d; p++) {
+				s+=values[p]*x[colIdx[p]];
+			}
+			x[i]=(x[i]-w*s)/values[d];
+		}
+		for (int i=0; i<n; i++) {
+			x[i]*=values[diag[i]];
+		}
+		// backward sweep: (D + wU) z = y, then scale by w(2-w)
+		double scale=w*(2.0-w);
+		for (int i=n-1; i>=0; i--) {
+			double s=0.0;
+			int d=diag[i];
+			for (int p=d+1; p<rowPtr[i+1]; p++) {
+				s+=values[p]*x[colIdx[p]];
+			}
+			x[i]=(x[i]-w*s)/values[d];
+		}
+		for (int i=0; i<n; i++) {
+			x[i]*=scale;
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package mikera.matrixx.solve.impl.qr;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.decompose.impl.qr.BlockedHouseholderQR;
+import mikera.matrixx.decompose.impl.qr.HouseholderQR;
+import mikera.matrixx.solve.impl.AFactorisation;
+import mikera.matrixx.solve.impl.TriangularSolver;
+
+/**
+ * Reusable Householder QR factorisation of a matrix with at least as many rows as columns, A = Q.R
+ *
+ * Q is never formed. Each solve applies the stored reflectors to the right hand sides to compute
+ * Q'.b and then performs back substitution with R, giving the least squares solution when A has
+ * more rows than columns.
+ *
+ * @author Mike
+ *
+ */
+public class QRFactorisation extends AFactorisation {
+	private static final double EPS=Math.pow(2,-52);
+
+	private final int m;
+	private final int n;
+	private final double[] qr;
+	private final double[] gammas;
+
+	// accumulates the product of a reflector with the right hand sides
+	private double[] w=new double[0];
+
+	private QRFactorisation(int m, int n, double[] qr, double[] gammas) {
+		this.m=m;
+		this.n=n;
+		this.qr=qr;
+		this.gammas=gammas;
+	}
+
+	/**
+	 * Factorises a matrix with at least as many rows as columns. The matrix is not modified.
+	 * @param A
+	 * @return The factorisation, or null if A does not have full column rank, i.e. some diagonal
+	 * element of R is no larger than eps.m times the largest
+	 */
+	public static QRFactorisation create(AMatrix A) {
+		int m=A.rowCount();
+		int n=A.columnCount();
+		if (m<n) throw new IllegalArgumentException("Matrix must have at least as many rows as columns.");
+		HouseholderQR decomp=BlockedHouseholderQR.isBlockedSize(m, n)?new BlockedHouseholderQR(true):new HouseholderQR(true);
+		decomp.factor(A);
+		double[] qr=decomp.getQR().toMatrix().data;
+		double[] gammas=decomp.getGammas();
+
+		// relative rank test on the diagonal of R, since rounding means a rank deficient matrix
+		// rarely gives an exactly zero diagonal element
+		double max=0.0;
+		for (int i=0; i<n; i++) {
+			max=Math.max(max, Math.abs(qr[i*n+i]));
+		}
+		double tol=EPS*max*m;
+		for (int i=0; i<n; i++) {
+			if ((gammas[i]==0.0)||!(Math.abs(qr[i*n+i])>tol)) return null;
+		}
+		return new QRFactorisation(m, n, qr, gammas);
+	}
+
+	@Override
+	public int rowCount() {
+		return m;
+	}
+
+	@Override
+	public int columnCount() {
+		return n;
+	}
+
+	@Override
+	protected void solveArray(double[] b, int k) {
+		if (w.length<k) w=new double[k];
+		for (int j=0; j<n; j++) {
+			// w = u'.B with u = [1, qr(j+1:m, j)]
+			int rj=j*k;
+			System.arraycopy(b, rj, w, 0, k);
+			for (int i=j+1; i<m; i++) {
+				double u=qr[i*n+j];
+				if (u==0.0) continue;
+				int ri=i*k;
+				for (int c=0; c<k; c++) w[c]+=u*b[ri+c];
+			}
+
+			// B = B - gamma.u.w
+			double g=gammas[j];
+			for (int c=0; c<k; c++) {
+				w[c]*=g;
+				b[rj+c]-=w[c];
+			}
+			for (int i=j+1; i<m; i++) {
+				double u=qr[i*n+j];
+				if (u==0.0) continue;
+				int ri=i*k;
+				for (int c=0; c<k; c++) b[ri+c]-=u*w[c];
+			}
+		}
+		TriangularSolver.solveUpper(qr, n, 1, n, b, k, k, gemm);
+	}
+}
@@ -20,9 +20,7 @@ package mikera.matrixx.solve.impl.qr;
 
 import mikera.matrixx.AMatrix;
 import mikera.matrixx.Matrix;
-import mikera.matrixx.decompose.impl.qr.HouseholderColQR;
-import mikera.matrixx.decompose.impl.qr.QRHelperFunctions;
-import mikera.matrixx.decompose.impl.qr.QRResult;
+import mikera.matrixx.decompose.impl.qr.BlockedHouseholderQR;
 
 /**
  * <p>
@@ -37,7 +35,8 @@ import mikera.matrixx.decompose.impl.qr.QRResult;
  * </p>
  *
  * <p>
- * A column major decomposition is used in this solver.
+ * A blocked Householder decomposition is used in this solver. Q is never formed explicitly:
+ * Q^T b is computed by applying blocks of reflectors in compact WY form, using matrix multiplication.
  * <p>
  *
  * @author Peter Abeles
@@ -58,25 +57,18 @@ public class QRHouseColSolver {
         this.numCols = A.columnCount();
     }
 
-    private HouseholderColQR decomposer;
-
-    private Matrix a;
-    private Matrix temp;
+    private BlockedHouseholderQR decomposer;
 
     protected int maxRows = -1;
     protected int maxCols = -1;
 
-    private double[][] QR; // a column major QR matrix
     private Matrix R;
-    private double gammas[];
-    
-    private QRResult result;
 
     /**
      * Creates a linear solver that uses QR decomposition.
      */
     public QRHouseColSolver() {
-        decomposer = new HouseholderColQR(true);
+        decomposer = new BlockedHouseholderQR(true);
     }
 
     public void setMaxSize( int maxRows , int maxCols )
@@ -93,17 +85,9 @@ public class QRHouseColSolver {
         if( A.rowCount() > maxRows || A.columnCount() > maxCols )
             setMaxSize(A.rowCount(),A.columnCount());
 
-        a = Matrix.create(A.rowCount(),1);
-        temp = Matrix.create(A.rowCount(),1);
-
         _setA(A);
-        result = decomposer.decompose(A);
-        if( result == null )
-            return false;
-
-        gammas = decomposer.getGammas();
-        QR = decomposer.getQR();
-        R = result.getR().toMatrix();
+        decomposer.factor(A);
+        R = decomposer.getR().toMatrix();
         return true;
     }
 
@@ -119,69 +103,53 @@ public class QRHouseColSolver {
     public AMatrix solve(AMatrix B) {
         if( B.rowCount() != numRows)
             throw new IllegalArgumentException("Unexpected dimensions for B");
-        Matrix X = Matrix.create(numCols, B.columnCount());
-
+        if( numRows < numCols )
+            throw new IllegalArgumentException("QR solve requires at least as many rows as columns");
         int BnumCols = B.columnCount();
-        
-        // solve each column one by one
-        for( int colB = 0; colB < BnumCols; colB++ ) {
-
-            // make a copy of this column in the vector
-            for( int i = 0; i < numRows; i++ ) {
-//                a.data[i] = B.data[i*BnumCols + colB];
-                a.data[i] = B.unsafeGet(i, colB);
-            }
 
+        // a = Q'b for all columns of B at once, applied a block of reflectors at a time
+        Matrix a = Matrix.create(B);
+        decomposer.applyQTranspose(a);
 
-            // Solve Qa=b
-            // a = Q'b
-            // a = Q_{n-1}...Q_2*Q_1*b
-            //
-            // Q_n*b = (I-gamma*u*u^T)*b = b - u*(gamma*U^T*b)
-            
-            for( int n = 0; n < numCols; n++ ) {
-                double []u = QR[n];
-
-                double vv = u[n];
-                u[n] = 1;
-                QRHelperFunctions.rank1UpdateMultR(a, u, gammas[n], 0, n, numRows, temp.data);
-                u[n] = vv;
-            }
-            // solve for Rx = b using the standard upper triangular solver
-            solveU(R.asDoubleArray(),a.asDoubleArray(),numCols);
-
-            // save the results
-            double[]data = X.asDoubleArray();
-            for( int i = 0; i < numCols; i++ ) {
-//                X.data[i*X.columnCount()+colB] = a.data[i];
-                data[i*X.columnCount()+colB] = a.data[i];
-            }
-        }
+        // solve for Rx = a using the first numCols rows of a
+        Matrix X = Matrix.create(numCols, BnumCols);
+        System.arraycopy(a.data, 0, X.data, 0, numCols*BnumCols);
+        solveU(R.asDoubleArray(),X.data,numCols,BnumCols);
         return X;
     }
     
     /**
      * <p>
-     * This is a forward substitution solver for non-singular upper triangular matrices.
+     * This is a back substitution solver for non-singular upper triangular matrices,
+     * applied to all columns of b at once.
      * <br>
      * b = U<sup>-1</sup>b<br>
      * <br>
-     * where b is a vector, U is an n by n matrix.<br>
+     * where b is an n by m matrix, U is an n by n matrix.<br>
      * </p>
      *
      * @param U An n by n non-singular upper triangular matrix. Not modified.
-     * @param b A vector of length n. Modified.
-     * @param n The size of the matrices.
+     * @param b A row major n by m matrix. Modified.
+     * @param n The size of U.
+     * @param m The number of columns of b.
      */
-    private void solveU( double U[] , double []b , int n )
+    private void solveU( double U[] , double []b , int n , int m )
     {
         for( int i =n-1; i>=0; i-- ) {
-            double sum = b[i];
+            int rowB = i*m;
             int indexU = i*n+i+1;
             for( int j = i+1; j <n; j++ ) {
-                sum -= U[indexU++]* b[j];
+                double u = U[indexU++];
+                if( u == 0 ) continue;
+                int rowJ = j*m;
+                for( int k = 0; k < m; k++ ) {
+                    b[rowB+k] -= u*b[rowJ+k];
+                }
+            }
+            double d = U[i*n+i];
+            for( int k = 0; k < m; k++ ) {
+                b[rowB+k] /= d;
             }
-            b[i] = sum/U[i*n+i];
         }
     }
     
@@ -0,0 +1,225 @@
+package mikera.matrixx.solve.impl.qr;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.decompose.impl.qr.BlockedHouseholderQR;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+import mikera.vectorz.util.ErrorMessages;
+
+/**
+ * Recursive least squares solver, for regression problems where rows arrive one at a time.
+ *
+ * The solver keeps the upper triangular factor R of the rows seen so far, together with Q'b,
+ * as an n x (n+1) matrix [R | Q'b]. Each new row is absorbed with a sequence of Givens rotations
+ * that eliminate it against R, so adding a row and computing the current coefficients both take
+ * O(n^2) time regardless of how many rows have been added.
+ *
+ * An optional forgetting factor lambda in (0,1] gives row i of m a weight of lambda^(m-1-i),
+ * so that older observations are exponentially discounted. This is applied by scaling the
+ * factor by sqrt(lambda) before each new row is added.
+ *
+ * Instances are not thread safe.
+ *
+ * @author Mike
+ *
+ */
+public class RecursiveLeastSquares {
+	private final int cols;
+	private final double forgetting;
+	private final double rowScale;
+
+	// augmented factor [R | Q'b], with n rows and n+1 columns
+	private final Matrix r;
+
+	// working copy of the row being added
+	private final double[] w;
+
+	private double residual=0.0;
+	private long rowCount=0;
+
+	/**
+	 * Creates a solver for a regression with the given number of coefficients and no forgetting
+	 * @param cols Number of columns of A
+	 */
+	public RecursiveLeastSquares(int cols) {
+		this(cols,1.0);
+	}
+
+	/**
+	 * Creates a solver for a regression with the given number of coefficients
+	 * @param cols Number of columns of A
+	 * @param forgetting Forgetting factor lambda in (0,1], where 1 means no forgetting
+	 */
+	public RecursiveLeastSquares(int cols, double forgetting) {
+		if (cols<1) throw new IllegalArgumentException("Invalid number of columns: "+cols);
+		if (!((forgetting>0.0)&&(forgetting<=1.0))) throw new IllegalArgumentException("Forgetting factor must be in (0,1]: "+forgetting);
+		this.cols=cols;
+		this.forgetting=forgetting;
+		this.rowScale=Math.sqrt(forgetting);
+		this.r=Matrix.create(cols, cols+1);
+		this.w=new double[cols+1];
+	}
+
+	/**
+	 * Creates a solver initialised with a batch of rows. The batch is factored with a single
+	 * Householder QR decomposition rather than row by row.
+	 * @param A Initial rows of A
+	 * @param b Initial values of b
+	 * @param forgetting Forgetting factor lambda in (0,1], where 1 means no forgetting
+	 * @return
+	 */
+	public static RecursiveLeastSquares create(AMatrix A, AVector b, double forgetting) {
+		int rows=A.rowCount();
+		int n=A.columnCount();
+		if (b.length()!=rows) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(A,b));
+		RecursiveLeastSquares result=new RecursiveLeastSquares(n,forgetting);
+		if (rows==0) return result;
+
+		// weight each row by sqrt(lambda)^(age of row)
+		Matrix m=Matrix.create(rows, n+1);
+		double[] data=m.data;
+		double scale=1.0;
+		for (int i=rows-1; i>=0; i--) {
+			int ri=i*(n+1);
+			A.copyRowTo(i, data, ri);
+			data[ri+n]=b.unsafeGet(i);
+			if (scale!=1.0) {
+				for (int j=0; j<=n; j++) data[ri+j]*=scale;
+			}
+			scale*=result.rowScale;
+		}
+
+		BlockedHouseholderQR qr=new BlockedHouseholderQR(true);
+		qr.factor(m);
+		AMatrix f=qr.getR();
+		int fr=Math.min(f.rowCount(), n);
+		for (int i=0; i<fr; i++) {
+			for (int j=i; j<=n; j++) {
+				result.r.unsafeSet(i, j, f.unsafeGet(i, j));
+			}
+		}
+		if (f.rowCount()>n) {
+			double e=f.unsafeGet(n, n);
+			result.residual=e*e;
+		}
+		result.rowCount=rows;
+		return result;
+	}
+
+	/**
+	 * Adds a single observation a.x = y
+	 * @param a Row of A
+	 * @param y Corresponding value of b
+	 */
+	public void addRow(AVector a, double y) {
+		if (a.length()!=cols) throw new IllegalArgumentException(ErrorMessages.incompatibleShape(a));
+		a.getElements(w, 0);
+		w[cols]=y;
+		absorbRow();
+	}
+
+	/**
+	 * Adds a block of observations A.x = b, in order
+	 * @param A Rows of A
+	 * @param b Corresponding values of b
+	 */
+	public void addRows(AMatrix A, AVector b) {
+		int rows=A.rowCount();
+		if (A.columnCount()!=cols) throw new IllegalArgumentException(ErrorMessages.incompatibleShape(A));
+		if (b.length()!=rows) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(A,b));
+		for (int i=0; i<rows; i++) {
+			A.copyRowTo(i, w, 0);
+			w[cols]=b.unsafeGet(i);
+			absorbRow();
+		}
+	}
+
+	/**
+	 * Rotates the row held in w into the factor, one column at a time
+	 */
+	private void absorbRow() {
+		int n1=cols+1;
+		double[] rd=r.data;
+		if (rowScale!=1.0) {
+			for (int i=0; i<cols; i++) {
+				int ri=i*n1;
+				for (int j=i; j<n1; j++) rd[ri+j]*=rowScale;
+			}
+		}
+
+		for (int i=0; i<cols; i++) {
+			double wi=w[i];
+			if (wi==0.0) continue;
+			int ri=i*n1;
+			double rii=rd[ri+i];
+			double h=Math.sqrt(rii*rii+wi*wi);
+			double c=rii/h;
+			double s=wi/h;
+			rd[ri+i]=h;
+			for (int j=i+1; j<n1; j++) {
+				double rij=rd[ri+j];
+				double wj=w[j];
+				rd[ri+j]=c*rij+s*wj;
+				w[j]=c*wj-s*rij;
+			}
+		}
+
+		double e=w[cols];
+		residual=forgetting*residual+e*e;
+		rowCount++;
+	}
+
+	/**
+	 * Gets the total number of rows added to the system
+	 * @return
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Gets the forgetting factor lambda
+	 * @return
+	 */
+	public double getForgetting() {
+		return forgetting;
+	}
+
+	/**
+	 * Gets the upper triangular factor R of the weighted rows added so far
+	 * @return
+	 */
+	public AMatrix getR() {
+		return r.subMatrix(0, cols, 0, cols).toMatrix();
+	}
+
+	/**
+	 * Gets the weighted residual sum of squares of the current least squares solution
+	 * @return
+	 */
+	public double getResidualSumOfSquares() {
+		return residual;
+	}
+
+	/**
+	 * Computes the current least squares coefficients x by back substitution
+	 * @return
+	 */
+	public Vector getCoefficients() {
+		int n1=cols+1;
+		double[] rd=r.data;
+		double[] x=new double[cols];
+		for (int i=cols-1; i>=0; i--) {
+			int ri=i*n1;
+			double d=rd[ri+i];
+			if (d==0.0) throw new IllegalArgumentException("Least squares system is underdetermined: rank deficient in column "+i+" after "+rowCount+" rows");
+			double sum=rd[ri+cols];
+			for (int j=i+1; j<cols; j++) {
+				sum-=rd[ri+j]*x[j];
+			}
+			x[i]=sum/d;
+		}
+		return Vector.wrap(x);
+	}
+}
@@ -0,0 +1,245 @@
+package mikera.matrixx.solve.impl.qr;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.algo.Multiplications;
+import mikera.matrixx.decompose.impl.qr.BlockedHouseholderQR;
+import mikera.matrixx.impl.ColumnMatrix;
+import mikera.vectorz.AVector;
+import mikera.vectorz.util.ErrorMessages;
+
+/**
+ * Tall-skinny QR (TSQR) least squares solver, for systems with many more rows than columns.
+ *
+ * Rows of the augmented matrix [A|B] are split into chunks. Each chunk is reduced to a small
+ * triangular factor by QR decomposition, and pairs of factors are combined by stacking them and
+ * decomposing again. Only the final triangular factor
+ *
+ *    [ R  Q'B ]
+ *    [ 0   S  ]
+ *
+ * is needed to solve R.X = Q'B, so Q is never formed.
+ *
+ * Rows can be supplied incrementally with addRows, so the full matrix never needs to be held in
+ * memory at once. Within each call, large inputs are reduced with a parallel reduction tree.
+ *
+ * Instances are not thread safe.
+ *
+ * @author Mike
+ *
+ */
+public class TSQRSolver {
+	public static final int DEFAULT_CHUNK_ROWS=4096;
+
+	private final int cols;
+	private final int rhsCols;
+	private final int chunkRows;
+
+	// current triangular factor of all rows added so far, or null if no rows have been added
+	private Matrix r=null;
+	private long rowCount=0;
+
+	/**
+	 * Creates a solver for a system with the given number of unknowns and right hand side columns
+	 * @param cols Number of columns of A
+	 * @param rhsCols Number of columns of B
+	 */
+	public TSQRSolver(int cols, int rhsCols) {
+		this(cols,rhsCols,DEFAULT_CHUNK_ROWS);
+	}
+
+	public TSQRSolver(int cols, int rhsCols, int chunkRows) {
+		if ((cols<1)||(rhsCols<0)) throw new IllegalArgumentException("Invalid system shape: "+cols+" columns with "+rhsCols+" right hand sides");
+		this.cols=cols;
+		this.rhsCols=rhsCols;
+		// chunks must be at least as tall as the factor they are combined with
+		this.chunkRows=Math.max(chunkRows, 2*(cols+rhsCols));
+	}
+
+	/**
+	 * Returns true if TSQR is expected to be faster than a single Householder decomposition
+	 * for a least squares problem of the given shape
+	 * @param rows
+	 * @param cols
+	 * @return
+	 */
+	public static boolean isTSQRSize(int rows, int cols) {
+		return (rows>=2*DEFAULT_CHUNK_ROWS)&&(rows>=16L*cols);
+	}
+
+	/**
+	 * Solves the least squares problem A.X = B
+	 * @param A
+	 * @param B
+	 * @return
+	 */
+	public static AMatrix solve(AMatrix A, AMatrix B) {
+		TSQRSolver solver=new TSQRSolver(A.columnCount(),B.columnCount());
+		solver.addRows(A, B);
+		return solver.solve();
+	}
+
+	/**
+	 * Solves the least squares problem A.x = b
+	 * @param A
+	 * @param b
+	 * @return
+	 */
+	public static AVector solve(AMatrix A, AVector b) {
+		return solve(A,ColumnMatrix.wrap(b)).getColumn(0).toVector();
+	}
+
+	/**
+	 * Adds a block of rows to the system
+	 * @param a Rows of A
+	 * @param b Corresponding rows of B
+	 */
+	public void addRows(AMatrix a, AMatrix b) {
+		int rows=a.rowCount();
+		if (a.columnCount()!=cols) throw new IllegalArgumentException(ErrorMessages.incompatibleShape(a));
+		if ((b.columnCount()!=rhsCols)||(b.rowCount()!=rows)) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(a,b));
+		if (rows==0) return;
+
+		FactorTask task=new FactorTask(a,b,0,rows);
+		Matrix chunk;
+		if ((ForkJoinPool.getCommonPoolParallelism()>1)&&(rows>=2*chunkRows)&&(((long)rows)*(cols+rhsCols)*(cols+rhsCols)>=Multiplications.getParallelThreshold())) {
+			chunk=ForkJoinPool.commonPool().invoke(task);
+		} else {
+			chunk=task.compute();
+		}
+		r=(r==null)?chunk:combine(r,chunk);
+		rowCount+=rows;
+	}
+
+	/**
+	 * Adds a block of rows to a system with a single right hand side
+	 * @param a Rows of A
+	 * @param b Corresponding elements of b
+	 */
+	public void addRows(AMatrix a, AVector b) {
+		addRows(a,ColumnMatrix.wrap(b));
+	}
+
+	/**
+	 * Gets the total number of rows added to the system
+	 * @return
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Gets the upper triangular factor R of A
+	 * @return
+	 */
+	public AMatrix getR() {
+		checkDetermined();
+		return r.subMatrix(0, cols, 0, cols).toMatrix();
+	}
+
+	/**
+	 * Computes the least squares solution X for all rows added so far
+	 * @return
+	 */
+	public AMatrix solve() {
+		checkDetermined();
+		int w=cols+rhsCols;
+		double[] rd=r.data;
+		Matrix x=Matrix.create(cols, rhsCols);
+		double[] xd=x.data;
+		for (int i=cols-1; i>=0; i--) {
+			int xi=i*rhsCols;
+			int ri=i*w;
+			System.arraycopy(rd, ri+cols, xd, xi, rhsCols);
+			for (int j=i+1; j<cols; j++) {
+				double rij=rd[ri+j];
+				if (rij==0.0) continue;
+				int xj=j*rhsCols;
+				for (int k=0; k<rhsCols; k++) {
+					xd[xi+k]-=rij*xd[xj+k];
+				}
+			}
+			double d=rd[ri+i];
+			for (int k=0; k<rhsCols; k++) {
+				xd[xi+k]/=d;
+			}
+		}
+		return x;
+	}
+
+	private void checkDetermined() {
+		if ((r==null)||(r.rowCount()<cols)) throw new IllegalArgumentException("Least squares system is underdetermined: "+rowCount+" rows for "+cols+" unknowns");
+	}
+
+	/**
+	 * Computes the triangular factor of a set of rows, optionally stacked below an existing factor
+	 */
+	private Matrix factor(Matrix prefix, AMatrix a, AMatrix b, int start, int end) {
+		int w=cols+rhsCols;
+		int offset=(prefix==null)?0:prefix.rowCount();
+		Matrix m=Matrix.create(offset+end-start, w);
+		double[] data=m.data;
+		if (prefix!=null) System.arraycopy(prefix.data, 0, data, 0, offset*w);
+		for (int i=start; i<end; i++) {
+			int ri=(offset+i-start)*w;
+			a.copyRowTo(i, data, ri);
+			if (rhsCols>0) b.copyRowTo(i, data, ri+cols);
+		}
+		return triangularFactor(m);
+	}
+
+	private static Matrix combine(Matrix r1, Matrix r2) {
+		int w=r1.columnCount();
+		Matrix m=Matrix.create(r1.rowCount()+r2.rowCount(), w);
+		System.arraycopy(r1.data, 0, m.data, 0, r1.data.length);
+		System.arraycopy(r2.data, 0, m.data, r1.data.length, r2.data.length);
+		return triangularFactor(m);
+	}
+
+	private static Matrix triangularFactor(Matrix m) {
+		BlockedHouseholderQR qr=new BlockedHouseholderQR(true);
+		qr.factor(m);
+		return qr.getR().toMatrix();
+	}
+
+	/**
+	 * Fork-join task computing the triangular factor of a range of rows, using a binary
+	 * reduction tree when running in a ForkJoinPool
+	 */
+	@SuppressWarnings("serial")
+	private final class FactorTask extends RecursiveTask<Matrix> {
+		private final AMatrix a;
+		private final AMatrix b;
+		private final int start, end;
+
+		FactorTask(AMatrix a, AMatrix b, int start, int end) {
+			this.a=a;
+			this.b=b;
+			this.start=start;
+			this.end=end;
+		}
+
+		@Override
+		protected Matrix compute() {
+			int n=end-start;
+			if (n<=chunkRows) return factor(null,a,b,start,end);
+			if (inForkJoinPool()) {
+				int mid=start+(n>>1);
+				FactorTask left=new FactorTask(a,b,start,mid);
+				FactorTask right=new FactorTask(a,b,mid,end);
+				invokeAll(left,right);
+				return combine(left.join(),right.join());
+			}
+
+			// sequential: carry the factor of the rows so far into each chunk
+			Matrix acc=null;
+			for (int i=start; i<end; i+=chunkRows) {
+				acc=factor(acc,a,b,i,Math.min(end, i+chunkRows));
+			}
+			return acc;
+		}
+	}
+}
@@ -1,15 +1,13 @@
 package mikera.vectorz.impl;
 
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
 
 import mikera.indexz.Index;
 import mikera.matrixx.AMatrix;
 import mikera.vectorz.AVector;
 import mikera.vectorz.Vector;
 import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.IntDoubleHashMap;
 import mikera.vectorz.util.VectorzException;
 
 /**
@@ -21,19 +19,22 @@ import mikera.vectorz.util.VectorzException;
  * Mutable in all elements, but performance will be reduced if density is high. In general, if density 
  * is more than about 1% then a dense Vector is likely to be better.
  * 
+ * Elements are stored in a primitive open-addressing hash table, so getting and setting
+ * elements does not box indexes or values.
+ * 
  * @author Mike
  *
  */
 public class SparseHashedVector extends ASparseVector {
-	private static final long serialVersionUID = 750093598603613879L;
+	private static final long serialVersionUID = -4419016522627530911L;
 
-	private HashMap<Integer,Double> hash;
+	private IntDoubleHashMap hash;
 	
 	private SparseHashedVector(int length) {
-		this(length, new HashMap<Integer,Double>());
+		this(length, new IntDoubleHashMap());
 	}
 	
-	private SparseHashedVector(int length, HashMap<Integer, Double> hashMap) {
+	private SparseHashedVector(int length, IntDoubleHashMap hashMap) {
 		super(length);
 		if (length<=0) throw new IllegalArgumentException("Can't create SparseHashedVector of length "+length);
 		hash=hashMap;
@@ -45,7 +46,7 @@ public class SparseHashedVector extends ASparseVector {
 	public static SparseHashedVector create(AVector v) {
 		Index ix=v.nonSparseIndex();
 		int n=ix.length();
-		HashMap<Integer,Double> hm=new HashMap<Integer,Double>(n);
+		IntDoubleHashMap hm=new IntDoubleHashMap(n);
 		for (int i=0; i<n; i++) {
 			int ii=ix.get(i);
 			double val=v.unsafeGet(ii);
@@ -60,7 +61,7 @@ public class SparseHashedVector extends ASparseVector {
 	public static SparseHashedVector create(int length, Index index, Vector values) {
 		int n=index.length();
 		if (values.length()!=n) throw new IllegalArgumentException("Mismatched values length: "+values.length());
-		HashMap<Integer,Double> hm=new HashMap<Integer,Double>();
+		IntDoubleHashMap hm=new IntDoubleHashMap(n);
 		for (int i=0; i<n; i++) {
 			double v=values.get(i);
 			if (v!=0.0) hm.put(index.get(i), v);
@@ -101,9 +102,7 @@ public class SparseHashedVector extends ASparseVector {
 	
 	@Override
 	public double unsafeGet(int i) {
-		Double d= hash.get(i);
-		if (d!=null) return d;
-		return 0.0;
+		return hash.get(i);
 	}
 	
 	@Override
@@ -128,36 +127,45 @@ public class SparseHashedVector extends ASparseVector {
 			hash.clear();
 			return;
 		}
-		for (Entry<Integer,Double> e:hash.entrySet()) {
-			double r=e.getValue()*d;
-			e.setValue(r);
-		}
+		hash.multiply(d);
 	}
 	
 	@Override
 	public double dotProduct(AVector v) {
 		v.checkLength(length);
+		IntDoubleHashMap h=hash;
+		int cap=h.capacity();
 		double result=0.0;
-		for (int i: hash.keySet()) {
-			result+=hash.get(i)*v.unsafeGet(i);
+		for (int s=0; s<cap; s++) {
+			int i=h.keyAt(s);
+			if (i==IntDoubleHashMap.EMPTY) continue;
+			result+=h.valueAt(s)*v.unsafeGet(i);
 		}
 		return result;
 	}
 	
 	@Override
 	public double dotProduct(double[] data, int offset) {
+		IntDoubleHashMap h=hash;
+		int cap=h.capacity();
 		double result=0.0;
-		for (Integer i: hash.keySet()) {
-			result+=hash.get(i)*data[offset+i];
+		for (int s=0; s<cap; s++) {
+			int i=h.keyAt(s);
+			if (i==IntDoubleHashMap.EMPTY) continue;
+			result+=h.valueAt(s)*data[offset+i];
 		}
 		return result;
 	}
 	
 	@Override
 	public double dotProduct(double[] data, int offset, int stride) {
+		IntDoubleHashMap h=hash;
+		int cap=h.capacity();
 		double result=0.0;
-		for (Integer i: hash.keySet()) {
-			result+=hash.get(i)*data[offset+i*stride];
+		for (int s=0; s<cap; s++) {
+			int i=h.keyAt(s);
+			if (i==IntDoubleHashMap.EMPTY) continue;
+			result+=h.valueAt(s)*data[offset+i*stride];
 		}
 		return result;
 	}
@@ -165,28 +173,35 @@ public class SparseHashedVector extends ASparseVector {
 	@Override
 	public void addMultipleToArray(double factor,int offset, double[] array, int arrayOffset, int length) {
 		int aOffset=arrayOffset-offset;
-
-		for (Integer i: hash.keySet()) {
+		IntDoubleHashMap h=hash;
+		int cap=h.capacity();
+		for (int s=0; s<cap; s++) {
+			int i=h.keyAt(s);
 			if ((i<offset)||(i>=(offset+length))) continue;
-			array[aOffset+i]+=factor*hash.get(i);
+			array[aOffset+i]+=factor*h.valueAt(s);
 		}
 	}
 	
 	@Override
 	public void addToArray(int offset, double[] array, int arrayOffset, int length) {
 		int aOffset=arrayOffset-offset;
-		
-		for (int i: hash.keySet()) {
+		IntDoubleHashMap h=hash;
+		int cap=h.capacity();
+		for (int s=0; s<cap; s++) {
+			int i=h.keyAt(s);
 			if ((i<offset)||(i>=(offset+length))) continue;
-			array[aOffset+i]+=hash.get(i);
+			array[aOffset+i]+=h.valueAt(s);
 		}
 	}
 	
 	@Override
 	public void addToArray(double[] dest, int offset, int stride) {
-		for (Entry<Integer,Double> e: hash.entrySet()) {
-			int i=e.getKey();
-			dest[offset+i*stride]+=e.getValue();
+		IntDoubleHashMap h=hash;
+		int cap=h.capacity();
+		for (int s=0; s<cap; s++) {
+			int i=h.keyAt(s);
+			if (i==IntDoubleHashMap.EMPTY) continue;
+			dest[offset+i*stride]+=h.valueAt(s);
 		}
 	}
 	
@@ -194,12 +209,12 @@ public class SparseHashedVector extends ASparseVector {
 	public void addProductToArray(double factor, int offset, AVector other,int otherOffset, double[] array, int arrayOffset, int length) {
 		int aOffset=arrayOffset-offset;
 		int oOffset=otherOffset-offset;
-
-		for (Entry<Integer,Double> e: hash.entrySet()) {
-			Integer io=e.getKey();
-			int i=io;
+		IntDoubleHashMap h=hash;
+		int cap=h.capacity();
+		for (int s=0; s<cap; s++) {
+			int i=h.keyAt(s);
 			if ((i<offset)||(i>=(offset+length))) continue;
-			array[aOffset+i]+=factor*e.getValue()*other.get(i+oOffset);
+			array[aOffset+i]+=factor*h.valueAt(s)*other.get(i+oOffset);
 		}
 	}
 	
@@ -208,13 +223,13 @@ public class SparseHashedVector extends ASparseVector {
 		int aOffset=arrayOffset-offset;
 		int oArrayOffset=other.getArrayOffset()+otherOffset-offset;
 		double[] oArray=other.getArray();
-		
-		for (Entry<Integer,Double> e: hash.entrySet()) {
-			Integer io=e.getKey();
-			int i=io;
+		IntDoubleHashMap h=hash;
+		int cap=h.capacity();
+		for (int s=0; s<cap; s++) {
+			int i=h.keyAt(s);
 			if ((i<offset)||(i>=(offset+length))) continue;
 			double ov=oArray[i+oArrayOffset];
-			if (ov!=0.0) array[aOffset+i]+=factor*e.getValue()*ov;
+			if (ov!=0.0) array[aOffset+i]+=factor*h.valueAt(s)*ov;
 		}
 	}
 	
@@ -224,9 +239,12 @@ public class SparseHashedVector extends ASparseVector {
 	}
 	
 	public void copySparseValuesTo(double[] array, int offset) {
-		for (Entry<Integer,Double> e: hash.entrySet()) {
-			int i=e.getKey();
-			array[offset+i]=e.getValue();
+		IntDoubleHashMap h=hash;
+		int cap=h.capacity();
+		for (int s=0; s<cap; s++) {
+			int i=h.keyAt(s);
+			if (i==IntDoubleHashMap.EMPTY) continue;
+			array[offset+i]=h.valueAt(s);
 		}
 	}
 	
@@ -236,20 +254,19 @@ public class SparseHashedVector extends ASparseVector {
 			getElements(av.getArray(),av.getArrayOffset()+offset);
 		}
 		v.fillRange(offset,length,0.0);
-		for (Entry<Integer,Double> e: hash.entrySet()) {
-			int i=e.getKey();
-			v.unsafeSet(offset+i,e.getValue());
+		IntDoubleHashMap h=hash;
+		int cap=h.capacity();
+		for (int s=0; s<cap; s++) {
+			int i=h.keyAt(s);
+			if (i==IntDoubleHashMap.EMPTY) continue;
+			v.unsafeSet(offset+i,h.valueAt(s));
 		}
 	}
 
 	@Override
 	public void set(int i, double value) {
 		checkIndex(i);
-		if (value!=0.0) {	
-			hash.put(i, value);
-		} else {
-			hash.remove(i);
-		}
+		unsafeSet(i,value);
 	}
 	
 	@Override
@@ -260,7 +277,7 @@ public class SparseHashedVector extends ASparseVector {
 		}
 		
 		v.checkLength(length);
-		hash=new HashMap<Integer, Double>();
+		hash=new IntDoubleHashMap();
 		
 		for (int i=0; i<length; i++) {
 			double val=v.unsafeGet(i);
@@ -270,10 +287,9 @@ public class SparseHashedVector extends ASparseVector {
 		}
 	}
 	
-	@SuppressWarnings("unchecked")
 	public void set(SparseHashedVector v) {
 		v.checkLength(length);
-		hash=(HashMap<Integer, Double>) v.hash.clone();
+		hash=v.hash.clone();
 	}
 	
 	@Override
@@ -285,32 +301,20 @@ public class SparseHashedVector extends ASparseVector {
 		}
 	}
 	
-	/**
-	 * Special method to allow re-use of integer instances as keys
-	 * 
-	 * @param i
-	 * @param value
-	 */
-	private void unsafeSetInteger(Integer i, double value) {
-		if (value!=0.0) {	
-			hash.put(i, value);
-		} else {
-			hash.remove(i);
-		}
-	}
-	
 	@Override
 	public void addAt(int i, double value) {
 		if (value==0.0) return;
-		Integer ind=i;
-		unsafeSetInteger(ind, value+unsafeGet(ind));
+		if (hash.addValue(i, value)==0.0) hash.remove(i);
 	}
 	
 	@Override
 	public double maxAbsElement() {
+		IntDoubleHashMap h=hash;
+		int cap=h.capacity();
 		double result=0.0;
-		for (Map.Entry<Integer,Double> e:hash.entrySet()) {
-			double d=Math.abs(e.getValue());
+		for (int s=0; s<cap; s++) {
+			if (h.keyAt(s)==IntDoubleHashMap.EMPTY) continue;
+			double d=Math.abs(h.valueAt(s));
 			if (d>result) {
 				result=d; 
 			}
@@ -320,14 +324,17 @@ public class SparseHashedVector extends ASparseVector {
 	
 	@Override
 	public double elementMax() {
+		IntDoubleHashMap h=hash;
+		int cap=h.capacity();
 		double result=-Double.MAX_VALUE;
-		for (Map.Entry<Integer,Double> e:hash.entrySet()) {
-			double d=e.getValue();
+		for (int s=0; s<cap; s++) {
+			if (h.keyAt(s)==IntDoubleHashMap.EMPTY) continue;
+			double d=h.valueAt(s);
 			if (d>result) {
 				result=d; 
 			}
 		}
-		if ((result<0)&&(hash.size()<length)) {
+		if ((result<0)&&(h.size()<length)) {
 			return 0.0;
 		}
 		return result;
@@ -336,14 +343,17 @@ public class SparseHashedVector extends ASparseVector {
 	
 	@Override
 	public double elementMin() {
+		IntDoubleHashMap h=hash;
+		int cap=h.capacity();
 		double result=Double.MAX_VALUE;
-		for (Map.Entry<Integer,Double> e:hash.entrySet()) {
-			double d=e.getValue();
+		for (int s=0; s<cap; s++) {
+			if (h.keyAt(s)==IntDoubleHashMap.EMPTY) continue;
+			double d=h.valueAt(s);
 			if (d<result) {
 				result=d; 
 			}
 		}
-		if ((result>0)&&(hash.size()<length)) {
+		if ((result>0)&&(h.size()<length)) {
 			return 0.0;
 		}
 		return result;
@@ -351,17 +361,21 @@ public class SparseHashedVector extends ASparseVector {
 	
 	@Override
 	public int maxElementIndex(){
-		if (hash.size()==0) return 0;
+		IntDoubleHashMap h=hash;
+		if (h.size()==0) return 0;
+		int cap=h.capacity();
 		int ind=0;
 		double result=-Double.MAX_VALUE;
-		for (Map.Entry<Integer,Double> e:hash.entrySet()) {
-			double d=e.getValue();
+		for (int s=0; s<cap; s++) {
+			int i=h.keyAt(s);
+			if (i==IntDoubleHashMap.EMPTY) continue;
+			double d=h.valueAt(s);
 			if (d>result) {
 				result=d; 
-				ind=e.getKey();
+				ind=i;
 			}
 		}
-		if ((result<0)&&(hash.size()<length)) {
+		if ((result<0)&&(h.size()<length)) {
 			return sparseElementIndex();
 		}
 		return ind;
@@ -370,14 +384,18 @@ public class SparseHashedVector extends ASparseVector {
  
 	@Override
 	public int maxAbsElementIndex(){
-		if (hash.size()==0) return 0;
+		IntDoubleHashMap h=hash;
+		if (h.size()==0) return 0;
+		int cap=h.capacity();
 		int ind=0;
 		double result=unsafeGet(0);
-		for (Map.Entry<Integer,Double> e:hash.entrySet()) {
-			double d=Math.abs(e.getValue());
+		for (int s=0; s<cap; s++) {
+			int i=h.keyAt(s);
+			if (i==IntDoubleHashMap.EMPTY) continue;
+			double d=Math.abs(h.valueAt(s));
 			if (d>result) {
 				result=d; 
-				ind=e.getKey();
+				ind=i;
 			}
 		}
 		return ind;
@@ -385,17 +403,21 @@ public class SparseHashedVector extends ASparseVector {
 	
 	@Override
 	public int minElementIndex(){
-		if (hash.size()==0) return 0;
+		IntDoubleHashMap h=hash;
+		if (h.size()==0) return 0;
+		int cap=h.capacity();
 		int ind=0;
 		double result=Double.MAX_VALUE;
-		for (Map.Entry<Integer,Double> e:hash.entrySet()) {
-			double d=e.getValue();
+		for (int s=0; s<cap; s++) {
+			int i=h.keyAt(s);
+			if (i==IntDoubleHashMap.EMPTY) continue;
+			double d=h.valueAt(s);
 			if (d<result) {
 				result=d; 
-				ind=e.getKey();
+				ind=i;
 			}
 		}
-		if ((result>0)&&(hash.size()<length)) {
+		if ((result>0)&&(h.size()<length)) {
 			return sparseElementIndex();
 		}
 		return ind;
@@ -417,19 +439,22 @@ public class SparseHashedVector extends ASparseVector {
 	
 	@Override
 	public double elementSum() {
+		IntDoubleHashMap h=hash;
+		int cap=h.capacity();
 		double result=0.0;
-		for (Map.Entry<Integer,Double> e:hash.entrySet()) {
-			double d=e.getValue();
-			result+=d;
+		for (int s=0; s<cap; s++) {
+			result+=h.valueAt(s);
 		}
 		return result;
 	}
 	
 	@Override
 	public double elementSquaredSum() {
+		IntDoubleHashMap h=hash;
+		int cap=h.capacity();
 		double result=0.0;
-		for (Map.Entry<Integer,Double> e:hash.entrySet()) {
-			double d=e.getValue();
+		for (int s=0; s<cap; s++) {
+			double d=h.valueAt(s);
 			result+=d*d;
 		}
 		return result;
@@ -438,37 +463,20 @@ public class SparseHashedVector extends ASparseVector {
 	@Override
 	public Vector nonSparseValues() {
 		int n=hash.size();
+		int[] ixs=new int[n];
 		double[] vs=new double[n];
-		Index index=nonSparseIndex();
-		for (int i=0; i<n; i++) {
-			vs[i]=hash.get(index.get(i));
-		}
+		hash.getSortedEntries(ixs, vs);
 		return Vector.wrap(vs);
 	}
 	
 	@Override
 	public int[] nonZeroIndices() {
-		int n=hash.size();
-		int[] ret=new int[n];
-		int di=0;
-		for (Entry<Integer,Double> e: hash.entrySet()) {
-			ret[di++]=e.getKey();
-		}
-		Arrays.sort(ret);
-		return ret;
+		return hash.sortedKeys();
 	}
 	
 	@Override
 	public Index nonSparseIndex() {
-		int n=hash.size();
-		int[] in=new int[n];
-		int di=0;
-		for (Map.Entry<Integer,Double> e:hash.entrySet()) {
-			in[di++]=e.getKey();
-		}
-		Index result=Index.wrap(in);
-		result.sort();
-		return result;
+		return Index.wrap(hash.sortedKeys());
 	}
 
 	@Override
@@ -488,16 +496,15 @@ public class SparseHashedVector extends ASparseVector {
 
 	@Override
 	public boolean equalsArray(double[] data, int offset) {
+		int nz=0;
 		for (int i=0; i<length; i++) {
 			double v=data[offset+i];
-			if (v==0.0) {
-				if (hash.containsKey(i)) return false;
-			} else {
-				Double d=hash.get(i);
-				if ((d==null)||(d!=v)) return false;
+			if (v!=0.0) {
+				if (hash.get(i)!=v) return false;
+				nz++;
 			}
 		}
-		return true;
+		return nz==hash.size();
 	}
 	
 	@Override
@@ -505,25 +512,37 @@ public class SparseHashedVector extends ASparseVector {
 		return sparseClone();
 	}
 	
-	@SuppressWarnings("unchecked")
 	@Override
 	public SparseHashedVector exactClone() {
-		return new SparseHashedVector(length,(HashMap<Integer, Double>) hash.clone());
+		return new SparseHashedVector(length,hash.clone());
 	}
 	
 	@Override
 	public SparseIndexedVector sparseClone() {
 		// by default switch to SparsIndexedVector: will normally be faster
-		return SparseIndexedVector.create(this);
+		return toSparseIndexedVector();
+	}
+	
+	@Override
+	public SparseIndexedVector toSparseIndexedVector() {
+		int n=hash.size();
+		int[] ixs=new int[n];
+		double[] vs=new double[n];
+		hash.getSortedEntries(ixs, vs);
+		return SparseIndexedVector.wrap(length, ixs, vs);
 	}
 	
 	@Override
 	public void validate() {
 		if (length<=0) throw new VectorzException("Illegal length: "+length);
-		for (Entry<Integer, Double> e:hash.entrySet()) {
-			int i=e.getKey();
+		IntDoubleHashMap h=hash;
+		int cap=h.capacity();
+		for (int s=0; s<cap; s++) {
+			int i=h.keyAt(s);
+			if (i==IntDoubleHashMap.EMPTY) continue;
 			if ((i<0)||(i>=length)) throw new VectorzException(ErrorMessages.invalidIndex(this, i));
-			if (e.getValue()==0.0) throw new VectorzException("Unexpected zero at index: "+i);
+			if (h.valueAt(s)==0.0) throw new VectorzException("Unexpected zero at index: "+i);
+			if (h.get(i)!=h.valueAt(s)) throw new VectorzException("Unreachable hash entry at index: "+i);
 		}
 		super.validate();
 	}
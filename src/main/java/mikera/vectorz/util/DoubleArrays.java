@@ -10,8 +10,40 @@ public final class DoubleArrays {
 	private DoubleArrays(){}
 
 	public static final double[] EMPTY = new double[0];
+	
+	/**
+	 * Accelerated kernel implementation, or null if not available on this JVM.
+	 * 
+	 * The JDK Vector API backend is used if the jdk.incubator.vector module is present at runtime.
+	 * It can be disabled with the system property -Dvectorz.simd=false
+	 */
+	static final IArrayKernels KERNELS = loadKernels();
+	
+	// minimum array length for which the accelerated kernels are used
+	// shorter arrays are faster with simple scalar loops
+	static final int KERNEL_THRESHOLD = 32;
+
+	private static IArrayKernels loadKernels() {
+		try {
+			if ("false".equals(System.getProperty("vectorz.simd"))) return null;
+			if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) return null;
+			Class<?> c=Class.forName("mikera.vectorz.util.VectorApiKernels");
+			return (IArrayKernels) c.getDeclaredConstructor().newInstance();
+		} catch (Throwable t) {
+			// fall back to scalar implementations
+			return null;
+		}
+	}
+	
+	/**
+	 * Returns true if an accelerated SIMD implementation of the core array kernels is in use
+	 */
+	public static boolean isAccelerated() {
+		return KERNELS!=null;
+	}
 
 	public static final double elementSum(double[] data) {
+		if ((KERNELS!=null)&&(data.length>=KERNEL_THRESHOLD)) return KERNELS.elementSum(data,0,data.length);
 		double result = 0.0;
 		for (int i=0; i<data.length; i++) {
 			result+=data[i];
@@ -20,6 +52,7 @@ public final class DoubleArrays {
 	}
 	
 	public static final double elementSum(double[] data, int offset, int length) {
+		if ((KERNELS!=null)&&(length>=KERNEL_THRESHOLD)) return KERNELS.elementSum(data,offset,length);
 		double result = 0.0;
 		for (int i=0; i<length; i++) {
 			result+=data[offset+i];
@@ -129,6 +162,7 @@ public final class DoubleArrays {
 	}
 	
 	public static double elementSquaredSum(double[] data) {
+		if ((KERNELS!=null)&&(data.length>=KERNEL_THRESHOLD)) return KERNELS.elementSquaredSum(data,0,data.length);
 		double result = 0.0;
 		for (int i=0; i<data.length; i++) {
 			double x=data[i];
@@ -138,6 +172,7 @@ public final class DoubleArrays {
 	}
 	
 	public static double elementSquaredSum(double[] data, int offset, int length) {
+		if ((KERNELS!=null)&&(length>=KERNEL_THRESHOLD)) return KERNELS.elementSquaredSum(data,offset,length);
 		double result = 0.0;
 		for (int i=0; i<length; i++) {
 			double x=data[offset+i];
@@ -194,18 +229,30 @@ public final class DoubleArrays {
 	}
 
 	public static void multiply(double[] data, int offset, int length, double value) {
+		if ((KERNELS!=null)&&(length>=KERNEL_THRESHOLD)) {
+			KERNELS.multiply(data,offset,length,value);
+			return;
+		}
 		for (int i=0; i<length; i++) {
 			data[offset+i]*=value;
 		}
 	}
 	
 	public static void multiply(double[] data, double value) {
+		if ((KERNELS!=null)&&(data.length>=KERNEL_THRESHOLD)) {
+			KERNELS.multiply(data,0,data.length,value);
+			return;
+		}
 		for (int i=0; i<data.length; i++) {
 			data[i]*=value;
 		}
 	}
 	
 	public static void multiply(double[] dest, double[] src) {
+		if ((KERNELS!=null)&&(dest.length>=KERNEL_THRESHOLD)) {
+			KERNELS.arraymultiply(src,0,dest,0,dest.length);
+			return;
+		}
 		for (int i=0; i<dest.length; i++) {
 			dest[i]*=src[i];
 		}
@@ -278,6 +325,10 @@ public final class DoubleArrays {
 	}
 	
 	public static void addMultiple(double[] dest, int offset, double[] src, int srcOffset, int length, double factor) {
+		if ((KERNELS!=null)&&(length>=KERNEL_THRESHOLD)) {
+			KERNELS.addMultiple(dest,offset,src,srcOffset,length,factor);
+			return;
+		}
 		for (int i=0; i<length; i++) {
 			dest[offset+i]+=factor*src[srcOffset+i];
 		}
@@ -290,6 +341,10 @@ public final class DoubleArrays {
 	}
 	
 	public static void addProduct(double[] dest, int offset, double[] src1, int src1Offset, double[] src2, int src2Offset, int length, double factor) {
+		if ((KERNELS!=null)&&(length>=KERNEL_THRESHOLD)) {
+			KERNELS.addProduct(dest,offset,src1,src1Offset,src2,src2Offset,length,factor);
+			return;
+		}
 		for (int i=0; i<length; i++) {
 			dest[offset+i]+=factor*src1[src1Offset+i]*src2[src2Offset+i];
 		}
@@ -308,6 +363,10 @@ public final class DoubleArrays {
 	}
 
 	public static void arraymultiply(double[] src, int srcOffset, double[] dest, int destOffset, int length) {
+		if ((KERNELS!=null)&&(length>=KERNEL_THRESHOLD)) {
+			KERNELS.arraymultiply(src,srcOffset,dest,destOffset,length);
+			return;
+		}
 		for (int i=0; i<length; i++) {
 			dest[destOffset+i]*=src[srcOffset+i];
 		}
@@ -320,6 +379,7 @@ public final class DoubleArrays {
 	}
 
 	public static double dotProduct(double[] a, int aOffset, double[] b, int bOffset, int length) {
+		if ((KERNELS!=null)&&(length>=KERNEL_THRESHOLD)) return KERNELS.dotProduct(a,aOffset,b,bOffset,length);
 		double result=0.0;
 		for (int i=0; i<length; i++) {
 			double bval=b[bOffset+i];
@@ -639,6 +699,10 @@ public final class DoubleArrays {
 
 	public static void addMultiple(double[] dest, double[] src, double factor) {
 		int len=dest.length;
+		if ((KERNELS!=null)&&(len>=KERNEL_THRESHOLD)) {
+			KERNELS.addMultiple(dest,0,src,0,len,factor);
+			return;
+		}
 		for (int i=0; i<len; i++) {
 			dest[i]+=src[i]*factor;
 		}
@@ -646,6 +710,10 @@ public final class DoubleArrays {
 	
 	public static void addMultiple(double[] dest, double[] src, int srcOffset, double factor) {
 		int len=dest.length;
+		if ((KERNELS!=null)&&(len>=KERNEL_THRESHOLD)) {
+			KERNELS.addMultiple(dest,0,src,srcOffset,len,factor);
+			return;
+		}
 		for (int i=0; i<len; i++) {
 			dest[i]+=src[srcOffset+i]*factor;
 		}
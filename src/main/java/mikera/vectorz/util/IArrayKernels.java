@@ -0,0 +1,27 @@
+package mikera.vectorz.util;
+
+/**
+ * Interface for accelerated implementations of the hot double[] kernels in DoubleArrays.
+ * 
+ * Implementations are loaded at runtime if supported by the JVM, e.g. the JDK Vector API 
+ * backend in VectorApiKernels. Semantics must match the scalar versions in DoubleArrays,
+ * though the order of summation in reductions may differ.
+ * 
+ * @author Mike
+ */
+interface IArrayKernels {
+
+	public double dotProduct(double[] a, int aOffset, double[] b, int bOffset, int length);
+	
+	public double elementSum(double[] data, int offset, int length);
+	
+	public double elementSquaredSum(double[] data, int offset, int length);
+	
+	public void multiply(double[] data, int offset, int length, double value);
+	
+	public void arraymultiply(double[] src, int srcOffset, double[] dest, int destOffset, int length);
+	
+	public void addMultiple(double[] dest, int offset, double[] src, int srcOffset, int length, double factor);
+	
+	public void addProduct(double[] dest, int offset, double[] src1, int src1Offset, double[] src2, int src2Offset, int length, double factor);
+}
@@ -0,0 +1,294 @@
+package mikera.vectorz.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Primitive hash map from non-negative int keys to double values.
+ *
+ * Uses open addressing with linear probing in power-of-two sized arrays, so entries
+ * are stored without boxing or per-entry objects. Deletion shifts later entries in the
+ * same probe run backwards rather than leaving tombstones, so lookups never slow down
+ * after many removals.
+ *
+ * Entries can be iterated directly by slot using capacity(), keyAt(int) and valueAt(int).
+ *
+ * @author Mike
+ *
+ */
+public final class IntDoubleHashMap implements Serializable, Cloneable {
+	private static final long serialVersionUID = -3381326451736478302L;
+
+	/**
+	 * Key value used to mark an empty slot
+	 */
+	public static final int EMPTY=-1;
+
+	private static final int MIN_CAPACITY=8;
+
+	private int[] keys;
+	private double[] values;
+	private int size=0;
+	private int mask;
+
+	public IntDoubleHashMap() {
+		this(MIN_CAPACITY/2);
+	}
+
+	/**
+	 * Creates a map with capacity for at least the given number of entries before resizing
+	 * @param expectedSize
+	 */
+	public IntDoubleHashMap(int expectedSize) {
+		allocate(capacityFor(expectedSize));
+	}
+
+	private static int capacityFor(int n) {
+		int cap=MIN_CAPACITY;
+		// keep load factor at or below 0.5 so probe runs stay short
+		while (cap<2L*n) cap<<=1;
+		return cap;
+	}
+
+	private void allocate(int capacity) {
+		keys=new int[capacity];
+		Arrays.fill(keys, EMPTY);
+		values=new double[capacity];
+		mask=capacity-1;
+	}
+
+	private static int hash(int key) {
+		int h=key*0x9E3779B9;
+		return h^(h>>>16);
+	}
+
+	/**
+	 * Returns the slot containing the key, or -1 if not present
+	 */
+	private int find(int key) {
+		int[] ks=keys;
+		int i=hash(key)&mask;
+		while (true) {
+			int k=ks[i];
+			if (k==key) return i;
+			if (k==EMPTY) return -1;
+			i=(i+1)&mask;
+		}
+	}
+
+	/**
+	 * Returns the number of entries in this map
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size==0;
+	}
+
+	public boolean containsKey(int key) {
+		return find(key)>=0;
+	}
+
+	/**
+	 * Gets the value for a key, or 0.0 if the key is not present
+	 * @param key
+	 * @return
+	 */
+	public double get(int key) {
+		int i=find(key);
+		return (i<0)?0.0:values[i];
+	}
+
+	/**
+	 * Sets the value for a key
+	 * @param key A non-negative key
+	 * @param value
+	 */
+	public void put(int key, double value) {
+		if (key<0) throw new IllegalArgumentException(ErrorMessages.position(key));
+		int[] ks=keys;
+		int i=hash(key)&mask;
+		while (true) {
+			int k=ks[i];
+			if (k==key) {
+				values[i]=value;
+				return;
+			}
+			if (k==EMPTY) break;
+			i=(i+1)&mask;
+		}
+		if (2*(size+1)>ks.length) {
+			resize(ks.length*2);
+			put(key,value);
+			return;
+		}
+		ks[i]=key;
+		values[i]=value;
+		size++;
+	}
+
+	/**
+	 * Adds a value to the entry for a key, creating the entry if necessary
+	 * @param key A non-negative key
+	 * @param value
+	 * @return The new value associated with the key
+	 */
+	public double addValue(int key, double value) {
+		int i=find(key);
+		if (i>=0) {
+			return values[i]+=value;
+		}
+		put(key,value);
+		return value;
+	}
+
+	/**
+	 * Removes the entry for a key, if present
+	 * @param key
+	 * @return true if an entry was removed
+	 */
+	public boolean remove(int key) {
+		int i=find(key);
+		if (i<0) return false;
+		int[] ks=keys;
+		int j=i;
+		while (true) {
+			j=(j+1)&mask;
+			int k=ks[j];
+			if (k==EMPTY) break;
+			int h=hash(k)&mask;
+			// move the entry at j into the hole at i unless its home slot lies cyclically in (i,j]
+			if ((j>i)?((h<=i)||(h>j)):((h<=i)&&(h>j))) {
+				ks[i]=k;
+				values[i]=values[j];
+				i=j;
+			}
+		}
+		ks[i]=EMPTY;
+		values[i]=0.0;
+		size--;
+		return true;
+	}
+
+	/**
+	 * Removes all entries, releasing any excess capacity
+	 */
+	public void clear() {
+		allocate(MIN_CAPACITY);
+		size=0;
+	}
+
+	private void resize(int capacity) {
+		int[] oldKeys=keys;
+		double[] oldValues=values;
+		allocate(capacity);
+		int[] ks=keys;
+		for (int s=0; s<oldKeys.length; s++) {
+			int k=oldKeys[s];
+			if (k==EMPTY) continue;
+			int i=hash(k)&mask;
+			while (ks[i]!=EMPTY) i=(i+1)&mask;
+			ks[i]=k;
+			values[i]=oldValues[s];
+		}
+	}
+
+	/**
+	 * Multiplies all values in this map by a factor
+	 * @param factor
+	 */
+	public void multiply(double factor) {
+		int[] ks=keys;
+		for (int s=0; s<ks.length; s++) {
+			if (ks[s]!=EMPTY) values[s]*=factor;
+		}
+	}
+
+	/**
+	 * Returns the number of slots in the underlying table
+	 * @return
+	 */
+	public int capacity() {
+		return keys.length;
+	}
+
+	/**
+	 * Returns the key stored in a slot, or EMPTY if the slot is unused
+	 * @param slot
+	 * @return
+	 */
+	public int keyAt(int slot) {
+		return keys[slot];
+	}
+
+	/**
+	 * Returns the value stored in a slot. Unused slots always contain 0.0
+	 * @param slot
+	 * @return
+	 */
+	public double valueAt(int slot) {
+		return values[slot];
+	}
+
+	/**
+	 * Sets the value stored in a used slot
+	 * @param slot
+	 * @param value
+	 */
+	public void setValueAt(int slot, double value) {
+		values[slot]=value;
+	}
+
+	/**
+	 * Returns all keys in ascending order
+	 * @return
+	 */
+	public int[] sortedKeys() {
+		int[] result=new int[size];
+		int di=0;
+		for (int k: keys) {
+			if (k!=EMPTY) result[di++]=k;
+		}
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * Copies all entries into the given arrays in ascending key order, for example to build a
+	 * SparseIndexedVector. Both arrays must have length at least size().
+	 *
+	 * @param destKeys
+	 * @param destValues
+	 */
+	public void getSortedEntries(int[] destKeys, double[] destValues) {
+		int n=size;
+		// pack key and slot into a single long, so that one primitive sort orders both
+		long[] order=new long[n];
+		int di=0;
+		for (int s=0; s<keys.length; s++) {
+			int k=keys[s];
+			if (k!=EMPTY) order[di++]=(((long)k)<<32)|s;
+		}
+		Arrays.sort(order);
+		for (int i=0; i<n; i++) {
+			long o=order[i];
+			destKeys[i]=(int)(o>>>32);
+			destValues[i]=values[(int)o];
+		}
+	}
+
+	@Override
+	public IntDoubleHashMap clone() {
+		try {
+			IntDoubleHashMap m=(IntDoubleHashMap) super.clone();
+			m.keys=keys.clone();
+			m.values=values.clone();
+			return m;
+		} catch (CloneNotSupportedException e) {
+			throw new VectorzException(ErrorMessages.impossible());
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package mikera.vectorz.util;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD implementation of the core DoubleArrays kernels using the JDK Vector API.
+ * 
+ * Only compiled on JDK 17+, and only loaded by DoubleArrays if the jdk.incubator.vector 
+ * module is available at runtime (e.g. the JVM is started with --add-modules jdk.incubator.vector)
+ * 
+ * @author Mike
+ */
+final class VectorApiKernels implements IArrayKernels {
+	private static final VectorSpecies<Double> SPECIES=DoubleVector.SPECIES_PREFERRED;
+	private static final int LANES=SPECIES.length();
+	
+	VectorApiKernels() {
+		if (LANES<2) throw new UnsupportedOperationException("No SIMD support for doubles");
+	}
+
+	@Override
+	public double dotProduct(double[] a, int aOffset, double[] b, int bOffset, int length) {
+		DoubleVector acc=DoubleVector.zero(SPECIES);
+		int bound=SPECIES.loopBound(length);
+		int i=0;
+		for (; i<bound; i+=LANES) {
+			DoubleVector va=DoubleVector.fromArray(SPECIES, a, aOffset+i);
+			DoubleVector vb=DoubleVector.fromArray(SPECIES, b, bOffset+i);
+			acc=va.fma(vb, acc);
+		}
+		double result=acc.reduceLanes(VectorOperators.ADD);
+		for (; i<length; i++) {
+			result+=a[aOffset+i]*b[bOffset+i];
+		}
+		return result;
+	}
+
+	@Override
+	public double elementSum(double[] data, int offset, int length) {
+		DoubleVector acc=DoubleVector.zero(SPECIES);
+		int bound=SPECIES.loopBound(length);
+		int i=0;
+		for (; i<bound; i+=LANES) {
+			acc=acc.add(DoubleVector.fromArray(SPECIES, data, offset+i));
+		}
+		double result=acc.reduceLanes(VectorOperators.ADD);
+		for (; i<length; i++) {
+			result+=data[offset+i];
+		}
+		return result;
+	}
+
+	@Override
+	public double elementSquaredSum(double[] data, int offset, int length) {
+		DoubleVector acc=DoubleVector.zero(SPECIES);
+		int bound=SPECIES.loopBound(length);
+		int i=0;
+		for (; i<bound; i+=LANES) {
+			DoubleVector v=DoubleVector.fromArray(SPECIES, data, offset+i);
+			acc=v.fma(v, acc);
+		}
+		double result=acc.reduceLanes(VectorOperators.ADD);
+		for (; i<length; i++) {
+			double x=data[offset+i];
+			result+=x*x;
+		}
+		return result;
+	}
+
+	@Override
+	public void multiply(double[] data, int offset, int length, double value) {
+		int bound=SPECIES.loopBound(length);
+		int i=0;
+		for (; i<bound; i+=LANES) {
+			DoubleVector.fromArray(SPECIES, data, offset+i).mul(value).intoArray(data, offset+i);
+		}
+		for (; i<length; i++) {
+			data[offset+i]*=value;
+		}
+	}
+
+	@Override
+	public void arraymultiply(double[] src, int srcOffset, double[] dest, int destOffset, int length) {
+		int bound=SPECIES.loopBound(length);
+		int i=0;
+		for (; i<bound; i+=LANES) {
+			DoubleVector vs=DoubleVector.fromArray(SPECIES, src, srcOffset+i);
+			DoubleVector.fromArray(SPECIES, dest, destOffset+i).mul(vs).intoArray(dest, destOffset+i);
+		}
+		for (; i<length; i++) {
+			dest[destOffset+i]*=src[srcOffset+i];
+		}
+	}
+
+	@Override
+	public void addMultiple(double[] dest, int offset, double[] src, int srcOffset, int length, double factor) {
+		int bound=SPECIES.loopBound(length);
+		int i=0;
+		for (; i<bound; i+=LANES) {
+			DoubleVector vs=DoubleVector.fromArray(SPECIES, src, srcOffset+i);
+			DoubleVector vd=DoubleVector.fromArray(SPECIES, dest, offset+i);
+			vd.add(vs.mul(factor)).intoArray(dest, offset+i);
+		}
+		for (; i<length; i++) {
+			dest[offset+i]+=factor*src[srcOffset+i];
+		}
+	}
+
+	@Override
+	public void addProduct(double[] dest, int offset, double[] src1, int src1Offset, double[] src2, int src2Offset, int length, double factor) {
+		int bound=SPECIES.loopBound(length);
+		int i=0;
+		for (; i<bound; i+=LANES) {
+			DoubleVector v1=DoubleVector.fromArray(SPECIES, src1, src1Offset+i);
+			DoubleVector v2=DoubleVector.fromArray(SPECIES, src2, src2Offset+i);
+			DoubleVector vd=DoubleVector.fromArray(SPECIES, dest, offset+i);
+			vd.add(v1.mul(factor).mul(v2)).intoArray(dest, offset+i);
+		}
+		for (; i<length; i++) {
+			dest[offset+i]+=factor*src1[src1Offset+i]*src2[src2Offset+i];
+		}
+	}
+}
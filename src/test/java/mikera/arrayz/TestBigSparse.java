@@ -18,6 +18,7 @@ import mikera.vectorz.impl.RangeVector;
 import mikera.vectorz.impl.RepeatedElementVector;
 import mikera.vectorz.impl.SingleElementVector;
 import mikera.vectorz.impl.SparseIndexedVector;
+import mikera.vectorz.util.DoubleArrays;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -176,7 +177,8 @@ public class TestBigSparse {
 		AVector a=SparseIndexedVector.create(VALS, Indexz.createRandomChoice(VALS, SIZE), Vectorz.createUniformRandomVector(VALS));
 		AVector b=SparseIndexedVector.create(VALS, Indexz.createRandomChoice(VALS, SIZE), Vectorz.createUniformRandomVector(VALS));
 		a.dotProduct(b);
-		assertEquals(a.magnitudeSquared(),a.dotProduct(a),0.0);
+		// the SIMD kernel for the dense values sums in a different order from the sparse dot product
+		assertEquals(a.magnitudeSquared(),a.dotProduct(a),DoubleArrays.isAccelerated()?1e-10:0.0);
 	}
 	
 	@Test public void testSparseColumnDotProduct() {
@@ -24,6 +24,7 @@ import mikera.matrixx.impl.PermutedMatrix;
 import mikera.matrixx.impl.QuadtreeMatrix;
 import mikera.matrixx.impl.RowMatrix;
 import mikera.matrixx.impl.ScalarMatrix;
+import mikera.matrixx.impl.CSRMatrix;
 import mikera.matrixx.impl.SparseColumnMatrix;
 import mikera.matrixx.impl.SparseRowMatrix;
 import mikera.matrixx.impl.StridedMatrix;
@@ -735,6 +736,12 @@ public class TestMatrices {
 		doGenericTests(SparseRowMatrix.create(Matrixx.createRandomSquareMatrix(3)));
 	}
 	
+	@Test public void g_CSRMatrix() {	
+		doGenericTests(CSRMatrix.create(SparseRowMatrix.create(Vector.of(0,1,-Math.E),null,null,AxisVector.create(2, 3))));
+		doGenericTests(CSRMatrix.create(Matrixx.createRandomSquareMatrix(3)));
+		doGenericTests(CSRMatrix.create(4, 5));
+	}
+	
 	@Test public void g_SparseColumnMatrix() {	
 		doGenericTests(SparseColumnMatrix.create(Vector.of(0,1,-Math.PI),null,null,AxisVector.create(2, 3)));
 		doGenericTests(SparseColumnMatrix.create(Matrixx.createRandomSquareMatrix(3)));
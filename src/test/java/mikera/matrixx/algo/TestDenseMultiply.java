@@ -1,24 +1,43 @@
 package mikera.matrixx.algo;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 
 import org.junit.jupiter.api.Test;
 
 import mikera.matrixx.AMatrix;
 import mikera.matrixx.Matrix;
 import mikera.matrixx.Matrixx;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+import mikera.vectorz.Vectorz;
+import mikera.vectorz.impl.SparseIndexedVector;
+import mikera.vectorz.util.DoubleArrays;
 
 
 public class TestDenseMultiply {
 
+	/**
+	 * Checks that products computed by different methods are equal. The SIMD dot product kernel
+	 * sums in a different order from the other methods, so is only equal to within rounding.
+	 */
+	private static void assertSameProduct(AMatrix expected, AMatrix actual) {
+		if (DoubleArrays.isAccelerated()) {
+			assertTrue(expected.epsilonEquals(actual));
+		} else {
+			assertEquals(expected,actual);
+		}
+	}
+
 	@Test
 	public void testBigMul() {
 		Matrix m=(Matrix)Matrixx.createRandomMatrix(50, 50);
 		AMatrix ip=m.innerProduct(m);
-		assertEquals(ip,Multiplications.multiply(m, m));
-		assertEquals(ip,Multiplications.blockedMultiply(m, m));
-		assertEquals(ip,Multiplications.doubleBlockedMultiply(m, m));
-		assertEquals(ip,Multiplications.naiveMultiply(m, m));
+		assertSameProduct(ip,Multiplications.multiply(m, m));
+		assertSameProduct(ip,Multiplications.blockedMultiply(m, m));
+		assertSameProduct(ip,Multiplications.doubleBlockedMultiply(m, m));
+		assertSameProduct(ip,Multiplications.naiveMultiply(m, m));
 	}
 	
 	@Test public void testSmallMul() {
@@ -47,4 +66,164 @@ public class TestDenseMultiply {
 		assertEquals(ip,Multiplications.blockedMultiply(mt, m));
 		assertEquals(ip,Multiplications.naiveMultiply(mt, m));
 	}
+	
+	@Test public void testParallelMul() {
+		Matrix a=(Matrix)Matrixx.createRandomMatrix(127, 65);
+		Matrix b=(Matrix)Matrixx.createRandomMatrix(65, 93);
+		AMatrix ip=Multiplications.naiveMultiply(a, b);
+		assertSameProduct(ip,Multiplications.parallelMultiply(a, b));
+		
+		long threshold=Multiplications.getParallelThreshold();
+		try {
+			Multiplications.setParallelThreshold(0);
+			assertSameProduct(ip,Multiplications.blockedMultiply(a, b));
+			assertSameProduct(ip,a.innerProduct(b));
+		} finally {
+			Multiplications.setParallelThreshold(threshold);
+		}
+	}
+	
+	@Test public void testPackedMul() {
+		Matrix a=(Matrix)Matrixx.createRandomMatrix(70, 301);
+		Matrix b=(Matrix)Matrixx.createRandomMatrix(301, 33);
+		AMatrix ip=Multiplications.naiveMultiply(a, b);
+		assertTrue(ip.epsilonEquals(Multiplications.packedMultiply(a, b)));
+		assertTrue(ip.epsilonEquals(Multiplications.multiply(a, b)));
+		
+		// strided second argument
+		Matrix bt=b.toMatrixTranspose();
+		assertTrue(ip.epsilonEquals(Multiplications.packedMultiply(a, bt.getTranspose())));
+		assertTrue(ip.epsilonEquals(Multiplications.packedMultiply(a, b.subMatrix(0, 301, 0, 33))));
+		
+		// sizes that are not multiples of the register block size
+		Matrix c=(Matrix)Matrixx.createRandomMatrix(5, 3);
+		Matrix d=(Matrix)Matrixx.createRandomMatrix(3, 7);
+		assertTrue(Multiplications.naiveMultiply(c, d).epsilonEquals(Multiplications.packedMultiply(c, d)));
+	}
+	
+	@Test public void testMultiplyInto() {
+		MultiplyWorkspace ws=new MultiplyWorkspace();
+		Matrix dest=Matrix.create(70, 33);
+		for (int n: new int[] {5,301}) {
+			Matrix a=(Matrix)Matrixx.createRandomMatrix(70, n);
+			Matrix b=(Matrix)Matrixx.createRandomMatrix(n, 33);
+			AMatrix ip=Multiplications.naiveMultiply(a, b);
+			
+			dest.fill(1.0);
+			Multiplications.multiplyInto(dest, a, b, ws);
+			assertTrue(ip.epsilonEquals(dest));
+			
+			// non-strided second argument uses the blocked path
+			dest.fill(1.0);
+			Multiplications.multiplyInto(dest, a, b.sparseClone(), ws);
+			assertTrue(ip.epsilonEquals(dest));
+			
+			// strided first argument
+			dest.fill(1.0);
+			Multiplications.multiplyInto(dest, a.toMatrixTranspose().getTranspose(), b, ws);
+			assertTrue(ip.epsilonEquals(dest));
+			
+			dest.fill(1.0);
+			dest.setInnerProduct(a, b);
+			assertTrue(ip.epsilonEquals(dest));
+		}
+		
+		try {
+			Matrix m=Matrix.create(33,33);
+			Multiplications.multiplyInto(m, m, m);
+			fail("Aliased destination should fail");
+		} catch (IllegalArgumentException e) {
+			// OK
+		}
+		
+		try {
+			Multiplications.multiplyInto(Matrix.create(3,3), Matrix.create(3,4), Matrix.create(4,2));
+			fail("Wrong destination shape should fail");
+		} catch (IllegalArgumentException e) {
+			// OK
+		}
+	}
+	
+	@Test public void testTransposeFlags() {
+		for (int n: new int[] {3,70}) {
+			Matrix a=(Matrix)Matrixx.createRandomMatrix(n, 9);
+			Matrix b=(Matrix)Matrixx.createRandomMatrix(9, n+2);
+			Matrix at=a.toMatrixTranspose();
+			Matrix bt=b.toMatrixTranspose();
+			AMatrix ip=Multiplications.naiveMultiply(a, b);
+			
+			assertTrue(ip.epsilonEquals(Multiplications.multiply(a, false, b, false)));
+			assertTrue(ip.epsilonEquals(Multiplications.multiply(at, true, b, false)));
+			assertTrue(ip.epsilonEquals(Multiplications.multiply(a, false, bt, true)));
+			assertTrue(ip.epsilonEquals(Multiplications.multiply(at, true, bt, true)));
+			assertTrue(ip.epsilonEquals(at.transposeInnerProduct(b)));
+			
+			// non-dense arguments
+			assertTrue(ip.epsilonEquals(Multiplications.multiply(at.sparseClone(), true, bt.sparseClone(), true)));
+			
+			Matrix dest=Matrix.create(n, n+2);
+			Multiplications.multiplyInto(dest, at, true, bt, true, new MultiplyWorkspace());
+			assertTrue(ip.epsilonEquals(dest));
+		}
+	}
+	
+	@Test public void testGram() {
+		long threshold=Multiplications.getParallelThreshold();
+		try {
+			for (long t: new long[] {threshold, 0}) {
+				Multiplications.setParallelThreshold(t);
+				for (int n: new int[] {1,7,150}) {
+					Matrix a=(Matrix)Matrixx.createRandomMatrix(n+10, n);
+					Matrix at=a.toMatrixTranspose();
+					
+					AMatrix g=Multiplications.gram(a);
+					assertTrue(g.isSymmetric());
+					assertTrue(Multiplications.naiveMultiply(at, a).epsilonEquals(g));
+					assertTrue(g.epsilonEquals(a.transposeInnerProduct(a)));
+					assertTrue(g.epsilonEquals(Multiplications.outerGram(at)));
+					assertTrue(g.epsilonEquals(Multiplications.gram(a.sparseClone())));
+				}
+			}
+		} finally {
+			Multiplications.setParallelThreshold(threshold);
+		}
+	}
+	
+	@Test public void testParallelTransform() {
+		Matrix m=Matrix.createRandom(300, 17);
+		AVector v=Vectorz.createUniformRandomVector(17);
+		AVector expected=Vector.createLength(300);
+		m.transform(v, expected);
+		
+		AVector r=Vector.createLength(300);
+		Multiplications.parallelTransform(m, v, r);
+		assertTrue(expected.epsilonEquals(r));
+		
+		AVector sparse=SparseIndexedVector.create(v);
+		AVector r2=SparseIndexedVector.createLength(300);
+		Multiplications.parallelTransform(m.subMatrix(0, 300, 0, 17), sparse, r2);
+		assertTrue(expected.epsilonEquals(r2));
+		
+		Matrix t=Matrix.createRandom(17, 300);
+		AVector tv=Vectorz.createUniformRandomVector(17);
+		AVector tr=Vector.createLength(300);
+		Multiplications.parallelTransform(t.getTransposeView(), tv, tr);
+		assertTrue(t.getTranspose().innerProduct(tv).epsilonEquals(tr));
+		
+		// sparse sources stay on the sparse path, both sequentially and when split
+		long threshold=Multiplications.getParallelThreshold();
+		try {
+			for (long th: new long[] {threshold, 0}) {
+				Multiplications.setParallelThreshold(th);
+				Matrix big=Matrix.createRandom(4000, 100);
+				AVector sv=SparseIndexedVector.createLength(100);
+				for (int i=0; i<100; i+=2) sv.set(i, i+1.0);
+				AVector sr=Vector.createLength(4000);
+				Multiplications.parallelTransform(big, sv, sr);
+				assertTrue(big.innerProduct(sv.dense()).epsilonEquals(sr, 1e-10));
+			}
+		} finally {
+			Multiplications.setParallelThreshold(threshold);
+		}
+	}
 }
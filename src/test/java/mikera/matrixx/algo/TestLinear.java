@@ -31,6 +31,14 @@ public class TestLinear {
         assertTrue(Vector.of(0,0.5).epsilonEquals(x));
     }
     
+    @Test 
+    public void testSolveLeastSquaresUnderdetermined() {
+        final AMatrix m= Matrix.create(new double[][] {{1,3,5},{2,4,6}});
+        
+        assertThrows(IllegalArgumentException.class,()->Linear.solveLeastSquares(m, Vector.of(1,2)));
+        assertThrows(IllegalArgumentException.class,()->Linear.solveLeastSquares(m, Matrix.create(new double[][]{{1},{2}})));
+    }
+    
     @Test 
     public void testSolveSquareVector() {
         AMatrix m= Matrix.create(new double[][] {{1,2,2},{1,4,1},{5,9,2}});
@@ -0,0 +1,83 @@
+package mikera.matrixx.algo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.impl.CSRMatrix;
+import mikera.matrixx.impl.SparseRowMatrix;
+import mikera.util.Rand;
+import mikera.vectorz.Vector;
+
+public class TestSparseMultiply {
+
+	private Matrix createRandomSparse(int rows, int cols, int n) {
+		Matrix m=Matrix.create(rows, cols);
+		for (int i=0; i<n; i++) {
+			m.set(Rand.r(rows),Rand.r(cols),Rand.nextGaussian());
+		}
+		return m;
+	}
+
+	@Test public void testSparseRowMultiply() {
+		Matrix a=createRandomSparse(50, 40, 200);
+		Matrix b=createRandomSparse(40, 60, 200);
+		Matrix expected=a.innerProduct(b);
+
+		SparseRowMatrix sa=SparseRowMatrix.create(a);
+		SparseRowMatrix sb=SparseRowMatrix.create(b);
+		SparseRowMatrix r=SparseMultiplications.multiply(sa, sb);
+		r.validate();
+		assertTrue(expected.epsilonEquals(r));
+		assertTrue(expected.epsilonEquals(sa.innerProduct((AMatrix)sb)));
+
+		// mixed row types, including null and dense rows
+		SparseRowMatrix m=SparseRowMatrix.create(Vector.of(1,0,2),null,Vector.of(0,3,0));
+		AMatrix md=m.toMatrix();
+		assertEquals(md.innerProduct(md),SparseMultiplications.multiply(m, m));
+	}
+
+	@Test public void testCSRMultiply() {
+		Matrix a=createRandomSparse(30, 45, 150);
+		Matrix b=createRandomSparse(45, 20, 150);
+		Matrix expected=a.innerProduct(b);
+
+		CSRMatrix ca=CSRMatrix.create(a);
+		CSRMatrix cb=CSRMatrix.create(b);
+		CSRMatrix r1=SparseMultiplications.multiply(ca, cb, true);
+		CSRMatrix r2=SparseMultiplications.multiply(ca, cb, false);
+		r1.validate();
+		r2.validate();
+		assertTrue(expected.epsilonEquals(r1));
+		assertEquals(r1,r2);
+		assertEquals(r1.storedElementCount(),r2.storedElementCount());
+		assertTrue(expected.epsilonEquals(ca.innerProduct((AMatrix)cb)));
+	}
+
+	@Test public void testParallelMultiply() throws Exception {
+		Matrix a=createRandomSparse(400, 300, 4000);
+		Matrix b=createRandomSparse(300, 350, 12000);
+		final SparseRowMatrix sa=SparseRowMatrix.create(a);
+		final SparseRowMatrix sb=SparseRowMatrix.create(b);
+		final CSRMatrix ca=CSRMatrix.create(a);
+		final CSRMatrix cb=CSRMatrix.create(b);
+		SparseRowMatrix serial=SparseMultiplications.multiply(sa, sb);
+
+		// running inside a pool allows row ranges to be split across workers
+		ForkJoinPool pool=new ForkJoinPool(4);
+		try {
+			SparseRowMatrix r=pool.submit(() -> SparseMultiplications.multiply(sa, sb)).get();
+			assertEquals(serial,r);
+			CSRMatrix cr=pool.submit(() -> SparseMultiplications.multiply(ca, cb)).get();
+			cr.validate();
+			assertEquals(serial,cr);
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -68,6 +68,27 @@ public class TestBidiagonalRow {
         }
     }
 
+    /**
+     * Sizes large enough to use one or more panels of the blocked reduction
+     */
+    @Test
+    public void testBlocked() {
+        int[][] shapes = {{140,140},{200,150},{150,210},{300,170}};
+        for( int[] shape : shapes ) {
+            Matrix A = Matrix.createRandom(shape[0],shape[1]);
+
+            IBidiagonalResult ans = BidiagonalRow.decompose(A);
+            assertNotNull(ans);
+            assertTrue(ans.getU().isOrthogonal(1e-10));
+            assertTrue(ans.getV().isOrthogonal(1e-10));
+            checkGeneric(A, ans);
+
+            IBidiagonalResult ansCompact = BidiagonalRow.decompose(A, true);
+            assertNotNull(ansCompact);
+            checkGenericCompact(A, ansCompact);
+        }
+    }
+
     @Test
     public void testIdentity() {
         Matrix A = Matrix.createIdentity(5);
@@ -0,0 +1,99 @@
+package mikera.matrixx.decompose.impl.chol;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.decompose.ICholeskyLDUResult;
+import mikera.matrixx.decompose.ICholeskyResult;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vectorz;
+
+public class TestCholeskyUpdate {
+
+	private static Matrix createSPD(int n) {
+		Matrix z=Matrix.createRandom(n, n);
+		Matrix a=z.innerProduct(z.getTranspose()).toMatrix();
+		for (int i=0; i<n; i++) a.addAt(i, i, 1.0);
+		return a;
+	}
+
+	@Test public void testRankOne() {
+		int n=40;
+		Matrix a=createSPD(n);
+		AVector x=Vectorz.createUniformRandomVector(n);
+		ICholeskyResult r=Cholesky.decompose(a);
+		AMatrix l=r.getL();
+
+		r.update(x);
+		Matrix b=a.clone();
+		b.addOuterProduct(x, x);
+		assertSame(l,r.getL());
+		assertTrue(Cholesky.decompose(b).getL().epsilonEquals(r.getL(), 1e-10));
+		assertTrue(r.getL().innerProduct(r.getU()).epsilonEquals(b, 1e-10));
+
+		assertTrue(r.downdate(x));
+		assertTrue(Cholesky.decompose(a).getL().epsilonEquals(r.getL(), 1e-8));
+	}
+
+	@Test public void testRankK() {
+		int n=30;
+		Matrix a=createSPD(n);
+		Matrix x=Matrix.createRandom(n, 4);
+		ICholeskyResult r=Cholesky.decompose(a);
+
+		r.update(x);
+		Matrix b=a.clone();
+		b.add(x.innerProduct(x.getTranspose()));
+		assertTrue(Cholesky.decompose(b).getL().epsilonEquals(r.getL(), 1e-10));
+
+		assertTrue(r.downdate(x));
+		assertTrue(r.getL().innerProduct(r.getU()).epsilonEquals(a, 1e-8));
+		assertTrue(r.getL().isLowerTriangular());
+	}
+
+	@Test public void testDowndateFailure() {
+		int n=10;
+		Matrix a=createSPD(n);
+		ICholeskyResult r=Cholesky.decompose(a);
+		Matrix l=r.getL().toMatrix().clone();
+
+		AVector x=Vectorz.newVector(n);
+		x.set(n-1, 100.0);
+		assertFalse(r.downdate(x));
+		assertEquals(l,r.getL());
+
+		Matrix xs=Matrix.create(n, 2);
+		xs.set(3, 0, 1.0);
+		xs.set(3, 1, 100.0);
+		assertFalse(r.downdate(xs));
+		assertEquals(l,r.getL());
+	}
+
+	@Test public void testLDU() {
+		int n=20;
+		Matrix a=createSPD(n);
+		Matrix x=Matrix.createRandom(n, 2);
+		ICholeskyLDUResult r=CholeskyLDU.decompose(a.clone());
+
+		r.update(x);
+		Matrix b=a.clone();
+		b.add(x.innerProduct(x.getTranspose()));
+		assertTrue(r.getL().innerProduct(r.getD()).innerProduct(r.getU()).epsilonEquals(b, 1e-10));
+
+		assertTrue(r.downdate(x.getColumn(1)));
+		assertTrue(r.downdate(x.getColumn(0)));
+		assertTrue(r.getL().innerProduct(r.getD()).innerProduct(r.getU()).epsilonEquals(a, 1e-8));
+	}
+
+	@Test public void testBadShape() {
+		ICholeskyResult r=Cholesky.decompose(createSPD(5));
+		assertThrows(IllegalArgumentException.class, () -> r.update(Vectorz.newVector(4)));
+	}
+}
@@ -0,0 +1,77 @@
+package mikera.matrixx.decompose.impl.chol;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.decompose.ICholeskyResult;
+
+public class TestParallelCholesky {
+
+	private static Matrix createSPD(int n) {
+		Matrix z=Matrix.createRandom(n, n);
+		Matrix a=z.innerProduct(z.getTranspose()).toMatrix();
+		for (int i=0; i<n; i++) a.addAt(i, i, n);
+		return a;
+	}
+
+	private void checkDecomposition(Matrix a, ICholeskyResult r) {
+		AMatrix l=r.getL();
+		assertTrue(l.isLowerTriangular());
+		assertTrue(l.innerProduct(r.getU()).epsilonEquals(a, 1e-8*a.elementMaxAbs()));
+	}
+
+	@Test public void testBlockWidths() {
+		for (int n: new int[] {1,5,37,130}) {
+			Matrix a=createSPD(n);
+			AMatrix expected=CholeskyInner.decompose(a.clone()).getL();
+			for (int blockWidth: new int[] {1,3,16,64,200}) {
+				ICholeskyResult r=Cholesky.decompose(a, blockWidth);
+				assertTrue(expected.epsilonEquals(r.getL(), 1e-10));
+				checkDecomposition(a,r);
+			}
+		}
+	}
+
+	@Test public void testParallel() throws Exception {
+		Matrix a=createSPD(700);
+		AMatrix expected=Cholesky.decompose(a, 128).getL();
+
+		ForkJoinPool pool=new ForkJoinPool(4);
+		try {
+			ICholeskyResult r=pool.submit(() -> Cholesky.decompose(a, 128)).get();
+			assertTrue(expected.epsilonEquals(r.getL(), 1e-10));
+			checkDecomposition(a,r);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test public void testNotPositiveDefinite() {
+		Matrix a=createSPD(100);
+		a.set(80, 80, -1.0);
+		assertNull(Cholesky.decompose(a, 16));
+		assertNull(Cholesky.decompose(Matrix.create(3, 3)));
+	}
+
+	@Test public void testDefaultBlockWidth() {
+		int old=Cholesky.getDefaultBlockWidth();
+		try {
+			Cholesky.setDefaultBlockWidth(8);
+			assertEquals(8,Cholesky.getDefaultBlockWidth());
+			Matrix a=createSPD(50);
+			checkDecomposition(a,Cholesky.decompose(a));
+		} finally {
+			Cholesky.setDefaultBlockWidth(old);
+		}
+		assertThrows(IllegalArgumentException.class, () -> Cholesky.setDefaultBlockWidth(0));
+		assertThrows(IllegalArgumentException.class, () -> Cholesky.decompose(createSPD(3), 0));
+	}
+}
@@ -0,0 +1,132 @@
+package mikera.matrixx.decompose.impl.eigen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.decompose.Eigen;
+import mikera.matrixx.decompose.IEigenResult;
+import mikera.matrixx.impl.SparseColumnMatrix;
+import mikera.matrixx.impl.SparseRowMatrix;
+import mikera.vectorz.AVector;
+
+public class TestLanczosEigenSolver {
+
+	private static Matrix createSymmetric(int n) {
+		Matrix z=Matrix.createRandom(n, n);
+		Matrix a=z.clone();
+		a.add(z.getTranspose());
+		return a;
+	}
+
+	private static SparseRowMatrix createPathLaplacian(int n) {
+		SparseRowMatrix a=SparseRowMatrix.create(n, n);
+		for (int i=0; i<n; i++) {
+			a.set(i, i, ((i==0)||(i==n-1))?1.0:2.0);
+			if (i>0) a.set(i, i-1, -1.0);
+			if (i<n-1) a.set(i, i+1, -1.0);
+		}
+		return a;
+	}
+
+	private static double[] sortedEigenvalues(AMatrix a) {
+		IEigenResult r=Eigen.decomposeSymmetric(a, false);
+		double[] values=new double[a.rowCount()];
+		for (int i=0; i<values.length; i++) {
+			values[i]=r.getEigenvalues()[i].x;
+		}
+		Arrays.sort(values);
+		return values;
+	}
+
+	private static void checkEigenpairs(AMatrix a, IEigenResult r, double tolerance) {
+		AVector[] vectors=r.getEigenVectors();
+		for (int i=0; i<vectors.length; i++) {
+			double lambda=r.getEigenvalues()[i].x;
+			AVector x=vectors[i];
+			assertEquals(1.0, x.magnitude(), 1e-10);
+			AVector ax=a.innerProduct(x);
+			ax.addMultiple(x, -lambda);
+			assertTrue(ax.magnitude()<tolerance);
+		}
+	}
+
+	@Test public void testDense() {
+		int n=60;
+		Matrix a=createSymmetric(n);
+		double[] expected=sortedEigenvalues(a);
+
+		LanczosEigenSolver largest=new LanczosEigenSolver(5,true);
+		largest.setRandom(new Random(1));
+		IEigenResult r=largest.decompose(a);
+		assertNotNull(r);
+		for (int i=0; i<5; i++) {
+			assertEquals(expected[n-1-i], r.getEigenvalues()[i].x, 1e-8);
+		}
+		checkEigenpairs(a,r,1e-7);
+
+		IEigenResult s=Eigen.decomposeSymmetric(a, 3, false);
+		assertNotNull(s);
+		for (int i=0; i<3; i++) {
+			assertEquals(expected[i], s.getEigenvalues()[i].x, 1e-8);
+		}
+		checkEigenpairs(a,s,1e-7);
+	}
+
+	@Test public void testSparseLaplacian() {
+		int n=200;
+		SparseRowMatrix a=createPathLaplacian(n);
+
+		LanczosEigenSolver solver=new LanczosEigenSolver(3,false);
+		solver.setRandom(new Random(2));
+		solver.setSubspaceSize(40);
+		IEigenResult r=solver.decompose(a);
+		assertNotNull(r);
+		for (int j=0; j<3; j++) {
+			assertEquals(2.0-2.0*Math.cos(Math.PI*j/n), r.getEigenvalues()[j].x, 1e-8);
+		}
+		checkEigenpairs(a,r,1e-7);
+
+		// column storage gives the same result
+		IEigenResult c=LanczosEigenSolver.decompose(SparseColumnMatrix.create(a), 2, true);
+		assertNotNull(c);
+		assertEquals(2.0-2.0*Math.cos(Math.PI*(n-1)/n), c.getEigenvalues()[0].x, 1e-8);
+		assertEquals(2.0-2.0*Math.cos(Math.PI*(n-2)/n), c.getEigenvalues()[1].x, 1e-8);
+	}
+
+	@Test public void testLocalReorthogonalisation() {
+		int n=100;
+		Matrix a=Matrix.create(n, n);
+		for (int i=0; i<n; i++) a.set(i, i, i+1);
+
+		LanczosEigenSolver solver=new LanczosEigenSolver(1,true);
+		solver.setFullReorthogonalisation(false);
+		solver.setComputeVectors(false);
+		solver.setRandom(new Random(3));
+		IEigenResult r=solver.decompose(a);
+		assertNotNull(r);
+		assertEquals(n, r.getEigenvalues()[0].x, 1e-8);
+		assertThrows(UnsupportedOperationException.class, () -> r.getEigenVectors());
+	}
+
+	@Test public void testWholeSpace() {
+		Matrix a=createSymmetric(6);
+		double[] expected=sortedEigenvalues(a);
+		IEigenResult r=LanczosEigenSolver.decompose(a, 6, false);
+		for (int i=0; i<6; i++) {
+			assertEquals(expected[i], r.getEigenvalues()[i].x, 1e-10);
+		}
+		checkEigenpairs(a,r,1e-8);
+
+		assertThrows(IllegalArgumentException.class, () -> LanczosEigenSolver.decompose(a, 7, true));
+		assertThrows(IllegalArgumentException.class, () -> LanczosEigenSolver.decompose(Matrix.create(3, 4), 1, true));
+	}
+}
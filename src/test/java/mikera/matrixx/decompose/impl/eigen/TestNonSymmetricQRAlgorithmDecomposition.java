@@ -0,0 +1,134 @@
+package mikera.matrixx.decompose.impl.eigen;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.decompose.Eigen;
+import mikera.matrixx.decompose.IEigenResult;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector2;
+
+public class TestNonSymmetricQRAlgorithmDecomposition {
+
+	/**
+	 * Checks that A.x = lambda.x for every eigenpair, using complex arithmetic
+	 */
+	private static void checkResult(AMatrix a, IEigenResult r, double tolerance) {
+		int n=a.rowCount();
+		Vector2[] values=r.getEigenvalues();
+		AVector[] re=r.getEigenVectors();
+		AVector[] im=r.getEigenVectorsImaginary();
+		assertEquals(n, values.length);
+
+		double trace=0.0;
+		for (int i=0; i<n; i++) {
+			double lr=values[i].x;
+			double li=values[i].y;
+			trace+=lr;
+			AVector xr=re[i];
+			AVector xi=(im[i]==null)?xr.multiplyCopy(0.0):im[i];
+			assertEquals(li==0.0, im[i]==null);
+			assertEquals(1.0, Math.sqrt(xr.magnitudeSquared()+xi.magnitudeSquared()), 1e-10);
+
+			// real part: A.xr - lr.xr + li.xi
+			AVector resR=a.innerProduct(xr);
+			resR.addMultiple(xr, -lr);
+			resR.addMultiple(xi, li);
+			// imaginary part: A.xi - lr.xi - li.xr
+			AVector resI=a.innerProduct(xi);
+			resI.addMultiple(xi, -lr);
+			resI.addMultiple(xr, -li);
+			assertTrue(resR.magnitude()+resI.magnitude()<tolerance);
+		}
+		assertEquals(a.trace(), trace, tolerance);
+	}
+
+	@Test public void testRandom() {
+		for (int n: new int[] {1, 2, 3, 5, 40, 150}) {
+			Matrix a=Matrix.createRandom(n, n);
+			IEigenResult r=NonSymmetricQRAlgorithmDecomposition.decompose(a, true);
+			assertNotNull(r);
+			checkResult(a,r,1e-9);
+		}
+	}
+
+	@Test public void testRotation() {
+		// rotation by theta has eigenvalues cos(theta) +/- i.sin(theta)
+		double theta=0.3;
+		Matrix a=Matrix.create(new double[][] {{Math.cos(theta), -Math.sin(theta)}, {Math.sin(theta), Math.cos(theta)}});
+		IEigenResult r=NonSymmetricQRAlgorithmDecomposition.decompose(a, true);
+		Vector2[] values=r.getEigenvalues();
+		assertEquals(Math.cos(theta), values[0].x, 1e-12);
+		assertEquals(Math.sin(theta), values[0].y, 1e-12);
+		assertEquals(Math.cos(theta), values[1].x, 1e-12);
+		assertEquals(-Math.sin(theta), values[1].y, 1e-12);
+		checkResult(a,r,1e-12);
+	}
+
+	@Test public void testTriangular() {
+		// defective matrix with repeated eigenvalues
+		int n=20;
+		Matrix a=Matrix.create(n, n);
+		for (int i=0; i<n; i++) {
+			a.set(i, i, i/4);
+			if (i+1<n) a.set(i, i+1, 1.0);
+		}
+		IEigenResult r=NonSymmetricQRAlgorithmDecomposition.decompose(a, false);
+		assertNotNull(r);
+		// the eigenvalues of a triangular matrix are its diagonal elements
+		double[] expected=new double[n];
+		double[] actual=new double[n];
+		for (int i=0; i<n; i++) {
+			Vector2 v=r.getEigenvalues()[i];
+			assertEquals(0.0, v.y, 1e-12);
+			expected[i]=a.get(i, i);
+			actual[i]=v.x;
+		}
+		Arrays.sort(expected);
+		Arrays.sort(actual);
+		assertArrayEquals(expected, actual, 1e-12);
+		assertThrows(UnsupportedOperationException.class, () -> r.getEigenVectors());
+	}
+
+	@Test public void testEigenvaluesOnly() {
+		Matrix a=Matrix.createRandom(120, 120);
+		IEigenResult values=NonSymmetricQRAlgorithmDecomposition.decompose(a, false);
+		IEigenResult full=NonSymmetricQRAlgorithmDecomposition.decompose(a, true);
+		// the eigenvalues sum to the trace, and their product has the magnitude of the determinant
+		double logDet=Math.log(Math.abs(a.determinant()));
+		for (IEigenResult r: new IEigenResult[] {values, full}) {
+			double sum=0.0;
+			double logProduct=0.0;
+			for (Vector2 v: r.getEigenvalues()) {
+				sum+=v.x;
+				logProduct+=Math.log(v.magnitude());
+			}
+			assertEquals(a.trace(), sum, 1e-9);
+			assertEquals(logDet, logProduct, 1e-9*Math.abs(logDet));
+		}
+	}
+
+	@Test public void testEigenFacade() {
+		Matrix a=Matrix.createRandom(30, 30);
+		checkResult(a,Eigen.decompose(a),1e-9);
+
+		// symmetric input uses the symmetric solver, with no imaginary parts
+		Matrix s=a.clone();
+		s.add(a.getTranspose());
+		IEigenResult r=Eigen.decompose(s);
+		for (AVector v: r.getEigenVectorsImaginary()) assertNull(v);
+		checkResult(s,r,1e-9);
+
+		assertThrows(IllegalArgumentException.class, () -> Eigen.decompose(Matrix.create(3, 4)));
+	}
+}
@@ -0,0 +1,118 @@
+package mikera.matrixx.decompose.impl.eigen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.decompose.Eigen;
+import mikera.matrixx.decompose.IEigenResult;
+import mikera.vectorz.AVector;
+
+public class TestSymmetricDivideConquer {
+
+	private static Matrix createSymmetric(int n) {
+		Matrix z=Matrix.createRandom(n, n);
+		Matrix a=z.clone();
+		a.add(z.getTranspose());
+		return a;
+	}
+
+	private static void checkResult(AMatrix a, IEigenResult r, double tolerance) {
+		int n=a.rowCount();
+		double[] expected=new double[n];
+		IEigenResult qr=new SymmetricQRAlgorithmDecomposition(false).decompose(a);
+		for (int i=0; i<n; i++) expected[i]=qr.getEigenvalues()[i].x;
+		Arrays.sort(expected);
+
+		AVector[] vectors=r.getEigenVectors();
+		Matrix v=Matrix.create(n, n);
+		for (int i=0; i<n; i++) {
+			double lambda=r.getEigenvalues()[i].x;
+			assertEquals(expected[i], lambda, tolerance);
+			AVector x=vectors[i];
+			v.setRow(i, x);
+			AVector ax=a.innerProduct(x);
+			ax.addMultiple(x, -lambda);
+			assertTrue(ax.magnitude()<tolerance);
+		}
+		assertTrue(v.innerProduct(v.getTranspose()).epsilonEquals(Matrix.createIdentity(n), tolerance));
+	}
+
+	@Test public void testRandom() {
+		for (int n: new int[] {1, 2, 5, 32, 33, 100, 150}) {
+			Matrix a=createSymmetric(n);
+			IEigenResult r=SymmetricDivideConquerDecomposition.decompose(a);
+			assertNotNull(r);
+			checkResult(a,r,1e-9);
+		}
+	}
+
+	@Test public void testTridiagonal() {
+		// path Laplacian with known eigenvalues 2-2cos(pi.k/(n+1))
+		int n=200;
+		double[] diag=new double[n];
+		double[] off=new double[n-1];
+		Arrays.fill(diag, 2.0);
+		Arrays.fill(off, -1.0);
+		Matrix v=SymmetricDivideConquerDecomposition.solveTridiagonal(diag, off);
+		assertNotNull(v);
+		for (int k=0; k<n; k++) {
+			assertEquals(2.0-2.0*Math.cos(Math.PI*(k+1)/(n+1)), diag[k], 1e-12);
+		}
+		assertTrue(v.isOrthogonal(1e-10));
+	}
+
+	@Test public void testDeflation() {
+		// repeated eigenvalues and zero off diagonal elements exercise both kinds of deflation
+		int n=120;
+		Matrix a=Matrix.create(n, n);
+		for (int i=0; i<n; i++) a.set(i, i, i%3);
+		Matrix q=orthogonal(Matrix.createRandom(n, n));
+		AMatrix b=q.innerProduct(a).innerProduct(q.getTranspose());
+		Matrix sym=b.toMatrix().clone();
+		sym.add(b.getTranspose());
+		sym.scale(0.5);
+		IEigenResult r=SymmetricDivideConquerDecomposition.decompose(sym);
+		assertNotNull(r);
+		checkResult(sym,r,1e-9);
+
+		double[] diag=new double[n];
+		double[] off=new double[n-1];
+		for (int i=0; i<n; i++) diag[i]=i%4;
+		for (int i=0; i<n-1; i++) off[i]=(i%10==0)?0.0:1e-3;
+		assertTrue(SymmetricDivideConquerDecomposition.solveTridiagonal(diag, off).isOrthogonal(1e-10));
+	}
+
+	private static Matrix orthogonal(Matrix m) {
+		AVector[] vs=Eigen.decomposeSymmetric(m.innerProduct(m.getTranspose())).getEigenVectors();
+		Matrix q=Matrix.create(vs.length, vs.length);
+		for (int i=0; i<vs.length; i++) q.setRow(i, vs[i]);
+		return q;
+	}
+
+	@Test public void testParallel() throws Exception {
+		Matrix a=createSymmetric(300);
+		ForkJoinPool pool=new ForkJoinPool(4);
+		try {
+			IEigenResult r=pool.submit(() -> SymmetricDivideConquerDecomposition.decompose(a)).get();
+			assertNotNull(r);
+			checkResult(a,r,1e-8);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test public void testEigenFacade() {
+		Matrix a=createSymmetric(Eigen.DIVIDE_AND_CONQUER_THRESHOLD);
+		checkResult(a,Eigen.decomposeSymmetric(a),1e-8);
+		assertThrows(IllegalArgumentException.class, () -> SymmetricDivideConquerDecomposition.decompose(Matrix.create(3, 4)));
+	}
+}
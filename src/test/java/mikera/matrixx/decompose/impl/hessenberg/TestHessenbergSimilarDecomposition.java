@@ -45,6 +45,16 @@ public class TestHessenbergSimilarDecomposition {
         checkItAll(A);
     }
 
+    /**
+     * Sizes large enough to use one or more panels of the blocked reduction
+     */
+    @Test
+    public void testBlocked() {
+        for( int N : new int[]{131, 163, 250} ) {
+            checkItAll(Matrix.createRandom(N,N));
+        }
+    }
+
     private void checkItAll(Matrix A) {
         HessenbergResult result = HessenbergSimilarDecomposition.decompose(A);
         Matrix Q = result.getQ().toMatrix();
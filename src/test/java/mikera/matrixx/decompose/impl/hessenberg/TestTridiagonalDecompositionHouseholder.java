@@ -62,6 +62,26 @@ public class TestTridiagonalDecompositionHouseholder {
         }
     }
     
+    /**
+     * Sizes large enough to use one or more panels of the blocked reduction
+     */
+    @Test
+    public void blockedTest() {
+        for( int width : new int[]{130, 161, 230} ) {
+            Matrix A = createSymmetric(width,-1,1,rand);
+
+            TridiagonalDecompositionHouseholder alg = createDecomposition();
+            alg.decompose(A);
+
+            AMatrix Q = alg.getQ(false);
+            AMatrix T = alg.getT();
+            assertTrue(Q.isOrthogonal(1e-10));
+
+            Matrix A_found = Multiplications.multiply(Q, Multiplications.multiply(T, Q.getTranspose()));
+            assertTrue(A.epsilonEquals(A_found,1e-10), "width = "+width);
+        }
+    }
+
     /**
      * Sets the provided square matrix to be a random symmetric matrix whose values are selected from an uniform distribution
      * from min to max, inclusive.
@@ -0,0 +1,65 @@
+package mikera.matrixx.decompose.impl.lu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.Matrixx;
+import mikera.matrixx.algo.Determinant;
+import mikera.matrixx.algo.Inverse;
+import mikera.matrixx.decompose.LUP;
+import mikera.matrixx.solve.Linear;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vectorz;
+
+public class TestBlockedLU {
+
+	private void checkSameAsAltLU(AMatrix a, int blockSize) {
+		LUPResult expected=AltLU.decompose(a);
+		LUPResult actual=BlockedLU.decompose(a,blockSize);
+		assertEquals(expected.getP(),actual.getP());
+		assertTrue(expected.getL().epsilonEquals(actual.getL(), 1e-10));
+		assertTrue(expected.getU().epsilonEquals(actual.getU(), 1e-10));
+	}
+
+	@Test public void testSameAsUnblocked() {
+		for (int blockSize: new int[] {1,3,8,64}) {
+			checkSameAsAltLU(Matrixx.createRandomMatrix(1, 1), blockSize);
+			checkSameAsAltLU(Matrixx.createRandomMatrix(10, 10), blockSize);
+			checkSameAsAltLU(Matrixx.createRandomMatrix(37, 37), blockSize);
+			checkSameAsAltLU(Matrixx.createRandomMatrix(40, 23), blockSize);
+			checkSameAsAltLU(Matrixx.createRandomMatrix(23, 40), blockSize);
+		}
+	}
+
+	@Test public void testReconstruct() {
+		Matrix a=Matrix.createRandom(150, 150);
+		LUPResult r=BlockedLU.decompose(a, 16);
+		AMatrix pa=r.getP().getTranspose().innerProduct(a);
+		assertTrue(pa.epsilonEquals(r.getL().innerProduct(r.getU()), 1e-10));
+		assertEquals(AltLU.decompose(a).computeDeterminant(), r.computeDeterminant(), 1e-8*Math.abs(r.computeDeterminant()));
+	}
+
+	@Test public void testLargeInputs() {
+		int n=BlockedLU.BLOCKED_THRESHOLD+20;
+		Matrix a=Matrix.createRandom(n, n);
+		a.add(Matrixx.createScaleMatrix(n, n));
+		AVector b=Vectorz.createUniformRandomVector(n);
+
+		assertTrue(BlockedLU.isBlockedSize(n, n));
+		LUPResult r=(LUPResult)LUP.decompose(a);
+		assertTrue(r.getP().getTranspose().innerProduct(a).epsilonEquals(r.getL().innerProduct(r.getU()), 1e-9));
+
+		AVector x=Linear.solve(a, b);
+		assertTrue(a.innerProduct(x).epsilonEquals(b, 1e-9));
+
+		AMatrix inv=Inverse.calculate(a);
+		assertTrue(inv.innerProduct(a).epsilonEquals(Matrixx.createIdentityMatrix(n), 1e-9));
+
+		double det=AltLU.decompose(a).computeDeterminant();
+		assertEquals(det, Determinant.calculate(a), 1e-8*Math.abs(det));
+	}
+}
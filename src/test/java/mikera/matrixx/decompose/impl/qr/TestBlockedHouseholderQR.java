@@ -0,0 +1,90 @@
+package mikera.matrixx.decompose.impl.qr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.Matrixx;
+import mikera.matrixx.decompose.IQRResult;
+import mikera.matrixx.decompose.QR;
+import mikera.matrixx.impl.ZeroMatrix;
+import mikera.matrixx.solve.Linear;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vectorz;
+
+public class TestBlockedHouseholderQR extends GenericQrCheck {
+
+	@Override
+	protected QRDecomposition createQRDecomposition(boolean compact) {
+		return new BlockedHouseholderQR(compact,2);
+	}
+
+	private void checkSameAsUnblocked(int rows, int cols, int blockSize) {
+		Matrix a=Matrix.createRandom(rows, cols);
+		for (boolean compact: new boolean[] {false,true}) {
+			IQRResult expected=new HouseholderQR(compact).decompose(a);
+			IQRResult actual=new BlockedHouseholderQR(compact,blockSize).decompose(a);
+			assertTrue(expected.getQ().epsilonEquals(actual.getQ(), 1e-10));
+			assertTrue(expected.getR().epsilonEquals(actual.getR(), 1e-10));
+		}
+	}
+
+	@Test public void testSameAsUnblocked() {
+		for (int blockSize: new int[] {1,3,8,32}) {
+			checkSameAsUnblocked(1, 1, blockSize);
+			checkSameAsUnblocked(20, 20, blockSize);
+			checkSameAsUnblocked(45, 17, blockSize);
+			checkSameAsUnblocked(17, 45, blockSize);
+		}
+	}
+
+	@Test public void testApplyQ() {
+		Matrix a=Matrix.createRandom(60, 25);
+		BlockedHouseholderQR qr=new BlockedHouseholderQR(false,8);
+		qr.factor(a);
+		AMatrix q=qr.getQ();
+		Matrix b=Matrix.createRandom(60, 7);
+
+		Matrix qtb=b.clone();
+		qr.applyQTranspose(qtb);
+		assertTrue(q.getTranspose().innerProduct(b).epsilonEquals(qtb, 1e-10));
+
+		qr.applyQ(qtb);
+		assertTrue(b.epsilonEquals(qtb, 1e-10));
+
+		// Q'.A = R
+		Matrix qta=a.clone();
+		qr.applyQTranspose(qta);
+		assertTrue(qta.epsilonEquals(qr.getR(), 1e-10));
+	}
+
+	@Test public void testZeroColumns() {
+		IQRResult r=new BlockedHouseholderQR(false,2).decompose(ZeroMatrix.create(7, 5));
+		assertTrue(r.getR().isZero());
+		assertTrue(r.getQ().isOrthogonal(1e-12));
+	}
+
+	@Test public void testLeastSquares() {
+		int rows=2000;
+		int cols=BlockedHouseholderQR.BLOCKED_THRESHOLD+10;
+		Matrix a=Matrix.createRandom(rows, cols);
+		AVector b=Vectorz.createUniformRandomVector(rows);
+
+		AVector x=Linear.solveLeastSquares(a, b);
+		assertEquals(cols,x.length());
+		// residual is orthogonal to the column space of A
+		AVector residual=b.clone();
+		residual.sub(a.innerProduct(x));
+		assertTrue(a.getTranspose().innerProduct(residual).epsilonEquals(Vectorz.newVector(cols), 1e-9));
+
+		// decomposition selected by QR.decompose for large inputs
+		Matrix s=Matrix.createRandom(cols, cols);
+		IQRResult r=QR.decompose(s);
+		assertTrue(r.getQ().innerProduct(r.getR()).epsilonEquals(s, 1e-10));
+		assertTrue(r.getR().isUpperTriangular());
+		assertTrue(Matrixx.createIdentityMatrix(cols).epsilonEquals(r.getQ().getTranspose().innerProduct(r.getQ()), 1e-10));
+	}
+}
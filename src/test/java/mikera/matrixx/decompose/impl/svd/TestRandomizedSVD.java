@@ -0,0 +1,106 @@
+package mikera.matrixx.decompose.impl.svd;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.decompose.ISVDResult;
+import mikera.matrixx.decompose.SVD;
+import mikera.matrixx.impl.SparseColumnMatrix;
+import mikera.matrixx.impl.SparseRowMatrix;
+import mikera.vectorz.AVector;
+
+public class TestRandomizedSVD {
+
+	private static double[] sortedSingularValues(AMatrix a) {
+		double[] svs=SVD.decomposeCompact(a).getSingularValues().toDoubleArray();
+		Arrays.sort(svs);
+		for (int i=0; i<svs.length/2; i++) {
+			double t=svs[i];
+			svs[i]=svs[svs.length-1-i];
+			svs[svs.length-1-i]=t;
+		}
+		return svs;
+	}
+
+	private static void checkResult(AMatrix a, ISVDResult r, int rank) {
+		AMatrix u=r.getU();
+		AMatrix v=r.getV();
+		assertEquals(a.rowCount(),u.rowCount());
+		assertEquals(rank,u.columnCount());
+		assertEquals(a.columnCount(),v.rowCount());
+		assertEquals(rank,v.columnCount());
+		assertTrue(u.hasOrthonormalColumns());
+		assertTrue(v.hasOrthonormalColumns());
+
+		AVector svs=r.getSingularValues();
+		for (int i=1; i<rank; i++) {
+			assertTrue(svs.get(i-1)>=svs.get(i));
+		}
+	}
+
+	@Test public void testLowRank() {
+		Random random=new Random(1234);
+		Matrix a=Matrix.createRandom(120, 5).innerProduct(Matrix.createRandom(5, 70));
+		ISVDResult r=RandomizedSVD.decompose(a, 5, 5, 0, random);
+		checkResult(a,r,5);
+
+		AMatrix usvt=r.getU().innerProduct(r.getS()).innerProduct(r.getV().getTranspose());
+		assertTrue(usvt.epsilonEquals(a, 1e-8));
+	}
+
+	@Test public void testDecayingSpectrum() {
+		Random random=new Random(5678);
+		int n=80;
+		// A = Q1.D.Q2' with geometrically decaying singular values
+		Matrix q1=SVD.decomposeCompact(Matrix.createRandom(150, n)).getU().toMatrix();
+		Matrix q2=SVD.decomposeCompact(Matrix.createRandom(n, n)).getU().toMatrix();
+		Matrix d=Matrix.create(n, n);
+		for (int i=0; i<n; i++) d.set(i, i, Math.pow(0.7, i));
+		AMatrix a=q1.innerProduct(d).innerProduct(q2.getTranspose());
+
+		ISVDResult r=RandomizedSVD.decompose(a, 10, 10, 2, random);
+		checkResult(a,r,10);
+		for (int i=0; i<10; i++) {
+			assertEquals(Math.pow(0.7, i), r.getSingularValues().get(i), 1e-8);
+		}
+	}
+
+	@Test public void testSparse() {
+		Random random=new Random(42);
+		Matrix dense=Matrix.create(90, 60);
+		for (int i=0; i<90; i++) {
+			for (int j=0; j<60; j++) {
+				if (random.nextDouble()<0.1) dense.set(i, j, random.nextGaussian());
+			}
+		}
+		double[] expected=sortedSingularValues(dense);
+
+		// with enough oversampling the range is captured exactly
+		for (AMatrix a: new AMatrix[] {SparseRowMatrix.create(dense), SparseColumnMatrix.create(dense)}) {
+			ISVDResult r=RandomizedSVD.decompose(a, 8, 60, 0, random);
+			checkResult(a,r,8);
+			for (int i=0; i<8; i++) {
+				assertEquals(expected[i], r.getSingularValues().get(i), 1e-8);
+			}
+		}
+	}
+
+	@Test public void testSVDFacade() {
+		Matrix a=Matrix.createRandom(40, 30);
+		ISVDResult r=SVD.decomposeRandomized(a, 30);
+		checkResult(a,r,30);
+		assertTrue(r.getU().innerProduct(r.getS()).innerProduct(r.getV().getTranspose()).epsilonEquals(a, 1e-8));
+
+		assertThrows(IllegalArgumentException.class, () -> SVD.decomposeRandomized(a, 31));
+		assertThrows(IllegalArgumentException.class, () -> SVD.decomposeRandomized(a, 0));
+		assertThrows(IllegalArgumentException.class, () -> SVD.decomposeRandomized(a, 5, -1, 0));
+	}
+}
@@ -0,0 +1,122 @@
+package mikera.matrixx.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.util.Rand;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+import mikera.vectorz.Vectorz;
+
+public class TestCSRMatrix {
+
+	private Matrix createRandomSparse(int rows, int cols, int n) {
+		Matrix m=Matrix.create(rows, cols);
+		for (int i=0; i<n; i++) {
+			m.set(Rand.r(rows),Rand.r(cols),Rand.nextGaussian());
+		}
+		return m;
+	}
+
+	@Test public void testConversions() {
+		Matrix m=createRandomSparse(37, 53, 200);
+
+		CSRMatrix c=CSRMatrix.create(m);
+		c.validate();
+		assertEquals(m,c);
+		assertEquals(m.nonZeroCount(),c.storedElementCount());
+
+		SparseRowMatrix rm=c.toSparseRowMatrix();
+		assertEquals(m,rm);
+		assertEquals(c,rm.toCSRMatrix());
+
+		SparseColumnMatrix cm=c.toSparseColumnMatrix();
+		cm.validate();
+		assertEquals(m,cm);
+		CSRMatrix c2=cm.toCSRMatrix();
+		c2.validate();
+		assertEquals(m,c2);
+
+		CSRMatrix t=c.getTransposeCopy();
+		t.validate();
+		assertEquals(m.getTranspose(),t);
+		assertEquals(m.getTranspose(),c.getTranspose());
+	}
+
+	@Test public void testCoordinates() {
+		int[] ri={2, 0, 1, 2, 0, 2};
+		int[] ci={3, 1, 1, 0, 1, 3};
+		double[] vs={1, 2, 4, 3, 3, -1};
+		CSRMatrix c=CSRMatrix.create(3, 4, ri, ci, vs);
+		c.validate();
+		// duplicates are summed, and a cancelled duplicate remains as an explicit zero
+		assertEquals(4,c.storedElementCount());
+		assertEquals(Matrix.create(new double[][] {{0,5,0,0},{0,4,0,0},{3,0,0,0}}),c);
+
+		Matrix m=createRandomSparse(23, 31, 120);
+		CSRMatrix c2=CSRMatrix.create(m);
+		int nnz=c2.storedElementCount();
+		int[] rows=new int[nnz];
+		int[] cols=new int[nnz];
+		double[] values=new double[nnz];
+		for (int i=0, k=0; i<23; i++) {
+			for (int p=c2.getRowPointers()[i]; p<c2.getRowPointers()[i+1]; p++, k++) {
+				// store in reverse order, to check that rows come out sorted
+				rows[nnz-1-k]=i;
+				cols[nnz-1-k]=c2.getColumnIndexes()[p];
+				values[nnz-1-k]=c2.getValues()[p];
+			}
+		}
+		CSRMatrix c3=CSRMatrix.create(23, 31, rows, cols, values);
+		c3.validate();
+		assertEquals(m,c3);
+
+		assertThrows(IndexOutOfBoundsException.class, () -> CSRMatrix.create(3, 4, new int[] {3}, new int[] {0}, new double[] {1}));
+		assertThrows(IllegalArgumentException.class, () -> CSRMatrix.create(3, 4, new int[] {0}, new int[0], new double[] {1}));
+	}
+
+	@Test public void testSet() {
+		CSRMatrix c=CSRMatrix.create(3, 4);
+		c.set(2, 3, 1.0);
+		c.set(0, 1, 2.0);
+		c.set(2, 0, 3.0);
+		c.addAt(1, 1, 4.0);
+		c.set(0, 1, 5.0);
+		c.validate();
+		assertEquals(4,c.storedElementCount());
+		assertEquals(Matrix.create(new double[][] {{0,5,0,0},{0,4,0,0},{3,0,0,1}}),c);
+
+		c.set(0, 2, 0.0);
+		assertEquals(4,c.storedElementCount());
+
+		// storage grows with spare capacity, which must not be mistaken for stored elements
+		for (int j=0; j<4; j++) c.set(1, j, j+1.0);
+		c.validate();
+		assertEquals(7,c.storedElementCount());
+		assertEquals(Matrix.create(new double[][] {{0,5,0,0},{1,2,3,4},{3,0,0,1}}),c);
+		assertEquals(c,CSRMatrix.create(c.dense()));
+	}
+
+	@Test public void testProducts() {
+		Matrix m=createRandomSparse(40, 30, 150);
+		CSRMatrix c=CSRMatrix.create(m);
+
+		AVector v=Vectorz.createUniformRandomVector(30);
+		assertTrue(m.innerProduct(v).epsilonEquals(c.innerProduct(v)));
+		assertTrue(m.innerProduct(v).epsilonEquals(c.innerProduct(v.sparse())));
+
+		Matrix b=Matrix.createRandom(30, 7);
+		AMatrix r=c.innerProduct(b);
+		assertTrue(m.innerProduct(b).epsilonEquals(r));
+		assertTrue(m.innerProduct(b).epsilonEquals(c.innerProduct(b.sparse())));
+
+		Vector dest=Vector.createLength(40);
+		c.transform(v, dest);
+		assertTrue(m.innerProduct(v).epsilonEquals(dest));
+	}
+}
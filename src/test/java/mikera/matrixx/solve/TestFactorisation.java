@@ -0,0 +1,114 @@
+package mikera.matrixx.solve;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+import mikera.vectorz.Vectorz;
+
+public class TestFactorisation {
+
+	private static Matrix createSPD(int n) {
+		Matrix z=Matrix.createRandom(n, n);
+		Matrix a=Matrix.create(z.innerProduct(z.getTranspose()));
+		for (int i=0; i<n; i++) a.addAt(i, i, n);
+		return a;
+	}
+
+	private static void checkSquare(AMatrix a, IFactorisation f) {
+		int n=a.rowCount();
+		assertNotNull(f);
+		assertEquals(n, f.rowCount());
+		assertEquals(n, f.columnCount());
+
+		// multiple right hand sides, enough to use the blocked triangular solves
+		for (int k: new int[] {1, 3, 20}) {
+			Matrix x=Matrix.createRandom(n, k);
+			Matrix b=Matrix.create(a.innerProduct(x));
+			f.solveInPlace(b);
+			assertTrue(b.epsilonEquals(x, 1e-8));
+		}
+
+		// dense vector, and a vector view which is solved through the workspace
+		Vector x=Vector.createLength(n);
+		Vectorz.fillRandom(x, 1);
+		Vector b=a.innerProduct(x).toVector();
+		AVector solution=f.solve(b);
+		assertTrue(solution.epsilonEquals(x, 1e-8));
+		f.solveInPlace(b);
+		assertTrue(b.epsilonEquals(x, 1e-8));
+
+		Vector padded=Vector.createLength(n+2);
+		AVector view=padded.subVector(1, n);
+		view.set(a.innerProduct(x));
+		f.solveInPlace(view);
+		assertTrue(view.epsilonEquals(x, 1e-8));
+		assertEquals(0.0, padded.get(0));
+		assertEquals(0.0, padded.get(n+1));
+
+		assertThrows(IllegalArgumentException.class, () -> f.solveInPlace(Vector.createLength(n+1)));
+		assertThrows(IllegalArgumentException.class, () -> f.solveInPlace(Matrix.create(n+1, 2)));
+	}
+
+	@Test public void testLU() {
+		for (int n: new int[] {1, 5, 70, 150}) {
+			Matrix a=Matrix.createRandom(n, n);
+			checkSquare(a, Linear.factoriseLU(a));
+		}
+		assertNull(Linear.factoriseLU(Matrix.create(3, 3)));
+		assertThrows(IllegalArgumentException.class, () -> Linear.factoriseLU(Matrix.create(3, 4)));
+	}
+
+	@Test public void testCholesky() {
+		for (int n: new int[] {1, 5, 70, 150}) {
+			Matrix a=createSPD(n);
+			checkSquare(a, Linear.factoriseCholesky(a));
+		}
+		Matrix a=createSPD(10);
+		a.set(4, 4, -1.0);
+		assertNull(Linear.factoriseCholesky(a));
+	}
+
+	@Test public void testQR() {
+		for (int n: new int[] {1, 5, 70, 150}) {
+			Matrix a=Matrix.createRandom(n, n);
+			checkSquare(a, Linear.factoriseQR(a));
+		}
+		assertNull(Linear.factoriseQR(Matrix.create(4, 3)));
+
+		// duplicate columns are rank deficient, though rounding leaves R(2,2) close to but not exactly zero
+		Matrix d=Matrix.createRandom(4, 3);
+		d.setColumn(2, d.getColumn(0));
+		assertNull(Linear.factoriseQR(d));
+		d.setColumn(2, d.getColumn(0).multiplyCopy(3.0));
+		assertNull(Linear.factoriseQR(d));
+		assertThrows(IllegalArgumentException.class, () -> Linear.factoriseQR(Matrix.create(3, 4)));
+	}
+
+	@Test public void testLeastSquares() {
+		for (int n: new int[] {4, 80}) {
+			int m=2*n+3;
+			Matrix a=Matrix.createRandom(m, n);
+			Matrix b=Matrix.createRandom(m, 9);
+			IFactorisation f=Linear.factoriseQR(a);
+			AMatrix x=f.solve(b);
+			assertEquals(n, x.rowCount());
+			assertTrue(x.epsilonEquals(Linear.solveLeastSquares(a, b), 1e-8));
+
+			// residual is orthogonal to the columns of A
+			AVector c=b.getColumn(0).toVector();
+			AVector y=f.solve(c);
+			AVector r=a.innerProduct(y);
+			r.sub(c);
+			assertTrue(a.getTranspose().innerProduct(r).epsilonEquals(Vector.createLength(n), 1e-8));
+		}
+	}
+}
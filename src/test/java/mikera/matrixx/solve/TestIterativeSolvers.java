@@ -0,0 +1,107 @@
+package mikera.matrixx.solve;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.impl.SparseRowMatrix;
+import mikera.matrixx.solve.impl.iterative.AIterativeSolver;
+import mikera.matrixx.solve.impl.iterative.BiCGStab;
+import mikera.matrixx.solve.impl.iterative.ConjugateGradient;
+import mikera.matrixx.solve.impl.iterative.GMRES;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+import mikera.vectorz.Vectorz;
+
+public class TestIterativeSolvers {
+
+	/**
+	 * Creates a sparse 1D Laplacian with an added diagonal shift, which is symmetric positive definite
+	 */
+	private SparseRowMatrix createLaplacian(int n, double shift) {
+		SparseRowMatrix m=SparseRowMatrix.create(n, n);
+		for (int i=0; i<n; i++) {
+			m.set(i, i, 2.0+shift);
+			if (i>0) m.set(i, i-1, -1.0);
+			if (i<n-1) m.set(i, i+1, -1.0);
+		}
+		return m;
+	}
+
+	/**
+	 * Creates a non-symmetric, diagonally dominant sparse matrix
+	 */
+	private SparseRowMatrix createConvection(int n) {
+		SparseRowMatrix m=createLaplacian(n, 0.5);
+		for (int i=0; i<n-1; i++) {
+			m.addAt(i, i+1, 0.7);
+		}
+		return m;
+	}
+
+	private void checkSolution(AMatrix a, AVector b, IIterativeResult r, double tolerance) {
+		assertTrue(r.isConverged(),r.toString());
+		assertTrue(r.getRelativeResidual()<=tolerance);
+		AVector ax=a.innerProduct(r.getSolution());
+		assertTrue(ax.epsilonEquals(b, tolerance*b.magnitude()*10));
+		assertEquals(b.distance(ax)/b.magnitude(),r.getRelativeResidual(),tolerance);
+	}
+
+	@Test public void testConjugateGradient() {
+		int n=200;
+		SparseRowMatrix a=createLaplacian(n, 0.01);
+		AVector b=Vectorz.createUniformRandomVector(n);
+
+		ConjugateGradient cg=new ConjugateGradient();
+		IIterativeResult r=cg.solve(a, b);
+		checkSolution(a,b,r,cg.getTolerance());
+		assertTrue(r.getIterations()<=n);
+
+		// reuse the solver, with a tighter iteration limit that cannot be met
+		cg.setMaxIterations(3);
+		IIterativeResult r2=cg.solve(a, b);
+		assertFalse(r2.isConverged());
+		assertEquals(3,r2.getIterations());
+
+		// continue from a previous solution as an initial guess
+		cg.setMaxIterations(0);
+		AVector x=r2.getSolution().clone();
+		IIterativeResult r3=cg.solve(a, b, x);
+		checkSolution(a,b,r3,cg.getTolerance());
+		assertTrue(x.epsilonEquals(r.getSolution(), 1e-6));
+	}
+
+	@Test public void testNonSymmetric() {
+		int n=150;
+		SparseRowMatrix a=createConvection(n);
+		AVector b=Vectorz.createUniformRandomVector(n);
+
+		AIterativeSolver[] solvers=new AIterativeSolver[] {new BiCGStab(), new GMRES(), new GMRES(5)};
+		for (AIterativeSolver s: solvers) {
+			s.setTolerance(1e-9);
+			checkSolution(a,b,s.solve(a, b),1e-9);
+		}
+	}
+
+	@Test public void testDense() {
+		Matrix a=Matrix.create(new double[][] {{4,1,0},{1,3,1},{0,1,2}});
+		AVector b=Vector.of(1,2,3);
+		AVector expected=Linear.solve(a, b);
+
+		assertNotNull(Linear.solveConjugateGradient(a, b));
+		assertTrue(expected.epsilonEquals(Linear.solveConjugateGradient(a, b),1e-8));
+		assertTrue(expected.epsilonEquals(Linear.solveBiCGStab(a, b),1e-8));
+		assertTrue(expected.epsilonEquals(Linear.solveGMRES(a, b),1e-8));
+
+		// zero right hand side gives zero solution immediately
+		IIterativeResult r=new GMRES().solve(a, Vector.createLength(3));
+		assertTrue(r.isConverged());
+		assertEquals(0,r.getIterations());
+		assertTrue(r.getSolution().isZero());
+	}
+}
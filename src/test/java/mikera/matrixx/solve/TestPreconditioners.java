@@ -0,0 +1,172 @@
+package mikera.matrixx.solve;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.impl.DiagonalMatrix;
+import mikera.matrixx.impl.SparseColumnMatrix;
+import mikera.matrixx.impl.SparseRowMatrix;
+import mikera.matrixx.solve.impl.iterative.AIterativeSolver;
+import mikera.matrixx.solve.impl.iterative.BiCGStab;
+import mikera.matrixx.solve.impl.iterative.ConjugateGradient;
+import mikera.matrixx.solve.impl.iterative.GMRES;
+import mikera.matrixx.solve.impl.preconditioner.IC0Preconditioner;
+import mikera.matrixx.solve.impl.preconditioner.ILU0Preconditioner;
+import mikera.matrixx.solve.impl.preconditioner.JacobiPreconditioner;
+import mikera.matrixx.solve.impl.preconditioner.SSORPreconditioner;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+import mikera.vectorz.Vectorz;
+
+public class TestPreconditioners {
+
+	/**
+	 * Creates a 2D five point Laplacian on a k x k grid, which is symmetric positive definite
+	 */
+	private SparseRowMatrix createLaplacian2D(int k) {
+		int n=k*k;
+		SparseRowMatrix m=SparseRowMatrix.create(n, n);
+		for (int i=0; i<k; i++) {
+			for (int j=0; j<k; j++) {
+				int r=i*k+j;
+				m.set(r, r, 4.0);
+				if (i>0) m.set(r, r-k, -1.0);
+				if (i<k-1) m.set(r, r+k, -1.0);
+				if (j>0) m.set(r, r-1, -1.0);
+				if (j<k-1) m.set(r, r+1, -1.0);
+			}
+		}
+		return m;
+	}
+
+	private SparseRowMatrix createTridiagonal(int n, double lower, double diag, double upper) {
+		SparseRowMatrix m=SparseRowMatrix.create(n, n);
+		for (int i=0; i<n; i++) {
+			m.set(i, i, diag);
+			if (i>0) m.set(i, i-1, lower);
+			if (i<n-1) m.set(i, i+1, upper);
+		}
+		return m;
+	}
+
+	private IIterativeResult solve(AIterativeSolver solver, AMatrix a, AVector b, IPreconditioner p) {
+		solver.setPreconditioner(p);
+		solver.setTolerance(1e-10);
+		IIterativeResult r=solver.solve(a, b);
+		assertTrue(r.isConverged(),r.toString());
+		AVector ax=a.innerProduct(r.getSolution());
+		assertTrue(ax.epsilonEquals(b, 1e-8*b.magnitude()));
+		// the reported residual is the true residual, not the updated one
+		assertEquals(ax.subCopy(b).magnitude(), r.getResidualNorm(), 1e-14*b.magnitude());
+		return r;
+	}
+
+	@Test public void testJacobi() {
+		int n=50;
+		// badly scaled SPD matrix D.T.D
+		double[] d=new double[n];
+		for (int i=0; i<n; i++) d[i]=Math.pow(10.0, (i%7)-3);
+		DiagonalMatrix dm=DiagonalMatrix.wrap(d);
+		AMatrix a=dm.innerProduct(createTridiagonal(n,-1.0,2.5,-1.0)).innerProduct(dm);
+		AVector b=Vectorz.createUniformRandomVector(n);
+
+		IIterativeResult plain=solve(new ConjugateGradient(),a,b,null);
+		IIterativeResult pre=solve(new ConjugateGradient(),a,b,JacobiPreconditioner.create(a));
+		assertTrue(pre.getIterations()<plain.getIterations());
+
+		JacobiPreconditioner jp=JacobiPreconditioner.create(dm);
+		Vector v=Vector.create(Vectorz.createUniformRandomVector(n));
+		Vector out=Vector.createLength(n);
+		jp.apply(v, out);
+		assertTrue(dm.inverse().innerProduct(v).epsilonEquals(out, 1e-12));
+		jp.apply(v, v);
+		assertTrue(v.epsilonEquals(out, 0.0));
+	}
+
+	@Test public void testIncompleteCholesky() {
+		SparseRowMatrix a=createLaplacian2D(20);
+		AVector b=Vectorz.createUniformRandomVector(a.rowCount());
+
+		IIterativeResult plain=solve(new ConjugateGradient(),a,b,null);
+		IIterativeResult pre=solve(new ConjugateGradient(),a,b,IC0Preconditioner.create(a));
+		assertTrue(pre.getIterations()<plain.getIterations(),pre+" vs "+plain);
+
+		// no fill-in for a tridiagonal matrix, so IC(0) is exact
+		SparseRowMatrix t=createTridiagonal(30,-1.0,3.0,-1.0);
+		IC0Preconditioner ic=IC0Preconditioner.create(t);
+		AVector x=Vectorz.createUniformRandomVector(30);
+		Vector y=Vector.createLength(30);
+		ic.apply(t.innerProduct(x), y);
+		assertTrue(x.epsilonEquals(y, 1e-12));
+
+		assertThrows(IllegalArgumentException.class, () -> IC0Preconditioner.create(createTridiagonal(5,-1.0,-2.0,-1.0)));
+	}
+
+	@Test public void testSSOR() {
+		SparseRowMatrix a=createLaplacian2D(20);
+		AVector b=Vectorz.createUniformRandomVector(a.rowCount());
+
+		IIterativeResult plain=solve(new ConjugateGradient(),a,b,null);
+		IIterativeResult pre=solve(new ConjugateGradient(),a,b,SSORPreconditioner.create(a,1.5));
+		assertTrue(pre.getIterations()<plain.getIterations(),pre+" vs "+plain);
+
+		assertThrows(IllegalArgumentException.class, () -> SSORPreconditioner.create(a,2.0));
+	}
+
+	@Test public void testILU() {
+		int n=100;
+		SparseRowMatrix t=createTridiagonal(n,-1.3,2.5,-0.4);
+		AVector b=Vectorz.createUniformRandomVector(n);
+
+		// ILU(0) is an exact LU factorisation for a tridiagonal matrix
+		ILU0Preconditioner ilu=ILU0Preconditioner.create(t);
+		Vector y=Vector.createLength(n);
+		ilu.apply(b, y);
+		assertTrue(t.innerProduct(y).epsilonEquals(b, 1e-10));
+
+		IIterativeResult r=solve(new GMRES(),t,b,ilu);
+		assertTrue(r.getIterations()<=2);
+		r=solve(new BiCGStab(),t,b,ilu);
+		assertTrue(r.getIterations()<=2);
+
+		// non-symmetric 2D problem
+		SparseRowMatrix a=createLaplacian2D(15);
+		for (int i=0; i<a.rowCount()-1; i++) {
+			a.addAt(i, i+1, 0.6);
+		}
+		b=Vectorz.createUniformRandomVector(a.rowCount());
+		ILU0Preconditioner p=ILU0Preconditioner.create(a);
+		IIterativeResult plain=solve(new GMRES(20),a,b,null);
+		IIterativeResult pre=solve(new GMRES(20),a,b,p);
+		assertTrue(pre.getIterations()<plain.getIterations(),pre+" vs "+plain);
+		plain=solve(new BiCGStab(),a,b,null);
+		pre=solve(new BiCGStab(),a,b,p);
+		assertTrue(pre.getIterations()<plain.getIterations(),pre+" vs "+plain);
+	}
+
+	@Test public void testSparseColumnInput() {
+		SparseRowMatrix a=createLaplacian2D(8);
+		SparseColumnMatrix c=SparseColumnMatrix.create(a);
+		AVector b=Vectorz.createUniformRandomVector(a.rowCount());
+
+		Vector y1=Vector.createLength(a.rowCount());
+		Vector y2=Vector.createLength(a.rowCount());
+		ILU0Preconditioner.create(a).apply(b, y1);
+		ILU0Preconditioner.create(c).apply(b, y2);
+		assertTrue(y1.epsilonEquals(y2, 0.0));
+
+		IIterativeResult r=solve(new ConjugateGradient(),c,b,IC0Preconditioner.create(c));
+		assertEquals(a.rowCount(),r.getSolution().length());
+	}
+
+	@Test public void testBadPreconditioner() {
+		ConjugateGradient cg=new ConjugateGradient();
+		cg.setPreconditioner(JacobiPreconditioner.create(createTridiagonal(5,-1.0,2.0,-1.0)));
+		assertThrows(IllegalArgumentException.class, () -> cg.solve(createTridiagonal(6,-1.0,2.0,-1.0), Vector.createLength(6)));
+		assertThrows(IllegalArgumentException.class, () -> ILU0Preconditioner.create(SparseRowMatrix.create(3, 3)));
+	}
+}
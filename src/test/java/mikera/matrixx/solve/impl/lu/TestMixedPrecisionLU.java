@@ -0,0 +1,121 @@
+package mikera.matrixx.solve.impl.lu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.solve.IIterativeResult;
+import mikera.matrixx.solve.Linear;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+import mikera.vectorz.Vectorz;
+
+public class TestMixedPrecisionLU {
+
+	private static void checkSolution(AMatrix a, AVector b, IIterativeResult r, double tolerance) {
+		assertNotNull(r);
+		assertTrue(r.isConverged());
+		AVector x=r.getSolution();
+		AVector res=a.innerProduct(x);
+		res.sub(b);
+		assertEquals(res.magnitude(), r.getResidualNorm(), 1e-12*b.magnitude());
+		assertTrue(res.magnitude()<=tolerance*a.rowCount()*b.magnitude());
+	}
+
+	@Test public void testRefinement() {
+		for (int n: new int[] {1, 10, 63, 200}) {
+			Matrix a=Matrix.createRandom(n, n);
+			for (int i=0; i<n; i++) a.addAt(i, i, n);
+			MixedPrecisionLU solver=MixedPrecisionLU.create(a);
+			assertNotNull(solver);
+			for (int k=0; k<3; k++) {
+				Vector b=Vector.createLength(n);
+				Vectorz.fillRandom(b, k);
+				IIterativeResult r=solver.solve(b);
+				checkSolution(a, b, r, 1e-15);
+				// a single precision solution is not accurate enough, so refinement is needed
+				if (n>1) assertTrue(r.getIterations()>0);
+				assertTrue(r.getIterations()<MixedPrecisionLU.MAX_REFINEMENTS);
+			}
+			assertFalse(solver.isDoublePrecision());
+		}
+	}
+
+	@Test public void testFallback() {
+		// Hilbert matrix, much too badly conditioned for a single precision factorisation
+		int n=12;
+		Matrix a=Matrix.create(n, n);
+		for (int i=0; i<n; i++) {
+			for (int j=0; j<n; j++) a.set(i, j, 1.0/(i+j+1));
+		}
+		Vector b=Vector.createLength(n);
+		b.fill(1.0);
+		MixedPrecisionLU solver=MixedPrecisionLU.create(a);
+		IIterativeResult r=solver.solve(b);
+		assertTrue(solver.isDoublePrecision());
+		assertTrue(r.isConverged());
+		assertTrue(r.getSolution().epsilonEquals(Linear.factoriseLU(a).solve(b), 1e-6*r.getSolution().maxAbsElement()));
+
+		// later solves go straight to the double precision factors
+		assertEquals(0, solver.solve(b).getIterations());
+	}
+
+	@Test public void testSingular() {
+		// rank 2 product, which the single precision factorisation does not detect as singular
+		Matrix a=Matrix.create(Matrix.createRandom(6, 2).innerProduct(Matrix.createRandom(2, 6)));
+		Vector b=Vector.of(1, 2, 3, 4, 5, 6);
+		MixedPrecisionLU solver=MixedPrecisionLU.create(a);
+		assertNotNull(solver);
+		assertNull(solver.solve(b));
+		assertTrue(solver.isSingular());
+		assertFalse(solver.isDoublePrecision());
+		assertNull(solver.solve(b));
+		assertNull(Linear.solveMixedPrecision(a, b));
+	}
+
+	@Test public void testOutOfFloatRange() {
+		Matrix a=Matrix.createRandom(5, 5);
+		for (int i=0; i<5; i++) a.addAt(i, i, 5);
+		a.scale(1e300);
+		MixedPrecisionLU solver=MixedPrecisionLU.create(a);
+		assertTrue(solver.isDoublePrecision());
+		Vector b=Vector.of(1, 2, 3, 4, 5);
+		b.scale(1e300);
+		checkSolution(a, b, solver.solve(b), 1e-15);
+	}
+
+	@Test public void testParallel() throws Exception {
+		int n=400;
+		Matrix a=Matrix.createRandom(n, n);
+		Vector b=Vector.createLength(n);
+		Vectorz.fillRandom(b, 3);
+		ForkJoinPool pool=new ForkJoinPool(4);
+		try {
+			MixedPrecisionLU solver=pool.submit(() -> MixedPrecisionLU.create(a)).get();
+			checkSolution(a, b, solver.solve(b), 1e-13);
+			assertFalse(solver.isDoublePrecision());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test public void testLinear() {
+		Matrix a=Matrix.createRandom(150, 150);
+		Vector b=Vector.createLength(150);
+		Vectorz.fillRandom(b, 7);
+		checkSolution(a, b, Linear.solveMixedPrecision(a, b), 1e-13);
+
+		assertNull(Linear.solveMixedPrecision(Matrix.create(3, 3), b.subVector(0, 3)));
+		assertThrows(IllegalArgumentException.class, () -> MixedPrecisionLU.create(Matrix.create(3, 4)));
+		assertThrows(IllegalArgumentException.class, () -> MixedPrecisionLU.create(a).solve(Vector.createLength(3)));
+	}
+}
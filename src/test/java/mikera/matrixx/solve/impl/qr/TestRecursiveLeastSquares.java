@@ -0,0 +1,78 @@
+package mikera.matrixx.solve.impl.qr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import mikera.matrixx.Matrix;
+import mikera.matrixx.solve.Linear;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vectorz;
+
+public class TestRecursiveLeastSquares {
+
+	private static double residualSumOfSquares(Matrix a, AVector b, AVector x) {
+		AVector e=b.clone();
+		e.sub(a.innerProduct(x));
+		return e.dotProduct(e);
+	}
+
+	@Test public void testStreaming() {
+		Matrix a=Matrix.createRandom(200, 6);
+		AVector b=Vectorz.createUniformRandomVector(200);
+
+		RecursiveLeastSquares rls=new RecursiveLeastSquares(6);
+		for (int i=0; i<200; i++) {
+			rls.addRow(a.getRow(i), b.get(i));
+		}
+		assertEquals(200,rls.getRowCount());
+
+		AVector expected=Linear.solveLeastSquares(a, b);
+		assertTrue(expected.epsilonEquals(rls.getCoefficients(), 1e-10));
+		assertEquals(residualSumOfSquares(a,b,expected), rls.getResidualSumOfSquares(), 1e-10);
+		assertTrue(rls.getR().isUpperTriangular());
+	}
+
+	@Test public void testForgetting() {
+		double lambda=0.9;
+		int m=50;
+		Matrix a=Matrix.createRandom(m, 4);
+		AVector b=Vectorz.createUniformRandomVector(m);
+
+		// equivalent weighted problem, with row i scaled by sqrt(lambda)^(m-1-i)
+		Matrix wa=a.clone();
+		AVector wb=b.clone();
+		for (int i=0; i<m; i++) {
+			double s=Math.pow(lambda, 0.5*(m-1-i));
+			wa.getRowView(i).scale(s);
+			wb.set(i, wb.get(i)*s);
+		}
+		AVector expected=Linear.solveLeastSquares(wa, wb);
+
+		RecursiveLeastSquares rls=new RecursiveLeastSquares(4,lambda);
+		rls.addRows(a, b);
+		assertTrue(expected.epsilonEquals(rls.getCoefficients(), 1e-10));
+		assertEquals(residualSumOfSquares(wa,wb,expected), rls.getResidualSumOfSquares(), 1e-10);
+
+		// batch initialisation followed by streaming
+		RecursiveLeastSquares batch=RecursiveLeastSquares.create(a.subMatrix(0, 30, 0, 4).toMatrix(), b.subVector(0, 30), lambda);
+		batch.addRows(a.subMatrix(30, 20, 0, 4), b.subVector(30, 20));
+		assertEquals(m,batch.getRowCount());
+		assertTrue(expected.epsilonEquals(batch.getCoefficients(), 1e-10));
+		assertEquals(residualSumOfSquares(wa,wb,expected), batch.getResidualSumOfSquares(), 1e-10);
+	}
+
+	@Test public void testUnderdetermined() {
+		RecursiveLeastSquares rls=new RecursiveLeastSquares(3);
+		rls.addRow(Vectorz.create(1,2,3), 1.0);
+		rls.addRow(Vectorz.create(2,1,0), 1.0);
+		assertThrows(IllegalArgumentException.class, () -> rls.getCoefficients());
+		rls.addRow(Vectorz.create(0,0,1), 1.0);
+		assertEquals(3,rls.getCoefficients().length());
+
+		assertThrows(IllegalArgumentException.class, () -> new RecursiveLeastSquares(3,0.0));
+		assertThrows(IllegalArgumentException.class, () -> rls.addRow(Vectorz.create(1,2), 1.0));
+	}
+}
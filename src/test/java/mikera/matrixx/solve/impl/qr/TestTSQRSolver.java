@@ -0,0 +1,92 @@
+package mikera.matrixx.solve.impl.qr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.solve.Linear;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vectorz;
+
+public class TestTSQRSolver {
+
+	private AMatrix solveHouseholder(AMatrix a, AMatrix b) {
+		QRHouseColSolver solver=new QRHouseColSolver();
+		solver.setA(a);
+		return solver.solve(b);
+	}
+
+	@Test public void testSolve() {
+		Matrix a=Matrix.createRandom(3000, 12);
+		Matrix b=Matrix.createRandom(3000, 3);
+		AMatrix expected=solveHouseholder(a,b);
+
+		TSQRSolver solver=new TSQRSolver(12,3,100);
+		solver.addRows(a, b);
+		assertEquals(3000,solver.getRowCount());
+		assertTrue(expected.epsilonEquals(solver.solve(), 1e-10));
+		assertTrue(solver.getR().isUpperTriangular());
+
+		assertTrue(expected.epsilonEquals(TSQRSolver.solve(a, b), 1e-10));
+	}
+
+	@Test public void testStreaming() {
+		Matrix a=Matrix.createRandom(1000, 7);
+		AVector b=Vectorz.createUniformRandomVector(1000);
+		AVector expected=Linear.solveLeastSquares(a, b);
+
+		TSQRSolver solver=new TSQRSolver(7,1,50);
+		int[] sizes= {3,200,1,396,400};
+		int start=0;
+		for (int size: sizes) {
+			solver.addRows(a.subMatrix(start, size, 0, 7), b.subVector(start, size));
+			start+=size;
+		}
+		assertEquals(1000,start);
+		assertTrue(expected.epsilonEquals(solver.solve().getColumn(0), 1e-10));
+	}
+
+	@Test public void testParallelTree() throws Exception {
+		Matrix a=Matrix.createRandom(5000, 20);
+		Matrix b=Matrix.createRandom(5000, 1);
+		AMatrix expected=solveHouseholder(a,b);
+
+		ForkJoinPool pool=new ForkJoinPool(4);
+		try {
+			AMatrix x=pool.submit(() -> {
+				TSQRSolver solver=new TSQRSolver(20,1,64);
+				solver.addRows(a, b);
+				return solver.solve();
+			}).get();
+			assertTrue(expected.epsilonEquals(x, 1e-10));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test public void testLinearLeastSquares() {
+		int rows=2*TSQRSolver.DEFAULT_CHUNK_ROWS+5;
+		assertTrue(TSQRSolver.isTSQRSize(rows, 10));
+		Matrix a=Matrix.createRandom(rows, 10);
+		AVector b=Vectorz.createUniformRandomVector(rows);
+		AVector x=Linear.solveLeastSquares(a, b);
+		AVector residual=b.clone();
+		residual.sub(a.innerProduct(x));
+		assertTrue(a.getTranspose().innerProduct(residual).epsilonEquals(Vectorz.newVector(10), 1e-9));
+	}
+
+	@Test public void testUnderdetermined() {
+		TSQRSolver solver=new TSQRSolver(5,1);
+		assertThrows(IllegalArgumentException.class, () -> solver.solve());
+		solver.addRows(Matrix.createRandom(3, 5), Vectorz.createUniformRandomVector(3));
+		assertThrows(IllegalArgumentException.class, () -> solver.solve());
+		solver.addRows(Matrix.createRandom(3, 5), Vectorz.createUniformRandomVector(3));
+		assertEquals(5,solver.solve().rowCount());
+	}
+}
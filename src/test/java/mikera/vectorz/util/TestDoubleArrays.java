@@ -0,0 +1,132 @@
+package mikera.vectorz.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class TestDoubleArrays {
+	private static final double EPS=1e-10;
+	
+	private static double[] rand(int n) {
+		double[] d=new double[n];
+		for (int i=0; i<n; i++) d[i]=Math.random()-0.5;
+		return d;
+	}
+
+	/**
+	 * Checks the core kernels against simple loops, at lengths either side of the 
+	 * threshold for accelerated kernels and with odd offsets to exercise loop tails
+	 */
+	@Test public void testKernels() {
+		for (int n: new int[] {0,1,7,31,32,33,100,257}) {
+			double[] a=rand(n+3);
+			double[] b=rand(n+5);
+			
+			double dot=0.0, sum=0.0, sq=0.0;
+			for (int i=0; i<n; i++) {
+				dot+=a[3+i]*b[5+i];
+				sum+=a[3+i];
+				sq+=a[3+i]*a[3+i];
+			}
+			assertEquals(dot,DoubleArrays.dotProduct(a, 3, b, 5, n),EPS);
+			assertEquals(sum,DoubleArrays.elementSum(a, 3, n),EPS);
+			assertEquals(sq,DoubleArrays.elementSquaredSum(a, 3, n),EPS);
+			
+			double[] c=a.clone();
+			DoubleArrays.addMultiple(c, 3, b, 5, n, 2.0);
+			for (int i=0; i<n; i++) assertEquals(a[3+i]+2.0*b[5+i],c[3+i],EPS);
+			assertEquals(a[0],c[0]);
+			
+			c=a.clone();
+			DoubleArrays.addProduct(c, 3, a, 3, b, 5, n, 0.5);
+			for (int i=0; i<n; i++) assertEquals(a[3+i]+0.5*a[3+i]*b[5+i],c[3+i],EPS);
+			
+			c=a.clone();
+			DoubleArrays.arraymultiply(b, 5, c, 3, n);
+			for (int i=0; i<n; i++) assertEquals(a[3+i]*b[5+i],c[3+i],EPS);
+			
+			c=a.clone();
+			DoubleArrays.multiply(c, 3, n, 3.0);
+			for (int i=0; i<n; i++) assertEquals(a[3+i]*3.0,c[3+i],EPS);
+			assertEquals(a[n+2]*((n>0)?3.0:1.0),c[n+2],EPS);
+		}
+	}
+
+	/**
+	 * Checks that the Vector API backend is loaded when the tests are run with the simd profile
+	 */
+	@Test public void testSimdActive() {
+		boolean expected=Boolean.getBoolean("vectorz.test.simd");
+		assumeTrue(expected);
+		assertTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent());
+		assertTrue(DoubleArrays.isAccelerated());
+		assertEquals("mikera.vectorz.util.VectorApiKernels",DoubleArrays.KERNELS.getClass().getName());
+	}
+
+	/**
+	 * Compares the accelerated kernels directly with scalar loops, at every length up to 
+	 * beyond the threshold so that all loopBound tails for any lane count are covered
+	 */
+	@Test public void testSimdKernels() {
+		IArrayKernels k=DoubleArrays.KERNELS;
+		assumeTrue(k!=null);
+		for (int n=0; n<=DoubleArrays.KERNEL_THRESHOLD+17; n++) {
+			for (int off=0; off<3; off++) {
+				double[] a=rand(n+off+1);
+				double[] b=rand(n+2);
+				
+				double dot=0.0, sum=0.0, sq=0.0;
+				for (int i=0; i<n; i++) {
+					dot+=a[off+i]*b[2+i];
+					sum+=a[off+i];
+					sq+=a[off+i]*a[off+i];
+				}
+				assertEquals(dot,k.dotProduct(a, off, b, 2, n),EPS);
+				assertEquals(sum,k.elementSum(a, off, n),EPS);
+				assertEquals(sq,k.elementSquaredSum(a, off, n),EPS);
+				
+				double[] c=a.clone();
+				k.multiply(c, off, n, 3.0);
+				for (int i=0; i<n; i++) assertEquals(a[off+i]*3.0,c[off+i]);
+				assertEquals(a[off+n],c[off+n]);
+				
+				c=a.clone();
+				k.arraymultiply(b, 2, c, off, n);
+				for (int i=0; i<n; i++) assertEquals(a[off+i]*b[2+i],c[off+i]);
+				assertEquals(a[off+n],c[off+n]);
+				
+				c=a.clone();
+				k.addMultiple(c, off, b, 2, n, 2.0);
+				for (int i=0; i<n; i++) assertEquals(a[off+i]+2.0*b[2+i],c[off+i],EPS);
+				assertEquals(a[off+n],c[off+n]);
+				
+				c=a.clone();
+				k.addProduct(c, off, a, off, b, 2, n, 0.5);
+				for (int i=0; i<n; i++) assertEquals(a[off+i]+0.5*a[off+i]*b[2+i],c[off+i],EPS);
+				assertEquals(a[off+n],c[off+n]);
+				if (off>0) assertEquals(a[0],c[0]);
+			}
+		}
+	}
+
+	/**
+	 * Checks that the accelerated dot product uses fused multiply-add. Each lane accumulates -1 and 
+	 * then (1+e)(1-e), which rounds to exactly zero with a separate multiply and add.
+	 */
+	@Test public void testSimdFusedDotProduct() {
+		IArrayKernels k=DoubleArrays.KERNELS;
+		assumeTrue(k!=null);
+		double e=Math.scalb(1.0, -30);
+		double[] a=new double[16];
+		double[] b=new double[16];
+		for (int i=0; i<8; i++) {
+			a[i]=1.0; b[i]=-1.0;
+			a[i+8]=1.0+e; b[i+8]=1.0-e;
+		}
+		assertEquals(0.0,DoubleArrays.dotProduct(a, 0, b, 0, 8)+DoubleArrays.dotProduct(a, 8, b, 8, 8));
+		double dot=k.dotProduct(a, 0, b, 0, 16);
+		assertTrue(dot<0.0);
+		assertTrue(dot>=-8*e*e);
+	}
+}
@@ -0,0 +1,75 @@
+package mikera.vectorz.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import mikera.util.Rand;
+
+public class TestIntDoubleHashMap {
+
+	@Test public void testBasics() {
+		IntDoubleHashMap m=new IntDoubleHashMap();
+		assertTrue(m.isEmpty());
+		m.put(7, 1.0);
+		m.put(3, 2.0);
+		m.put(7, 3.0);
+		assertEquals(2,m.size());
+		assertEquals(3.0,m.get(7),0.0);
+		assertEquals(0.0,m.get(4),0.0);
+		assertEquals(5.0,m.addValue(3, 3.0),0.0);
+		assertEquals(1.0,m.addValue(100, 1.0),0.0);
+		assertTrue(m.remove(3));
+		assertFalse(m.remove(3));
+		assertFalse(m.containsKey(3));
+		assertEquals(2,m.size());
+
+		int[] ks=new int[2];
+		double[] vs=new double[2];
+		m.getSortedEntries(ks, vs);
+		assertEquals(7,ks[0]);
+		assertEquals(100,ks[1]);
+		assertEquals(3.0,vs[0],0.0);
+		assertEquals(1.0,vs[1],0.0);
+	}
+
+	@Test public void testRandomOperations() {
+		IntDoubleHashMap m=new IntDoubleHashMap();
+		HashMap<Integer,Double> ref=new HashMap<Integer,Double>();
+		for (int t=0; t<20000; t++) {
+			// small key range forces long probe runs and frequent deletion shifts
+			int k=Rand.r(500);
+			if (Rand.r(3)==0) {
+				assertEquals(ref.remove(k)!=null,m.remove(k));
+			} else {
+				double v=Rand.nextGaussian();
+				ref.put(k, v);
+				m.put(k, v);
+			}
+		}
+		assertEquals(ref.size(),m.size());
+		for (int k=0; k<500; k++) {
+			Double d=ref.get(k);
+			assertEquals(d!=null,m.containsKey(k));
+			assertEquals((d==null)?0.0:d,m.get(k),0.0);
+		}
+
+		int[] keys=m.sortedKeys();
+		assertEquals(ref.size(),keys.length);
+		for (int i=1; i<keys.length; i++) {
+			assertTrue(keys[i-1]<keys[i]);
+		}
+
+		IntDoubleHashMap c=m.clone();
+		c.clear();
+		assertEquals(0,c.size());
+		for (Map.Entry<Integer,Double> e: ref.entrySet()) {
+			assertEquals(e.getValue(),m.get(e.getKey()),0.0);
+		}
+	}
+}